@@ -0,0 +1,97 @@
+package com.ivanferrerfranco.flightsfx.benchmarks;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightStatistics;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Pruebas de rendimiento de la agrupación por destino que alimenta el gráfico.
+ * <p>
+ * El gráfico lee el número de vuelos de cada destino de {@link FlightStatistics}, que lo calcula una vez
+ * al crearse y después lo mantiene con cada cambio. Se mide esa construcción, la actualización tras un
+ * alta y una baja, y como referencia la agrupación completa con {@link Collectors#groupingBy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ChartBenchmark {
+
+    /** Número de vuelos de la lista. */
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    /** Lista de vuelos. */
+    private ObservableList<Flight> flights;
+
+    /** Estadísticas que se mantienen con los cambios de la lista. */
+    private FlightStatistics statistics;
+
+    /** Vuelo que se añade y se elimina en la prueba de actualización. */
+    private Flight extraFlight;
+
+    /**
+     * Genera los vuelos y las estadísticas.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Flight> generated = FlightDataGenerator.generate(rows + 1, FlightDataGenerator.DEFAULT_SEED);
+        extraFlight = generated.remove(rows);
+        flights = FXCollections.observableArrayList(generated);
+        statistics = new FlightStatistics(flights);
+    }
+
+    /**
+     * Agrupa todos los vuelos por destino con un recolector de streams.
+     *
+     * @return El número de vuelos de cada destino.
+     */
+    @Benchmark
+    public Map<String, Long> groupingBy() {
+        return flights.stream().collect(Collectors.groupingBy(Flight::getDestination, Collectors.counting()));
+    }
+
+    /**
+     * Construye las estadísticas de la lista, como al abrir el gráfico.
+     *
+     * @return El número de vuelos de cada destino.
+     */
+    @Benchmark
+    public Map<String, Integer> statisticsBuild() {
+        FlightStatistics built = new FlightStatistics(flights);
+        flights.removeListener(built);
+        return built.getDestinationCounts();
+    }
+
+    /**
+     * Añade y elimina un vuelo, actualizando las estadísticas de forma incremental.
+     *
+     * @return El número de vuelos del destino del vuelo.
+     */
+    @Benchmark
+    public Integer statisticsUpdate() {
+        flights.add(extraFlight);
+        flights.remove(flights.size() - 1);
+        return statistics.getDestinationCounts().get(extraFlight.getDestination());
+    }
+}
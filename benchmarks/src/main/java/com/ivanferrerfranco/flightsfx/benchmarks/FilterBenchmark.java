@@ -0,0 +1,188 @@
+package com.ivanferrerfranco.flightsfx.benchmarks;
+
+import com.ivanferrerfranco.flightsfx.model.DepartureIndex;
+import com.ivanferrerfranco.flightsfx.model.DestinationIndex;
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightStatistics;
+import com.ivanferrerfranco.flightsfx.model.FlightTextIndex;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pruebas de rendimiento de cada opción del filtro de la vista principal y de la búsqueda por texto.
+ * <p>
+ * Cada prueba reproduce lo que hace el controlador para esa opción: los filtros por destino y por duración
+ * cambian el predicado de un {@link FilteredList}, los próximos vuelos se consultan con los índices y la
+ * duración media se lee de {@link FlightStatistics}. El instante de referencia es la mitad del año generado,
+ * para que los resultados no dependan de la fecha en la que se ejecuta la prueba.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilterBenchmark {
+
+    /** Duración a partir de la cual un vuelo es largo, igual que en la vista principal. */
+    private static final LocalTime LONG_FLIGHT_DURATION = LocalTime.of(3, 0);
+
+    /** Número de próximos vuelos, el valor inicial del selector de la vista principal. */
+    private static final int NEXT_FLIGHTS = 5;
+
+    /** Instante de referencia de las consultas de próximos vuelos. */
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 7, 1, 12, 0);
+
+    /** Número de vuelos de la lista. */
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    /** Destino de los filtros por ciudad: uno frecuente y otro poco frecuente. */
+    @Param({"Madrid", "Niza"})
+    public String city;
+
+    /** Lista de vuelos. */
+    private ObservableList<Flight> flights;
+
+    /** Vista filtrada de la lista, como la de la tabla. */
+    private FilteredList<Flight> filteredFlights;
+
+    /** Índice por destino. */
+    private DestinationIndex destinationIndex;
+
+    /** Índice por salida. */
+    private DepartureIndex departureIndex;
+
+    /** Estadísticas de la lista. */
+    private FlightStatistics statistics;
+
+    /** Índice de búsqueda por texto. */
+    private FlightTextIndex textIndex;
+
+    /**
+     * Genera los vuelos y construye los índices.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        flights = FXCollections.observableArrayList(FlightDataGenerator.generate(rows, FlightDataGenerator.DEFAULT_SEED));
+        filteredFlights = new FilteredList<>(flights);
+        destinationIndex = new DestinationIndex(flights);
+        departureIndex = new DepartureIndex(flights);
+        statistics = new FlightStatistics(flights);
+        textIndex = new FlightTextIndex(flights);
+    }
+
+    /**
+     * Opción "Show all flights": quita el predicado.
+     *
+     * @return El número de vuelos visibles.
+     */
+    @Benchmark
+    public int all() {
+        filteredFlights.setPredicate(FlightQuery.all().toPredicate());
+        return filteredFlights.size();
+    }
+
+    /**
+     * Opción "Show flights to currently selected city", recorriendo la lista con el predicado.
+     *
+     * @return El número de vuelos visibles.
+     */
+    @Benchmark
+    public int selectedCityScan() {
+        filteredFlights.setPredicate(FlightQuery.all().to(city).toPredicate());
+        return filteredFlights.size();
+    }
+
+    /**
+     * Opción "Show flights to currently selected city", consultando el índice por destino.
+     *
+     * @return Los vuelos al destino.
+     */
+    @Benchmark
+    public List<Flight> selectedCityIndexed() {
+        return FlightQuery.all().to(city).execute(flights, destinationIndex, departureIndex);
+    }
+
+    /**
+     * Opción "Show long flights".
+     *
+     * @return El número de vuelos visibles.
+     */
+    @Benchmark
+    public int longFlights() {
+        filteredFlights.setPredicate(FlightQuery.all().longerThan(LONG_FLIGHT_DURATION).toPredicate());
+        return filteredFlights.size();
+    }
+
+    /**
+     * Opción "Show next N flights", consultando el índice por salida.
+     *
+     * @return Los próximos vuelos.
+     */
+    @Benchmark
+    public List<Flight> nextFlights() {
+        return FlightQuery.all().departingAfter(NOW).orderByDeparture().limit(NEXT_FLIGHTS)
+                .execute(flights, destinationIndex, departureIndex);
+    }
+
+    /**
+     * Opción "Show next N flights", recorriendo y ordenando la lista sin índices.
+     *
+     * @return Los próximos vuelos.
+     */
+    @Benchmark
+    public List<Flight> nextFlightsScan() {
+        return FlightQuery.all().departingAfter(NOW).orderByDeparture().limit(NEXT_FLIGHTS).execute(flights);
+    }
+
+    /**
+     * Opción "Show departures in the next hour".
+     *
+     * @return Los vuelos de la próxima hora.
+     */
+    @Benchmark
+    public List<Flight> nextHour() {
+        return FlightQuery.all().departingBetween(NOW, NOW.plusHours(1)).orderByDeparture()
+                .execute(flights, destinationIndex, departureIndex);
+    }
+
+    /**
+     * Opción "Show flight duration average".
+     *
+     * @return La duración media en minutos.
+     */
+    @Benchmark
+    public double averageDuration() {
+        return statistics.getAverageDuration();
+    }
+
+    /**
+     * Búsqueda por texto con el destino seleccionado.
+     *
+     * @return Los vuelos encontrados.
+     */
+    @Benchmark
+    public List<Flight> search() {
+        return textIndex.search(city);
+    }
+}
@@ -0,0 +1,277 @@
+package com.ivanferrerfranco.flightsfx.benchmarks;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightDateCodec;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generador determinista de vuelos sintéticos para las pruebas de rendimiento.
+ * <p>
+ * Con la misma semilla genera siempre los mismos vuelos. Los destinos siguen una distribución de Zipf,
+ * de modo que unos pocos destinos concentran la mayoría de los vuelos, como en un aeropuerto real.
+ * Los números de vuelo son únicos, las salidas se reparten a lo largo de un año con más vuelos por
+ * la mañana y por la tarde, y la duración depende del destino con una pequeña variación.
+ * <p>
+ * También se puede ejecutar desde la línea de comandos para crear un archivo de vuelos:
+ * {@code java -cp benchmarks.jar com.ivanferrerfranco.flightsfx.benchmarks.FlightDataGenerator 1000000 flights.txt [semilla]}
+ */
+public class FlightDataGenerator {
+
+    /** Semilla por defecto. */
+    public static final long DEFAULT_SEED = 20240101L;
+
+    /** Exponente de la distribución de Zipf de los destinos. */
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    /** Destinos, del más frecuente al menos frecuente. */
+    private static final String[] DESTINATIONS = {
+            "Madrid", "Barcelona", "Palma", "Londres", "París", "Roma", "Lisboa", "Tenerife", "Gran Canaria", "Sevilla",
+            "Málaga", "Bilbao", "Ámsterdam", "Frankfurt", "Berlín", "Milán", "Bruselas", "Múnich", "Dublín", "Zúrich",
+            "Oviedo", "Murcia", "Santiago", "Ibiza", "Menorca", "Valencia", "Alicante", "Granada", "Vigo", "Asturias",
+            "Nueva York", "Miami", "Buenos Aires", "Ciudad de México", "Bogotá", "Lima", "São Paulo", "Santiago de Chile",
+            "Estambul", "Atenas", "Viena", "Praga", "Varsovia", "Copenhague", "Estocolmo", "Oslo", "Helsinki", "Budapest",
+            "Marrakech", "Casablanca", "El Cairo", "Dubái", "Doha", "Tokio", "Pekín", "Singapur", "Bangkok", "Tel Aviv",
+            "Oporto", "Niza"
+    };
+
+    /** Códigos de compañía de los números de vuelo. */
+    private static final String[] AIRLINES = {"IB", "VY", "UX", "I2", "V7", "FR"};
+
+    /** Peso relativo de cada hora de salida, con picos por la mañana y por la tarde. */
+    private static final int[] HOUR_WEIGHTS = {1, 1, 1, 1, 2, 4, 8, 10, 10, 8, 7, 6, 6, 6, 6, 7, 8, 9, 10, 9, 7, 5, 3, 2};
+
+    /** Primera salida posible. */
+    private static final long FIRST_DEPARTURE = FlightStore.toEpochMinutes(LocalDateTime.of(2024, 1, 1, 0, 0));
+
+    /** Probabilidad acumulada de cada destino. */
+    private static final double[] DESTINATION_CDF = cumulative(zipfWeights(DESTINATIONS.length));
+
+    /** Probabilidad acumulada de cada hora de salida. */
+    private static final double[] HOUR_CDF = cumulative(Arrays.stream(HOUR_WEIGHTS).asDoubleStream().toArray());
+
+    /** Duración base de cada destino, en minutos. */
+    private static final int[] BASE_DURATIONS = baseDurations();
+
+    /** Generador de números aleatorios, determinista para una semilla. */
+    private final SplittableRandom random;
+
+    /** Número de vuelos generados, usado para que los números de vuelo sean únicos. */
+    private long sequence;
+
+    /**
+     * Crea un generador con una semilla.
+     *
+     * @param seed Semilla; la misma semilla produce los mismos vuelos.
+     */
+    public FlightDataGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Genera una lista de vuelos.
+     *
+     * @param rows Número de vuelos.
+     * @param seed Semilla.
+     * @return Los vuelos generados.
+     */
+    public static List<Flight> generate(int rows, long seed) {
+        FlightDataGenerator generator = new FlightDataGenerator(seed);
+        List<Flight> flights = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            flights.add(generator.next());
+        }
+        return flights;
+    }
+
+    /**
+     * Escribe un archivo de vuelos con el formato de {@code flights.txt}, línea a línea y sin guardar los vuelos en memoria.
+     *
+     * @param path Archivo de destino.
+     * @param rows Número de vuelos.
+     * @param seed Semilla.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static void write(Path path, long rows, long seed) throws IOException {
+        FlightDataGenerator generator = new FlightDataGenerator(seed);
+        StringBuilder line = new StringBuilder(64);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("FlightNumber;Destination;DepartureDateTime;Duration");
+            writer.newLine();
+            for (long i = 0; i < rows; i++) {
+                line.setLength(0);
+                generator.appendNextLine(line);
+                writer.append(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Devuelve un archivo de vuelos generado, creándolo en el directorio temporal la primera vez.
+     * Como el generador es determinista, el archivo se reutiliza entre ejecuciones.
+     *
+     * @param rows Número de vuelos.
+     * @param seed Semilla.
+     * @return La ruta del archivo.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static Path cachedFile(long rows, long seed) throws IOException {
+        Path path = Paths.get(System.getProperty("java.io.tmpdir"), "flightsfx-" + rows + "-" + seed + ".txt");
+        if (!Files.exists(path)) {
+            Path temporary = Files.createTempFile(path.getParent(), "flightsfx-", ".tmp");
+            write(temporary, rows, seed);
+            Files.move(temporary, path);
+        }
+        return path;
+    }
+
+    /**
+     * Genera el siguiente vuelo.
+     *
+     * @return El vuelo.
+     */
+    public Flight next() {
+        int destination = destination();
+        return new Flight(flightNumber(), DESTINATIONS[destination],
+                FlightStore.fromEpochMinutes(departure()), FlightStore.fromMinutes((short) duration(destination)));
+    }
+
+    /**
+     * Añade el siguiente vuelo como una línea de {@code flights.txt}, sin salto de línea.
+     *
+     * @param line Texto al que se añade la línea.
+     */
+    public void appendNextLine(StringBuilder line) {
+        int destination = destination();
+        line.append(flightNumber()).append(';').append(DESTINATIONS[destination]).append(';');
+        FlightDateCodec.appendDateTime(line, departure()).append(';');
+        FlightDateCodec.appendDuration(line, duration(destination));
+    }
+
+    /**
+     * Genera un número de vuelo único: el código de compañía seguido de un número de siete cifras.
+     *
+     * @return El número de vuelo.
+     */
+    private String flightNumber() {
+        long n = sequence++;
+        String digits = Long.toString(n / AIRLINES.length);
+        return AIRLINES[(int) (n % AIRLINES.length)] + "0000000".substring(Math.min(7, digits.length())) + digits;
+    }
+
+    /**
+     * Elige un destino según la distribución de Zipf.
+     *
+     * @return La posición del destino.
+     */
+    private int destination() {
+        return sample(DESTINATION_CDF);
+    }
+
+    /**
+     * Genera una salida dentro de un año, con la hora según {@link #HOUR_WEIGHTS}.
+     *
+     * @return La salida en minutos desde la época.
+     */
+    private long departure() {
+        int day = random.nextInt(365);
+        int hour = sample(HOUR_CDF);
+        int minute = random.nextInt(12) * 5;
+        return FIRST_DEPARTURE + day * 1440L + hour * 60 + minute;
+    }
+
+    /**
+     * Genera la duración de un vuelo a un destino, con una variación de hasta 20 minutos sobre la base.
+     *
+     * @param destination Posición del destino.
+     * @return La duración en minutos.
+     */
+    private int duration(int destination) {
+        return Math.min(23 * 60 + 59, BASE_DURATIONS[destination] + random.nextInt(-20, 21));
+    }
+
+    /**
+     * Elige una posición según una distribución acumulada.
+     *
+     * @param cdf Probabilidades acumuladas, la última igual a 1.
+     * @return La posición elegida.
+     */
+    private int sample(double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * Calcula los pesos de una distribución de Zipf.
+     *
+     * @param count Número de elementos.
+     * @return El peso de cada elemento, de mayor a menor.
+     */
+    private static double[] zipfWeights(int count) {
+        double[] weights = new double[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+        }
+        return weights;
+    }
+
+    /**
+     * Convierte unos pesos en probabilidades acumuladas.
+     *
+     * @param weights Pesos.
+     * @return Las probabilidades acumuladas, la última igual a 1.
+     */
+    private static double[] cumulative(double[] weights) {
+        double total = Arrays.stream(weights).sum();
+        double[] cdf = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cdf[i] = sum / total;
+        }
+        cdf[cdf.length - 1] = 1;
+        return cdf;
+    }
+
+    /**
+     * Asigna a cada destino una duración base: vuelos nacionales cortos, europeos medios e intercontinentales largos.
+     *
+     * @return La duración base de cada destino, en minutos.
+     */
+    private static int[] baseDurations() {
+        SplittableRandom random = new SplittableRandom(DEFAULT_SEED);
+        int[] durations = new int[DESTINATIONS.length];
+        for (int i = 0; i < durations.length; i++) {
+            boolean longHaul = (i >= 30 && i < 38) || (i >= 51 && i < 58);
+            durations[i] = longHaul ? 7 * 60 + random.nextInt(6 * 60) : 50 + random.nextInt(3 * 60);
+        }
+        return durations;
+    }
+
+    /**
+     * Crea un archivo de vuelos sintéticos.
+     *
+     * @param args Número de vuelos, archivo de destino y, opcionalmente, semilla.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Uso: FlightDataGenerator <vuelos> <archivo> [semilla]");
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        write(Paths.get(args[1]), Long.parseLong(args[0]), seed);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ivanferrerfranco.flightsfx.benchmarks;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+import com.ivanferrerfranco.flightsfx.utils.LoadResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pruebas de rendimiento de la carga y el guardado de vuelos, en texto y en instantánea binaria.
+ * <p>
+ * Los archivos de entrada se generan con {@link FlightDataGenerator} y se reutilizan entre ejecuciones.
+ * Cada invocación es una operación completa sobre el archivo, por lo que se mide el tiempo por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class LoadSaveBenchmark {
+
+    /** Número de vuelos del archivo. */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** Archivo de texto con los vuelos generados. */
+    private Path textFile;
+
+    /** Instantánea binaria con los mismos vuelos. */
+    private Path snapshotFile;
+
+    /** Archivo en el que escriben las pruebas de guardado. */
+    private Path outputFile;
+
+    /** Vuelos que se guardan en las pruebas de guardado. */
+    private List<Flight> flights;
+
+    /**
+     * Prepara los archivos de entrada y los vuelos a guardar.
+     *
+     * @throws IOException Si ocurre un error al generar los archivos.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        textFile = FlightDataGenerator.cachedFile(rows, FlightDataGenerator.DEFAULT_SEED);
+        flights = FileUtils.loadFlights(textFile);
+        snapshotFile = Files.createTempFile("flightsfx-benchmark-", ".bin");
+        FileUtils.saveSnapshot(flights, snapshotFile);
+        outputFile = Files.createTempFile("flightsfx-benchmark-", ".txt");
+    }
+
+    /**
+     * Elimina los archivos temporales de la prueba; el archivo de texto generado se conserva.
+     *
+     * @throws IOException Si ocurre un error al eliminar los archivos.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(outputFile);
+    }
+
+    /**
+     * Carga el archivo de texto línea a línea.
+     *
+     * @return Los vuelos cargados.
+     */
+    @Benchmark
+    public List<Flight> loadText() {
+        return FileUtils.loadFlights(textFile);
+    }
+
+    /**
+     * Carga el archivo de texto proyectado en memoria e interpretado en paralelo.
+     *
+     * @return Los vuelos cargados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Benchmark
+    public LoadResult loadTextParallel() throws IOException {
+        return FileUtils.loadFlightsParallel(textFile);
+    }
+
+    /**
+     * Carga la instantánea binaria.
+     *
+     * @return Los vuelos cargados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Benchmark
+    public List<Flight> loadSnapshot() throws IOException {
+        return FileUtils.loadSnapshot(snapshotFile);
+    }
+
+    /**
+     * Guarda los vuelos como texto.
+     */
+    @Benchmark
+    public void saveText() {
+        FileUtils.saveFlights(flights, outputFile);
+    }
+
+    /**
+     * Guarda los vuelos como instantánea binaria.
+     *
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        FileUtils.saveSnapshot(flights, outputFile);
+    }
+}
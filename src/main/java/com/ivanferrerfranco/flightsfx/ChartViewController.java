@@ -1,14 +1,21 @@
 package com.ivanferrerfranco.flightsfx;
 
-import com.ivanferrerfranco.flightsfx.model.Flight;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
+import com.ivanferrerfranco.flightsfx.model.FlightStatistics;
+import javafx.application.Platform;
+import javafx.collections.MapChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.chart.PieChart;
+import javafx.scene.control.CheckBox;
 import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Controlador para la vista del gráfico circular.
@@ -17,10 +24,23 @@ import java.util.stream.Collectors;
  */
 public class ChartViewController {
 
+    /** Número de destinos que se muestran por separado cuando la agrupación está activa. */
+    private static final int TOP_DESTINATIONS = 10;
+
+    /** Etiqueta de la porción que agrupa al resto de destinos. */
+    private static final String OTHER_LABEL = "Other";
+
+    /** Tiempo que tarda cada actualización del gráfico. */
+    private static final LatencyHistogram REFRESH_TIME = FlightMetrics.histogram("chart.refresh");
+
     /** Referencia al componente gráfico PieChart definido en el archivo FXML. */
     @FXML
     private PieChart pieChart;
 
+    /** Casilla que activa la agrupación de los destinos menos frecuentes en una sola porción. */
+    @FXML
+    private CheckBox checkTopDestinations;
+
     /** Nodo raíz del archivo FXML para aplicar configuraciones globales, como estilos CSS. */
     @FXML
     private AnchorPane rootPane;
@@ -28,12 +48,27 @@ public class ChartViewController {
     /** Stage principal de la aplicación donde se carga esta vista. */
     private Stage stage;
 
-    /** Lista observable que contiene los datos de los vuelos. */
-    private ObservableList<Flight> flights;
+    /** Estadísticas de los vuelos, de las que se toma el número de vuelos por destino. */
+    private FlightStatistics statistics;
 
     /** Callback que define la acción a realizar cuando el usuario desea regresar a la vista anterior. */
     private Runnable goBackCallback;
 
+    /** Porción del gráfico de cada destino que se muestra por separado. */
+    private final Map<String, PieChart.Data> slices = new HashMap<>();
+
+    /** Porción que agrupa los destinos que no están entre los principales, o {@code null} si no se muestra. */
+    private PieChart.Data otherSlice;
+
+    /** Destinos cuyo número de vuelos ha cambiado desde la última actualización del gráfico. */
+    private final Set<String> dirtyDestinations = new HashSet<>();
+
+    /** Indica si ya hay una actualización del gráfico programada. */
+    private boolean refreshScheduled;
+
+    /** Indica si la próxima actualización debe revisar todas las porciones y no solo las modificadas. */
+    private boolean fullRefresh;
+
     /**
      * Constructor vacío para la clase ChartViewController.
      * Este constructor no realiza ninguna acción, pero se necesita para cumplir con la convención de tener un constructor sin parámetros.
@@ -46,36 +81,155 @@ public class ChartViewController {
      * Inicializa los datos necesarios para la vista del gráfico circular.
      * Este método configura el gráfico con los datos de vuelos agrupados por destino,
      * aplica la hoja de estilos CSS al nodo raíz y establece la acción de volver a la vista principal.
+     * <p>
+     * La vista se crea una sola vez: a partir de aquí el gráfico escucha el número de vuelos por destino
+     * de las estadísticas y solo modifica las porciones de los destinos que cambian.
      *
-     * @param flights        Lista de vuelos que se mostrarán en el gráfico.
+     * @param statistics     Estadísticas de los vuelos que se mostrarán en el gráfico.
      * @param stage          Stage principal donde se encuentra esta vista.
      * @param goBackCallback Acción que se ejecutará al presionar el botón de regreso.
      */
-    public void initializeData(ObservableList<Flight> flights, Stage stage, Runnable goBackCallback) {
+    public void initializeData(FlightStatistics statistics, Stage stage, Runnable goBackCallback) {
         // Asigna los parámetros recibidos a las variables del controlador
-        this.flights = flights;
+        this.statistics = statistics;
         this.stage = stage;
         this.goBackCallback = goBackCallback;
 
-        // Procesa los datos de vuelos para agruparlos por destino y contar cuántos vuelos hay por cada uno
-        ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList(
-                flights.stream()
-                        // Agrupa los vuelos por su destino y cuenta cuántos hay por cada uno
-                        .collect(Collectors.groupingBy(Flight::getDestination, Collectors.counting()))
-                        .entrySet().stream()
-                        // Crea un objeto PieChart.Data para cada destino con su respectivo conteo
-                        .map(entry -> new PieChart.Data(entry.getKey(), entry.getValue()))
-                        .toList()
-        );
-
-        // Asigna los datos procesados al gráfico circular
-        pieChart.setData(pieChartData);
-
         // Establece un título descriptivo para el gráfico
         pieChart.setTitle("Flights By Destination");
 
         // Aplica la hoja de estilos al nodo raíz
         rootPane.getStylesheets().add(getClass().getResource("/com/ivanferrerfranco/flightsfx/css/style.css").toExternalForm());
+
+        // Escucha los cambios por destino y el modo de agrupación para actualizar solo lo necesario
+        statistics.getDestinationCounts().addListener((MapChangeListener<String, Integer>) change -> {
+            dirtyDestinations.add(change.getKey());
+            scheduleRefresh();
+        });
+        checkTopDestinations.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            fullRefresh = true;
+            scheduleRefresh();
+        });
+
+        // Crea las porciones iniciales
+        fullRefresh = true;
+        refresh();
+    }
+
+    /**
+     * Programa una actualización del gráfico para el siguiente pulso de JavaFX, si no hay ya una pendiente.
+     * Así, una ráfaga de cambios (por ejemplo, una importación masiva) se aplica de una sola vez.
+     */
+    private void scheduleRefresh() {
+        if (!refreshScheduled) {
+            refreshScheduled = true;
+            Platform.runLater(this::refresh);
+        }
+    }
+
+    /**
+     * Aplica al gráfico los cambios acumulados desde la última actualización.
+     * Sin agrupación, solo se tocan las porciones de los destinos modificados; con agrupación,
+     * se recalculan los destinos principales y se reutilizan las porciones que ya existían.
+     */
+    private void refresh() {
+        long start = System.nanoTime();
+        refreshScheduled = false;
+        Map<String, Integer> counts = statistics.getDestinationCounts();
+
+        if (checkTopDestinations.isSelected() && counts.size() > TOP_DESTINATIONS) {
+            // Mostrar los destinos con más vuelos y agrupar el resto en una porción "Other"
+            Map<String, Integer> top = topDestinations(counts);
+            long others = statistics.getFlightCount();
+            for (int count : top.values()) {
+                others -= count;
+            }
+            applySlices(top, others);
+        } else if (fullRefresh || otherSlice != null) {
+            applySlices(counts, 0);
+        } else {
+            for (String destination : dirtyDestinations) {
+                updateSlice(destination, counts.get(destination));
+            }
+        }
+
+        dirtyDestinations.clear();
+        fullRefresh = false;
+        REFRESH_TIME.recordSince(start);
+    }
+
+    /**
+     * Hace que el gráfico muestre exactamente las porciones indicadas, reutilizando las existentes.
+     *
+     * @param target Número de vuelos de cada destino que debe tener su propia porción.
+     * @param others Número de vuelos de la porción "Other", o 0 si no debe mostrarse.
+     */
+    private void applySlices(Map<String, Integer> target, long others) {
+        // Eliminar las porciones de destinos que ya no se muestran
+        slices.entrySet().removeIf(entry -> {
+            if (!target.containsKey(entry.getKey())) {
+                pieChart.getData().remove(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+
+        // Crear o actualizar las porciones de los destinos que se muestran
+        target.forEach(this::updateSlice);
+
+        // Crear, actualizar o eliminar la porción que agrupa al resto de destinos
+        if (others > 0 && otherSlice == null) {
+            otherSlice = new PieChart.Data(OTHER_LABEL, others);
+            pieChart.getData().add(otherSlice);
+        } else if (others > 0) {
+            otherSlice.setPieValue(others);
+        } else if (otherSlice != null) {
+            pieChart.getData().remove(otherSlice);
+            otherSlice = null;
+        }
+    }
+
+    /**
+     * Crea, actualiza o elimina la porción de un destino.
+     *
+     * @param destination Destino de la porción.
+     * @param count       Número de vuelos del destino, o {@code null} si ya no tiene vuelos.
+     */
+    private void updateSlice(String destination, Integer count) {
+        PieChart.Data slice = slices.get(destination);
+        if (count == null) {
+            if (slice != null) {
+                pieChart.getData().remove(slice);
+                slices.remove(destination);
+            }
+        } else if (slice == null) {
+            slice = new PieChart.Data(destination, count);
+            slices.put(destination, slice);
+            pieChart.getData().add(slice);
+        } else if (slice.getPieValue() != count) {
+            slice.setPieValue(count);
+        }
+    }
+
+    /**
+     * Selecciona los destinos con más vuelos.
+     *
+     * @param counts Número de vuelos de cada destino.
+     * @return Los {@link #TOP_DESTINATIONS} destinos con más vuelos y su número de vuelos.
+     */
+    private static Map<String, Integer> topDestinations(Map<String, Integer> counts) {
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(TOP_DESTINATIONS + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            top.add(entry);
+            if (top.size() > TOP_DESTINATIONS) {
+                top.poll();
+            }
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : top) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
     }
 
     /**
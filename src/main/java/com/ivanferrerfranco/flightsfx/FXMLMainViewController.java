@@ -1,30 +1,116 @@
 package com.ivanferrerfranco.flightsfx;
 
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
 import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightHistory;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightQueryView;
+import com.ivanferrerfranco.flightsfx.model.FlightRepository;
+import com.ivanferrerfranco.flightsfx.service.FlightService;
 import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+import com.ivanferrerfranco.flightsfx.utils.FlightArchive;
+import com.ivanferrerfranco.flightsfx.utils.FlightDatabase;
+import com.ivanferrerfranco.flightsfx.utils.FlightExportTask;
+import com.ivanferrerfranco.flightsfx.utils.FlightFileWatcher;
+import com.ivanferrerfranco.flightsfx.utils.FxActionRunner;
+import com.ivanferrerfranco.flightsfx.utils.FlightImportTask;
+import com.ivanferrerfranco.flightsfx.utils.LoadResult;
 import com.ivanferrerfranco.flightsfx.utils.MessageUtils;
+import com.ivanferrerfranco.flightsfx.utils.PagedFlightList;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Callback;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 /**
  * Controlador principal para la gestión de vuelos en la aplicación FlightsFX.
  * Este controlador gestiona la lógica de la interfaz gráfica, incluyendo
  * la adición, eliminación, filtrado y visualización de vuelos.
+ * Las operaciones sobre los vuelos se delegan en {@link FlightService}; el controlador
+ * solo traduce los controles de la vista en llamadas al servicio y muestra los resultados.
+ * <p>
+ * Con una base de datos abierta ({@link FlightDatabase}), la tabla no muestra los vuelos de la aplicación sino
+ * los de la última consulta a la base de datos, como mucho {@link #DATABASE_RESULT_LIMIT}: los filtros, las altas
+ * y las bajas se hacen sobre la base de datos, que no se carga entera en memoria.
  */
 public class FXMLMainViewController {
 
+    /** Duración a partir de la cual un vuelo se considera largo. */
+    private static final LocalTime LONG_FLIGHT_DURATION = LocalTime.of(3, 0);
+
+    /** Registro de los tiempos de cada fase del arranque. */
+    private static final System.Logger LOGGER = System.getLogger(FXMLMainViewController.class.getName());
+
+    /** Tiempo sin escribir que se espera antes de lanzar la búsqueda. */
+    private static final javafx.util.Duration SEARCH_DELAY = javafx.util.Duration.millis(150);
+
+    /** Tiempo que tarda en abrirse la vista del gráfico. */
+    private static final LatencyHistogram CHART_OPEN_TIME = FlightMetrics.histogram("chart.open");
+
+    /** Número de acciones en segundo plano que pueden ejecutarse a la vez, por ejemplo una búsqueda y un filtro. */
+    private static final int ACTION_THREADS = 2;
+
+    /** Número máximo de vuelos de una base de datos que se muestran en la tabla con cada consulta. */
+    private static final int DATABASE_RESULT_LIMIT = 1000;
+
+    /**
+     * Opciones del filtro del menú desplegable, con el texto que se muestra para cada una
+     * y el histograma con el tiempo que tarda en aplicarse.
+     */
+    private enum FilterOption {
+        ALL("Show all flights"),
+        SELECTED_CITY("Show flights to currently selected city"),
+        LONG_FLIGHTS("Show long flights"),
+        NEXT_FLIGHTS("Show next N flights"),
+        NEXT_HOUR("Show departures in the next hour"),
+        AVERAGE_DURATION("Show flight duration average");
+
+        private final String label;
+
+        private final LatencyHistogram latency;
+
+        FilterOption(String label) {
+            this.label = label;
+            this.latency = FlightMetrics.histogram("filter." + name().toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
     // Componentes de la interfaz gráfica definidos en el archivo FXML
     @FXML
     private TableView<Flight> tableFlights; // Tabla que muestra los vuelos
@@ -37,6 +123,8 @@ public class FXMLMainViewController {
     @FXML
     private TableColumn<Flight, LocalTime> colDuration; // Columna para la duración del vuelo
 
+    @FXML
+    private TextField txtSearch; // Campo de búsqueda por número de vuelo o destino
     @FXML
     private TextField txtFlightNumber; // Campo de texto para el número de vuelo
     @FXML
@@ -47,15 +135,98 @@ public class FXMLMainViewController {
     private TextField txtDuration; // Campo de texto para la duración
 
     @FXML
-    private ChoiceBox<String> choiceFilter; // Menú desplegable para los filtros
+    private ChoiceBox<FilterOption> choiceFilter; // Menú desplegable para los filtros
+    @FXML
+    private Spinner<Integer> spinnerNextCount; // Número de vuelos del filtro de próximos vuelos
+    @FXML
+    private ProgressBar progressTask; // Progreso de la importación o exportación en curso
+    @FXML
+    private Button btnImport; // Botón para importar vuelos de un archivo
+    @FXML
+    private Button btnExport; // Botón para exportar los vuelos mostrados
+    @FXML
+    private Button btnArchive; // Botón para abrir o cerrar un archivo de vuelos por páginas
+    @FXML
+    private Button btnFlight; // Botón para agregar un vuelo
+    @FXML
+    private Button btnDelete; // Botón para eliminar el vuelo seleccionado
+    @FXML
+    private Button btnFilter; // Botón para aplicar el filtro
+    @FXML
+    private Button btnShowChart; // Botón para mostrar el gráfico
+    @FXML
+    private Button btnUndo; // Botón para deshacer el último cambio
+    @FXML
+    private Button btnRedo; // Botón para rehacer el último cambio deshecho
+
+    // Servicio que mantiene los vuelos, sus índices, estadísticas, historial y persistencia; null mientras se cargan los vuelos
+    private FlightService service;
+
+    // Indica si los vuelos se están cargando; mientras tanto la tabla muestra los ya leídos y las acciones están desactivadas
+    private final BooleanProperty loading = new SimpleBooleanProperty(this, "loading", true);
+
+    // Tarea que carga los vuelos de la aplicación, que se cancela si la ventana se cierra antes de que termine
+    private Task<FlightService> loadTask;
 
-    // Lista observable que contiene los vuelos cargados
+    // Indica si la ventana se ha cerrado; las tareas que terminan después no arrancan nada
+    private boolean closed;
+
+    // Vigilante que aplica a la lista los cambios que otros programas hacen en el archivo de vuelos, o null si no se pudo crear
+    private FlightFileWatcher fileWatcher;
+
+    // Lista observable que contiene los vuelos cargados, propiedad del servicio
     private ObservableList<Flight> flights;
 
+    // Vista filtrada de los vuelos; cambiar de filtro solo cambia su predicado, sin copiar la lista
+    private FilteredList<Flight> filteredFlights;
+
+    // Vista ordenada que muestra la tabla cuando no hay ningún archivo abierto ni filtro elegido
+    private SortedList<Flight> sortedFlights;
+
+    // Resultado del filtro elegido, calculado con los índices y al día con los cambios de la lista
+    private FlightQueryView queryView;
+
+    // Vistas filtrada, por la búsqueda, y ordenada del resultado del filtro, que muestra la tabla mientras hay uno elegido
+    private FilteredList<Flight> filteredQueryFlights;
+    private SortedList<Flight> sortedQueryFlights;
+
+    // Archivo de vuelos abierto en la tabla para consultarlo por páginas, o null si la tabla muestra los vuelos de la aplicación
+    private PagedFlightList archiveFlights;
+
+    // Indica si la tabla muestra un archivo; mientras tanto se desactivan las acciones sobre los vuelos de la aplicación
+    private final BooleanProperty archiveMode = new SimpleBooleanProperty(this, "archiveMode");
+
+    // Base de datos abierta en la tabla, o null si la tabla no muestra ninguna
+    private FlightRepository repository;
+
+    // Cierre en segundo plano de la última base de datos cerrada; abrir otra espera a que termine
+    private CompletableFuture<Void> databaseClosing = CompletableFuture.completedFuture(null);
+
+    // Vuelos de la última consulta a la base de datos, que muestra la tabla mientras está abierta
+    private final ObservableList<Flight> repositoryFlights = FXCollections.observableArrayList();
+
+    // Última consulta a la base de datos, que se repite tras cada alta o baja
+    private FlightQuery repositoryQuery;
+
+    // Indica si la tabla muestra una base de datos; mientras tanto se desactivan la búsqueda, el gráfico y el historial
+    private final BooleanProperty databaseMode = new SimpleBooleanProperty(this, "databaseMode");
+
+    // Predicado de la búsqueda, que se aplica a la vista que muestra la tabla; null si no filtra nada
+    private Predicate<Flight> searchPredicate;
+
+    // Espera entre pulsaciones antes de buscar
+    private PauseTransition searchDelay;
+
+    // Ejecuta en segundo plano la parte costosa de la búsqueda, los filtros y el gráfico, y entrega su resultado en el hilo de JavaFX
+    private FxActionRunner actions;
+
     // Referencias al Stage principal y a la escena principal
     private Stage stage;
     private Scene mainScene;
 
+    // Escena del gráfico, creada la primera vez que se muestra
+    private Scene chartScene;
+
     /**
      * Constructor de la clase FXMLMainViewController.
      * Este constructor se utiliza para gestionar la vista principal de la interfaz de usuario.
@@ -68,7 +239,7 @@ public class FXMLMainViewController {
     /**
      * Devuelve la lista completa de vuelos cargados.
      *
-     * @return Lista de vuelos.
+     * @return Lista de vuelos, o {@code null} si todavía se están cargando.
      */
     public ObservableList<Flight> getFlights() {
         return flights;
@@ -76,51 +247,167 @@ public class FXMLMainViewController {
 
     /**
      * Método de inicialización del controlador.
-     * Configura las columnas de la tabla, formatea la fecha de salida
-     * y carga los datos iniciales desde el archivo.
+     * Configura las columnas de la tabla y formatea la fecha de salida. Los vuelos se cargan después
+     * en segundo plano, para que la ventana se muestre sin esperar a que termine la carga.
      */
     @FXML
     private void initialize() {
-        // Configurar las columnas de la tabla
-        colFlightNumber.setCellValueFactory(new PropertyValueFactory<>("flightNumber"));
-        colDestination.setCellValueFactory(new PropertyValueFactory<>("destination"));
-        colDeparture.setCellValueFactory(new PropertyValueFactory<>("departureDateTime"));
-        colDuration.setCellValueFactory(new PropertyValueFactory<>("duration"));
+        // Configurar las columnas de la tabla con las propiedades de cada vuelo, sin reflexión
+        colFlightNumber.setCellValueFactory(data -> data.getValue().flightNumberProperty());
+        colDestination.setCellValueFactory(data -> data.getValue().destinationProperty());
+        colDeparture.setCellValueFactory(data -> data.getValue().departureDateTimeProperty());
+        colDuration.setCellValueFactory(data -> data.getValue().durationProperty());
 
-        // Formatear la fecha en la tabla
+        // Formatear la fecha en la tabla con el texto que cada vuelo guarda ya formateado
         colDeparture.setCellFactory(column -> new TableCell<>() {
-            private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yy HH:mm");
-
             @Override
             protected void updateItem(LocalDateTime item, boolean empty) {
                 super.updateItem(item, empty);
-                setText((empty || item == null) ? null : item.format(formatter));
+                Flight flight = (empty || item == null || getTableRow() == null) ? null : getTableRow().getItem();
+                setText(flight == null ? null : flight.getDepartureText());
             }
         });
 
-        // Cargar los datos iniciales
-        flights = FXCollections.observableArrayList(FileUtils.loadFlights());
-        tableFlights.setItems(flights);
+        // Ni un archivo abierto ni los vuelos que se están cargando se ordenan: habría que leerlos enteros
+        Callback<TableView<Flight>, Boolean> sortPolicy = tableFlights.getSortPolicy();
+        tableFlights.setSortPolicy(table -> !archiveMode.get() && !loading.get() && sortPolicy.call(table));
+
+        // Buscar al dejar de escribir
+        actions = new FxActionRunner("ui-action", ACTION_THREADS);
+        searchDelay = new PauseTransition(SEARCH_DELAY);
+        searchDelay.setOnFinished(event -> startSearch());
+        txtSearch.textProperty().addListener((observable, oldText, newText) -> searchDelay.playFromStart());
+
+        // Mientras se cargan los vuelos o se consulta un archivo, las acciones sobre los vuelos de la aplicación no tienen efecto
+        txtSearch.disableProperty().bind(archiveMode.or(databaseMode).or(loading));
+        btnFlight.disableProperty().bind(archiveMode.or(loading));
+        btnDelete.disableProperty().bind(archiveMode.or(loading));
+        btnFilter.disableProperty().bind(archiveMode.or(loading));
+        btnExport.disableProperty().bind(archiveMode.or(loading));
+        btnImport.disableProperty().bind(archiveMode.or(databaseMode).or(loading));
+        btnShowChart.disableProperty().bind(databaseMode.or(loading));
+        btnUndo.setDisable(true);
+        btnRedo.setDisable(true);
 
         // Configurar las opciones del filtro
+        spinnerNextCount.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 1000, 5));
         updateChoiceBox();
+
+        loadFlights();
+    }
+
+    /**
+     * Carga los vuelos de la aplicación en segundo plano.
+     * <p>
+     * Los vuelos se muestran en la tabla por lotes según se leen. Cuando la lectura termina se construyen
+     * los índices, también en segundo plano, y solo entonces se activan los filtros y el resto de acciones.
+     * La carga no se registra en el diario ni en el historial. El tiempo de cada fase se anota en el registro.
+     */
+    private void loadFlights() {
+        long start = System.nanoTime();
+        ObservableList<Flight> loadingFlights = FXCollections.observableArrayList();
+        tableFlights.setItems(loadingFlights);
+
+        Task<FlightService> task = new Task<>() {
+            @Override
+            protected FlightService call() {
+                long phase = System.nanoTime();
+                List<Flight> loaded = FileUtils.loadFlights(batch -> Platform.runLater(() -> loadingFlights.addAll(batch)),
+                        fraction -> updateProgress(fraction, 1));
+                logPhase("lectura de " + loaded.size() + " vuelos", phase);
+
+                phase = System.nanoTime();
+                FlightService loadedService = new FlightService(loaded);
+                logPhase("construcción de los índices", phase);
+                return loadedService;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            long phase = System.nanoTime();
+            startService(task.getValue());
+            logPhase("preparación de la vista", phase);
+            logPhase("carga completa", start);
+        });
+        task.setOnFailed(event -> {
+            MessageUtils.showError("Error al cargar los vuelos: " + task.getException().getMessage());
+            startService(new FlightService(List.of()));
+        });
+        loadTask = task;
+        runInBackground(task, "flight-load");
+    }
+
+    /**
+     * Muestra en la tabla los vuelos del servicio ya cargado y activa las acciones que dependen de él.
+     *
+     * @param loadedService Servicio con los vuelos cargados y sus índices construidos.
+     */
+    private void startService(FlightService loadedService) {
+        if (closed) {
+            // La ventana se cerró durante la carga: no se vigila el archivo ni se guardan cambios
+            return;
+        }
+        service = loadedService;
+        flights = service.getFlights();
+
+        // La tabla muestra la vista filtrada por la búsqueda, ordenada según las columnas elegidas por el usuario;
+        // con un filtro elegido muestra su resultado en vez de todos los vuelos
+        filteredFlights = new FilteredList<>(flights);
+        sortedFlights = new SortedList<>(filteredFlights);
+        queryView = new FlightQueryView(flights);
+        filteredQueryFlights = new FilteredList<>(queryView.getFlights());
+        sortedQueryFlights = new SortedList<>(filteredQueryFlights);
+        showFlights();
+
+        // Abrir el diario de cambios, que recibe cada cambio de la lista; si no se puede, los cambios se agruparán en instantáneas completas
+        try {
+            service.persistChanges();
+        } catch (IOException e) {
+            MessageUtils.showError("Error al abrir el diario de vuelos: " + e.getMessage());
+        }
+
+        // Aplicar en el hilo de JavaFX, como un único cambio, los vuelos que cambien en el archivo de vuelos
+        try {
+            fileWatcher = new FlightFileWatcher(FileUtils.getFlightsPath(), Platform::runLater, changes -> {
+                int applied = service.applyFileChanges(changes.added(), changes.removed());
+                LOGGER.log(System.Logger.Level.DEBUG, "Vuelos actualizados desde el archivo: {0}", applied);
+            });
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al vigilar el archivo de vuelos", e);
+        }
+
+        // Activar los botones de deshacer y rehacer según el historial
+        FlightHistory history = service.getHistory();
+        btnUndo.disableProperty().bind(history.canUndoProperty().not().or(databaseMode));
+        btnRedo.disableProperty().bind(history.canRedoProperty().not().or(databaseMode));
+
+        // Repetir la búsqueda activa si cambian los vuelos
+        flights.addListener((ListChangeListener<Flight>) change -> {
+            if (!txtSearch.getText().isBlank()) {
+                searchDelay.playFromStart();
+            }
+        });
+
+        loading.set(false);
+    }
+
+    /**
+     * Anota en el registro la duración de una fase del arranque.
+     *
+     * @param phase Nombre de la fase.
+     * @param start Instante de inicio de la fase, según {@link System#nanoTime()}.
+     */
+    private static void logPhase(String phase, long start) {
+        LOGGER.log(System.Logger.Level.INFO, "Arranque: {0} en {1} ms", phase, (System.nanoTime() - start) / 1_000_000);
     }
 
     /**
      * Actualiza las opciones del filtro en el menú desplegable.
      * Las opciones incluyen mostrar todos los vuelos, vuelos a la ciudad seleccionada,
-     * vuelos largos, próximos 5 vuelos y duración media de los vuelos.
+     * vuelos largos, próximos N vuelos, salidas de la próxima hora y duración media de los vuelos.
      */
     private void updateChoiceBox() {
-        ObservableList<String> filterOptions = FXCollections.observableArrayList(
-                "Show all flights",
-                "Show flights to currently selected city",
-                "Show long flights",
-                "Show next 5 flights",
-                "Show flight duration average"
-        );
-        choiceFilter.setItems(filterOptions);
-        choiceFilter.setValue("Show all flights");
+        choiceFilter.setItems(FXCollections.observableArrayList(FilterOption.values()));
+        choiceFilter.setValue(FilterOption.ALL);
     }
 
     /**
@@ -130,26 +417,20 @@ public class FXMLMainViewController {
     @FXML
     private void addFlight() {
         try {
-            // Validar y obtener los datos del vuelo
-            String flightNumber = txtFlightNumber.getText().trim();
-            String destination = txtDestination.getText().trim();
-            String departureText = txtDeparture.getText().trim();
-            String durationText = txtDuration.getText().trim();
-
-            // Comprobar si los campos están vacíos
-            if (flightNumber.isEmpty() || destination.isEmpty() || departureText.isEmpty() || durationText.isEmpty()) {
-                MessageUtils.showError("Por favor, completa todos los campos.");
+            // Validar los campos y crear el vuelo
+            Flight newFlight = FlightService.parseFlight(txtFlightNumber.getText(), txtDestination.getText(),
+                    txtDeparture.getText(), txtDuration.getText());
+
+            if (repository != null) {
+                insertIntoDatabase(newFlight);
                 return;
             }
 
-            // Parsear los datos de fecha y duración
-            LocalDateTime departure = LocalDateTime.parse(departureText, DateTimeFormatter.ofPattern("dd/MM/yy HH:mm"));
-            LocalTime duration = LocalTime.parse(durationText, DateTimeFormatter.ofPattern("H:mm"));
-
-            // Crear el vuelo y agregarlo
-            Flight newFlight = new Flight(flightNumber, destination, departure, duration);
-            flights.add(newFlight);
-            FileUtils.saveFlights(flights);
+            // Agregar el vuelo si su número no existe todavía
+            if (!service.add(newFlight)) {
+                MessageUtils.showError("Ya existe un vuelo con el número " + newFlight.getFlightNumber() + ".");
+                return;
+            }
             updateChoiceBox();
 
             // Limpiar los campos de texto
@@ -160,6 +441,9 @@ public class FXMLMainViewController {
 
             // Mostrar mensaje de éxito
             MessageUtils.showMessage("Vuelo agregado exitosamente.");
+        } catch (IllegalArgumentException e) {
+            // Mostrar error si algún campo está vacío
+            MessageUtils.showError(e.getMessage());
         } catch (Exception e) {
             // Mostrar error si ocurre algún problema al agregar el vuelo
             MessageUtils.showError("Error al agregar el vuelo: " + e.getMessage());
@@ -174,9 +458,10 @@ public class FXMLMainViewController {
     private void deleteFlight() {
         // Obtener el vuelo seleccionado
         Flight selectedFlight = tableFlights.getSelectionModel().getSelectedItem();
-        if (selectedFlight != null) {
-            flights.remove(selectedFlight);
-            FileUtils.saveFlights(flights);
+        if (selectedFlight != null && repository != null) {
+            deleteFromDatabase(selectedFlight);
+        } else if (selectedFlight != null) {
+            service.remove(selectedFlight);
             updateChoiceBox();
             MessageUtils.showMessage("Vuelo eliminado correctamente.");
         } else {
@@ -185,74 +470,562 @@ public class FXMLMainViewController {
         }
     }
 
+    /**
+     * Deshace el último cambio de la lista de vuelos.
+     */
+    @FXML
+    private void undo() {
+        if (service == null || databaseMode.get()) {
+            return;
+        }
+        if (!service.getHistory().undo()) {
+            MessageUtils.showError("No hay cambios que deshacer.");
+        }
+    }
+
+    /**
+     * Rehace el último cambio deshecho de la lista de vuelos.
+     */
+    @FXML
+    private void redo() {
+        if (service == null || databaseMode.get()) {
+            return;
+        }
+        if (!service.getHistory().redo()) {
+            MessageUtils.showError("No hay cambios que rehacer.");
+        }
+    }
+
+    /**
+     * Importa en segundo plano los vuelos de un archivo elegido por el usuario.
+     * Los vuelos válidos y con número nuevo se añaden a la lista con un único cambio.
+     */
+    @FXML
+    private void importFlights() {
+        File file = createFileChooser("Import flights").showOpenDialog(stage);
+        if (file == null) {
+            return;
+        }
+
+        FlightImportTask task = new FlightImportTask(file.toPath(), List.copyOf(flights));
+        task.setOnSucceeded(event -> {
+            // Descartar también los números dados de alta mientras se leía el archivo
+            LoadResult result = task.getValue();
+            List<Flight> imported = service.addAll(result.flights());
+            updateChoiceBox();
+            MessageUtils.showMessage("Vuelos importados: " + imported.size()
+                    + ". Líneas rechazadas: " + (result.errors().size() + result.flights().size() - imported.size()) + ".");
+        });
+        task.setOnFailed(event -> MessageUtils.showError("Error al importar los vuelos: " + task.getException().getMessage()));
+        runInBackground(task, "flight-import");
+    }
+
+    /**
+     * Exporta en segundo plano los vuelos que muestra la tabla, con el filtro y el orden actuales,
+     * a un archivo elegido por el usuario.
+     */
+    @FXML
+    private void exportFlights() {
+        File file = createFileChooser("Export flights").showSaveDialog(stage);
+        if (file == null) {
+            return;
+        }
+
+        FlightExportTask task = new FlightExportTask(List.copyOf(tableFlights.getItems()), file.toPath());
+        task.setOnSucceeded(event -> MessageUtils.showMessage("Vuelos exportados: " + task.getValue() + "."));
+        task.setOnFailed(event -> MessageUtils.showError("Error al exportar los vuelos: " + task.getException().getMessage()));
+        runInBackground(task, "flight-export");
+    }
+
+    /**
+     * Abre en la tabla un archivo de vuelos para consultarlo por páginas, o una base de datos de vuelos,
+     * o cierra el que haya abierto. El índice del archivo se lee o se construye en segundo plano; después
+     * la tabla solo lee los vuelos visibles.
+     */
+    @FXML
+    private void toggleArchive() {
+        if (archiveFlights != null) {
+            closeArchive();
+            return;
+        }
+        if (repository != null) {
+            closeDatabase();
+            return;
+        }
+
+        FileChooser chooser = createFileChooser("Open archive or database");
+        chooser.getExtensionFilters().add(2, new FileChooser.ExtensionFilter("Flight databases", "*" + FlightDatabase.EXTENSION));
+        File file = chooser.showOpenDialog(stage);
+        if (file == null) {
+            return;
+        }
+        if (file.getName().toLowerCase(Locale.ROOT).endsWith(FlightDatabase.EXTENSION)) {
+            openDatabase(file.toPath());
+            return;
+        }
+
+        Task<FlightArchive> task = new Task<>() {
+            @Override
+            protected FlightArchive call() throws IOException {
+                return FlightArchive.open(file.toPath(), fraction -> updateProgress(fraction, 1));
+            }
+        };
+        task.setOnSucceeded(event -> {
+            archiveFlights = new PagedFlightList(task.getValue());
+            // La tabla no puede ordenar un archivo sin leerlo entero, así que se muestra en el orden del archivo
+            tableFlights.getSortOrder().clear();
+            tableFlights.setItems(archiveFlights);
+            archiveMode.set(true);
+            btnArchive.setText("Close archive");
+        });
+        task.setOnFailed(event -> MessageUtils.showError("Error al abrir el archivo: " + task.getException().getMessage()));
+        runInBackground(task, "archive-index");
+    }
+
+    /**
+     * Cierra el archivo abierto en la tabla y vuelve a mostrar los vuelos de la aplicación.
+     */
+    private void closeArchive() {
+        showFlights();
+        archiveMode.set(false);
+        btnArchive.setText("Archive...");
+        try {
+            archiveFlights.close();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al cerrar el archivo", e);
+        }
+        archiveFlights = null;
+    }
+
+    /**
+     * Abre una base de datos de vuelos en segundo plano y muestra en la tabla sus primeros vuelos.
+     * Si la base de datos quedó a medias, al abrirla se recuperan las operaciones de su registro.
+     *
+     * @param path Ruta de la base de datos.
+     */
+    private void openDatabase(Path path) {
+        CompletableFuture<Void> previousClosed = databaseClosing;
+        Task<FlightRepository> task = new Task<>() {
+            @Override
+            protected FlightRepository call() throws IOException {
+                previousClosed.join();
+                return FlightService.openRepository(path);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (closed) {
+                closeQuietly(task.getValue());
+                return;
+            }
+            repository = task.getValue();
+            repositoryFlights.clear();
+            tableFlights.getSortOrder().clear();
+            tableFlights.setItems(repositoryFlights);
+            databaseMode.set(true);
+            btnArchive.setText("Close database");
+            showDatabaseQuery(FilterOption.ALL, FlightQuery.all(), null, System.nanoTime());
+        });
+        task.setOnFailed(event -> MessageUtils.showError("Error al abrir la base de datos: " + task.getException().getMessage()));
+        runInBackground(task, "database-open");
+    }
+
+    /**
+     * Cierra la base de datos abierta en la tabla y vuelve a mostrar los vuelos de la aplicación.
+     * Las consultas en curso sobre la base de datos se descartan. El cierre espera a que terminen y vuelca
+     * la base de datos a disco, así que se hace en segundo plano para no bloquear el hilo de JavaFX.
+     *
+     * @return Futuro que se completa cuando la base de datos está cerrada.
+     */
+    private CompletableFuture<Void> closeDatabase() {
+        FlightRepository target = repository;
+        actions.cancel("filter");
+        showFlights();
+        databaseMode.set(false);
+        btnArchive.setText("Archive...");
+        repository = null;
+        repositoryQuery = null;
+        repositoryFlights.clear();
+        databaseClosing = CompletableFuture.runAsync(() -> closeQuietly(target), runnable -> {
+            Thread thread = new Thread(runnable, "database-close");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        return databaseClosing;
+    }
+
+    /**
+     * Cierra una base de datos, informando de los errores sin propagarlos.
+     *
+     * @param target Base de datos a cerrar.
+     */
+    private static void closeQuietly(FlightRepository target) {
+        try {
+            target.close();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al cerrar la base de datos", e);
+        }
+    }
+
+    /**
+     * Da de alta un vuelo en la base de datos abierta en segundo plano y repite la consulta actual.
+     *
+     * @param flight Vuelo a guardar.
+     */
+    private void insertIntoDatabase(Flight flight) {
+        FlightRepository target = repository;
+        actions.submitUninterruptible("database-insert", () -> target.insert(flight), inserted -> {
+            if (!inserted) {
+                MessageUtils.showError("Ya existe un vuelo con el número " + flight.getFlightNumber() + ".");
+                return;
+            }
+            txtFlightNumber.clear();
+            txtDestination.clear();
+            txtDeparture.clear();
+            txtDuration.clear();
+            refreshDatabase();
+            MessageUtils.showMessage("Vuelo agregado exitosamente.");
+        }, error -> MessageUtils.showError("Error al agregar el vuelo: " + error.getMessage()));
+    }
+
+    /**
+     * Da de baja un vuelo de la base de datos abierta en segundo plano y repite la consulta actual.
+     *
+     * @param flight Vuelo a eliminar.
+     */
+    private void deleteFromDatabase(Flight flight) {
+        FlightRepository target = repository;
+        actions.submitUninterruptible("database-delete", () -> target.delete(flight.getFlightNumber()), deleted -> {
+            refreshDatabase();
+            if (deleted) {
+                MessageUtils.showMessage("Vuelo eliminado correctamente.");
+            } else {
+                MessageUtils.showError("El vuelo ya no existe en la base de datos.");
+            }
+        }, error -> MessageUtils.showError("Error al eliminar el vuelo: " + error.getMessage()));
+    }
+
+    /**
+     * Repite la última consulta a la base de datos abierta, si sigue abierta.
+     */
+    private void refreshDatabase() {
+        if (repository != null && repositoryQuery != null) {
+            showDatabaseQuery(FilterOption.ALL, repositoryQuery, null, System.nanoTime());
+        }
+    }
+
+    /**
+     * Crea un selector de archivos de vuelos.
+     *
+     * @param title Título del diálogo.
+     * @return El selector, con filtros para archivos CSV y de texto.
+     */
+    private FileChooser createFileChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("Text files", "*.txt"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        return chooser;
+    }
+
+    /**
+     * Ejecuta una tarea de carga, importación, exportación o apertura de un archivo en un hilo propio, mostrando su progreso
+     * y desactivando los botones hasta que termina.
+     *
+     * @param task Tarea a ejecutar.
+     * @param name Nombre del hilo.
+     */
+    private void runInBackground(Task<?> task, String name) {
+        progressTask.progressProperty().bind(task.progressProperty());
+        progressTask.visibleProperty().bind(task.runningProperty());
+        btnImport.disableProperty().bind(task.runningProperty().or(archiveMode).or(databaseMode).or(loading));
+        btnExport.disableProperty().bind(task.runningProperty().or(archiveMode).or(loading));
+        btnArchive.disableProperty().bind(task.runningProperty());
+
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Aplica el filtro seleccionado a la tabla de vuelos.
-     * Los filtros disponibles incluyen mostrar todos los vuelos, vuelos largos,
-     * próximos vuelos y la duración media de los vuelos.
+     * Cada opción se traduce en una {@link FlightQuery} que se aplica sobre la vista filtrada de la tabla;
+     * la duración media se obtiene de las estadísticas sin cambiar la vista.
      */
     @FXML
     private void applyFilter() {
-        String selectedFilter = choiceFilter.getValue();
+        FilterOption selectedFilter = choiceFilter.getValue();
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
         switch (selectedFilter) {
-            case "Show all flights":
-                tableFlights.setItems(flights);
+            case ALL:
+                showFilter(selectedFilter, FlightQuery.all(), null, start);
                 break;
-            case "Show flights to currently selected city":
+            case SELECTED_CITY:
                 Flight selectedFlight = tableFlights.getSelectionModel().getSelectedItem();
                 if (selectedFlight == null) {
                     MessageUtils.showError("No se ha seleccionado ningún vuelo.");
                     return;
                 }
-                ObservableList<Flight> cityFlights = FXCollections.observableArrayList(
-                        flights.stream().filter(f -> f.getDestination().equals(selectedFlight.getDestination())).toList()
-                );
-                tableFlights.setItems(cityFlights);
+                showFilter(selectedFilter, FlightQuery.all().to(selectedFlight.getDestination()), null, start);
                 break;
-            case "Show long flights":
-                ObservableList<Flight> longFlights = FXCollections.observableArrayList(
-                        flights.stream().filter(f -> f.getDuration().isAfter(LocalTime.of(3, 0))).toList()
-                );
-                tableFlights.setItems(longFlights);
+            case LONG_FLIGHTS:
+                showFilter(selectedFilter, FlightQuery.all().longerThan(LONG_FLIGHT_DURATION), null, start);
                 break;
-            case "Show next 5 flights":
-                ObservableList<Flight> nextFlights = FXCollections.observableArrayList(
-                        flights.stream()
-                                .filter(flight -> flight.getDepartureDateTime().isAfter(LocalDateTime.now()))
-                                .sorted(Comparator.comparing(Flight::getDepartureDateTime))
-                                .limit(5)
-                                .toList()
-                );
-                if (nextFlights.isEmpty()) {
-                    MessageUtils.showError("No hay vuelos próximos disponibles.");
-                } else {
-                    tableFlights.setItems(nextFlights);
-                }
+            case NEXT_FLIGHTS:
+                showFilter(selectedFilter, FlightQuery.all().departingAfter(now).orderByDeparture().limit(spinnerNextCount.getValue()),
+                        "No hay vuelos próximos disponibles.", start);
+                break;
+            case NEXT_HOUR:
+                showFilter(selectedFilter, FlightQuery.all().departingBetween(now, now.plus(Duration.ofHours(1))).orderByDeparture(),
+                        "No hay salidas en la próxima hora.", start);
                 break;
-            case "Show flight duration average":
-                double avgMinutes = flights.stream()
-                        .mapToDouble(f -> f.getDuration().getHour() * 60 + f.getDuration().getMinute())
-                        .average()
-                        .orElse(0);
-                MessageUtils.showMessage("Duración media: " + (int) (avgMinutes / 60) + "h " + (int) (avgMinutes % 60) + "m");
+            case AVERAGE_DURATION:
+                if (repository != null) {
+                    // La base de datos se recorre entera para calcular la media, así que se hace en segundo plano
+                    FlightRepository target = repository;
+                    actions.submitUninterruptible("filter",
+                            () -> FlightService.summarize(target, FlightQuery.all()).averageDuration(), avgMinutes -> {
+                        selectedFilter.latency.recordSince(start);
+                        showAverageDuration(avgMinutes);
+                    }, error -> MessageUtils.showError("Error al calcular la duración media: " + error.getMessage()));
+                    return;
+                }
+                double avgMinutes = service.getStatistics().getAverageDuration();
+                selectedFilter.latency.recordSince(start);
+                showAverageDuration(avgMinutes);
                 break;
         }
     }
 
+    /**
+     * Muestra la duración media de los vuelos.
+     *
+     * @param avgMinutes Duración media en minutos.
+     */
+    private static void showAverageDuration(double avgMinutes) {
+        MessageUtils.showMessage("Duración media: " + (int) (avgMinutes / 60) + "h " + (int) (avgMinutes % 60) + "m");
+    }
+
+    /**
+     * Muestra en la tabla los vuelos de una consulta, de la base de datos abierta o de los vuelos de la aplicación.
+     *
+     * @param option       Opción del filtro, en cuyo histograma se registra el tiempo hasta aplicar la consulta.
+     * @param query        Consulta a mostrar.
+     * @param emptyMessage Mensaje de error si la consulta no tiene resultados, o {@code null} para mostrar la tabla vacía.
+     * @param start        Instante en el que se eligió el filtro, según {@link System#nanoTime()}.
+     */
+    private void showFilter(FilterOption option, FlightQuery query, String emptyMessage, long start) {
+        if (repository != null) {
+            showDatabaseQuery(option, query, emptyMessage, start);
+        } else {
+            showQuery(option, query, emptyMessage, start);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta sobre la base de datos abierta en segundo plano y muestra sus vuelos en la tabla.
+     * Si la consulta no tiene límite, se limita a {@link #DATABASE_RESULT_LIMIT} vuelos, de modo que la tabla
+     * nunca guarda más vuelos que esos aunque la base de datos no quepa en memoria.
+     *
+     * @param option       Opción del filtro, en cuyo histograma se registra el tiempo hasta mostrar los vuelos.
+     * @param query        Consulta a mostrar.
+     * @param emptyMessage Mensaje de error si la consulta no tiene resultados, o {@code null} para mostrar la tabla vacía.
+     * @param start        Instante en el que se eligió el filtro, según {@link System#nanoTime()}.
+     */
+    private void showDatabaseQuery(FilterOption option, FlightQuery query, String emptyMessage, long start) {
+        FlightQuery bounded = query.isLimited() && query.getLimit() <= DATABASE_RESULT_LIMIT ? query : query.limit(DATABASE_RESULT_LIMIT);
+        FlightRepository target = repository;
+        actions.submitUninterruptible("filter", () -> target.query(bounded), result -> {
+            if (target != repository) {
+                return;
+            }
+            if (result.isEmpty() && emptyMessage != null) {
+                MessageUtils.showError(emptyMessage);
+            } else {
+                repositoryQuery = bounded;
+                repositoryFlights.setAll(result);
+                if (bounded.isOrderedByDeparture()) {
+                    colDeparture.setSortType(TableColumn.SortType.ASCENDING);
+                    tableFlights.getSortOrder().setAll(List.of(colDeparture));
+                }
+            }
+            option.latency.recordSince(start);
+        }, error -> MessageUtils.showError("Error al consultar la base de datos: " + error.getMessage()));
+    }
+
+    /**
+     * Muestra en la tabla los vuelos de una consulta.
+     * <p>
+     * Salvo la que muestra todos los vuelos, las consultas se ejecutan con los índices en segundo plano y la tabla
+     * muestra su resultado cuando terminan, de modo que el hilo de JavaFX no recorre la lista completa. Las altas
+     * posteriores que cumplen una consulta sin límite se añaden al resultado y las bajas se quitan de él.
+     * Si mientras tanto se elige otro filtro, el resultado de esta consulta se descarta.
+     *
+     * @param option       Opción del filtro, en cuyo histograma se registra el tiempo hasta aplicar la consulta.
+     * @param query        Consulta a mostrar.
+     * @param emptyMessage Mensaje de error si la consulta no tiene resultados, o {@code null} para mostrar la tabla vacía.
+     * @param start        Instante en el que se eligió el filtro, según {@link System#nanoTime()}.
+     */
+    private void showQuery(FilterOption option, FlightQuery query, String emptyMessage, long start) {
+        if (query.isAll()) {
+            actions.cancel("filter");
+            queryView.clear();
+            showFlights();
+            option.latency.recordSince(start);
+            return;
+        }
+
+        // Los cambios de la lista mientras se ejecuta la consulta se aplican al resultado al mostrarlo
+        queryView.begin();
+        actions.submit("filter", () -> service.query(query), result -> {
+            if (result.isEmpty() && emptyMessage != null) {
+                queryView.discard();
+                MessageUtils.showError(emptyMessage);
+            } else {
+                queryView.show(result, query.isLimited() ? null : query.toPredicate());
+                // Si mientras tanto se abrió un archivo o una base de datos, la tabla mostrará el resultado al cerrarlos
+                if (archiveMode.get() || repository != null) {
+                    option.latency.recordSince(start);
+                    return;
+                }
+                showFlights();
+                if (query.isOrderedByDeparture()) {
+                    colDeparture.setSortType(TableColumn.SortType.ASCENDING);
+                    tableFlights.getSortOrder().setAll(List.of(colDeparture));
+                }
+            }
+            option.latency.recordSince(start);
+        }, error -> {
+            queryView.discard();
+            MessageUtils.showError("Error al aplicar el filtro: " + error.getMessage());
+        });
+    }
+
+    /**
+     * Muestra en la tabla los vuelos de la aplicación: el resultado del filtro elegido, o todos si no hay ninguno.
+     * Solo la vista mostrada sigue el orden de la tabla y el predicado de la búsqueda, para que la otra no
+     * se recalcule con cada cambio.
+     */
+    private void showFlights() {
+        boolean query = queryView.isActive();
+        FilteredList<Flight> shown = query ? filteredQueryFlights : filteredFlights;
+        SortedList<Flight> sorted = query ? sortedQueryFlights : sortedFlights;
+        SortedList<Flight> hidden = query ? sortedFlights : sortedQueryFlights;
+        hidden.comparatorProperty().unbind();
+        hidden.setComparator(null);
+        if (shown.getPredicate() != searchPredicate) {
+            shown.setPredicate(searchPredicate);
+        }
+        if (!sorted.comparatorProperty().isBound()) {
+            sorted.comparatorProperty().bind(tableFlights.comparatorProperty());
+        }
+        if (tableFlights.getItems() != sorted) {
+            tableFlights.setItems(sorted);
+        }
+    }
+
+    /**
+     * Lanza en segundo plano la búsqueda del texto escrito, cancelando la anterior si sigue en curso.
+     * Solo el resultado de la última búsqueda se aplica a la tabla.
+     */
+    private void startSearch() {
+        String text = txtSearch.getText().trim();
+        if (text.isEmpty()) {
+            actions.cancel("search");
+            searchPredicate = null;
+            updatePredicate();
+            return;
+        }
+
+        actions.submit("search", () -> identitySetOf(service.search(text)), found -> {
+            searchPredicate = found::contains;
+            updatePredicate();
+        }, error -> LOGGER.log(System.Logger.Level.ERROR, "Error al buscar vuelos", error));
+    }
+
+    /**
+     * Aplica el predicado de la búsqueda a la vista de los vuelos de la aplicación que muestra la tabla.
+     */
+    private void updatePredicate() {
+        (queryView.isActive() ? filteredQueryFlights : filteredFlights).setPredicate(searchPredicate);
+    }
+
+    /**
+     * Copia unos vuelos en un conjunto que los compara por identidad.
+     *
+     * @param flights Vuelos a copiar.
+     * @return El conjunto de vuelos.
+     */
+    private static Set<Flight> identitySetOf(List<Flight> flights) {
+        Set<Flight> set = Collections.newSetFromMap(new IdentityHashMap<>(flights.size() * 2));
+        set.addAll(flights);
+        return set;
+    }
+
     /**
      * Muestra un gráfico circular con los datos de los vuelos agrupados por destino.
-     * Carga la vista del gráfico y permite regresar a la vista principal.
+     * Carga la vista del gráfico la primera vez y permite regresar a la vista principal.
+     * <p>
+     * La primera vez, el archivo FXML se lee en segundo plano; el gráfico se enlaza con las estadísticas
+     * y se muestra en el hilo de JavaFX cuando la vista está lista.
      */
     @FXML
     private void showChart() {
-        try {
+        long start = System.nanoTime();
+        // La vista del gráfico se crea la primera vez y después se reutiliza, ya que se mantiene actualizada sola
+        if (chartScene != null) {
+            stage.setScene(chartScene);
+            CHART_OPEN_TIME.recordSince(start);
+            return;
+        }
+
+        actions.submitUninterruptible("chart", () -> {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("ChartView.fxml"));
-            Scene chartScene = new Scene(loader.load());
+            loader.load();
+            return loader;
+        }, loader -> {
             ChartViewController chartController = loader.getController();
-            chartController.initializeData(flights, stage, () -> stage.setScene(mainScene));
+            chartController.initializeData(service.getStatistics(), stage, () -> stage.setScene(mainScene));
+            chartScene = new Scene(loader.getRoot());
             stage.setScene(chartScene);
-        } catch (IOException e) {
-            MessageUtils.showError("Error al cargar el gráfico: " + e.getMessage());
+            CHART_OPEN_TIME.recordSince(start);
+        }, error -> MessageUtils.showError("Error al cargar el gráfico: " + error.getMessage()));
+    }
+
+    /**
+     * Vuelca a disco los cambios pendientes del diario y lo cierra, y cierra la base de datos abierta si la hay.
+     * Se llama al cerrar la ventana principal; como cada cambio ya está registrado en el diario,
+     * no es necesario reescribir la lista completa.
+     *
+     * @return Futuro que se completa cuando el último cambio está guardado y la base de datos está cerrada.
+     */
+    public CompletableFuture<Void> shutdown() {
+        closed = true;
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        actions.close();
+        if (fileWatcher != null) {
+            try {
+                fileWatcher.close();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.ERROR, "Error al cerrar el vigilante del archivo de vuelos", e);
+            }
+        }
+        if (archiveFlights != null) {
+            closeArchive();
         }
+        CompletableFuture<Void> databaseClosed = repository != null ? closeDatabase() : databaseClosing;
+        if (service == null) {
+            // Los vuelos no han terminado de cargarse, así que no hay cambios que guardar.
+            return databaseClosed;
+        }
+        return service.shutdown().exceptionally(error -> {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al cerrar el diario de vuelos", error);
+            return null;
+        }).thenCombine(databaseClosed, (saved, ignored) -> null);
     }
 
     /**
@@ -265,5 +1038,9 @@ public class FXMLMainViewController {
     public void setStageAndScene(Stage stage, Scene mainScene) {
         this.stage = stage;
         this.mainScene = mainScene;
+
+        // Atajos de teclado para deshacer y rehacer
+        mainScene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undo);
+        mainScene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redo);
     }
 }
@@ -1,12 +1,15 @@
 package com.ivanferrerfranco.flightsfx;
 
-import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.FxLagProbe;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.time.Duration;
 
 /**
  * Clase principal de la aplicación que inicializa la interfaz gráfica y gestiona el ciclo de vida de la aplicación.
@@ -16,6 +19,15 @@ import java.io.IOException;
  */
 public class FlightsFX extends Application {
 
+    /** Registro del tiempo que tarda en mostrarse la ventana principal. */
+    private static final System.Logger LOGGER = System.getLogger(FlightsFX.class.getName());
+
+    /** Intervalo entre los volcados de las métricas en el registro. */
+    private static final Duration METRICS_INTERVAL = Duration.ofMinutes(1);
+
+    /** Intervalo entre las medidas del retraso del hilo de JavaFX. */
+    private static final Duration FX_PROBE_INTERVAL = Duration.ofMillis(100);
+
     /**
      * Constructor de la clase FlightsFX.
      * Este constructor se usa para inicializar la aplicación JavaFX que maneja la ventana principal.
@@ -31,12 +43,20 @@ public class FlightsFX extends Application {
      * <p>
      * Este método carga el archivo FXML principal, configura la escena y el {@link Stage},
      * aplica los estilos CSS y maneja el evento de cierre para guardar los datos en el archivo.
+     * La ventana se muestra sin esperar a los vuelos, que el controlador carga en segundo plano.
+     * También publica las métricas por JMX, las vuelca periódicamente en el registro y empieza a medir
+     * el retraso del hilo de JavaFX.
      *
      * @param stage El escenario principal donde se cargará la interfaz gráfica.
      * @throws IOException Si ocurre un error al cargar el archivo FXML.
      */
     @Override
     public void start(Stage stage) throws IOException {
+        long start = System.nanoTime();
+        FlightMetrics.enableJmx();
+        FlightMetrics.startReporting(METRICS_INTERVAL);
+        FxLagProbe fxProbe = FxLagProbe.start(FX_PROBE_INTERVAL);
+
         // Cargar el archivo FXML principal
         FXMLLoader fxmlLoader = new FXMLLoader(FlightsFX.class.getResource("FXMLMainView.fxml"));
         Scene mainScene = new Scene(fxmlLoader.load(), 600, 400);
@@ -56,12 +76,18 @@ public class FlightsFX extends Application {
 
         // Capturar el evento de cierre para guardar los datos
         stage.setOnCloseRequest(event -> {
-            // Guardar los cambios en el archivo de vuelos
-            FileUtils.saveFlights(controller.getFlights());
+            // Esperar a que se vuelquen los cambios pendientes sin bloquear la interfaz y cerrar después
+            event.consume();
+            fxProbe.close();
+            controller.shutdown().whenComplete((result, error) -> {
+                FlightMetrics.stopReporting();
+                Platform.runLater(stage::close);
+            });
         });
 
         // Mostrar la ventana principal
         stage.show();
+        LOGGER.log(System.Logger.Level.INFO, "Arranque: ventana mostrada en {0} ms", (System.nanoTime() - start) / 1_000_000);
     }
 
     /**
@@ -0,0 +1,16 @@
+package com.ivanferrerfranco.flightsfx.metrics;
+
+import java.util.Map;
+
+/**
+ * Interfaz JMX con el valor actual de todos los contadores de la aplicación.
+ */
+public interface CountersMXBean {
+
+    /**
+     * Devuelve el valor de cada contador.
+     *
+     * @return Los contadores por nombre, en orden alfabético.
+     */
+    Map<String, Long> getCounters();
+}
@@ -0,0 +1,198 @@
+package com.ivanferrerfranco.flightsfx.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de las métricas de la aplicación: contadores y histogramas de latencia identificados por nombre.
+ * <p>
+ * Las métricas se crean la primera vez que se piden y se guardan para siempre, así que el código que las
+ * actualiza a menudo debe guardar la referencia en un campo en lugar de pedirla cada vez. Actualizarlas
+ * no bloquea: los contadores son {@link LongAdder} y los histogramas usan operaciones atómicas.
+ * <p>
+ * La aplicación puede publicar las métricas por JMX con {@link #enableJmx()}, bajo el dominio
+ * {@value #DOMAIN}, y escribirlas periódicamente en el registro con {@link #startReporting(Duration)},
+ * una línea {@code clave=valor} por métrica para poder procesarlas.
+ */
+public final class FlightMetrics {
+
+    /** Dominio de los nombres JMX de las métricas. */
+    public static final String DOMAIN = "com.ivanferrerfranco.flightsfx";
+
+    /** Registro en el que se vuelcan las métricas. */
+    private static final System.Logger LOGGER = System.getLogger(FlightMetrics.class.getName());
+
+    /** Contadores por nombre. */
+    private static final ConcurrentMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    /** Histogramas de latencia por nombre. */
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /** Servidor JMX en el que se publican las métricas, o {@code null} si no se publican. */
+    private static MBeanServer mbeanServer;
+
+    /** Hilo que vuelca las métricas periódicamente, o {@code null} si no se vuelcan. */
+    private static ScheduledExecutorService reporter;
+
+    /**
+     * Constructor de la clase FlightMetrics.
+     * Todos los métodos de la clase son estáticos, por lo que no es necesario crear instancias.
+     */
+    public FlightMetrics() {
+        // El constructor no realiza ninguna acción adicional
+    }
+
+    /**
+     * Devuelve un contador, creándolo la primera vez.
+     *
+     * @param name Nombre del contador, por ejemplo {@code rows.parsed}.
+     * @return El contador.
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Devuelve un histograma de latencias, creándolo la primera vez y publicándolo por JMX si está activado.
+     *
+     * @param name Nombre del histograma, por ejemplo {@code file.load.text}.
+     * @return El histograma.
+     */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = HISTOGRAMS.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        LatencyHistogram created = new LatencyHistogram(name);
+        histogram = HISTOGRAMS.putIfAbsent(name, created);
+        if (histogram != null) {
+            return histogram;
+        }
+        register(created);
+        return created;
+    }
+
+    /**
+     * Publica por JMX los contadores y cada histograma, tanto los que ya existen como los que se creen después.
+     * Los contadores se publican juntos como {@code type=Counters} y cada histograma como {@code type=Latency,name=...}.
+     */
+    public static synchronized void enableJmx() {
+        if (mbeanServer != null) {
+            return;
+        }
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Counters");
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(new Counters(), name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al registrar los contadores", e);
+        }
+        HISTOGRAMS.values().forEach(FlightMetrics::register);
+    }
+
+    /**
+     * Empieza a volcar las métricas en el registro con una periodicidad fija.
+     *
+     * @param interval Intervalo entre volcados.
+     */
+    public static synchronized void startReporting(Duration interval) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        reporter.scheduleAtFixedRate(FlightMetrics::logSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deja de volcar las métricas periódicamente y las vuelca una última vez.
+     */
+    public static synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        logSnapshot();
+    }
+
+    /**
+     * Escribe en el registro una línea por cada contador distinto de cero y cada histograma con valores,
+     * en orden alfabético, por ejemplo
+     * {@code metric=file.load.text type=latency count=1 mean_us=812.0 p50_us=819 p90_us=819 p99_us=819 max_us=812}.
+     */
+    public static void logSnapshot() {
+        counterValues().forEach((name, value) -> {
+            if (value != 0) {
+                LOGGER.log(System.Logger.Level.INFO, "metric=" + name + " type=counter value=" + value);
+            }
+        });
+        new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> {
+            long count = histogram.getCount();
+            if (count > 0) {
+                LOGGER.log(System.Logger.Level.INFO, String.format(Locale.ROOT,
+                        "metric=%s type=latency count=%d mean_us=%.1f p50_us=%d p90_us=%d p99_us=%d max_us=%d",
+                        name, count, histogram.getMeanMicros(), histogram.getP50Micros(),
+                        histogram.getP90Micros(), histogram.getP99Micros(), histogram.getMaxMicros()));
+            }
+        });
+    }
+
+    /**
+     * Devuelve el valor actual de cada contador.
+     *
+     * @return Los contadores por nombre, en orden alfabético.
+     */
+    private static Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /**
+     * Publica un histograma por JMX si la publicación está activada y no estaba ya publicado.
+     *
+     * @param histogram Histograma a publicar.
+     */
+    private static synchronized void register(LatencyHistogram histogram) {
+        if (mbeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Latency,name=" + histogram.getName());
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(histogram, name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al registrar la métrica " + histogram.getName(), e);
+        }
+    }
+
+    /**
+     * Publicación por JMX de los contadores.
+     */
+    private static final class Counters implements CountersMXBean {
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return counterValues();
+        }
+    }
+}
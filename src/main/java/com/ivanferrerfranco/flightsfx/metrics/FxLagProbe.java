@@ -0,0 +1,143 @@
+package com.ivanferrerfranco.flightsfx.metrics;
+
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sonda que mide cuánto tarda el hilo de JavaFX en atender una tarea, para detectar cuándo la interfaz se bloquea.
+ * <p>
+ * Periódicamente se envía una tarea vacía con {@link Platform#runLater(Runnable)} y se registra en el histograma
+ * {@code fx.lag} el tiempo que pasa hasta que se ejecuta. Si el retraso supera {@link #STALL_THRESHOLD},
+ * se cuenta como un bloqueo en {@code fx.stalls} y su duración se suma a {@code fx.stall.millis}.
+ * Solo hay una tarea pendiente a la vez, así que un bloqueo largo se registra una sola vez y no llena la cola del hilo.
+ * <p>
+ * La sonda actúa también como vigilante: en cuanto una tarea lleva esperando más que el umbral, toma una muestra
+ * de la pila del hilo de JavaFX y la escribe en el registro como aviso. Como el hilo sigue ocupado en ese momento,
+ * la muestra señala el manejador de eventos o la animación que lo está bloqueando.
+ */
+public final class FxLagProbe implements AutoCloseable {
+
+    /** Retraso a partir del cual se considera que el hilo de JavaFX está bloqueado. */
+    public static final Duration STALL_THRESHOLD = Duration.ofMillis(100);
+
+    /** Número máximo de marcos de la pila que se escriben en cada aviso de bloqueo. */
+    private static final int STACK_DEPTH = 25;
+
+    /** Registro en el que se avisa de los bloqueos. */
+    private static final System.Logger LOGGER = System.getLogger(FxLagProbe.class.getName());
+
+    /** Retraso del hilo de JavaFX al atender una tarea. */
+    private static final LatencyHistogram LAG = FlightMetrics.histogram("fx.lag");
+
+    /** Número de bloqueos del hilo de JavaFX. */
+    private static final LongAdder STALLS = FlightMetrics.counter("fx.stalls");
+
+    /** Tiempo total que ha estado bloqueado el hilo de JavaFX, en milisegundos. */
+    private static final LongAdder STALL_MILLIS = FlightMetrics.counter("fx.stall.millis");
+
+    /** Hilo que envía las tareas de medida. */
+    private final ScheduledExecutorService scheduler;
+
+    /** Indica si hay una tarea de medida esperando al hilo de JavaFX. */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /** Instante en el que se envió la tarea de medida pendiente, según {@link System#nanoTime()}. */
+    private volatile long postedNanos;
+
+    /** Indica si ya se ha avisado del bloqueo que retrasa la tarea pendiente. */
+    private volatile boolean stallReported;
+
+    /** Hilo de JavaFX, que se obtiene al crear la sonda para poder muestrear su pila desde el primer bloqueo. */
+    private volatile Thread fxThread;
+
+    /**
+     * Crea la sonda y empieza a medir.
+     *
+     * @param interval Intervalo entre medidas.
+     */
+    private FxLagProbe(Duration interval) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Se obtiene el hilo de JavaFX antes de vigilarlo; si la primera medida ya se bloquea, hay pila que mostrar.
+        if (Platform.isFxApplicationThread()) {
+            fxThread = Thread.currentThread();
+        } else {
+            Platform.runLater(() -> fxThread = Thread.currentThread());
+        }
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::probe, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empieza a medir el retraso del hilo de JavaFX.
+     *
+     * @param interval Intervalo entre medidas.
+     * @return La sonda, que se debe cerrar al terminar la aplicación.
+     */
+    public static FxLagProbe start(Duration interval) {
+        return new FxLagProbe(interval);
+    }
+
+    /**
+     * Deja de medir.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Envía una tarea de medida al hilo de JavaFX si no queda ninguna pendiente; si la hay y ya supera
+     * el umbral, avisa del bloqueo.
+     */
+    private void probe() {
+        if (!pending.compareAndSet(false, true)) {
+            if (!stallReported && System.nanoTime() - postedNanos > STALL_THRESHOLD.toNanos()) {
+                stallReported = true;
+                reportStall();
+            }
+            return;
+        }
+        long posted = System.nanoTime();
+        postedNanos = posted;
+        stallReported = false;
+        Platform.runLater(() -> {
+            long lag = System.nanoTime() - posted;
+            LAG.recordNanos(lag);
+            if (lag > STALL_THRESHOLD.toNanos()) {
+                STALLS.increment();
+                STALL_MILLIS.add(TimeUnit.NANOSECONDS.toMillis(lag));
+            }
+            pending.set(false);
+        });
+    }
+
+    /**
+     * Escribe en el registro cuánto lleva bloqueado el hilo de JavaFX y una muestra de su pila.
+     */
+    private void reportStall() {
+        Thread thread = fxThread;
+        if (thread == null) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        StringBuilder message = new StringBuilder("Hilo de JavaFX bloqueado durante más de ")
+                .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - postedNanos)).append(" ms en:");
+        for (int i = 0; i < Math.min(stack.length, STACK_DEPTH); i++) {
+            message.append(System.lineSeparator()).append("\tat ").append(stack[i]);
+        }
+        if (stack.length > STACK_DEPTH) {
+            message.append(System.lineSeparator()).append("\t... ").append(stack.length - STACK_DEPTH).append(" más");
+        }
+        LOGGER.log(System.Logger.Level.WARNING, message.toString());
+    }
+}
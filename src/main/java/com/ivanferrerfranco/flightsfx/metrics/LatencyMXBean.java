@@ -0,0 +1,54 @@
+package com.ivanferrerfranco.flightsfx.metrics;
+
+/**
+ * Interfaz JMX de un histograma de latencias, con el número de valores y sus percentiles en microsegundos.
+ */
+public interface LatencyMXBean {
+
+    /**
+     * Devuelve el número de valores registrados.
+     *
+     * @return El número de valores.
+     */
+    long getCount();
+
+    /**
+     * Devuelve la media de los valores registrados.
+     *
+     * @return La media en microsegundos, o 0 si no hay valores.
+     */
+    double getMeanMicros();
+
+    /**
+     * Devuelve la mediana de los valores registrados.
+     *
+     * @return El percentil 50 en microsegundos.
+     */
+    long getP50Micros();
+
+    /**
+     * Devuelve el percentil 90 de los valores registrados.
+     *
+     * @return El percentil 90 en microsegundos.
+     */
+    long getP90Micros();
+
+    /**
+     * Devuelve el percentil 99 de los valores registrados.
+     *
+     * @return El percentil 99 en microsegundos.
+     */
+    long getP99Micros();
+
+    /**
+     * Devuelve el mayor valor registrado.
+     *
+     * @return El máximo en microsegundos.
+     */
+    long getMaxMicros();
+
+    /**
+     * Descarta los valores registrados.
+     */
+    void reset();
+}
@@ -0,0 +1,336 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Índice de vuelos ordenados por fecha y hora de salida que se mantiene al día con una lista observable.
+ * <p>
+ * Las salidas se guardan en un array ordenado de minutos desde la época, con un array paralelo
+ * que apunta a cada vuelo. Las consultas localizan el inicio del intervalo con una búsqueda
+ * binaria y recorren solo los resultados, en O(log N + k), sin ordenar la lista en cada consulta.
+ * Los vuelos sin fecha de salida no se indexan.
+ * <p>
+ * Como el resto de índices, los vuelos no deben cambiar de fecha mientras están en la lista.
+ */
+public class DepartureIndex implements ListChangeListener<Flight> {
+
+    /** Capacidad inicial de los arrays. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Salidas en minutos desde la época, en orden ascendente. */
+    private long[] departures = new long[DEFAULT_CAPACITY];
+
+    /** Vuelo correspondiente a cada posición de {@link #departures}. */
+    private Flight[] flights = new Flight[DEFAULT_CAPACITY];
+
+    /** Número de vuelos indexados. */
+    private int size;
+
+    /**
+     * Crea el índice con los vuelos actuales de la lista y lo registra como oyente de sus cambios.
+     *
+     * @param flights Lista de vuelos a indexar.
+     */
+    public DepartureIndex(ObservableList<Flight> flights) {
+        addAll(flights);
+        FlightList.addIndex(flights, this);
+    }
+
+    /**
+     * Actualiza el índice con un cambio de la lista.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        // Reunir los vuelos de todos los subcambios para recorrer los arrays una sola vez aunque el cambio tenga muchos.
+        List<Flight> removed = new ArrayList<>();
+        List<Flight> added = new ArrayList<>();
+        while (change.next()) {
+            // Las permutaciones y las actualizaciones no cambian el orden por fecha.
+            if (change.wasRemoved()) {
+                removed.addAll(change.getRemoved());
+            }
+            if (change.wasAdded()) {
+                added.addAll(change.getAddedSubList());
+            }
+        }
+        if (removed.size() == 1) {
+            remove(removed.get(0));
+        } else if (!removed.isEmpty()) {
+            removeAll(removed);
+        }
+        addAll(added);
+    }
+
+    /**
+     * Devuelve los primeros vuelos que salen después de un instante.
+     *
+     * @param count Número máximo de vuelos a devolver.
+     * @param after Instante a partir del cual se buscan salidas (excluido).
+     * @return Hasta {@code count} vuelos, ordenados por fecha de salida.
+     */
+    public List<Flight> next(int count, LocalDateTime after) {
+        // Los vuelos tienen precisión de minutos, así que "después de" equivale a un minuto posterior al truncado.
+        int from = upperBound(floorMinutes(after));
+        int to = (int) Math.min(size, (long) from + Math.max(0, count));
+        return slice(from, to);
+    }
+
+    /**
+     * Devuelve los primeros vuelos que salen después de un instante y cumplen un criterio.
+     * El índice se recorre en orden de salida y se detiene al reunir {@code count} vuelos.
+     *
+     * @param count  Número máximo de vuelos a devolver.
+     * @param after  Instante a partir del cual se buscan salidas (excluido).
+     * @param filter Criterio que deben cumplir los vuelos.
+     * @return Hasta {@code count} vuelos, ordenados por fecha de salida.
+     */
+    public List<Flight> next(int count, LocalDateTime after, Predicate<? super Flight> filter) {
+        List<Flight> result = new ArrayList<>(Math.min(Math.max(0, count), size));
+        for (int index = upperBound(floorMinutes(after)); index < size && result.size() < count; index++) {
+            if (filter.test(flights[index])) {
+                result.add(flights[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve los vuelos que salen dentro de un intervalo {@code [from, to)}.
+     *
+     * @param from Inicio del intervalo (incluido).
+     * @param to   Fin del intervalo (excluido).
+     * @return Los vuelos del intervalo, ordenados por fecha de salida.
+     */
+    public List<Flight> between(LocalDateTime from, LocalDateTime to) {
+        return slice(lowerBound(ceilMinutes(from)), lowerBound(ceilMinutes(to)));
+    }
+
+    /**
+     * Devuelve los vuelos que salen desde un instante hasta que transcurre un intervalo,
+     * por ejemplo las salidas de la próxima hora.
+     *
+     * @param now    Instante de inicio (incluido).
+     * @param window Duración del intervalo.
+     * @return Los vuelos del intervalo, ordenados por fecha de salida.
+     */
+    public List<Flight> within(LocalDateTime now, Duration window) {
+        return between(now, now.plus(window));
+    }
+
+    /**
+     * Devuelve el número de vuelos indexados.
+     *
+     * @return El número de vuelos con fecha de salida.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Añade vuelos al índice. Un solo vuelo se inserta en su posición; varios se ordenan
+     * y se mezclan con el índice en una pasada.
+     *
+     * @param added Vuelos a añadir.
+     */
+    private void addAll(List<? extends Flight> added) {
+        List<Flight> dated = new ArrayList<>(added.size());
+        for (Flight flight : added) {
+            if (flight.getDepartureDateTime() != null) {
+                dated.add(flight);
+            }
+        }
+        if (dated.size() == 1) {
+            insert(dated.get(0));
+        } else if (!dated.isEmpty()) {
+            merge(dated);
+        }
+    }
+
+    /**
+     * Inserta un vuelo en su posición, después de los que salen a la misma hora.
+     *
+     * @param flight Vuelo a insertar.
+     */
+    private void insert(Flight flight) {
+        long departure = FlightStore.toEpochMinutes(flight.getDepartureDateTime());
+        ensureCapacity(size + 1);
+        int index = upperBound(departure);
+        System.arraycopy(departures, index, departures, index + 1, size - index);
+        System.arraycopy(flights, index, flights, index + 1, size - index);
+        departures[index] = departure;
+        flights[index] = flight;
+        size++;
+    }
+
+    /**
+     * Mezcla un lote de vuelos con el índice.
+     *
+     * @param added Vuelos a añadir, todos con fecha de salida.
+     */
+    private void merge(List<Flight> added) {
+        added.sort(Comparator.comparing(Flight::getDepartureDateTime));
+        long[] mergedDepartures = new long[Math.max(DEFAULT_CAPACITY, size + added.size())];
+        Flight[] mergedFlights = new Flight[mergedDepartures.length];
+
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size || j < added.size()) {
+            long next = j < added.size() ? FlightStore.toEpochMinutes(added.get(j).getDepartureDateTime()) : Long.MAX_VALUE;
+            if (i < size && departures[i] <= next) {
+                mergedDepartures[k] = departures[i];
+                mergedFlights[k++] = flights[i++];
+            } else {
+                mergedDepartures[k] = next;
+                mergedFlights[k++] = added.get(j++);
+            }
+        }
+
+        departures = mergedDepartures;
+        flights = mergedFlights;
+        size = k;
+    }
+
+    /**
+     * Elimina un vuelo del índice, buscándolo por identidad entre los que salen a su misma hora.
+     *
+     * @param flight Vuelo a eliminar.
+     */
+    private void remove(Flight flight) {
+        if (flight.getDepartureDateTime() == null) {
+            return;
+        }
+        long departure = FlightStore.toEpochMinutes(flight.getDepartureDateTime());
+        for (int index = lowerBound(departure); index < size && departures[index] == departure; index++) {
+            if (flights[index] == flight) {
+                System.arraycopy(departures, index + 1, departures, index, size - index - 1);
+                System.arraycopy(flights, index + 1, flights, index, size - index - 1);
+                flights[--size] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Elimina varios vuelos del índice: primero se marcan sus posiciones y después se compactan los arrays en una pasada.
+     *
+     * @param removed Vuelos a eliminar.
+     */
+    private void removeAll(List<Flight> removed) {
+        BitSet marked = new BitSet(size);
+        for (Flight flight : removed) {
+            if (flight.getDepartureDateTime() == null) {
+                continue;
+            }
+            long departure = FlightStore.toEpochMinutes(flight.getDepartureDateTime());
+            for (int index = lowerBound(departure); index < size && departures[index] == departure; index++) {
+                if (flights[index] == flight && !marked.get(index)) {
+                    marked.set(index);
+                    break;
+                }
+            }
+        }
+
+        int k = marked.nextSetBit(0);
+        if (k < 0) {
+            return;
+        }
+        for (int i = k; i < size; i++) {
+            if (!marked.get(i)) {
+                departures[k] = departures[i];
+                flights[k++] = flights[i];
+            }
+        }
+        Arrays.fill(flights, k, size, null);
+        size = k;
+    }
+
+    /**
+     * Copia en una lista los vuelos de un rango de posiciones.
+     *
+     * @param from Primera posición (incluida).
+     * @param to   Última posición (excluida).
+     * @return Los vuelos del rango.
+     */
+    private List<Flight> slice(int from, int to) {
+        return from >= to ? List.of() : List.of(Arrays.copyOfRange(flights, from, to));
+    }
+
+    /**
+     * Devuelve la primera posición cuya salida es mayor o igual que un valor.
+     *
+     * @param departure Salida en minutos desde la época.
+     * @return La posición encontrada, o {@code size} si no hay ninguna.
+     */
+    private int lowerBound(long departure) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (departures[middle] < departure) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Devuelve la primera posición cuya salida es estrictamente mayor que un valor.
+     *
+     * @param departure Salida en minutos desde la época.
+     * @return La posición encontrada, o {@code size} si no hay ninguna.
+     */
+    private int upperBound(long departure) {
+        return departure == Long.MAX_VALUE ? size : lowerBound(departure + 1);
+    }
+
+    /**
+     * Convierte una fecha y hora en minutos desde la época, redondeando hacia abajo.
+     *
+     * @param dateTime Fecha y hora.
+     * @return Los minutos desde la época.
+     */
+    private static long floorMinutes(LocalDateTime dateTime) {
+        return FlightStore.toEpochMinutes(dateTime);
+    }
+
+    /**
+     * Convierte una fecha y hora en minutos desde la época, redondeando hacia arriba.
+     *
+     * @param dateTime Fecha y hora.
+     * @return Los minutos desde la época.
+     */
+    private static long ceilMinutes(LocalDateTime dateTime) {
+        long minutes = floorMinutes(dateTime);
+        boolean exact = dateTime.toEpochSecond(ZoneOffset.UTC) % 60 == 0 && dateTime.getNano() == 0;
+        return exact ? minutes : minutes + 1;
+    }
+
+    /**
+     * Amplía los arrays para que quepan al menos el número de vuelos indicado.
+     *
+     * @param capacity Capacidad mínima necesaria.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > departures.length) {
+            int newCapacity = Math.max(capacity, departures.length + (departures.length >> 1) + 1);
+            departures = Arrays.copyOf(departures, newCapacity);
+            flights = Arrays.copyOf(flights, newCapacity);
+        }
+    }
+}
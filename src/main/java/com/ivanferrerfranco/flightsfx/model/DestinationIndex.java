@@ -0,0 +1,232 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Índice de vuelos por destino que se mantiene al día con una lista observable.
+ * <p>
+ * Para cada destino guarda la lista de sus vuelos, de modo que las consultas por ciudad
+ * cuestan lo que el número de resultados y no lo que el número total de vuelos. Además
+ * mantiene los destinos ordenados por su forma en minúsculas para las búsquedas sin
+ * distinguir mayúsculas y por prefijo.
+ * <p>
+ * El índice se actualiza con cada cambio de la lista, por lo que los vuelos no deben cambiar
+ * de destino mientras están en ella; para modificarlos se sustituyen por otro objeto.
+ */
+public class DestinationIndex implements ListChangeListener<Flight> {
+
+    /** Vuelos de cada destino, en el orden en el que se añadieron. */
+    private final Map<String, List<Flight>> flightsByDestination = new HashMap<>();
+
+    /** Destinos exactos agrupados por su forma en minúsculas, ordenados alfabéticamente. */
+    private final NavigableMap<String, List<String>> destinationsByKey = new TreeMap<>();
+
+    /**
+     * Crea el índice con los vuelos actuales de la lista y lo registra como oyente de sus cambios.
+     *
+     * @param flights Lista de vuelos a indexar.
+     */
+    public DestinationIndex(ObservableList<Flight> flights) {
+        addAll(flights);
+        FlightList.addIndex(flights, this);
+    }
+
+    /**
+     * Actualiza las entradas del índice afectadas por un cambio de la lista.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        // Se reúnen primero todas las bajas del cambio, agrupadas por destino, para recorrer cada lista una sola vez.
+        Map<String, Map<Flight, Integer>> removed = new HashMap<>();
+        List<Flight> added = new ArrayList<>();
+        while (change.next()) {
+            // Las permutaciones y las actualizaciones no cambian los vuelos de cada destino.
+            if (change.wasRemoved()) {
+                for (Flight flight : change.getRemoved()) {
+                    removed.computeIfAbsent(flight.getDestination(), key -> new IdentityHashMap<>())
+                            .merge(flight, 1, Integer::sum);
+                }
+            }
+            if (change.wasAdded()) {
+                added.addAll(change.getAddedSubList());
+            }
+        }
+        removed.forEach(this::removeAll);
+        addAll(added);
+    }
+
+    /**
+     * Devuelve los vuelos a un destino exacto.
+     *
+     * @param destination Destino buscado.
+     * @return Los vuelos al destino, en orden de alta; vacía si no hay ninguno.
+     */
+    public List<Flight> flightsTo(String destination) {
+        List<Flight> flights = flightsByDestination.get(destination);
+        return flights == null ? List.of() : List.copyOf(flights);
+    }
+
+    /**
+     * Devuelve los vuelos a un destino sin distinguir mayúsculas de minúsculas.
+     *
+     * @param destination Destino buscado.
+     * @return Los vuelos a cualquier destino que coincida; vacía si no hay ninguno.
+     */
+    public List<Flight> flightsToIgnoreCase(String destination) {
+        List<String> destinations = destinationsByKey.get(keyOf(destination));
+        return destinations == null ? List.of() : collect(destinations);
+    }
+
+    /**
+     * Devuelve los vuelos cuyo destino empieza por un prefijo, sin distinguir mayúsculas.
+     *
+     * @param prefix Prefijo del destino.
+     * @return Los vuelos agrupados por destino en orden alfabético.
+     */
+    public List<Flight> flightsToPrefix(String prefix) {
+        List<String> destinations = new ArrayList<>();
+        prefixRange(prefix).values().forEach(destinations::addAll);
+        return collect(destinations);
+    }
+
+    /**
+     * Devuelve los destinos que empiezan por un prefijo, sin distinguir mayúsculas, para sugerencias al escribir.
+     *
+     * @param prefix Prefijo del destino.
+     * @param limit  Número máximo de destinos a devolver.
+     * @return Los destinos encontrados, en orden alfabético.
+     */
+    public List<String> destinationsStartingWith(String prefix, int limit) {
+        TreeSet<String> destinations = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (List<String> group : prefixRange(prefix).values()) {
+            destinations.addAll(group);
+            if (destinations.size() >= limit) {
+                break;
+            }
+        }
+        return destinations.stream().limit(limit).toList();
+    }
+
+    /**
+     * Devuelve el número de vuelos a un destino exacto.
+     *
+     * @param destination Destino buscado.
+     * @return El número de vuelos.
+     */
+    public int count(String destination) {
+        List<Flight> flights = flightsByDestination.get(destination);
+        return flights == null ? 0 : flights.size();
+    }
+
+    /**
+     * Añade vuelos al índice.
+     *
+     * @param flights Vuelos a añadir.
+     */
+    private void addAll(Collection<? extends Flight> flights) {
+        for (Flight flight : flights) {
+            String destination = flight.getDestination();
+            flightsByDestination.computeIfAbsent(destination, key -> {
+                destinationsByKey.computeIfAbsent(keyOf(key), k -> new ArrayList<>(1)).add(key);
+                return new ArrayList<>();
+            }).add(flight);
+        }
+    }
+
+    /**
+     * Elimina vuelos de un destino del índice, buscándolos por identidad entre los vuelos del destino.
+     * Una sola baja se busca desde el final; varias se eliminan en una sola pasada por la lista del destino.
+     *
+     * @param destination Destino de los vuelos.
+     * @param removed     Vuelos a eliminar, con el número de veces que se eliminan.
+     */
+    private void removeAll(String destination, Map<Flight, Integer> removed) {
+        List<Flight> flights = flightsByDestination.get(destination);
+        if (flights == null) {
+            return;
+        }
+
+        if (removed.size() == 1 && removed.values().iterator().next() == 1) {
+            // Buscar desde el final, ya que las bajas sueltas suelen afectar a los vuelos añadidos más recientemente.
+            Flight flight = removed.keySet().iterator().next();
+            for (int i = flights.size() - 1; i >= 0; i--) {
+                if (flights.get(i) == flight) {
+                    flights.remove(i);
+                    break;
+                }
+            }
+        } else {
+            flights.removeIf(flight -> {
+                Integer count = removed.get(flight);
+                if (count == null) {
+                    return false;
+                }
+                if (count == 1) {
+                    removed.remove(flight);
+                } else {
+                    removed.put(flight, count - 1);
+                }
+                return true;
+            });
+        }
+
+        if (flights.isEmpty()) {
+            flightsByDestination.remove(destination);
+            String key = keyOf(destination);
+            List<String> destinations = destinationsByKey.get(key);
+            destinations.remove(destination);
+            if (destinations.isEmpty()) {
+                destinationsByKey.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Reúne en una lista los vuelos de varios destinos exactos.
+     *
+     * @param destinations Destinos exactos.
+     * @return Los vuelos de todos ellos.
+     */
+    private List<Flight> collect(List<String> destinations) {
+        List<Flight> result = new ArrayList<>();
+        for (String destination : destinations) {
+            result.addAll(flightsByDestination.get(destination));
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve la parte del índice de claves cuyos destinos empiezan por un prefijo.
+     *
+     * @param prefix Prefijo del destino.
+     * @return La vista del índice con las claves que empiezan por el prefijo.
+     */
+    private NavigableMap<String, List<String>> prefixRange(String prefix) {
+        String key = keyOf(prefix);
+        return destinationsByKey.subMap(key, true, key + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Normaliza un destino para las búsquedas sin distinguir mayúsculas.
+     *
+     * @param destination Destino; puede ser {@code null}.
+     * @return El destino en minúsculas, o una cadena vacía si es {@code null}.
+     */
+    private static String keyOf(String destination) {
+        return destination == null ? "" : destination.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,5 +1,10 @@
 package com.ivanferrerfranco.flightsfx.model;
 
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
@@ -24,6 +29,12 @@ public class Flight {
     /** Duración del vuelo expresada en horas y minutos. */
     private LocalTime duration;
 
+    /** Propiedades JavaFX del vuelo; solo se crean para los vuelos que llega a mostrar una tabla. */
+    private Properties properties;
+
+    /** Fecha y hora de salida ya formateada, calculada la primera vez que se pide. */
+    private String departureText;
+
     // Constructores
 
     /**
@@ -69,6 +80,9 @@ public class Flight {
      */
     public void setFlightNumber(String flightNumber) {
         this.flightNumber = flightNumber;
+        if (properties != null) {
+            properties.flightNumber.set(flightNumber);
+        }
     }
 
     /**
@@ -87,6 +101,9 @@ public class Flight {
      */
     public void setDestination(String destination) {
         this.destination = destination;
+        if (properties != null) {
+            properties.destination.set(destination);
+        }
     }
 
     /**
@@ -105,6 +122,10 @@ public class Flight {
      */
     public void setDepartureDateTime(LocalDateTime departureDateTime) {
         this.departureDateTime = departureDateTime;
+        this.departureText = null;
+        if (properties != null) {
+            properties.departureDateTime.set(departureDateTime);
+        }
     }
 
     /**
@@ -123,6 +144,73 @@ public class Flight {
      */
     public void setDuration(LocalTime duration) {
         this.duration = duration;
+        if (properties != null) {
+            properties.duration.set(duration);
+        }
+    }
+
+    /**
+     * Devuelve la fecha y hora de salida con el formato `dd/MM/yy HH:mm`.
+     * El texto se calcula una sola vez por vuelo, de modo que las celdas de la tabla
+     * no lo vuelven a formatear cada vez que se redibujan.
+     *
+     * @return La fecha y hora de salida formateada, o {@code null} si no tiene.
+     */
+    public String getDepartureText() {
+        if (departureText == null && departureDateTime != null) {
+            departureText = FlightDateCodec.formatDateTime(FlightStore.toEpochMinutes(departureDateTime));
+        }
+        return departureText;
+    }
+
+    // Propiedades de solo lectura para enlazar el vuelo con la tabla sin reflexión.
+
+    /**
+     * Devuelve el número del vuelo como propiedad observable.
+     *
+     * @return Propiedad de solo lectura con el número del vuelo.
+     */
+    public ReadOnlyStringProperty flightNumberProperty() {
+        return properties().flightNumber.getReadOnlyProperty();
+    }
+
+    /**
+     * Devuelve el destino del vuelo como propiedad observable.
+     *
+     * @return Propiedad de solo lectura con el destino del vuelo.
+     */
+    public ReadOnlyStringProperty destinationProperty() {
+        return properties().destination.getReadOnlyProperty();
+    }
+
+    /**
+     * Devuelve la fecha y hora de salida del vuelo como propiedad observable.
+     *
+     * @return Propiedad de solo lectura con la fecha y hora de salida.
+     */
+    public ReadOnlyObjectProperty<LocalDateTime> departureDateTimeProperty() {
+        return properties().departureDateTime.getReadOnlyProperty();
+    }
+
+    /**
+     * Devuelve la duración del vuelo como propiedad observable.
+     *
+     * @return Propiedad de solo lectura con la duración del vuelo.
+     */
+    public ReadOnlyObjectProperty<LocalTime> durationProperty() {
+        return properties().duration.getReadOnlyProperty();
+    }
+
+    /**
+     * Devuelve las propiedades del vuelo, creándolas la primera vez que se piden.
+     *
+     * @return Las propiedades del vuelo.
+     */
+    private Properties properties() {
+        if (properties == null) {
+            properties = new Properties(this);
+        }
+        return properties;
     }
 
     /**
@@ -139,4 +227,35 @@ public class Flight {
                 ", duration=" + duration +
                 '}';
     }
+
+    /**
+     * Propiedades JavaFX de un vuelo. Se agrupan en un único objeto para que los vuelos
+     * que nunca se muestran solo paguen una referencia vacía.
+     */
+    private static final class Properties {
+
+        /** Número del vuelo. */
+        private final ReadOnlyStringWrapper flightNumber;
+
+        /** Destino del vuelo. */
+        private final ReadOnlyStringWrapper destination;
+
+        /** Fecha y hora de salida del vuelo. */
+        private final ReadOnlyObjectWrapper<LocalDateTime> departureDateTime;
+
+        /** Duración del vuelo. */
+        private final ReadOnlyObjectWrapper<LocalTime> duration;
+
+        /**
+         * Crea las propiedades con los valores actuales del vuelo.
+         *
+         * @param flight Vuelo al que pertenecen.
+         */
+        Properties(Flight flight) {
+            flightNumber = new ReadOnlyStringWrapper(flight, "flightNumber", flight.flightNumber);
+            destination = new ReadOnlyStringWrapper(flight, "destination", flight.destination);
+            departureDateTime = new ReadOnlyObjectWrapper<>(flight, "departureDateTime", flight.departureDateTime);
+            duration = new ReadOnlyObjectWrapper<>(flight, "duration", flight.duration);
+        }
+    }
 }
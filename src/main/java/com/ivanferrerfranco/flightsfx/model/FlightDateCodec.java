@@ -0,0 +1,294 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+/**
+ * Codificador de las fechas de salida ({@code dd/MM/yy HH:mm}) y las duraciones ({@code H:mm}) de los vuelos.
+ * <p>
+ * El formato canónico se lee y se escribe carácter a carácter, convirtiendo directamente entre el texto
+ * y los minutos desde la época (UTC) o los minutos de duración, sin crear objetos intermedios ni pasar por
+ * {@link DateTimeFormatter}. La lectura valida cada campo, incluidos los días de cada mes y los años bisiestos.
+ * El texto que no tiene exactamente la forma canónica, como {@code 1/2/26 9:05} o un año de cuatro cifras,
+ * se interpreta con un {@link DateTimeFormatter} más flexible, que valida los campos con el mismo rigor.
+ * <p>
+ * Los años de dos cifras corresponden a 2000-2099, igual que con el patrón {@code yy}.
+ */
+public class FlightDateCodec {
+
+    /** Longitud de una fecha de salida en formato canónico. */
+    public static final int DATE_TIME_LENGTH = 14;
+
+    /** Días desde el 1 de marzo del año 0 hasta el 1 de enero de 1970, para convertir fechas sin {@link java.time.LocalDate}. */
+    private static final long DAYS_0000_TO_1970 = 719_468;
+
+    /** Formato flexible para las fechas de salida que no tienen la forma canónica; rechaza días inexistentes como el 31/4. */
+    private static final DateTimeFormatter FALLBACK_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("d/M/[uuuu][uu] H:mm")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    /** Formato flexible para las duraciones que no tienen la forma canónica, por ejemplo con segundos. */
+    private static final DateTimeFormatter FALLBACK_DURATION_FORMATTER = DateTimeFormatter.ofPattern("H:mm[:ss]")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Constructor de la clase FlightDateCodec.
+     * Todos los métodos de la clase son estáticos, por lo que no es necesario crear instancias.
+     */
+    public FlightDateCodec() {
+        // El constructor no realiza ninguna acción adicional
+    }
+
+    /**
+     * Interpreta una fecha de salida.
+     *
+     * @param text Texto de la fecha.
+     * @return Los minutos desde la época (UTC).
+     * @throws DateTimeException Si el texto no es una fecha válida.
+     */
+    public static long parseDateTime(CharSequence text) {
+        return parseDateTime(text, 0, text.length());
+    }
+
+    /**
+     * Interpreta una fecha de salida que ocupa una parte de un texto, por ejemplo un campo de una línea.
+     *
+     * @param text  Texto que contiene la fecha.
+     * @param start Posición del primer carácter (incluida).
+     * @param end   Posición del último carácter (excluida).
+     * @return Los minutos desde la época (UTC).
+     * @throws DateTimeException Si el texto no es una fecha válida.
+     */
+    public static long parseDateTime(CharSequence text, int start, int end) {
+        if (end - start != DATE_TIME_LENGTH
+                || text.charAt(start + 2) != '/' || text.charAt(start + 5) != '/'
+                || text.charAt(start + 8) != ' ' || text.charAt(start + 11) != ':') {
+            return parseDateTimeFallback(text, start, end);
+        }
+
+        int day = twoDigits(text, start);
+        int month = twoDigits(text, start + 3);
+        int year = 2000 + twoDigits(text, start + 6);
+        int hour = twoDigits(text, start + 9);
+        int minute = twoDigits(text, start + 12);
+        if (day < 0 || month < 0 || year < 2000 || hour < 0 || minute < 0) {
+            return parseDateTimeFallback(text, start, end);
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour > 23 || minute > 59) {
+            throw new DateTimeParseException("Fecha u hora fuera de rango", text.subSequence(start, end), 0);
+        }
+        return epochDay(year, month, day) * 1440 + hour * 60 + minute;
+    }
+
+    /**
+     * Interpreta una fecha de salida y la devuelve como {@link LocalDateTime}.
+     *
+     * @param text Texto de la fecha.
+     * @return La fecha y hora de salida.
+     * @throws DateTimeException Si el texto no es una fecha válida.
+     */
+    public static LocalDateTime parseLocalDateTime(CharSequence text) {
+        return FlightStore.fromEpochMinutes(parseDateTime(text));
+    }
+
+    /**
+     * Interpreta una duración.
+     *
+     * @param text Texto de la duración.
+     * @return La duración en minutos.
+     * @throws DateTimeException Si el texto no es una duración válida.
+     */
+    public static int parseDuration(CharSequence text) {
+        return parseDuration(text, 0, text.length());
+    }
+
+    /**
+     * Interpreta una duración que ocupa una parte de un texto. El formato canónico es {@code H:mm} o {@code HH:mm}.
+     *
+     * @param text  Texto que contiene la duración.
+     * @param start Posición del primer carácter (incluida).
+     * @param end   Posición del último carácter (excluida).
+     * @return La duración en minutos.
+     * @throws DateTimeException Si el texto no es una duración válida.
+     */
+    public static int parseDuration(CharSequence text, int start, int end) {
+        int length = end - start;
+        int hour;
+        if (length == 4 && text.charAt(start + 1) == ':') {
+            hour = digit(text.charAt(start));
+        } else if (length == 5 && text.charAt(start + 2) == ':') {
+            hour = twoDigits(text, start);
+        } else {
+            return parseDurationFallback(text, start, end);
+        }
+        int minute = twoDigits(text, end - 2);
+        if (hour < 0 || minute < 0) {
+            return parseDurationFallback(text, start, end);
+        }
+
+        if (hour > 23 || minute > 59) {
+            throw new DateTimeParseException("Duración fuera de rango", text.subSequence(start, end), 0);
+        }
+        return hour * 60 + minute;
+    }
+
+    /**
+     * Interpreta una duración y la devuelve como {@link LocalTime}.
+     *
+     * @param text Texto de la duración.
+     * @return La duración.
+     * @throws DateTimeException Si el texto no es una duración válida.
+     */
+    public static LocalTime parseLocalTime(CharSequence text) {
+        return FlightStore.fromMinutes((short) parseDuration(text));
+    }
+
+    /**
+     * Escribe una fecha de salida en formato canónico.
+     *
+     * @param epochMinutes Minutos desde la época (UTC).
+     * @return La fecha con el formato {@code dd/MM/yy HH:mm}.
+     */
+    public static String formatDateTime(long epochMinutes) {
+        StringBuilder builder = new StringBuilder(DATE_TIME_LENGTH);
+        appendDateTime(builder, epochMinutes);
+        return builder.toString();
+    }
+
+    /**
+     * Añade una fecha de salida en formato canónico a un texto en construcción.
+     *
+     * @param builder      Texto al que se añade la fecha.
+     * @param epochMinutes Minutos desde la época (UTC).
+     * @return El mismo texto, para encadenar llamadas.
+     */
+    public static StringBuilder appendDateTime(StringBuilder builder, long epochMinutes) {
+        long epochDay = Math.floorDiv(epochMinutes, 1440);
+        int minuteOfDay = Math.floorMod(epochMinutes, 1440);
+
+        // Conversión de días a fecha civil con años que empiezan en marzo, para que febrero sea el último mes.
+        long days = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (int) ((5 * dayOfYear + 2) / 153);
+        int day = (int) (dayOfYear - (153L * shiftedMonth + 2) / 5 + 1);
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        appendTwoDigits(builder, day).append('/');
+        appendTwoDigits(builder, month).append('/');
+        appendTwoDigits(builder, Math.floorMod(year, 100)).append(' ');
+        appendTwoDigits(builder, minuteOfDay / 60).append(':');
+        return appendTwoDigits(builder, minuteOfDay % 60);
+    }
+
+    /**
+     * Añade una duración con el formato {@code HH:mm} a un texto en construcción.
+     *
+     * @param builder Texto al que se añade la duración.
+     * @param minutes Duración en minutos, menor de un día.
+     * @return El mismo texto, para encadenar llamadas.
+     */
+    public static StringBuilder appendDuration(StringBuilder builder, int minutes) {
+        appendTwoDigits(builder, minutes / 60).append(':');
+        return appendTwoDigits(builder, minutes % 60);
+    }
+
+    /**
+     * Interpreta con el formato flexible una fecha de salida que no tiene la forma canónica.
+     *
+     * @param text  Texto que contiene la fecha.
+     * @param start Posición del primer carácter (incluida).
+     * @param end   Posición del último carácter (excluida).
+     * @return Los minutos desde la época (UTC).
+     * @throws DateTimeException Si el texto no es una fecha válida.
+     */
+    private static long parseDateTimeFallback(CharSequence text, int start, int end) {
+        return FlightStore.toEpochMinutes(LocalDateTime.parse(text.subSequence(start, end), FALLBACK_DATE_TIME_FORMATTER));
+    }
+
+    /**
+     * Interpreta con el formato flexible una duración que no tiene la forma canónica.
+     *
+     * @param text  Texto que contiene la duración.
+     * @param start Posición del primer carácter (incluida).
+     * @param end   Posición del último carácter (excluida).
+     * @return La duración en minutos.
+     * @throws DateTimeException Si el texto no es una duración válida.
+     */
+    private static int parseDurationFallback(CharSequence text, int start, int end) {
+        return FlightStore.toMinutes(LocalTime.parse(text.subSequence(start, end), FALLBACK_DURATION_FORMATTER));
+    }
+
+    /**
+     * Lee un número de dos cifras.
+     *
+     * @param text  Texto.
+     * @param index Posición de la primera cifra.
+     * @return El número, o un valor negativo si alguno de los caracteres no es una cifra.
+     */
+    private static int twoDigits(CharSequence text, int index) {
+        int tens = digit(text.charAt(index));
+        int units = digit(text.charAt(index + 1));
+        return tens < 0 || units < 0 ? -1 : tens * 10 + units;
+    }
+
+    /**
+     * Lee una cifra.
+     *
+     * @param c Carácter.
+     * @return El valor de la cifra, o {@code -1} si el carácter no es una cifra ASCII.
+     */
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    /**
+     * Añade un número de dos cifras, con un cero delante si es necesario.
+     *
+     * @param builder Texto al que se añade el número.
+     * @param value   Número entre 0 y 99.
+     * @return El mismo texto, para encadenar llamadas.
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Devuelve el número de días de un mes.
+     *
+     * @param year  Año.
+     * @param month Mes, de 1 a 12.
+     * @return Los días del mes, teniendo en cuenta los años bisiestos.
+     */
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Convierte una fecha civil en días desde el 1 de enero de 1970.
+     *
+     * @param year  Año.
+     * @param month Mes, de 1 a 12.
+     * @param day   Día del mes.
+     * @return Los días desde la época.
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * 146_097 + dayOfEra - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cambio de un rango contiguo de una lista de vuelos: a partir de una posición, unos vuelos se sustituyen por otros.
+ * <p>
+ * Un alta es un cambio sin vuelos eliminados, una baja es un cambio sin vuelos añadidos y una sustitución
+ * tiene ambos. Solo guarda los vuelos afectados, no una copia de la lista, y se puede invertir para deshacerlo.
+ *
+ * @param from    Posición del primer vuelo afectado.
+ * @param removed Vuelos eliminados a partir de esa posición, en orden.
+ * @param added   Vuelos añadidos a partir de esa posición, en orden.
+ */
+public record FlightDelta(int from, List<Flight> removed, List<Flight> added) {
+
+    /**
+     * Crea un cambio con copias inmutables de las listas de vuelos.
+     *
+     * @param from    Posición del primer vuelo afectado.
+     * @param removed Vuelos eliminados.
+     * @param added   Vuelos añadidos.
+     */
+    public FlightDelta {
+        removed = List.copyOf(removed);
+        added = List.copyOf(added);
+    }
+
+    /**
+     * Convierte un cambio de una lista observable en la secuencia de cambios de rango equivalente.
+     * Las permutaciones y las actualizaciones no cambian los vuelos de la lista, por lo que se ignoran.
+     *
+     * @param change Cambio de la lista, sin recorrer todavía.
+     * @return Los cambios de rango, en el orden en el que se aplicaron.
+     */
+    public static List<FlightDelta> fromChange(ListChangeListener.Change<? extends Flight> change) {
+        List<FlightDelta> deltas = new ArrayList<>(1);
+        while (change.next()) {
+            if (change.wasRemoved() || change.wasAdded()) {
+                deltas.add(new FlightDelta(change.getFrom(), List.copyOf(change.getRemoved()), List.copyOf(change.getAddedSubList())));
+            }
+        }
+        change.reset();
+        return deltas;
+    }
+
+    /**
+     * Devuelve el cambio que deshace este.
+     *
+     * @return El cambio inverso.
+     */
+    public FlightDelta inverse() {
+        return new FlightDelta(from, added, removed);
+    }
+
+    /**
+     * Aplica el cambio a una lista. Las altas, las bajas y la sustitución de un solo vuelo producen un único
+     * cambio en una lista observable. La sustitución de un rango de otro tamaño también, si la lista es una
+     * {@link FlightList}; en otra lista observable produce una baja y un alta.
+     *
+     * @param flights Lista a la que se aplica el cambio; debe estar en el estado anterior al cambio.
+     */
+    public void applyTo(List<Flight> flights) {
+        if (removed.isEmpty()) {
+            flights.addAll(from, added);
+        } else if (added.isEmpty()) {
+            flights.subList(from, from + removed.size()).clear();
+        } else if (removed.size() == 1 && added.size() == 1) {
+            flights.set(from, added.get(0));
+        } else if (flights instanceof FlightList list) {
+            list.batch(() -> replaceRange(list));
+        } else {
+            replaceRange(flights);
+        }
+    }
+
+    /**
+     * Sustituye los vuelos eliminados por los añadidos.
+     *
+     * @param flights Lista a la que se aplica el cambio.
+     */
+    private void replaceRange(List<Flight> flights) {
+        flights.subList(from, from + removed.size()).clear();
+        flights.addAll(from, added);
+    }
+
+    /**
+     * Devuelve el número de vuelos que guarda el cambio.
+     *
+     * @return La suma de vuelos eliminados y añadidos.
+     */
+    public int size() {
+        return removed.size() + added.size();
+    }
+}
@@ -0,0 +1,232 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ListChangeListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Historial para deshacer y rehacer los cambios de una lista de vuelos.
+ * <p>
+ * Cada cambio de la lista se guarda como una orden con los {@link FlightDelta} que lo forman, es decir,
+ * solo los vuelos afectados y su posición. Deshacer aplica los cambios inversos y rehacer los vuelve a aplicar,
+ * en ambos casos con {@link FlightList#batch(Runnable)}: como se aplican sobre la propia lista, el resto de oyentes
+ * (índices, estadísticas y persistencia) reciben cada orden deshecha o rehecha como un único cambio.
+ * <p>
+ * La memoria del historial está limitada: cuando la estimación de lo que ocupan las órdenes guardadas supera
+ * el límite, se descartan las más antiguas. Una orden que por sí sola supera el límite vacía el historial,
+ * ya que las órdenes anteriores dejarían de poder aplicarse en las posiciones correctas.
+ */
+public class FlightHistory implements ListChangeListener<Flight> {
+
+    /** Límite de memoria por defecto, en bytes. */
+    public static final long DEFAULT_MEMORY_LIMIT = 16L * 1024 * 1024;
+
+    /** Memoria estimada de cada vuelo que guarda el historial, incluidos sus textos, en bytes. */
+    private static final long BYTES_PER_FLIGHT = 160;
+
+    /** Memoria estimada de cada orden y cada cambio, sin contar los vuelos, en bytes. */
+    private static final long BYTES_PER_DELTA = 64;
+
+    /** Lista cuyos cambios se registran. */
+    private final FlightList flights;
+
+    /** Límite de memoria del historial, en bytes. */
+    private final long memoryLimit;
+
+    /** Órdenes que se pueden deshacer; la última es la más reciente. */
+    private final Deque<List<FlightDelta>> undoStack = new ArrayDeque<>();
+
+    /** Órdenes deshechas que se pueden rehacer; la última es la deshecha más recientemente. */
+    private final Deque<List<FlightDelta>> redoStack = new ArrayDeque<>();
+
+    /** Indica si hay alguna orden que deshacer. */
+    private final ReadOnlyBooleanWrapper canUndo = new ReadOnlyBooleanWrapper(this, "canUndo");
+
+    /** Indica si hay alguna orden que rehacer. */
+    private final ReadOnlyBooleanWrapper canRedo = new ReadOnlyBooleanWrapper(this, "canRedo");
+
+    /** Memoria estimada de las órdenes guardadas en las dos pilas, en bytes. */
+    private long memoryUsed;
+
+    /** Indica si el historial está aplicando una orden, para no registrar sus propios cambios. */
+    private boolean applying;
+
+    /**
+     * Crea el historial con el límite de memoria por defecto y lo registra como oyente de la lista.
+     *
+     * @param flights Lista de vuelos.
+     */
+    public FlightHistory(FlightList flights) {
+        this(flights, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Crea el historial y lo registra como oyente de la lista.
+     *
+     * @param flights     Lista de vuelos.
+     * @param memoryLimit Memoria máxima estimada de las órdenes guardadas, en bytes.
+     */
+    public FlightHistory(FlightList flights, long memoryLimit) {
+        this.flights = flights;
+        this.memoryLimit = memoryLimit;
+        flights.addListener(this);
+    }
+
+    /**
+     * Registra un cambio de la lista como una orden nueva, descartando las órdenes que se podían rehacer.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        if (applying) {
+            return;
+        }
+        List<FlightDelta> command = FlightDelta.fromChange(change);
+        if (command.isEmpty()) {
+            return;
+        }
+
+        memoryUsed -= sizeOf(redoStack);
+        redoStack.clear();
+        long size = sizeOf(command);
+        if (size > memoryLimit) {
+            clear();
+            return;
+        }
+
+        undoStack.addLast(command);
+        memoryUsed += size;
+        while (memoryUsed > memoryLimit) {
+            memoryUsed -= sizeOf(undoStack.removeFirst());
+        }
+        updateProperties();
+    }
+
+    /**
+     * Deshace la última orden.
+     *
+     * @return {@code true} si había alguna orden que deshacer.
+     */
+    public boolean undo() {
+        List<FlightDelta> command = undoStack.pollLast();
+        if (command == null) {
+            return false;
+        }
+        applying = true;
+        try {
+            flights.batch(() -> {
+                for (int i = command.size() - 1; i >= 0; i--) {
+                    command.get(i).inverse().applyTo(flights);
+                }
+            });
+        } finally {
+            applying = false;
+        }
+        redoStack.addLast(command);
+        updateProperties();
+        return true;
+    }
+
+    /**
+     * Rehace la última orden deshecha.
+     *
+     * @return {@code true} si había alguna orden que rehacer.
+     */
+    public boolean redo() {
+        List<FlightDelta> command = redoStack.pollLast();
+        if (command == null) {
+            return false;
+        }
+        applying = true;
+        try {
+            flights.batch(() -> {
+                for (FlightDelta delta : command) {
+                    delta.applyTo(flights);
+                }
+            });
+        } finally {
+            applying = false;
+        }
+        undoStack.addLast(command);
+        updateProperties();
+        return true;
+    }
+
+    /**
+     * Vacía el historial.
+     */
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        memoryUsed = 0;
+        updateProperties();
+    }
+
+    /**
+     * Devuelve la memoria estimada de las órdenes guardadas.
+     *
+     * @return La memoria estimada, en bytes.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Indica si hay alguna orden que deshacer.
+     *
+     * @return La propiedad, útil para desactivar el botón de deshacer.
+     */
+    public ReadOnlyBooleanProperty canUndoProperty() {
+        return canUndo.getReadOnlyProperty();
+    }
+
+    /**
+     * Indica si hay alguna orden que rehacer.
+     *
+     * @return La propiedad, útil para desactivar el botón de rehacer.
+     */
+    public ReadOnlyBooleanProperty canRedoProperty() {
+        return canRedo.getReadOnlyProperty();
+    }
+
+    /**
+     * Actualiza las propiedades con el estado de las pilas.
+     */
+    private void updateProperties() {
+        canUndo.set(!undoStack.isEmpty());
+        canRedo.set(!redoStack.isEmpty());
+    }
+
+    /**
+     * Estima la memoria de una orden.
+     *
+     * @param command Cambios de la orden.
+     * @return La memoria estimada, en bytes.
+     */
+    private static long sizeOf(List<FlightDelta> command) {
+        long size = BYTES_PER_DELTA;
+        for (FlightDelta delta : command) {
+            size += BYTES_PER_DELTA + delta.size() * BYTES_PER_FLIGHT;
+        }
+        return size;
+    }
+
+    /**
+     * Estima la memoria de una pila de órdenes.
+     *
+     * @param commands Órdenes.
+     * @return La memoria estimada, en bytes.
+     */
+    private static long sizeOf(Deque<List<FlightDelta>> commands) {
+        long size = 0;
+        for (List<FlightDelta> command : commands) {
+            size += sizeOf(command);
+        }
+        return size;
+    }
+}
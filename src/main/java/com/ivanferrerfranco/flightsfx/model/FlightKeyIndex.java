@@ -0,0 +1,505 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice de clave primaria de una lista de vuelos, que guarda para cada clave el vuelo y su posición en la lista.
+ * <p>
+ * La clave es el número de vuelo o, si se elige {@link KeyMode#FLIGHT_NUMBER_AND_DATE}, el número de vuelo
+ * junto con la fecha de salida. Comprobar si una clave existe y buscar su vuelo cuesta O(1), lo que permite
+ * rechazar duplicados, sustituir un vuelo en su sitio y eliminarlo por clave sin recorrer la lista comparando vuelos.
+ * <p>
+ * Cada fila de la lista recibe un rango estable al añadirse al final, y un árbol de Fenwick cuenta las filas vivas
+ * de cada rango: la posición de un vuelo es el número de filas vivas con rango menor que el suyo. Así las altas al
+ * final, las sustituciones y las bajas en cualquier posición actualizan las posiciones en O(log n), sin recorrer
+ * la lista. Solo las inserciones en medio de la lista y las permutaciones obligan a renumerar todas las filas,
+ * lo que se hace de forma perezosa la próxima vez que se necesita una posición.
+ * <p>
+ * Si la lista contiene varios vuelos con la misma clave, por ejemplo porque venían así en el archivo,
+ * el índice apunta al primero que se añadió.
+ */
+public class FlightKeyIndex implements ListChangeListener<Flight> {
+
+    /**
+     * Forma de construir la clave primaria de un vuelo.
+     */
+    public enum KeyMode {
+
+        /** La clave es el número de vuelo. */
+        FLIGHT_NUMBER,
+
+        /** La clave es el número de vuelo junto con la fecha de salida, para vuelos regulares que se repiten cada día. */
+        FLIGHT_NUMBER_AND_DATE;
+
+        /**
+         * Construye una clave.
+         *
+         * @param flightNumber Número de vuelo.
+         * @param date         Fecha de salida; se ignora si la clave es solo el número de vuelo.
+         * @return La clave.
+         */
+        private String keyOf(String flightNumber, LocalDate date) {
+            return this == FLIGHT_NUMBER ? flightNumber : flightNumber + '|' + date;
+        }
+
+        /**
+         * Construye la clave de un vuelo.
+         *
+         * @param flight Vuelo.
+         * @return La clave del vuelo.
+         */
+        private String keyOf(Flight flight) {
+            if (this == FLIGHT_NUMBER) {
+                return flight.getFlightNumber();
+            }
+            return keyOf(flight.getFlightNumber(),
+                    flight.getDepartureDateTime() == null ? null : flight.getDepartureDateTime().toLocalDate());
+        }
+    }
+
+    /** Lista indexada. */
+    private final ObservableList<Flight> flights;
+
+    /** Forma de construir las claves. */
+    private final KeyMode keyMode;
+
+    /** Entrada de cada clave. */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** Número de vuelos de cada clave repetida, sin contar el indexado. */
+    private final Map<String, Integer> duplicates = new HashMap<>();
+
+    /** Claves repetidas cuyo vuelo indexado se ha eliminado y que deben apuntar a otro de sus vuelos. */
+    private final Set<String> orphanKeys = new HashSet<>();
+
+    /** Rangos de las filas de la lista. */
+    private final Ranks ranks = new Ranks();
+
+    /** Indica si los rangos no corresponden a la lista y hay que renumerarlos antes de usarlos. */
+    private boolean stale;
+
+    /**
+     * Crea el índice con los vuelos actuales de la lista y lo registra como oyente de sus cambios.
+     *
+     * @param flights Lista de vuelos a indexar.
+     * @param keyMode Forma de construir la clave primaria.
+     */
+    public FlightKeyIndex(ObservableList<Flight> flights, KeyMode keyMode) {
+        this.flights = flights;
+        this.keyMode = keyMode;
+        ranks.reset(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            add(flights.get(i), i);
+        }
+        FlightList.addIndex(flights, this);
+    }
+
+    /**
+     * Actualiza el índice con un cambio de la lista.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        while (change.next()) {
+            int from = change.getFrom();
+            if (change.wasPermutated()) {
+                stale = true;
+                continue;
+            }
+            for (Flight flight : change.getRemoved()) {
+                remove(flight);
+            }
+
+            // Las filas sustituidas conservan su rango; las bajas sobrantes dejan de contar y las altas sobrantes
+            // reciben rangos nuevos si se añaden al final. Las inserciones en medio obligan a renumerar.
+            int removedSize = change.getRemovedSize();
+            int addedSize = change.getAddedSize();
+            int kept = Math.min(removedSize, addedSize);
+            if (!stale) {
+                for (int i = kept; i < removedSize; i++) {
+                    ranks.remove(ranks.rankAt(from + kept));
+                }
+                if (addedSize > kept && from + kept != ranks.size()) {
+                    stale = true;
+                }
+            }
+            List<? extends Flight> added = change.getAddedSubList();
+            for (int i = 0; i < addedSize; i++) {
+                int rank = stale ? -1 : i < kept ? ranks.rankAt(from + i) : ranks.append();
+                add(added.get(i), rank);
+            }
+        }
+        if (!orphanKeys.isEmpty()) {
+            adoptDuplicates();
+        }
+        // Renumerar cuando la mayoría de los rangos asignados pertenecen a filas eliminadas.
+        if (!stale && ranks.assigned() > 4 * ranks.size() + 64) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Devuelve la forma en la que se construyen las claves.
+     *
+     * @return La forma de construir las claves.
+     */
+    public KeyMode getKeyMode() {
+        return keyMode;
+    }
+
+    /**
+     * Busca el vuelo con una clave.
+     *
+     * @param flightNumber Número de vuelo.
+     * @param date         Fecha de salida; se ignora si la clave es solo el número de vuelo.
+     * @return El vuelo, o {@code null} si no hay ninguno con esa clave.
+     */
+    public Flight find(String flightNumber, LocalDate date) {
+        Entry entry = entries.get(keyMode.keyOf(flightNumber, date));
+        return entry == null ? null : entry.flight;
+    }
+
+    /**
+     * Indica si la lista tiene un vuelo con la misma clave que otro, por ejemplo antes de añadirlo.
+     *
+     * @param flight Vuelo cuya clave se comprueba.
+     * @return {@code true} si ya hay un vuelo con esa clave.
+     */
+    public boolean contains(Flight flight) {
+        return entries.containsKey(keyMode.keyOf(flight));
+    }
+
+    /**
+     * Devuelve la posición en la lista del vuelo con la misma clave que otro.
+     *
+     * @param flight Vuelo cuya clave se busca.
+     * @return La posición, o {@code -1} si no hay ningún vuelo con esa clave.
+     */
+    public int indexOf(Flight flight) {
+        Entry entry = entries.get(keyMode.keyOf(flight));
+        return entry == null ? -1 : positionOf(entry);
+    }
+
+    /**
+     * Devuelve las posiciones en la lista de todos los vuelos con la misma clave que otro. Si la clave no está
+     * repetida cuesta lo mismo que {@link #indexOf(Flight)}; si lo está, se recorre la lista.
+     *
+     * @param flight Vuelo cuya clave se busca.
+     * @return Las posiciones, en orden; vacío si no hay ningún vuelo con esa clave.
+     */
+    public List<Integer> indexesOf(Flight flight) {
+        String key = keyMode.keyOf(flight);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return List.of();
+        }
+        if (!duplicates.containsKey(key)) {
+            return List.of(positionOf(entry));
+        }
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < flights.size(); i++) {
+            if (key.equals(keyMode.keyOf(flights.get(i)))) {
+                positions.add(i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Devuelve la clave de un vuelo, para agrupar vuelos por clave fuera del índice.
+     *
+     * @param flight Vuelo.
+     * @return La clave del vuelo.
+     */
+    public String keyOf(Flight flight) {
+        return keyMode.keyOf(flight);
+    }
+
+    /**
+     * Sustituye en su posición el vuelo que tiene la misma clave que otro, con un único cambio de la lista.
+     *
+     * @param updated Vuelo con los datos nuevos.
+     * @return El vuelo sustituido, o {@code null} si no había ninguno con esa clave y la lista no cambia.
+     */
+    public Flight replace(Flight updated) {
+        int index = indexOf(updated);
+        return index < 0 ? null : flights.set(index, updated);
+    }
+
+    /**
+     * Elimina el vuelo con una clave.
+     *
+     * @param flightNumber Número de vuelo.
+     * @param date         Fecha de salida; se ignora si la clave es solo el número de vuelo.
+     * @return El vuelo eliminado, o {@code null} si no había ninguno con esa clave.
+     */
+    public Flight remove(String flightNumber, LocalDate date) {
+        Entry entry = entries.get(keyMode.keyOf(flightNumber, date));
+        return entry == null ? null : flights.remove(positionOf(entry));
+    }
+
+    /**
+     * Elimina de la lista un vuelo concreto. Si es el vuelo indexado para su clave se elimina por su posición;
+     * si no, porque es un duplicado, se busca por identidad.
+     *
+     * @param flight Vuelo a eliminar.
+     * @return {@code true} si el vuelo estaba en la lista.
+     */
+    public boolean removeFlight(Flight flight) {
+        Entry entry = entries.get(keyMode.keyOf(flight));
+        if (entry != null && entry.flight == flight) {
+            flights.remove(positionOf(entry));
+            return true;
+        }
+        for (int i = 0; i < flights.size(); i++) {
+            if (flights.get(i) == flight) {
+                flights.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Añade un vuelo al índice. Si su clave ya existe, solo se cuenta como duplicado.
+     *
+     * @param flight Vuelo añadido.
+     * @param rank   Rango de la fila del vuelo, o {@code -1} si hay que renumerar las filas.
+     */
+    private void add(Flight flight, int rank) {
+        String key = keyMode.keyOf(flight);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entries.put(key, new Entry(flight, rank));
+        } else {
+            duplicates.merge(key, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Elimina un vuelo del índice. Si era el vuelo indexado y su clave tiene duplicados,
+     * la clave se anota para que otro de sus vuelos ocupe su lugar al terminar el cambio.
+     *
+     * @param flight Vuelo eliminado.
+     */
+    private void remove(Flight flight) {
+        String key = keyMode.keyOf(flight);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        if (entry.flight != flight) {
+            duplicates.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            return;
+        }
+
+        entries.remove(key);
+        if (duplicates.containsKey(key)) {
+            orphanKeys.add(key);
+        }
+    }
+
+    /**
+     * Hace que cada clave repetida que ha perdido su vuelo indexado apunte al primero de los que quedan.
+     * Se hace al terminar de procesar un cambio para no confundir esos vuelos con los añadidos en el mismo cambio.
+     */
+    private void adoptDuplicates() {
+        for (int i = 0; i < flights.size() && !orphanKeys.isEmpty(); i++) {
+            Flight candidate = flights.get(i);
+            String key = keyMode.keyOf(candidate);
+            if (orphanKeys.remove(key) && !entries.containsKey(key)) {
+                entries.put(key, new Entry(candidate, stale ? -1 : ranks.rankAt(i)));
+                duplicates.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        orphanKeys.clear();
+    }
+
+    /**
+     * Devuelve la posición de una entrada, renumerando antes las filas si es necesario.
+     *
+     * @param entry Entrada del índice.
+     * @return La posición del vuelo en la lista.
+     */
+    private int positionOf(Entry entry) {
+        if (stale) {
+            renumber();
+        }
+        return ranks.positionOf(entry.rank);
+    }
+
+    /**
+     * Asigna a cada fila de la lista su posición como rango.
+     */
+    private void renumber() {
+        ranks.reset(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            Flight flight = flights.get(i);
+            Entry current = entries.get(keyMode.keyOf(flight));
+            if (current != null && current.flight == flight) {
+                current.rank = i;
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Vuelo indexado para una clave y el rango de su fila.
+     */
+    private static final class Entry {
+
+        /** Vuelo indexado. */
+        private final Flight flight;
+
+        /** Rango de la fila del vuelo; válido si no hay que renumerar. */
+        private int rank;
+
+        private Entry(Flight flight, int rank) {
+            this.flight = flight;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * Rangos de las filas de la lista: un árbol de Fenwick que cuenta las filas vivas de cada rango.
+     * Los rangos crecen en el orden de la lista, de modo que la posición de una fila es el número de
+     * filas vivas con rango menor.
+     */
+    private static final class Ranks {
+
+        /** Árbol de Fenwick, indexado desde 1, con el número de filas vivas de cada rango. */
+        private int[] tree = new int[1];
+
+        /** Rangos de las filas vivas. */
+        private final BitSet live = new BitSet();
+
+        /** Número de rangos asignados, vivos o no. */
+        private int assigned;
+
+        /** Número de filas vivas. */
+        private int size;
+
+        /**
+         * Asigna los rangos {@code 0..count-1} a las filas de la lista, descartando los anteriores.
+         *
+         * @param count Número de filas de la lista.
+         */
+        private void reset(int count) {
+            live.clear();
+            live.set(0, count);
+            assigned = count;
+            size = count;
+            rebuild(Math.max(16, count * 2));
+        }
+
+        /**
+         * Asigna un rango nuevo a una fila añadida al final de la lista.
+         *
+         * @return El rango asignado.
+         */
+        private int append() {
+            if (assigned == tree.length - 1) {
+                rebuild(assigned * 2);
+            }
+            int rank = assigned++;
+            live.set(rank);
+            size++;
+            for (int i = rank + 1; i < tree.length; i += i & -i) {
+                tree[i]++;
+            }
+            return rank;
+        }
+
+        /**
+         * Marca como eliminada la fila de un rango.
+         *
+         * @param rank Rango de una fila viva.
+         */
+        private void remove(int rank) {
+            live.clear(rank);
+            size--;
+            for (int i = rank + 1; i < tree.length; i += i & -i) {
+                tree[i]--;
+            }
+        }
+
+        /**
+         * Devuelve la posición en la lista de la fila de un rango.
+         *
+         * @param rank Rango de una fila viva.
+         * @return El número de filas vivas con rango menor.
+         */
+        private int positionOf(int rank) {
+            int count = 0;
+            for (int i = rank; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        /**
+         * Devuelve el rango de la fila que ocupa una posición de la lista.
+         *
+         * @param position Posición de una fila viva.
+         * @return Su rango.
+         */
+        private int rankAt(int position) {
+            int index = 0;
+            int remaining = position + 1;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                if (index + step < tree.length && tree[index + step] < remaining) {
+                    index += step;
+                    remaining -= tree[index];
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Devuelve el número de filas vivas.
+         *
+         * @return El número de filas de la lista.
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Devuelve el número de rangos asignados desde la última renumeración.
+         *
+         * @return Los rangos asignados, incluidos los de filas eliminadas.
+         */
+        private int assigned() {
+            return assigned;
+        }
+
+        /**
+         * Reconstruye el árbol con una capacidad nueva a partir de las filas vivas.
+         *
+         * @param capacity Número máximo de rangos.
+         */
+        private void rebuild(int capacity) {
+            tree = new int[capacity + 1];
+            for (int rank = live.nextSetBit(0); rank >= 0; rank = live.nextSetBit(rank + 1)) {
+                tree[rank + 1] = 1;
+            }
+            for (int i = 1; i <= capacity; i++) {
+                int parent = i + (i & -i);
+                if (parent <= capacity) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ModifiableObservableListBase;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lista observable de vuelos que permite agrupar varias modificaciones en un único cambio.
+ * <p>
+ * Con {@link #batch(Runnable)}, las altas, bajas y sustituciones hechas dentro de la acción se notifican
+ * a los oyentes como un solo cambio al terminar, de modo que los índices, las estadísticas, el historial
+ * y la tabla se actualizan una sola vez, y deshacer revierte la acción completa de una vez.
+ * Las altas y bajas de varios vuelos consecutivos se aplican sobre la lista interna de golpe, sin moverla vuelo a vuelo.
+ * <p>
+ * Cada modificación se hace con el cerrojo de escritura de la lista, que se mantiene mientras se actualizan
+ * los índices registrados con {@link #addIndex(ObservableList, ListChangeListener)}. Así, otro hilo puede leer
+ * la lista y esos índices con el cerrojo de {@link #readLock()} y verlos siempre en un estado coherente, aunque
+ * las modificaciones se sigan haciendo en el hilo de JavaFX. El cerrojo se libera antes de notificar al resto
+ * de oyentes (la tabla, las vistas filtradas, el historial o la persistencia), de modo que una lectura en otro
+ * hilo no espera a que terminen, ni estos a que termine la lectura.
+ */
+public class FlightList extends ModifiableObservableListBase<Flight> {
+
+    /** Vuelos de la lista. */
+    private final ArrayList<Flight> backing;
+
+    /** Cerrojo que protege la lista y sus índices entre el hilo que la modifica y los hilos que la leen. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Índices que se actualizan con el cerrojo de escritura, antes que el resto de oyentes. */
+    private final List<ListChangeListener<? super Flight>> indexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Crea la lista con unos vuelos iniciales, sin notificar ningún cambio.
+     *
+     * @param initialFlights Vuelos iniciales.
+     */
+    public FlightList(Collection<Flight> initialFlights) {
+        backing = new ArrayList<>(initialFlights);
+        // El primer oyente actualiza los índices y libera el cerrojo antes de que se notifique a los demás.
+        addListener((ListChangeListener<Flight>) this::updateIndexes);
+    }
+
+    /**
+     * Registra un índice como oyente de una lista. Si la lista es una {@link FlightList}, el índice se actualiza
+     * con su cerrojo de escritura, antes que el resto de oyentes, y se puede leer con {@link #readLock()};
+     * si no, se registra como un oyente más.
+     *
+     * @param flights Lista de vuelos.
+     * @param index   Índice que sigue los cambios de la lista.
+     */
+    public static void addIndex(ObservableList<Flight> flights, ListChangeListener<? super Flight> index) {
+        if (flights instanceof FlightList list) {
+            list.indexes.add(index);
+        } else {
+            flights.addListener(index);
+        }
+    }
+
+    /**
+     * Ejecuta una acción que modifica la lista y notifica todas sus modificaciones como un único cambio.
+     *
+     * @param action Acción que modifica la lista.
+     */
+    public void batch(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            beginChange();
+            try {
+                action.run();
+            } finally {
+                endChange();
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Devuelve el cerrojo con el que otro hilo puede leer la lista, y los índices que se actualizan con sus cambios,
+     * sin que se modifiquen mientras tanto. El hilo que modifica la lista no lo necesita para leerla.
+     *
+     * @return El cerrojo de lectura.
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Notifica un cambio a los índices con el cerrojo de escritura y después lo libera por completo,
+     * para que el resto de oyentes se notifiquen sin él. Si un índice falla, el error se entrega al
+     * manejador de excepciones del hilo, igual que con los demás oyentes, y se sigue con el siguiente.
+     *
+     * @param change Cambio de la lista.
+     */
+    private void updateIndexes(ListChangeListener.Change<? extends Flight> change) {
+        try {
+            for (ListChangeListener<? super Flight> index : indexes) {
+                change.reset();
+                try {
+                    index.onChanged(change);
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        } finally {
+            while (lock.isWriteLockedByCurrentThread()) {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Libera el cerrojo de escritura tomado por una modificación, si no se liberó ya al notificar el cambio.
+     */
+    private void unlockWrite() {
+        if (lock.isWriteLockedByCurrentThread()) {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Flight get(int index) {
+        return backing.get(index);
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    /**
+     * Inserta varios vuelos a partir de una posición con una sola copia de la lista interna.
+     *
+     * @param index      Posición del primer vuelo insertado.
+     * @param newFlights Vuelos a insertar.
+     * @return {@code true} si se ha insertado algún vuelo.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends Flight> newFlights) {
+        if (index < 0 || index > backing.size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (newFlights.isEmpty()) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            beginChange();
+            try {
+                int size = newFlights.size();
+                backing.addAll(index, newFlights);
+                modCount++;
+                nextAdd(index, index + size);
+            } finally {
+                endChange();
+            }
+        } finally {
+            unlockWrite();
+        }
+        return true;
+    }
+
+    /**
+     * Elimina los vuelos de un intervalo de posiciones con una sola copia de la lista interna.
+     *
+     * @param fromIndex Posición del primer vuelo eliminado.
+     * @param toIndex   Posición siguiente al último vuelo eliminado.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            beginChange();
+            try {
+                List<Flight> range = backing.subList(fromIndex, toIndex);
+                nextRemove(fromIndex, new ArrayList<>(range));
+                range.clear();
+                modCount++;
+            } finally {
+                endChange();
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    // El resto de modificaciones públicas se hacen con el cerrojo de escritura; es reentrante,
+    // por lo que las que se apoyan en otras, o se hacen dentro de batch, no se bloquean.
+
+    @Override
+    public boolean addAll(Collection<? extends Flight> newFlights) {
+        return addAll(size(), newFlights);
+    }
+
+    @Override
+    public void add(int index, Flight flight) {
+        lock.writeLock().lock();
+        try {
+            super.add(index, flight);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public Flight set(int index, Flight flight) {
+        lock.writeLock().lock();
+        try {
+            return super.set(index, flight);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public Flight remove(int index) {
+        lock.writeLock().lock();
+        try {
+            return super.remove(index);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public boolean remove(Object flight) {
+        lock.writeLock().lock();
+        try {
+            return super.remove(flight);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> removed) {
+        lock.writeLock().lock();
+        try {
+            return super.removeAll(removed);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> retained) {
+        lock.writeLock().lock();
+        try {
+            return super.retainAll(retained);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public boolean setAll(Collection<? extends Flight> newFlights) {
+        lock.writeLock().lock();
+        try {
+            return super.setAll(newFlights);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    protected void doAdd(int index, Flight flight) {
+        backing.add(index, flight);
+    }
+
+    @Override
+    protected Flight doSet(int index, Flight flight) {
+        return backing.set(index, flight);
+    }
+
+    @Override
+    protected Flight doRemove(int index) {
+        return backing.remove(index);
+    }
+}
@@ -0,0 +1,328 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Predicate;
+
+/**
+ * Consulta de vuelos que combina criterios de destino, duración y fecha de salida,
+ * con orden por salida y límite de resultados opcionales.
+ * <p>
+ * Las consultas son inmutables: cada método devuelve una consulta nueva con el criterio añadido,
+ * de modo que se pueden componer, por ejemplo
+ * {@code FlightQuery.all().to("Roma").longerThan(LocalTime.of(3, 0)).departingBetween(lunes, domingo)}.
+ * <p>
+ * Una consulta puede convertirse en un {@link Predicate} para filtrar una vista de la lista
+ * o ejecutarse directamente con {@link #execute(List, DestinationIndex, DepartureIndex)},
+ * que aprovecha los índices disponibles y aplica el límite sin recorrer el resto de vuelos.
+ */
+public final class FlightQuery {
+
+    /** Consulta sin criterios, que selecciona todos los vuelos. */
+    private static final FlightQuery ALL = new FlightQuery(null, null, null, null, null, false, -1);
+
+    /** Máscara del número de vuelos recorridos que marca cuándo comprobar si se ha interrumpido el hilo. */
+    private static final int INTERRUPT_CHECK_MASK = 0x3FF;
+
+    /** Comparador por fecha de salida, con los vuelos sin fecha al final. */
+    private static final Comparator<Flight> BY_DEPARTURE =
+            Comparator.comparing(Flight::getDepartureDateTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /** Destino exacto de los vuelos, o {@code null} si no se filtra por destino. */
+    private final String destination;
+
+    /** Duración que deben superar los vuelos, o {@code null} si no se filtra por duración. */
+    private final LocalTime longerThan;
+
+    /** Instante después del cual deben salir los vuelos (excluido), o {@code null}. */
+    private final LocalDateTime departingAfter;
+
+    /** Inicio del intervalo de salida (incluido), o {@code null}. */
+    private final LocalDateTime departingFrom;
+
+    /** Fin del intervalo de salida (excluido), o {@code null}. */
+    private final LocalDateTime departingTo;
+
+    /** Indica si los resultados se ordenan por fecha de salida. */
+    private final boolean orderByDeparture;
+
+    /** Número máximo de resultados, o {@code -1} si no hay límite. */
+    private final int limit;
+
+    private FlightQuery(String destination, LocalTime longerThan, LocalDateTime departingAfter,
+                        LocalDateTime departingFrom, LocalDateTime departingTo, boolean orderByDeparture, int limit) {
+        this.destination = destination;
+        this.longerThan = longerThan;
+        this.departingAfter = departingAfter;
+        this.departingFrom = departingFrom;
+        this.departingTo = departingTo;
+        this.orderByDeparture = orderByDeparture;
+        this.limit = limit;
+    }
+
+    /**
+     * Devuelve una consulta que selecciona todos los vuelos.
+     *
+     * @return La consulta sin criterios.
+     */
+    public static FlightQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Añade el criterio de destino.
+     *
+     * @param destination Destino exacto de los vuelos.
+     * @return Una consulta nueva con el criterio añadido.
+     */
+    public FlightQuery to(String destination) {
+        return new FlightQuery(Objects.requireNonNull(destination), longerThan, departingAfter,
+                departingFrom, departingTo, orderByDeparture, limit);
+    }
+
+    /**
+     * Añade el criterio de duración mínima.
+     *
+     * @param duration Duración que deben superar los vuelos (excluida).
+     * @return Una consulta nueva con el criterio añadido.
+     */
+    public FlightQuery longerThan(LocalTime duration) {
+        return new FlightQuery(destination, Objects.requireNonNull(duration), departingAfter,
+                departingFrom, departingTo, orderByDeparture, limit);
+    }
+
+    /**
+     * Añade el criterio de salida posterior a un instante.
+     *
+     * @param instant Instante después del cual deben salir los vuelos (excluido).
+     * @return Una consulta nueva con el criterio añadido.
+     */
+    public FlightQuery departingAfter(LocalDateTime instant) {
+        return new FlightQuery(destination, longerThan, Objects.requireNonNull(instant),
+                departingFrom, departingTo, orderByDeparture, limit);
+    }
+
+    /**
+     * Añade el criterio de salida dentro de un intervalo {@code [from, to)}.
+     *
+     * @param from Inicio del intervalo (incluido).
+     * @param to   Fin del intervalo (excluido).
+     * @return Una consulta nueva con el criterio añadido.
+     */
+    public FlightQuery departingBetween(LocalDateTime from, LocalDateTime to) {
+        return new FlightQuery(destination, longerThan, departingAfter,
+                Objects.requireNonNull(from), Objects.requireNonNull(to), orderByDeparture, limit);
+    }
+
+    /**
+     * Ordena los resultados por fecha de salida.
+     *
+     * @return Una consulta nueva ordenada por salida.
+     */
+    public FlightQuery orderByDeparture() {
+        return new FlightQuery(destination, longerThan, departingAfter, departingFrom, departingTo, true, limit);
+    }
+
+    /**
+     * Limita el número de resultados.
+     *
+     * @param count Número máximo de vuelos.
+     * @return Una consulta nueva con el límite indicado.
+     */
+    public FlightQuery limit(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("El límite no puede ser negativo: " + count);
+        }
+        return new FlightQuery(destination, longerThan, departingAfter, departingFrom, departingTo, orderByDeparture, count);
+    }
+
+    /**
+     * Indica si la consulta tiene límite de resultados. Una consulta limitada no se puede expresar
+     * solo como predicado, ya que depende del resto de vuelos que cumplen los criterios.
+     *
+     * @return {@code true} si la consulta tiene límite.
+     */
+    public boolean isLimited() {
+        return limit >= 0;
+    }
+
+    /**
+     * Devuelve el número máximo de resultados.
+     *
+     * @return El límite, o {@code -1} si la consulta no tiene límite.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Devuelve una consulta con los mismos criterios, pero sin orden ni límite.
+     *
+     * @return La consulta que selecciona todos los vuelos que cumplen los criterios.
+     */
+    public FlightQuery unbounded() {
+        return new FlightQuery(destination, longerThan, departingAfter, departingFrom, departingTo, false, -1);
+    }
+
+    /**
+     * Devuelve el destino exacto de los vuelos.
+     *
+     * @return El destino, o {@code null} si la consulta no filtra por destino.
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Devuelve el instante después del cual deben salir los vuelos.
+     *
+     * @return El instante (excluido), o {@code null} si la consulta no tiene este criterio.
+     */
+    public LocalDateTime getDepartingAfter() {
+        return departingAfter;
+    }
+
+    /**
+     * Devuelve el inicio del intervalo de salida.
+     *
+     * @return El inicio (incluido), o {@code null} si la consulta no filtra por intervalo de salida.
+     */
+    public LocalDateTime getDepartingFrom() {
+        return departingFrom;
+    }
+
+    /**
+     * Devuelve el fin del intervalo de salida.
+     *
+     * @return El fin (excluido), o {@code null} si la consulta no filtra por intervalo de salida.
+     */
+    public LocalDateTime getDepartingTo() {
+        return departingTo;
+    }
+
+    /**
+     * Indica si los resultados se ordenan por fecha de salida.
+     *
+     * @return {@code true} si la consulta está ordenada por salida.
+     */
+    public boolean isOrderedByDeparture() {
+        return orderByDeparture;
+    }
+
+    /**
+     * Indica si la consulta no tiene ningún criterio ni límite.
+     *
+     * @return {@code true} si la consulta selecciona todos los vuelos.
+     */
+    public boolean isAll() {
+        return destination == null && longerThan == null && departingAfter == null && departingFrom == null && !isLimited();
+    }
+
+    /**
+     * Devuelve el predicado equivalente a los criterios de la consulta, sin orden ni límite.
+     *
+     * @return El predicado que cumplen los vuelos seleccionados.
+     */
+    public Predicate<Flight> toPredicate() {
+        Predicate<Flight> predicate = flight -> true;
+        if (destination != null) {
+            predicate = predicate.and(flight -> destination.equals(flight.getDestination()));
+        }
+        if (longerThan != null) {
+            predicate = predicate.and(flight -> flight.getDuration() != null && flight.getDuration().isAfter(longerThan));
+        }
+        if (departingAfter != null) {
+            predicate = predicate.and(flight -> flight.getDepartureDateTime() != null
+                    && flight.getDepartureDateTime().isAfter(departingAfter));
+        }
+        if (departingFrom != null) {
+            predicate = predicate.and(flight -> flight.getDepartureDateTime() != null
+                    && !flight.getDepartureDateTime().isBefore(departingFrom)
+                    && flight.getDepartureDateTime().isBefore(departingTo));
+        }
+        return predicate;
+    }
+
+    /**
+     * Devuelve el comparador de la consulta.
+     *
+     * @return El comparador por salida, o {@code null} si la consulta no está ordenada.
+     */
+    public Comparator<Flight> comparator() {
+        return orderByDeparture ? BY_DEPARTURE : null;
+    }
+
+    /**
+     * Ejecuta la consulta recorriendo una lista de vuelos, sin índices.
+     * Es la forma de usar la consulta fuera de la interfaz, por ejemplo en informes por lotes.
+     *
+     * @param flights Vuelos sobre los que se ejecuta la consulta.
+     * @return Los vuelos seleccionados, ordenados y limitados según la consulta.
+     */
+    public List<Flight> execute(List<Flight> flights) {
+        return execute(flights, null, null);
+    }
+
+    /**
+     * Ejecuta la consulta aprovechando los índices disponibles.
+     * <p>
+     * Si la consulta está ordenada por salida y limitada, recorre el índice de salidas en orden
+     * y se detiene al alcanzar el límite. Si filtra por destino, parte de los vuelos de ese destino.
+     * Si filtra por intervalo de salida, parte de los vuelos del intervalo. En otro caso recorre la lista.
+     *
+     * @param flights          Vuelos sobre los que se ejecuta la consulta.
+     * @param destinationIndex Índice por destino de esos vuelos, o {@code null} si no está disponible.
+     * @param departureIndex   Índice por salida de esos vuelos, o {@code null} si no está disponible.
+     * @return Los vuelos seleccionados, ordenados y limitados según la consulta.
+     */
+    public List<Flight> execute(List<Flight> flights, DestinationIndex destinationIndex, DepartureIndex departureIndex) {
+        Predicate<Flight> predicate = toPredicate();
+
+        // Llevar el límite al índice de salidas: se recorre en orden y se para al llegar al límite.
+        if (departureIndex != null && orderByDeparture && isLimited() && departingFrom == null) {
+            LocalDateTime after = departingAfter != null ? departingAfter : LocalDateTime.MIN;
+            return departureIndex.next(limit, after, predicate);
+        }
+
+        // Elegir como candidatos los vuelos del índice más selectivo disponible.
+        List<Flight> candidates;
+        if (destination != null && destinationIndex != null) {
+            candidates = destinationIndex.flightsTo(destination);
+        } else if (departingFrom != null && departureIndex != null) {
+            candidates = departureIndex.between(departingFrom, departingTo);
+        } else {
+            candidates = flights;
+        }
+
+        List<Flight> result = new ArrayList<>();
+        int scanned = 0;
+        for (Flight flight : candidates) {
+            checkInterrupted(++scanned);
+            if (predicate.test(flight)) {
+                result.add(flight);
+            }
+        }
+        if (orderByDeparture) {
+            result.sort(BY_DEPARTURE);
+        }
+        return isLimited() && result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Abandona un recorrido largo si se ha interrumpido el hilo, por ejemplo porque se ha cancelado la acción
+     * que lo lanzó. Solo se comprueba cada cierto número de elementos, para no frenar el recorrido.
+     *
+     * @param scanned Número de elementos recorridos hasta ahora.
+     * @throws CancellationException Si se ha interrumpido el hilo.
+     */
+    static void checkInterrupted(int scanned) {
+        if ((scanned & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Recorrido de vuelos interrumpido");
+        }
+    }
+}
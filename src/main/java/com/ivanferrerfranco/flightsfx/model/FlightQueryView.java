@@ -0,0 +1,194 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Vista observable con el resultado de una consulta sobre una lista de vuelos, que se mantiene al día con ella.
+ * <p>
+ * La consulta se ejecuta aparte, normalmente con los índices y fuera del hilo de JavaFX, y su resultado se
+ * muestra con {@link #show(List, Predicate)}; así mostrar una consulta cuesta lo que su número de resultados y no
+ * lo que el número total de vuelos. Después, las bajas de la lista se quitan de la vista y las altas que cumplen
+ * la consulta se añaden al final.
+ * <p>
+ * Los cambios de la lista que se producen mientras la consulta está en curso se guardan desde {@link #begin()}
+ * y se aplican sobre el resultado al mostrarlo. Aplicarlos es idempotente, de modo que da igual si la consulta
+ * llegó a verlos o no. Todos los métodos se llaman desde el hilo que modifica la lista.
+ */
+public class FlightQueryView implements ListChangeListener<Flight> {
+
+    /** Vuelos que muestra la vista. */
+    private final ObservableList<Flight> flights = FXCollections.observableArrayList();
+
+    /** Vuelos de la vista, comparados por identidad. */
+    private final Set<Flight> members = identitySet();
+
+    /** Condición que deben cumplir las altas para entrar en la vista, o {@code null} si no entra ninguna. */
+    private Predicate<Flight> follow;
+
+    /** Indica si la vista muestra una consulta y sigue los cambios de la lista. */
+    private boolean active;
+
+    /** Cambios de la lista desde que empezó la consulta en curso, o {@code null} si no hay ninguna. */
+    private List<FlightDelta> pending;
+
+    /**
+     * Crea una vista vacía y la registra como oyente de los cambios de la lista.
+     *
+     * @param source Lista de vuelos sobre la que se ejecutan las consultas.
+     */
+    public FlightQueryView(ObservableList<Flight> source) {
+        source.addListener(this);
+    }
+
+    /**
+     * Devuelve los vuelos que muestra la vista.
+     *
+     * @return Lista observable con el resultado de la última consulta mostrada.
+     */
+    public ObservableList<Flight> getFlights() {
+        return flights;
+    }
+
+    /**
+     * Empieza a guardar los cambios de la lista para aplicarlos al resultado de una consulta que se va a ejecutar.
+     * Si ya había una consulta en curso, sus cambios guardados se descartan.
+     */
+    public void begin() {
+        pending = new ArrayList<>();
+    }
+
+    /**
+     * Muestra el resultado de la consulta empezada con {@link #begin()}, aplicando los cambios producidos mientras tanto.
+     *
+     * @param result Vuelos seleccionados por la consulta, en el orden en el que se muestran.
+     * @param follow Condición que deben cumplir las altas posteriores para entrar en la vista,
+     *               o {@code null} si la vista no debe crecer, por ejemplo en las consultas con límite.
+     */
+    public void show(List<Flight> result, Predicate<Flight> follow) {
+        List<Flight> shown = new ArrayList<>(result);
+        Set<Flight> shownMembers = identitySet();
+        shownMembers.addAll(shown);
+        if (pending != null) {
+            for (FlightDelta delta : pending) {
+                apply(delta, shown, shownMembers, follow);
+            }
+        }
+        pending = null;
+        this.follow = follow;
+        members.clear();
+        members.addAll(shownMembers);
+        flights.setAll(shown);
+        active = true;
+    }
+
+    /**
+     * Descarta la consulta en curso sin cambiar lo que muestra la vista.
+     */
+    public void discard() {
+        pending = null;
+    }
+
+    /**
+     * Deja de mostrar consultas: la vista se vacía y deja de seguir los cambios de la lista.
+     */
+    public void clear() {
+        pending = null;
+        active = false;
+        follow = null;
+        members.clear();
+        flights.clear();
+    }
+
+    /**
+     * Indica si la vista muestra una consulta.
+     *
+     * @return {@code true} desde {@link #show(List, Predicate)} hasta {@link #clear()}.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Guarda los cambios de la lista si hay una consulta en curso y los aplica a la vista si muestra una.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        if (pending == null && !active) {
+            return;
+        }
+        List<FlightDelta> deltas = FlightDelta.fromChange(change);
+        if (pending != null) {
+            pending.addAll(deltas);
+        }
+        if (!active) {
+            return;
+        }
+
+        // Las bajas se quitan de la vista en una sola pasada; las altas que cumplen la consulta se añaden al final.
+        Set<Flight> removed = identitySet();
+        List<Flight> added = new ArrayList<>();
+        for (FlightDelta delta : deltas) {
+            for (Flight flight : delta.removed()) {
+                if (members.remove(flight)) {
+                    removed.add(flight);
+                }
+            }
+            for (Flight flight : delta.added()) {
+                if (follow != null && follow.test(flight) && members.add(flight)) {
+                    added.add(flight);
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            // Un vuelo dado de baja y de alta en el mismo cambio se queda donde estaba.
+            added.removeIf(removed::remove);
+            flights.removeIf(removed::contains);
+        }
+        flights.addAll(added);
+    }
+
+    /**
+     * Aplica un cambio de la lista a un resultado, sin duplicar vuelos que ya estén en él.
+     *
+     * @param delta   Cambio de la lista.
+     * @param shown   Vuelos del resultado.
+     * @param members Vuelos del resultado, comparados por identidad.
+     * @param follow  Condición de las altas, o {@code null} si no se añade ninguna.
+     */
+    private static void apply(FlightDelta delta, List<Flight> shown, Set<Flight> members, Predicate<Flight> follow) {
+        Set<Flight> removed = identitySet();
+        for (Flight flight : delta.removed()) {
+            if (members.remove(flight)) {
+                removed.add(flight);
+            }
+        }
+        if (!removed.isEmpty()) {
+            shown.removeIf(removed::contains);
+        }
+        for (Flight flight : delta.added()) {
+            if (follow != null && follow.test(flight) && members.add(flight)) {
+                shown.add(flight);
+            }
+        }
+    }
+
+    /**
+     * Crea un conjunto de vuelos que los compara por identidad.
+     *
+     * @return El conjunto vacío.
+     */
+    private static Set<Flight> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
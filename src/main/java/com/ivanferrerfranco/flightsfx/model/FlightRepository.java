@@ -0,0 +1,80 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Almacén persistente de vuelos que se consulta y modifica vuelo a vuelo, sin cargar todos los vuelos en memoria.
+ * <p>
+ * Los vuelos se identifican por su número, que no se puede repetir. Las consultas entregan los vuelos
+ * según se obtienen, de modo que una consulta con límite solo lee los vuelos necesarios y una sin límite
+ * no tiene que guardar los resultados. Cada implementación decide cómo aprovechar los criterios de la consulta:
+ * un archivo de texto se recorre entero, mientras que una base de datos usa sus índices.
+ * <p>
+ * Cada alta y cada baja se guardan en disco antes de devolver el control.
+ */
+public interface FlightRepository extends Closeable {
+
+    /**
+     * Devuelve el número de vuelos guardados.
+     *
+     * @return El número de vuelos.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    long count() throws IOException;
+
+    /**
+     * Busca un vuelo por su número.
+     *
+     * @param flightNumber Número del vuelo.
+     * @return El vuelo, o {@code null} si no existe.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    Flight find(String flightNumber) throws IOException;
+
+    /**
+     * Ejecuta una consulta y entrega los vuelos seleccionados, ordenados y limitados según la consulta.
+     * Los vuelos con la misma salida pueden entregarse en cualquier orden.
+     *
+     * @param query    Consulta a ejecutar.
+     * @param consumer Consumidor que recibe los vuelos seleccionados.
+     * @return El número de vuelos entregados.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    long query(FlightQuery query, Consumer<? super Flight> consumer) throws IOException;
+
+    /**
+     * Ejecuta una consulta y devuelve los vuelos seleccionados en una lista.
+     * Conviene que la consulta tenga límite, ya que la lista se guarda entera en memoria.
+     *
+     * @param query Consulta a ejecutar.
+     * @return Los vuelos seleccionados, ordenados y limitados según la consulta.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    default List<Flight> query(FlightQuery query) throws IOException {
+        List<Flight> result = new ArrayList<>();
+        query(query, result::add);
+        return result;
+    }
+
+    /**
+     * Da de alta un vuelo si su número no existe todavía.
+     *
+     * @param flight Vuelo a guardar.
+     * @return {@code true} si se ha guardado; {@code false} si ya existía un vuelo con el mismo número.
+     * @throws IOException Si ocurre un error al escribir el almacén.
+     */
+    boolean insert(Flight flight) throws IOException;
+
+    /**
+     * Da de baja un vuelo.
+     *
+     * @param flightNumber Número del vuelo.
+     * @return {@code true} si se ha eliminado; {@code false} si no existía.
+     * @throws IOException Si ocurre un error al escribir el almacén.
+     */
+    boolean delete(String flightNumber) throws IOException;
+}
@@ -0,0 +1,212 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * Estadísticas de una lista de vuelos que se actualizan de forma incremental con cada cambio.
+ * <p>
+ * Mantiene el número de vuelos, la suma de duraciones, la duración mínima, máxima y media,
+ * un histograma de duraciones por horas y el número de vuelos por destino. Cada alta o baja
+ * cuesta O(1), por lo que las consultas no necesitan recorrer la lista.
+ * <p>
+ * Las duraciones se cuentan minuto a minuto en un array de 1440 posiciones; así, al dar de baja
+ * el vuelo más corto o más largo, el nuevo mínimo o máximo se encuentra recorriendo como mucho
+ * ese array de tamaño fijo.
+ */
+public class FlightStatistics implements ListChangeListener<Flight> {
+
+    /** Número de minutos de un día, que es la duración máxima que admite un {@link LocalTime}. */
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Número de vuelos con cada duración, indexado por minutos. */
+    private final int[] durationCounts = new int[MINUTES_PER_DAY];
+
+    /** Número de vuelos cuya duración está en cada hora (de 0:00 a 0:59, de 1:00 a 1:59...). */
+    private final int[] durationHistogram = new int[24];
+
+    /** Número de vuelos por destino; solo contiene destinos con al menos un vuelo. */
+    private final ObservableMap<String, Integer> destinationCounts = FXCollections.observableHashMap();
+
+    /** Vista no modificable de {@link #destinationCounts} que se entrega a otras clases. */
+    private final ObservableMap<String, Integer> destinationCountsView =
+            FXCollections.unmodifiableObservableMap(destinationCounts);
+
+    /** Número total de vuelos. */
+    private int flightCount;
+
+    /** Número de vuelos con duración conocida. */
+    private int durationCount;
+
+    /** Suma de las duraciones, en minutos. */
+    private long durationSum;
+
+    /** Duración mínima en minutos, o {@code -1} si no hay duraciones. */
+    private int minDuration = -1;
+
+    /** Duración máxima en minutos, o {@code -1} si no hay duraciones. */
+    private int maxDuration = -1;
+
+    /**
+     * Calcula las estadísticas de los vuelos actuales de la lista y se registra como oyente de sus cambios.
+     *
+     * @param flights Lista de vuelos.
+     */
+    public FlightStatistics(ObservableList<Flight> flights) {
+        addAll(flights);
+        FlightList.addIndex(flights, this);
+    }
+
+    /**
+     * Actualiza las estadísticas con un cambio de la lista.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        while (change.next()) {
+            if (change.wasRemoved()) {
+                for (Flight flight : change.getRemoved()) {
+                    remove(flight);
+                }
+            }
+            if (change.wasAdded()) {
+                addAll(change.getAddedSubList());
+            }
+        }
+    }
+
+    /**
+     * Devuelve el número total de vuelos.
+     *
+     * @return El número de vuelos.
+     */
+    public int getFlightCount() {
+        return flightCount;
+    }
+
+    /**
+     * Devuelve la duración media de los vuelos.
+     *
+     * @return La duración media en minutos, o 0 si no hay vuelos con duración.
+     */
+    public double getAverageDuration() {
+        return durationCount == 0 ? 0 : (double) durationSum / durationCount;
+    }
+
+    /**
+     * Devuelve la duración del vuelo más corto.
+     *
+     * @return La duración mínima en minutos, o {@code -1} si no hay vuelos con duración.
+     */
+    public int getMinDuration() {
+        return minDuration;
+    }
+
+    /**
+     * Devuelve la duración del vuelo más largo.
+     *
+     * @return La duración máxima en minutos, o {@code -1} si no hay vuelos con duración.
+     */
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Devuelve el histograma de duraciones por horas.
+     *
+     * @return Una copia del histograma: la posición {@code h} contiene los vuelos que duran entre {@code h} y {@code h + 1} horas.
+     */
+    public int[] getDurationHistogram() {
+        return durationHistogram.clone();
+    }
+
+    /**
+     * Devuelve el número de vuelos por destino. El mapa se actualiza a la vez que la lista,
+     * por lo que se puede observar para reaccionar a los cambios de cada destino.
+     *
+     * @return Vista observable y no modificable del número de vuelos por destino.
+     */
+    public ObservableMap<String, Integer> getDestinationCounts() {
+        return destinationCountsView;
+    }
+
+    /**
+     * Añade vuelos a las estadísticas.
+     *
+     * @param flights Vuelos añadidos.
+     */
+    private void addAll(Collection<? extends Flight> flights) {
+        for (Flight flight : flights) {
+            flightCount++;
+            destinationCounts.merge(flight.getDestination(), 1, Integer::sum);
+
+            int minutes = minutesOf(flight);
+            if (minutes >= 0) {
+                durationCount++;
+                durationSum += minutes;
+                durationCounts[minutes]++;
+                durationHistogram[minutes / 60]++;
+                if (minDuration < 0 || minutes < minDuration) {
+                    minDuration = minutes;
+                }
+                if (minutes > maxDuration) {
+                    maxDuration = minutes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Elimina un vuelo de las estadísticas.
+     *
+     * @param flight Vuelo eliminado.
+     */
+    private void remove(Flight flight) {
+        flightCount--;
+        destinationCounts.computeIfPresent(flight.getDestination(), (destination, count) -> count == 1 ? null : count - 1);
+
+        int minutes = minutesOf(flight);
+        if (minutes < 0) {
+            return;
+        }
+        durationCount--;
+        durationSum -= minutes;
+        durationHistogram[minutes / 60]--;
+        if (--durationCounts[minutes] > 0) {
+            return;
+        }
+
+        // Si era el último vuelo con la duración mínima o máxima, buscar la siguiente.
+        if (durationCount == 0) {
+            minDuration = -1;
+            maxDuration = -1;
+            return;
+        }
+        if (minutes == minDuration) {
+            while (durationCounts[minDuration] == 0) {
+                minDuration++;
+            }
+        }
+        if (minutes == maxDuration) {
+            while (durationCounts[maxDuration] == 0) {
+                maxDuration--;
+            }
+        }
+    }
+
+    /**
+     * Devuelve la duración de un vuelo en minutos.
+     *
+     * @param flight Vuelo.
+     * @return Los minutos de duración, o {@code -1} si el vuelo no tiene duración.
+     */
+    private static int minutesOf(Flight flight) {
+        return FlightStore.toMinutes(flight.getDuration());
+    }
+}
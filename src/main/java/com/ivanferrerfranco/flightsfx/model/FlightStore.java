@@ -0,0 +1,574 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Almacén de vuelos organizado por columnas.
+ * <p>
+ * En lugar de un objeto {@link Flight} por vuelo, cada campo se guarda en su propio array: los números de vuelo,
+ * casi todos distintos, como cadenas; los destinos, muy repetidos, como identificadores de un diccionario;
+ * la salida en minutos desde la época (UTC) y la duración en minutos. Las fechas y duraciones no necesitan
+ * así objetos {@link LocalDateTime} ni {@link LocalTime}, y los recorridos por una columna acceden a memoria contigua.
+ * El diccionario de destinos lleva la cuenta de sus usos y libera las entradas que ningún vuelo utiliza.
+ * <p>
+ * Los vuelos mantienen el orden de inserción. {@link #get(int)} construye un {@link Flight} con los datos de una
+ * posición cuando se necesita el objeto completo, y {@link #asList()} ofrece el almacén como lista de vuelos
+ * construidos así, bajo demanda, que se puede modificar por posición.
+ * <p>
+ * Su uso es el de los conjuntos de vuelos que no se muestran: la carga de instantáneas grandes con
+ * {@code FileUtils.loadSnapshotStore} y la reconstrucción de la instantánea al compactar el diario, que aplica
+ * las operaciones sobre {@link #asList()} sin llegar a tener todos los vuelos como objetos. La lista de la tabla,
+ * {@link FlightList}, no se apoya en él: sus índices, el historial, las vistas filtradas y la selección de la tabla
+ * identifican cada vuelo por su objeto, y una vista construida en cada lectura no conservaría esa identidad.
+ */
+public class FlightStore {
+
+    /** Valor de la columna de salida para los vuelos sin fecha. */
+    public static final long NO_DEPARTURE = Long.MIN_VALUE;
+
+    /** Valor de la columna de duración para los vuelos sin duración. */
+    public static final short NO_DURATION = -1;
+
+    /** Capacidad inicial de las columnas. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Diccionario de destinos. */
+    private final StringDictionary destinations;
+
+    /** Número de vuelo de cada posición; puede contener {@code null}. */
+    private String[] flightNumbers;
+
+    /** Identificador del destino de cada posición, o {@code -1} si es nulo. */
+    private int[] destinationIds;
+
+    /** Salida de cada vuelo en minutos desde la época, o {@link #NO_DEPARTURE}. */
+    private long[] departures;
+
+    /** Duración de cada vuelo en minutos, o {@link #NO_DURATION}. */
+    private short[] durations;
+
+    /** Número de vuelos almacenados. */
+    private int size;
+
+    /**
+     * Crea un almacén vacío.
+     */
+    public FlightStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crea un almacén vacío con capacidad reservada para un número de vuelos.
+     *
+     * @param capacity Número de vuelos para el que se reserva memoria.
+     */
+    public FlightStore(int capacity) {
+        this(new String[capacity], new StringDictionary(), new int[capacity], new long[capacity], new short[capacity], 0);
+    }
+
+    /**
+     * Crea un almacén a partir de columnas ya construidas, por ejemplo al leer una instantánea.
+     *
+     * @param flightNumbers  Columna de números de vuelo.
+     * @param destinations   Diccionario de destinos, indexado por identificador; puede tener huecos {@code null}.
+     * @param destinationIds Columna de identificadores de destino.
+     * @param departures     Columna de salidas en minutos desde la época.
+     * @param durations      Columna de duraciones en minutos.
+     * @param size           Número de posiciones ocupadas en las columnas.
+     * @return El almacén, que pasa a ser propietario de los arrays recibidos.
+     */
+    public static FlightStore fromColumns(String[] flightNumbers, List<String> destinations, int[] destinationIds,
+                                          long[] departures, short[] durations, int size) {
+        return new FlightStore(flightNumbers, new StringDictionary(destinations, destinationIds, size),
+                destinationIds, departures, durations, size);
+    }
+
+    /**
+     * Crea un almacén con los vuelos de una lista, en el mismo orden.
+     *
+     * @param flights Vuelos a almacenar.
+     * @return El almacén con los vuelos.
+     */
+    public static FlightStore of(List<Flight> flights) {
+        FlightStore store = new FlightStore(Math.max(flights.size(), DEFAULT_CAPACITY));
+        for (Flight flight : flights) {
+            store.add(flight);
+        }
+        return store;
+    }
+
+    private FlightStore(String[] flightNumbers, StringDictionary destinations,
+                        int[] destinationIds, long[] departures, short[] durations, int size) {
+        this.flightNumbers = flightNumbers;
+        this.destinations = destinations;
+        this.destinationIds = destinationIds;
+        this.departures = departures;
+        this.durations = durations;
+        this.size = size;
+    }
+
+    /**
+     * Devuelve el número de vuelos almacenados.
+     *
+     * @return El número de vuelos.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Añade un vuelo al final del almacén.
+     *
+     * @param flight Vuelo a añadir.
+     */
+    public void add(Flight flight) {
+        add(flight.getFlightNumber(), flight.getDestination(),
+                toEpochMinutes(flight.getDepartureDateTime()), toMinutes(flight.getDuration()));
+    }
+
+    /**
+     * Añade un vuelo al final del almacén a partir de sus valores primitivos.
+     *
+     * @param flightNumber     Número del vuelo.
+     * @param destination      Destino del vuelo.
+     * @param departureMinutes Salida en minutos desde la época, o {@link #NO_DEPARTURE}.
+     * @param durationMinutes  Duración en minutos, o {@link #NO_DURATION}.
+     */
+    public void add(String flightNumber, String destination, long departureMinutes, short durationMinutes) {
+        ensureCapacity(size + 1);
+        flightNumbers[size] = flightNumber;
+        destinationIds[size] = destinations.acquire(destination);
+        departures[size] = departureMinutes;
+        durations[size] = durationMinutes;
+        size++;
+    }
+
+    /**
+     * Inserta un vuelo en una posición, desplazando los siguientes.
+     *
+     * @param index  Posición del vuelo insertado, entre 0 y {@link #size()}.
+     * @param flight Vuelo a insertar.
+     */
+    public void add(int index, Flight flight) {
+        addAll(index, List.of(flight));
+    }
+
+    /**
+     * Inserta varios vuelos a partir de una posición, desplazando los siguientes una sola vez.
+     *
+     * @param index      Posición del primer vuelo insertado, entre 0 y {@link #size()}.
+     * @param newFlights Vuelos a insertar, en orden.
+     */
+    public void addAll(int index, Collection<? extends Flight> newFlights) {
+        Objects.checkIndex(index, size + 1);
+        int count = newFlights.size();
+        ensureCapacity(size + count);
+        int moved = size - index;
+        System.arraycopy(flightNumbers, index, flightNumbers, index + count, moved);
+        System.arraycopy(destinationIds, index, destinationIds, index + count, moved);
+        System.arraycopy(departures, index, departures, index + count, moved);
+        System.arraycopy(durations, index, durations, index + count, moved);
+        int position = index;
+        for (Flight flight : newFlights) {
+            flightNumbers[position] = flight.getFlightNumber();
+            destinationIds[position] = destinations.acquire(flight.getDestination());
+            departures[position] = toEpochMinutes(flight.getDepartureDateTime());
+            durations[position] = toMinutes(flight.getDuration());
+            position++;
+        }
+        size += count;
+    }
+
+    /**
+     * Sustituye el vuelo de una posición.
+     *
+     * @param index  Posición del vuelo.
+     * @param flight Nuevos datos del vuelo.
+     */
+    public void set(int index, Flight flight) {
+        Objects.checkIndex(index, size);
+        flightNumbers[index] = flight.getFlightNumber();
+        int destination = destinations.acquire(flight.getDestination());
+        destinations.release(destinationIds[index]);
+        destinationIds[index] = destination;
+        departures[index] = toEpochMinutes(flight.getDepartureDateTime());
+        durations[index] = toMinutes(flight.getDuration());
+    }
+
+    /**
+     * Elimina el vuelo de una posición, desplazando los siguientes para conservar el orden.
+     *
+     * @param index Posición del vuelo.
+     */
+    public void remove(int index) {
+        removeRange(index, index + 1);
+    }
+
+    /**
+     * Elimina los vuelos de un rango de posiciones, desplazando los siguientes para conservar el orden.
+     * Los destinos que dejan de usarse se eliminan del diccionario.
+     *
+     * @param from Primera posición a eliminar (incluida).
+     * @param to   Última posición a eliminar (excluida).
+     */
+    public void removeRange(int from, int to) {
+        Objects.checkFromToIndex(from, to, size);
+        for (int i = from; i < to; i++) {
+            destinations.release(destinationIds[i]);
+        }
+        int moved = size - to;
+        System.arraycopy(flightNumbers, to, flightNumbers, from, moved);
+        System.arraycopy(destinationIds, to, destinationIds, from, moved);
+        System.arraycopy(departures, to, departures, from, moved);
+        System.arraycopy(durations, to, durations, from, moved);
+        // Soltar las referencias a los números de vuelo que quedan fuera del almacén.
+        Arrays.fill(flightNumbers, size - (to - from), size, null);
+        size -= to - from;
+    }
+
+    /**
+     * Construye un {@link Flight} con los datos de una posición.
+     *
+     * @param index Posición del vuelo.
+     * @return Un vuelo nuevo con los datos almacenados; modificarlo no altera el almacén.
+     */
+    public Flight get(int index) {
+        Objects.checkIndex(index, size);
+        return new Flight(flightNumber(index), destination(index),
+                fromEpochMinutes(departures[index]), fromMinutes(durations[index]));
+    }
+
+    /**
+     * Devuelve el número de vuelo de una posición sin construir el vuelo.
+     *
+     * @param index Posición del vuelo.
+     * @return El número de vuelo, o {@code null}.
+     */
+    public String flightNumber(int index) {
+        return flightNumbers[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Devuelve el destino de una posición sin construir el vuelo.
+     *
+     * @param index Posición del vuelo.
+     * @return El destino, o {@code null}.
+     */
+    public String destination(int index) {
+        return destinations.valueOf(destinationIds[Objects.checkIndex(index, size)]);
+    }
+
+    /**
+     * Devuelve el identificador del destino de una posición.
+     *
+     * @param index Posición del vuelo.
+     * @return El identificador en {@link #destinationDictionary()}, o {@code -1}.
+     */
+    public int destinationId(int index) {
+        return destinationIds[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Devuelve la salida de una posición en minutos desde la época.
+     *
+     * @param index Posición del vuelo.
+     * @return Los minutos desde la época, o {@link #NO_DEPARTURE}.
+     */
+    public long departureMinutes(int index) {
+        return departures[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Devuelve la duración de una posición en minutos.
+     *
+     * @param index Posición del vuelo.
+     * @return Los minutos de duración, o {@link #NO_DURATION}.
+     */
+    public short durationMinutes(int index) {
+        return durations[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Busca el identificador de un destino, por ejemplo para filtrar comparando enteros.
+     *
+     * @param destination Destino buscado.
+     * @return El identificador del destino, o {@code -1} si ningún vuelo lo ha usado.
+     */
+    public int findDestinationId(String destination) {
+        return destinations.find(destination);
+    }
+
+    /**
+     * Devuelve los destinos distintos, indexados por su identificador.
+     *
+     * @return Vista no modificable del diccionario de destinos, con {@code null} en los identificadores libres.
+     */
+    public List<String> destinationDictionary() {
+        return destinations.values();
+    }
+
+    /**
+     * Devuelve el almacén como lista de vuelos. Cada lectura construye un {@link Flight} nuevo con {@link #get(int)};
+     * las altas, bajas y sustituciones de la lista se aplican directamente sobre las columnas.
+     *
+     * @return Vista modificable del almacén.
+     */
+    public List<Flight> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Construye una lista con todos los vuelos del almacén, en orden.
+     *
+     * @return Una lista nueva de objetos {@link Flight}.
+     */
+    public List<Flight> toList() {
+        List<Flight> flights = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flights.add(get(i));
+        }
+        return flights;
+    }
+
+    /**
+     * Convierte una fecha y hora en minutos desde la época, tomándola como UTC.
+     *
+     * @param dateTime Fecha y hora; puede ser {@code null}.
+     * @return Los minutos desde la época, o {@link #NO_DEPARTURE} si es {@code null}.
+     */
+    public static long toEpochMinutes(LocalDateTime dateTime) {
+        return dateTime == null ? NO_DEPARTURE : Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Convierte minutos desde la época en una fecha y hora.
+     *
+     * @param epochMinutes Minutos desde la época, o {@link #NO_DEPARTURE}.
+     * @return La fecha y hora, o {@code null}.
+     */
+    public static LocalDateTime fromEpochMinutes(long epochMinutes) {
+        return epochMinutes == NO_DEPARTURE ? null : LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Convierte una duración en minutos.
+     *
+     * @param duration Duración; puede ser {@code null}.
+     * @return Los minutos de duración, o {@link #NO_DURATION} si es {@code null}.
+     */
+    public static short toMinutes(LocalTime duration) {
+        return duration == null ? NO_DURATION : (short) (duration.toSecondOfDay() / 60);
+    }
+
+    /**
+     * Convierte minutos de duración en un {@link LocalTime}.
+     *
+     * @param minutes Minutos de duración, o {@link #NO_DURATION}.
+     * @return La duración, o {@code null}.
+     */
+    public static LocalTime fromMinutes(short minutes) {
+        return minutes < 0 ? null : LocalTime.ofSecondOfDay(minutes * 60L);
+    }
+
+    /**
+     * Amplía las columnas para que quepan al menos el número de vuelos indicado.
+     *
+     * @param capacity Capacidad mínima necesaria.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= departures.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, departures.length + (departures.length >> 1) + 1);
+        flightNumbers = Arrays.copyOf(flightNumbers, newCapacity);
+        destinationIds = Arrays.copyOf(destinationIds, newCapacity);
+        departures = Arrays.copyOf(departures, newCapacity);
+        durations = Arrays.copyOf(durations, newCapacity);
+    }
+
+    /**
+     * Vista del almacén como lista de vuelos.
+     */
+    private final class ListView extends AbstractList<Flight> implements RandomAccess {
+
+        @Override
+        public Flight get(int index) {
+            return FlightStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Flight set(int index, Flight flight) {
+            Flight previous = FlightStore.this.get(index);
+            FlightStore.this.set(index, flight);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Flight flight) {
+            FlightStore.this.add(index, flight);
+            modCount++;
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Flight> newFlights) {
+            FlightStore.this.addAll(index, newFlights);
+            modCount++;
+            return !newFlights.isEmpty();
+        }
+
+        @Override
+        public Flight remove(int index) {
+            Flight removed = FlightStore.this.get(index);
+            FlightStore.this.remove(index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            FlightStore.this.removeRange(fromIndex, toIndex);
+            modCount++;
+        }
+    }
+
+    /**
+     * Diccionario que asigna a cada cadena distinta un identificador y cuenta cuántas posiciones lo usan.
+     * Cuando una cadena deja de usarse se elimina y su identificador queda libre para la siguiente cadena nueva.
+     */
+    private static final class StringDictionary {
+
+        /** Cadenas indexadas por su identificador, con {@code null} en los identificadores libres. */
+        private final List<String> values;
+
+        /** Identificador de cada cadena en uso. */
+        private final Map<String, Integer> ids;
+
+        /** Número de posiciones que usan cada identificador. */
+        private int[] counts;
+
+        /** Identificadores libres, que se reutilizan antes de crear otros nuevos. */
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+
+        StringDictionary() {
+            this.values = new ArrayList<>();
+            this.ids = new HashMap<>();
+            this.counts = new int[DEFAULT_CAPACITY];
+        }
+
+        /**
+         * Crea un diccionario con sus cadenas y cuenta los usos de cada una en una columna de identificadores.
+         *
+         * @param initialValues Cadenas indexadas por identificador; puede tener huecos {@code null}.
+         * @param column        Columna de identificadores que usan el diccionario.
+         * @param size          Número de posiciones ocupadas en la columna.
+         */
+        StringDictionary(List<String> initialValues, int[] column, int size) {
+            this.values = new ArrayList<>(initialValues);
+            this.ids = new HashMap<>(Math.max(16, initialValues.size() * 2));
+            this.counts = new int[Math.max(DEFAULT_CAPACITY, values.size())];
+            for (int i = 0; i < size; i++) {
+                if (column[i] >= 0) {
+                    counts[column[i]]++;
+                }
+            }
+            for (int id = 0; id < values.size(); id++) {
+                if (values.get(id) != null && counts[id] > 0) {
+                    ids.put(values.get(id), id);
+                } else {
+                    values.set(id, null);
+                    free.add(id);
+                }
+            }
+        }
+
+        /**
+         * Devuelve el identificador de una cadena para una posición más que la usa, añadiéndola si es nueva.
+         *
+         * @param value Cadena; puede ser {@code null}.
+         * @return El identificador, o {@code -1} si es {@code null}.
+         */
+        int acquire(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer existing = ids.get(value);
+            int id;
+            if (existing != null) {
+                id = existing;
+            } else if (!free.isEmpty()) {
+                id = free.poll();
+                values.set(id, value);
+                ids.put(value, id);
+            } else {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id + (id >> 1) + 1);
+                }
+            }
+            counts[id]++;
+            return id;
+        }
+
+        /**
+         * Descuenta una posición que usaba un identificador y elimina la cadena si ya no la usa ninguna.
+         *
+         * @param id Identificador, o {@code -1}.
+         */
+        void release(int id) {
+            if (id < 0 || --counts[id] > 0) {
+                return;
+            }
+            ids.remove(values.set(id, null));
+            free.add(id);
+        }
+
+        /**
+         * Busca el identificador de una cadena sin añadirla.
+         *
+         * @param value Cadena buscada.
+         * @return El identificador, o {@code -1} si no está en el diccionario.
+         */
+        int find(String value) {
+            return value == null ? -1 : ids.getOrDefault(value, -1);
+        }
+
+        /**
+         * Devuelve la cadena de un identificador.
+         *
+         * @param id Identificador, o {@code -1}.
+         * @return La cadena, o {@code null} si el identificador es {@code -1}.
+         */
+        String valueOf(int id) {
+            return id < 0 ? null : values.get(id);
+        }
+
+        /**
+         * Devuelve las cadenas del diccionario.
+         *
+         * @return Vista no modificable de las cadenas, indexadas por identificador.
+         */
+        List<String> values() {
+            return Collections.unmodifiableList(values);
+        }
+    }
+}
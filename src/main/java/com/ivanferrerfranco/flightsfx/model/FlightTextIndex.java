@@ -0,0 +1,336 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de texto para buscar vuelos cuyo número o destino contiene una cadena, sin distinguir mayúsculas.
+ * <p>
+ * Cada número de vuelo y cada destino distinto es un término con la lista de sus vuelos. Los términos se
+ * indexan por trigramas (grupos de tres caracteres consecutivos): para buscar una cadena de tres o más
+ * caracteres solo se comprueban los términos que contienen su trigrama menos frecuente, en lugar de
+ * recorrer todos los vuelos. Las cadenas más cortas se comparan con todos los términos distintos.
+ * <p>
+ * El índice se actualiza con los cambios de la lista en el hilo de JavaFX y se puede consultar desde
+ * otros hilos; un cerrojo de lectura y escritura protege su estado. Los términos que se quedan sin
+ * vuelos se conservan vacíos para reutilizarlos si vuelven a aparecer.
+ */
+public class FlightTextIndex implements ListChangeListener<Flight> {
+
+    /** Cerrojo que protege el índice entre el hilo de JavaFX y los hilos de búsqueda. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Términos indexados, por identificador. */
+    private final List<Term> terms = new ArrayList<>();
+
+    /** Identificador de cada número de vuelo, en minúsculas. */
+    private final Map<String, Integer> flightNumberTerms = new HashMap<>();
+
+    /** Identificador de cada destino, en minúsculas. */
+    private final Map<String, Integer> destinationTerms = new HashMap<>();
+
+    /** Identificadores de los términos que contienen cada trigrama. */
+    private final Map<Long, Postings> postingsByTrigram = new HashMap<>();
+
+    /**
+     * Crea el índice con los vuelos actuales de la lista y lo registra como oyente de sus cambios.
+     *
+     * @param flights Lista de vuelos a indexar.
+     */
+    public FlightTextIndex(ObservableList<Flight> flights) {
+        addAll(flights);
+        FlightList.addIndex(flights, this);
+    }
+
+    /**
+     * Actualiza el índice con un cambio de la lista.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        // Se reúnen primero todas las bajas del cambio, agrupadas por término, para recorrer cada lista una sola vez.
+        Map<Integer, Map<Flight, Integer>> removed = new HashMap<>();
+        List<Flight> added = new ArrayList<>();
+        while (change.next()) {
+            // Las permutaciones y las actualizaciones no cambian el texto de los vuelos.
+            if (change.wasRemoved()) {
+                for (Flight flight : change.getRemoved()) {
+                    collect(removed, flightNumberTerms.get(keyOf(flight.getFlightNumber())), flight);
+                    collect(removed, destinationTerms.get(keyOf(flight.getDestination())), flight);
+                }
+            }
+            if (change.wasAdded()) {
+                added.addAll(change.getAddedSubList());
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                removed.forEach(this::removeAll);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        addAll(added);
+    }
+
+    /**
+     * Busca los vuelos cuyo número o destino contiene un texto, sin distinguir mayúsculas.
+     * Se puede llamar desde cualquier hilo.
+     *
+     * @param text Texto buscado.
+     * @return Los vuelos encontrados, agrupados por destino y después por número; vacía si el texto está vacío.
+     */
+    public List<Flight> search(String text) {
+        String query = keyOf(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Term> matches = new ArrayList<>();
+            int scanned = 0;
+            if (query.length() < 3) {
+                for (Term term : terms) {
+                    FlightQuery.checkInterrupted(++scanned);
+                    if (term.matches(query)) {
+                        matches.add(term);
+                    }
+                }
+            } else {
+                Postings candidates = rarestPostings(query);
+                for (int i = 0; candidates != null && i < candidates.size; i++) {
+                    Term term = terms.get(candidates.ids[i]);
+                    if (term.matches(query)) {
+                        matches.add(term);
+                    }
+                }
+            }
+
+            List<Flight> result = new ArrayList<>();
+            for (Term term : matches) {
+                if (term.destination) {
+                    result.addAll(term.flights);
+                }
+            }
+            // Los vuelos cuyo destino también coincide ya se han añadido por su destino;
+            // se comprueba una sola vez cada destino distinto.
+            Map<String, Boolean> destinationMatches = new HashMap<>();
+            for (Term term : matches) {
+                if (!term.destination) {
+                    for (Flight flight : term.flights) {
+                        FlightQuery.checkInterrupted(++scanned);
+                        if (!destinationMatches.computeIfAbsent(flight.getDestination(),
+                                destination -> keyOf(destination).contains(query))) {
+                            result.add(flight);
+                        }
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Añade vuelos al índice.
+     *
+     * @param flights Vuelos a añadir.
+     */
+    private void addAll(Collection<? extends Flight> flights) {
+        lock.writeLock().lock();
+        try {
+            for (Flight flight : flights) {
+                termOf(flightNumberTerms, flight.getFlightNumber(), false).flights.add(flight);
+                termOf(destinationTerms, flight.getDestination(), true).flights.add(flight);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota la baja de un vuelo en uno de sus términos.
+     *
+     * @param removed Bajas por identificador de término, con el número de veces que se elimina cada vuelo.
+     * @param termId  Identificador del término, o {@code null} si no existe.
+     * @param flight  Vuelo eliminado.
+     */
+    private static void collect(Map<Integer, Map<Flight, Integer>> removed, Integer termId, Flight flight) {
+        if (termId != null) {
+            removed.computeIfAbsent(termId, key -> new IdentityHashMap<>()).merge(flight, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Elimina vuelos de la lista de un término, buscándolos por identidad.
+     * Una sola baja se busca desde el final; varias se eliminan en una sola pasada por la lista del término.
+     *
+     * @param termId  Identificador del término.
+     * @param removed Vuelos a eliminar, con el número de veces que se eliminan.
+     */
+    private void removeAll(int termId, Map<Flight, Integer> removed) {
+        List<Flight> flights = terms.get(termId).flights;
+        if (removed.size() == 1 && removed.values().iterator().next() == 1) {
+            // Buscar desde el final, ya que las bajas sueltas suelen afectar a los vuelos añadidos más recientemente.
+            Flight flight = removed.keySet().iterator().next();
+            for (int i = flights.size() - 1; i >= 0; i--) {
+                if (flights.get(i) == flight) {
+                    flights.remove(i);
+                    return;
+                }
+            }
+            return;
+        }
+        flights.removeIf(flight -> {
+            Integer count = removed.get(flight);
+            if (count == null) {
+                return false;
+            }
+            if (count == 1) {
+                removed.remove(flight);
+            } else {
+                removed.put(flight, count - 1);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Devuelve el término de un texto, creándolo e indexando sus trigramas si no existe.
+     *
+     * @param termIds     Identificadores de los términos del mismo tipo.
+     * @param text        Texto del término.
+     * @param destination Indica si el término es un destino.
+     * @return El término.
+     */
+    private Term termOf(Map<String, Integer> termIds, String text, boolean destination) {
+        String key = keyOf(text);
+        Integer termId = termIds.get(key);
+        if (termId != null) {
+            return terms.get(termId);
+        }
+
+        int id = terms.size();
+        Term term = new Term(key, destination);
+        terms.add(term);
+        termIds.put(key, id);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            postingsByTrigram.computeIfAbsent(trigramAt(key, i), k -> new Postings()).add(id);
+        }
+        return term;
+    }
+
+    /**
+     * Devuelve la lista de términos más corta entre las de los trigramas de un texto.
+     *
+     * @param query Texto de al menos tres caracteres, en minúsculas.
+     * @return Los términos candidatos, o {@code null} si algún trigrama no aparece en ningún término.
+     */
+    private Postings rarestPostings(String query) {
+        Postings rarest = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Postings postings = postingsByTrigram.get(trigramAt(query, i));
+            if (postings == null) {
+                return null;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * Codifica en un número los tres caracteres de un texto a partir de una posición.
+     *
+     * @param text  Texto.
+     * @param index Posición del primer carácter.
+     * @return El trigrama codificado.
+     */
+    private static long trigramAt(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    /**
+     * Normaliza un texto para las búsquedas sin distinguir mayúsculas.
+     *
+     * @param text Texto; puede ser {@code null}.
+     * @return El texto en minúsculas, o una cadena vacía si es {@code null}.
+     */
+    private static String keyOf(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Número de vuelo o destino indexado, con los vuelos que lo tienen.
+     */
+    private static final class Term {
+
+        /** Texto del término, en minúsculas. */
+        private final String text;
+
+        /** Indica si el término es un destino; si no, es un número de vuelo. */
+        private final boolean destination;
+
+        /** Vuelos con este número o destino. */
+        private final List<Flight> flights = new ArrayList<>(1);
+
+        private Term(String text, boolean destination) {
+            this.text = text;
+            this.destination = destination;
+        }
+
+        /**
+         * Indica si el término tiene vuelos y contiene un texto.
+         *
+         * @param query Texto en minúsculas.
+         * @return {@code true} si el término coincide.
+         */
+        private boolean matches(String query) {
+            return !flights.isEmpty() && text.contains(query);
+        }
+    }
+
+    /**
+     * Lista ampliable de identificadores de términos, sin repetidos consecutivos.
+     */
+    private static final class Postings {
+
+        /** Identificadores de los términos. */
+        private int[] ids = new int[4];
+
+        /** Número de identificadores. */
+        private int size;
+
+        /**
+         * Añade un identificador si no es el último añadido, ya que un término puede repetir un trigrama.
+         *
+         * @param id Identificador del término.
+         */
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            ids[size++] = id;
+        }
+    }
+}
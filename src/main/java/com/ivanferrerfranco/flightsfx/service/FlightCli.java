@@ -0,0 +1,227 @@
+package com.ivanferrerfranco.flightsfx.service;
+
+import com.ivanferrerfranco.flightsfx.model.FlightDateCodec;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightRepository;
+import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+import com.ivanferrerfranco.flightsfx.utils.FlightDatabase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Punto de entrada de línea de comandos que ejecuta una consulta sobre un archivo de vuelos
+ * y escribe los resultados en la salida estándar, sin interfaz gráfica.
+ * <p>
+ * El archivo se abre con {@link FlightService#openRepository(Path)}: un archivo de texto se lee en streaming y
+ * una base de datos {@code .fdb} se consulta con sus índices, por lo que en ambos casos se pueden procesar archivos
+ * más grandes que la memoria disponible. Con {@code --import} se añaden a una base de datos los vuelos de un archivo
+ * de texto. Los resultados se escriben con el mismo formato que el archivo de vuelos, cabecera incluida,
+ * y los errores en la salida de errores.
+ * <p>
+ * Ejemplos:
+ * {@code java -p <módulos> -m com.ivanferrerfranco.flightsfx/com.ivanferrerfranco.flightsfx.service.FlightCli flights.txt --to Roma --order --limit 10}
+ * <br>
+ * {@code java -p <módulos> -m com.ivanferrerfranco.flightsfx/com.ivanferrerfranco.flightsfx.service.FlightCli flights.fdb --import flights.txt}
+ */
+public class FlightCli {
+
+    /** Texto de ayuda con las opciones disponibles. */
+    private static final String USAGE = """
+            Uso: FlightCli <archivo | base.fdb> [opciones]
+              --to <destino>               vuelos a un destino
+              --longer-than <H:mm>         vuelos de más duración
+              --after <dd/MM/yy HH:mm>     vuelos que salen después de un instante
+              --between <desde> <hasta>    vuelos que salen en un intervalo (dd/MM/yy HH:mm)
+              --order                      ordenar por fecha de salida
+              --limit <n>                  número máximo de vuelos
+              --csv                        separar los campos con comas
+              --summary                    mostrar un resumen en lugar de los vuelos
+              --import <archivo>           añadir a la base de datos los vuelos de un archivo de texto""";
+
+    /**
+     * Constructor de la clase FlightCli.
+     * Todos los métodos de la clase son estáticos, por lo que no es necesario crear instancias.
+     */
+    public FlightCli() {
+        // El constructor no realiza ninguna acción adicional
+    }
+
+    /**
+     * Ejecuta la consulta indicada en los argumentos.
+     *
+     * @param args Archivo de vuelos seguido de las opciones de la consulta.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Ejecuta la consulta indicada en los argumentos y devuelve el código de salida.
+     *
+     * @param args Archivo de vuelos seguido de las opciones de la consulta.
+     * @return 0 si la consulta se ha ejecutado, 1 si ha fallado la lectura o la escritura y 2 si los argumentos no son válidos.
+     */
+    public static int run(String[] args) {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Path path = Paths.get(args[0]);
+        FlightQuery query = FlightQuery.all();
+        char separator = ';';
+        boolean summary = false;
+        Path importPath = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--to" -> query = query.to(argument(args, ++i));
+                    case "--longer-than" -> query = query.longerThan(FlightDateCodec.parseLocalTime(argument(args, ++i)));
+                    case "--after" -> query = query.departingAfter(FlightDateCodec.parseLocalDateTime(argument(args, ++i)));
+                    case "--between" -> {
+                        LocalDateTime from = FlightDateCodec.parseLocalDateTime(argument(args, ++i));
+                        query = query.departingBetween(from, FlightDateCodec.parseLocalDateTime(argument(args, ++i)));
+                    }
+                    case "--order" -> query = query.orderByDeparture();
+                    case "--limit" -> query = query.limit(Integer.parseInt(argument(args, ++i)));
+                    case "--csv" -> separator = ',';
+                    case "--summary" -> summary = true;
+                    case "--import" -> importPath = Paths.get(argument(args, ++i));
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            System.err.println("Error en los argumentos: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        if (importPath != null) {
+            return importFlights(path, importPath);
+        }
+        if (!Files.isReadable(path)) {
+            System.err.println("No se puede leer el archivo: " + path);
+            return 1;
+        }
+
+        // La salida estándar no se cierra, solo se vacía al terminar.
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        try (FlightRepository repository = FlightService.openRepository(path)) {
+            if (summary) {
+                writeSummary(out, FlightService.summarize(repository, query));
+            } else {
+                writeFlights(out, repository, query, separator);
+            }
+            out.flush();
+            return 0;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error al ejecutar la consulta: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Añade a una base de datos los vuelos de un archivo de texto, creándola si no existe.
+     *
+     * @param database Ruta de la base de datos.
+     * @param source   Ruta del archivo de texto con los vuelos.
+     * @return 0 si se han importado los vuelos, 1 si ha fallado la lectura o la escritura y 2 si el destino no es una base de datos.
+     */
+    private static int importFlights(Path database, Path source) {
+        if (!database.getFileName().toString().endsWith(FlightDatabase.EXTENSION)) {
+            System.err.println("Solo se puede importar a una base de datos " + FlightDatabase.EXTENSION + ": " + database);
+            return 2;
+        }
+        if (!Files.isReadable(source)) {
+            System.err.println("No se puede leer el archivo: " + source);
+            return 1;
+        }
+        try (FlightDatabase repository = FlightDatabase.open(database)) {
+            long added = repository.importFlights(source);
+            System.out.println("Vuelos importados: " + added + " (total: " + repository.count() + ")");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Error al importar los vuelos: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Escribe los vuelos seleccionados según se obtienen, con la cabecera del archivo de vuelos.
+     *
+     * @param out        Salida.
+     * @param repository Almacén de vuelos.
+     * @param query      Consulta a ejecutar.
+     * @param separator  Separador de los campos.
+     * @throws IOException Si ocurre un error al leer el almacén o al escribir la salida.
+     */
+    private static void writeFlights(Writer out, FlightRepository repository, FlightQuery query, char separator) throws IOException {
+        out.write(FileUtils.formatHeader(separator));
+        out.write(System.lineSeparator());
+        repository.query(query, flight -> {
+            try {
+                out.write(FileUtils.formatFlight(flight, separator));
+                out.write(System.lineSeparator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Escribe un resumen de los vuelos seleccionados, con los destinos ordenados de más a menos vuelos.
+     *
+     * @param out     Salida.
+     * @param summary Resumen de los vuelos.
+     * @throws IOException Si ocurre un error al escribir la salida.
+     */
+    private static void writeSummary(Writer out, FlightSummary summary) throws IOException {
+        StringBuilder text = new StringBuilder()
+                .append("Vuelos: ").append(summary.flightCount()).append(System.lineSeparator())
+                .append("Duración media: ").append(formatMinutes(Math.round(summary.averageDuration()))).append(System.lineSeparator())
+                .append("Más corto: ").append(formatMinutes(summary.minDuration())).append(System.lineSeparator())
+                .append("Más largo: ").append(formatMinutes(summary.maxDuration())).append(System.lineSeparator())
+                .append("Destinos:").append(System.lineSeparator());
+        summary.destinationCounts().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> text.append("  ").append(entry.getKey()).append(": ")
+                        .append(entry.getValue()).append(System.lineSeparator()));
+        out.write(text.toString());
+    }
+
+    /**
+     * Escribe una duración en minutos con el formato {@code HH:mm}.
+     *
+     * @param minutes Duración en minutos, o un valor negativo si no se conoce.
+     * @return La duración, o {@code -} si no se conoce.
+     */
+    private static String formatMinutes(long minutes) {
+        return minutes < 0 ? "-" : FlightDateCodec.appendDuration(new StringBuilder(5), (int) minutes).toString();
+    }
+
+    /**
+     * Devuelve el valor de una opción.
+     *
+     * @param args  Argumentos.
+     * @param index Posición del valor.
+     * @return El valor.
+     * @throws IllegalArgumentException Si falta el valor.
+     */
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Falta el valor de " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
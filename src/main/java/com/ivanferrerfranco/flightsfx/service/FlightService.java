@@ -0,0 +1,573 @@
+package com.ivanferrerfranco.flightsfx.service;
+
+import com.ivanferrerfranco.flightsfx.model.DepartureIndex;
+import com.ivanferrerfranco.flightsfx.model.DestinationIndex;
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightDateCodec;
+import com.ivanferrerfranco.flightsfx.model.FlightHistory;
+import com.ivanferrerfranco.flightsfx.model.FlightKeyIndex;
+import com.ivanferrerfranco.flightsfx.model.FlightList;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightRepository;
+import com.ivanferrerfranco.flightsfx.model.FlightStatistics;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+import com.ivanferrerfranco.flightsfx.model.FlightTextIndex;
+import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+import com.ivanferrerfranco.flightsfx.utils.FlightDatabase;
+import com.ivanferrerfranco.flightsfx.utils.FlightPersistenceService;
+import javafx.collections.ObservableList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Motor de gestión de vuelos sin interfaz gráfica: carga, altas, bajas, consultas y estadísticas.
+ * <p>
+ * Mantiene la lista de vuelos junto con sus índices (clave primaria, destino, salida y texto), sus estadísticas
+ * y su historial de cambios, todos actualizados con cada cambio de la lista. La vista principal es solo un
+ * adaptador sobre este servicio, y los procesos por lotes pueden usarlo igual sin pantalla.
+ * <p>
+ * La lista y sus índices no son seguros entre hilos: los cambios deben hacerse siempre desde el mismo hilo,
+ * que en la aplicación es el de JavaFX. Las consultas y la búsqueda por texto son la excepción y pueden hacerse
+ * desde otro hilo, para no bloquear la interfaz mientras se ejecutan.
+ * <p>
+ * Para archivos que no caben en memoria, {@link #query(Path, FlightQuery, Consumer)} y
+ * {@link #summarize(Path, FlightQuery)} leen el archivo en streaming sin cargar la lista, y
+ * {@link #openRepository(Path)} abre un almacén que se consulta y modifica vuelo a vuelo.
+ */
+public class FlightService {
+
+    /** Lista de vuelos. */
+    private final FlightList flights;
+
+    /** Índice de clave primaria por número de vuelo. */
+    private final FlightKeyIndex keyIndex;
+
+    /** Índice de vuelos por destino. */
+    private final DestinationIndex destinationIndex;
+
+    /** Índice de vuelos ordenados por fecha de salida. */
+    private final DepartureIndex departureIndex;
+
+    /** Estadísticas de duración y número de vuelos por destino. */
+    private final FlightStatistics statistics;
+
+    /** Índice de texto para la búsqueda por número de vuelo o destino. */
+    private final FlightTextIndex textIndex;
+
+    /** Historial de cambios para deshacer y rehacer. */
+    private final FlightHistory history;
+
+    /** Servicio que guarda los cambios en el diario, o en la instantánea si no hay diario; {@code null} si no se ha abierto. */
+    private FlightPersistenceService persistence;
+
+    /**
+     * Crea el servicio con unos vuelos iniciales y construye sus índices.
+     *
+     * @param initialFlights Vuelos iniciales.
+     */
+    public FlightService(Collection<Flight> initialFlights) {
+        flights = new FlightList(initialFlights);
+        keyIndex = new FlightKeyIndex(flights, FlightKeyIndex.KeyMode.FLIGHT_NUMBER);
+        destinationIndex = new DestinationIndex(flights);
+        departureIndex = new DepartureIndex(flights);
+        statistics = new FlightStatistics(flights);
+        textIndex = new FlightTextIndex(flights);
+        history = new FlightHistory(flights);
+    }
+
+    /**
+     * Crea el servicio con los vuelos guardados por la aplicación (instantánea y diario, o el archivo de texto).
+     *
+     * @return El servicio con los vuelos cargados.
+     */
+    public static FlightService load() {
+        return new FlightService(FileUtils.loadFlights());
+    }
+
+    /**
+     * Crea el servicio con los vuelos de un archivo de texto.
+     *
+     * @param path Ruta del archivo de vuelos.
+     * @return El servicio con los vuelos cargados.
+     */
+    public static FlightService load(Path path) {
+        return new FlightService(FileUtils.loadFlights(path));
+    }
+
+    /**
+     * Devuelve la lista de vuelos. Se puede observar y modificar directamente; los índices,
+     * las estadísticas y el historial se actualizan igualmente.
+     *
+     * @return Lista de vuelos.
+     */
+    public ObservableList<Flight> getFlights() {
+        return flights;
+    }
+
+    /**
+     * Devuelve las estadísticas de los vuelos, que se mantienen actualizadas con cada cambio.
+     *
+     * @return Las estadísticas.
+     */
+    public FlightStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Devuelve el historial de cambios de la lista.
+     *
+     * @return El historial para deshacer y rehacer.
+     */
+    public FlightHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Crea un vuelo a partir del texto de sus campos.
+     *
+     * @param flightNumber Número de vuelo.
+     * @param destination  Destino.
+     * @param departure    Fecha y hora de salida, con el formato {@code dd/MM/yy HH:mm}.
+     * @param duration     Duración, con el formato {@code H:mm}.
+     * @return El vuelo.
+     * @throws IllegalArgumentException Si algún campo está vacío.
+     * @throws DateTimeException        Si la fecha de salida o la duración no son válidas.
+     */
+    public static Flight parseFlight(String flightNumber, String destination, String departure, String duration) {
+        String number = flightNumber.trim();
+        String city = destination.trim();
+        String departureText = departure.trim();
+        String durationText = duration.trim();
+        if (number.isEmpty() || city.isEmpty() || departureText.isEmpty() || durationText.isEmpty()) {
+            throw new IllegalArgumentException("Por favor, completa todos los campos.");
+        }
+
+        LocalDateTime departureDateTime = FlightDateCodec.parseLocalDateTime(departureText);
+        LocalTime flightDuration = FlightDateCodec.parseLocalTime(durationText);
+        return new Flight(number, city, departureDateTime, flightDuration);
+    }
+
+    /**
+     * Indica si ya hay un vuelo con el mismo número que otro.
+     *
+     * @param flight Vuelo cuyo número se comprueba.
+     * @return {@code true} si el número ya existe.
+     */
+    public boolean contains(Flight flight) {
+        return keyIndex.contains(flight);
+    }
+
+    /**
+     * Añade un vuelo si su número no existe todavía.
+     *
+     * @param flight Vuelo a añadir.
+     * @return {@code true} si se ha añadido, o {@code false} si ya había un vuelo con ese número.
+     */
+    public boolean add(Flight flight) {
+        if (keyIndex.contains(flight)) {
+            return false;
+        }
+        flights.add(flight);
+        return true;
+    }
+
+    /**
+     * Añade con un único cambio de la lista los vuelos cuyo número no existe todavía.
+     * Si un número se repite dentro de los propios vuelos, solo se añade el primero.
+     *
+     * @param newFlights Vuelos a añadir.
+     * @return Los vuelos añadidos, en orden.
+     */
+    public List<Flight> addAll(Collection<Flight> newFlights) {
+        Set<String> numbers = new HashSet<>();
+        List<Flight> added = new ArrayList<>(newFlights.size());
+        for (Flight flight : newFlights) {
+            if (!keyIndex.contains(flight) && numbers.add(flight.getFlightNumber())) {
+                added.add(flight);
+            }
+        }
+        flights.addAll(added);
+        return added;
+    }
+
+    /**
+     * Aplica a la lista los cambios de una versión nueva del archivo de vuelos con un único cambio de la lista.
+     * <p>
+     * Cada vuelo eliminado del archivo se busca entre los de la lista con su misma clave y sus mismos datos, de modo
+     * que entre varios vuelos con el mismo número se elige el que tenía esa línea; si no hay ninguno, la lista ya no lo
+     * tenía y se ignora. Cada vuelo añadido ocupa la posición de un vuelo eliminado con su misma clave, como una
+     * modificación en su sitio, y si no queda ninguno se añade al final. Los vuelos eliminados que no se sustituyen
+     * se eliminan de la lista. Las posiciones se calculan antes de modificar la lista, ya que los índices solo se
+     * actualizan al notificarse el cambio completo.
+     * <p>
+     * Como el archivo de texto pasa a ser más reciente que la instantánea, al volver a cargar se elegiría como base y
+     * se descartaría el diario. Por eso la instantánea se mantiene como base, lo que no depende del número de vuelos;
+     * solo si el diario no parte de ninguna instantánea se guarda la lista completa.
+     *
+     * @param added   Vuelos de las líneas nuevas del archivo.
+     * @param removed Vuelos de las líneas que ya no están en el archivo, con sus datos anteriores.
+     * @return El número de vuelos añadidos, sustituidos o eliminados.
+     */
+    public int applyFileChanges(Collection<Flight> added, Collection<Flight> removed) {
+        // Posiciones de los vuelos eliminados, agrupadas por clave para emparejarlas con los vuelos añadidos.
+        Set<Integer> claimed = new HashSet<>();
+        Map<String, ArrayDeque<Integer>> freed = new LinkedHashMap<>();
+        for (Flight flight : removed) {
+            int index = findUnclaimed(flight, claimed);
+            if (index >= 0) {
+                claimed.add(index);
+                freed.computeIfAbsent(keyIndex.keyOf(flight), key -> new ArrayDeque<>()).add(index);
+            }
+        }
+
+        Map<Integer, Flight> replacements = new HashMap<>();
+        List<Flight> additions = new ArrayList<>();
+        for (Flight flight : added) {
+            ArrayDeque<Integer> positions = freed.get(keyIndex.keyOf(flight));
+            Integer index = positions == null ? null : positions.poll();
+            if (index == null) {
+                additions.add(flight);
+            } else if (!sameContent(flights.get(index), flight)) {
+                replacements.put(index, flight);
+            }
+        }
+        List<Integer> removals = new ArrayList<>();
+        for (ArrayDeque<Integer> positions : freed.values()) {
+            removals.addAll(positions);
+        }
+        removals.sort(Comparator.reverseOrder());
+
+        int changes = replacements.size() + removals.size() + additions.size();
+        if (changes > 0) {
+            flights.batch(() -> {
+                replacements.forEach(flights::set);
+                // Eliminar de la última posición a la primera para que las demás posiciones sigan siendo válidas.
+                for (int index : removals) {
+                    flights.remove(index);
+                }
+                flights.addAll(additions);
+            });
+        }
+        if (persistence != null) {
+            persistence.keepBase(flights);
+        }
+        return changes;
+    }
+
+    /**
+     * Busca en la lista un vuelo con la misma clave y los mismos datos que otro, sin contar los ya elegidos.
+     *
+     * @param flight  Vuelo buscado.
+     * @param claimed Posiciones ya elegidas.
+     * @return La posición del primer vuelo que coincide, o {@code -1} si no hay ninguno.
+     */
+    private int findUnclaimed(Flight flight, Set<Integer> claimed) {
+        for (int index : keyIndex.indexesOf(flight)) {
+            if (!claimed.contains(index) && sameContent(flights.get(index), flight)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indica si dos vuelos tienen los mismos datos.
+     *
+     * @param a Primer vuelo.
+     * @param b Segundo vuelo.
+     * @return {@code true} si coinciden el número, el destino, la salida y la duración.
+     */
+    private static boolean sameContent(Flight a, Flight b) {
+        return Objects.equals(a.getFlightNumber(), b.getFlightNumber())
+                && Objects.equals(a.getDestination(), b.getDestination())
+                && Objects.equals(a.getDepartureDateTime(), b.getDepartureDateTime())
+                && Objects.equals(a.getDuration(), b.getDuration());
+    }
+
+    /**
+     * Elimina un vuelo concreto de la lista.
+     *
+     * @param flight Vuelo a eliminar.
+     * @return {@code true} si el vuelo estaba en la lista.
+     */
+    public boolean remove(Flight flight) {
+        return keyIndex.removeFlight(flight);
+    }
+
+    /**
+     * Elimina el vuelo con un número.
+     *
+     * @param flightNumber Número de vuelo.
+     * @return El vuelo eliminado, o {@code null} si no había ninguno con ese número.
+     */
+    public Flight remove(String flightNumber) {
+        return keyIndex.remove(flightNumber, null);
+    }
+
+    /**
+     * Ejecuta una consulta sobre los vuelos, aprovechando los índices.
+     * Se puede llamar desde un hilo distinto del que modifica la lista: la consulta se ejecuta con el cerrojo
+     * de lectura de la lista, de modo que ve la lista y los índices entre dos cambios y nunca a medio actualizar.
+     *
+     * @param query Consulta a ejecutar.
+     * @return Los vuelos seleccionados, ordenados y limitados según la consulta.
+     */
+    public List<Flight> query(FlightQuery query) {
+        flights.readLock().lock();
+        try {
+            return query.execute(flights, destinationIndex, departureIndex);
+        } finally {
+            flights.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los vuelos cuyo número o destino contienen un texto, sin distinguir mayúsculas.
+     * Se puede llamar desde un hilo distinto del que modifica la lista.
+     *
+     * @param text Texto a buscar.
+     * @return Los vuelos encontrados, primero los que coinciden por destino.
+     */
+    public List<Flight> search(String text) {
+        return textIndex.search(text);
+    }
+
+    /**
+     * Resume el estado actual de los vuelos.
+     *
+     * @return El resumen, que no cambia aunque cambie la lista.
+     */
+    public FlightSummary summarize() {
+        return FlightSummary.of(statistics);
+    }
+
+    /**
+     * Empieza a registrar cada cambio de la lista en el diario de vuelos. Si el diario no se puede abrir,
+     * los cambios se agrupan y se guardan en segundo plano como instantánea completa, y se lanza la excepción
+     * para que se pueda avisar.
+     *
+     * @throws IOException Si no se puede abrir el diario.
+     */
+    public void persistChanges() throws IOException {
+        try {
+            persistence = new FlightPersistenceService(FileUtils.openJournal());
+        } catch (IOException e) {
+            persistence = new FlightPersistenceService(this::snapshot, FileUtils.getSnapshotPath());
+            flights.addListener(persistence);
+            throw e;
+        }
+        flights.addListener(persistence);
+    }
+
+    /**
+     * Copia las referencias a los vuelos de la lista. Se puede llamar desde un hilo distinto del que la modifica;
+     * los vuelos no se copian, ya que la lista los sustituye en lugar de modificarlos.
+     *
+     * @return Los vuelos de la lista en este momento.
+     */
+    private List<Flight> snapshot() {
+        flights.readLock().lock();
+        try {
+            return new ArrayList<>(flights);
+        } finally {
+            flights.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vuelca a disco los cambios pendientes, del diario o de la instantánea, y cierra el diario.
+     *
+     * @return Futuro que se completa cuando el último cambio está guardado.
+     */
+    public CompletableFuture<Void> shutdown() {
+        if (persistence == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return persistence.shutdown();
+    }
+
+    /**
+     * Ejecuta una consulta sobre un archivo de vuelos leyéndolo en streaming, sin cargarlo en memoria.
+     * <p>
+     * Sin orden, cada vuelo seleccionado se entrega según se lee y la lectura se detiene al alcanzar el límite.
+     * Con orden y límite solo se guardan los mejores vuelos encontrados hasta el momento; con orden y sin límite
+     * se guardan los vuelos seleccionados para ordenarlos al final. Los vuelos con la misma salida se entregan
+     * en el orden del archivo, igual que con {@link FlightQuery#execute(List)}. Las líneas con formato incorrecto se saltan.
+     *
+     * @param path     Ruta del archivo de vuelos.
+     * @param query    Consulta a ejecutar.
+     * @param consumer Consumidor que recibe los vuelos seleccionados.
+     * @return El número de vuelos entregados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long query(Path path, FlightQuery query, Consumer<? super Flight> consumer) throws IOException {
+        Predicate<Flight> predicate = query.toPredicate();
+        Comparator<Flight> comparator = query.comparator();
+        long limit = query.isLimited() ? query.getLimit() : Long.MAX_VALUE;
+        if (limit == 0) {
+            return 0;
+        }
+
+        if (comparator == null) {
+            long[] delivered = {0};
+            FileUtils.scanFlights(path, flight -> {
+                if (!predicate.test(flight)) {
+                    return true;
+                }
+                consumer.accept(flight);
+                return ++delivered[0] < limit;
+            }, line -> { });
+            return delivered[0];
+        }
+
+        // Ordenar por la consulta y, a igualdad, por la posición en el archivo.
+        Comparator<Ranked> order = Comparator.comparing(Ranked::flight, comparator).thenComparingLong(Ranked::position);
+        List<Ranked> selected;
+        if (query.isLimited()) {
+            // Montículo con el peor de los vuelos guardados en la cima, para descartarlo al encontrar uno mejor.
+            PriorityQueue<Ranked> best = new PriorityQueue<>(order.reversed());
+            long[] position = {0};
+            FileUtils.scanFlights(path, flight -> {
+                if (predicate.test(flight)) {
+                    best.add(new Ranked(flight, position[0]++));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+                return true;
+            }, line -> { });
+            selected = new ArrayList<>(best);
+        } else {
+            selected = new ArrayList<>();
+            long[] position = {0};
+            FileUtils.scanFlights(path, flight -> {
+                if (predicate.test(flight)) {
+                    selected.add(new Ranked(flight, position[0]++));
+                }
+                return true;
+            }, line -> { });
+        }
+
+        selected.sort(order);
+        for (Ranked ranked : selected) {
+            consumer.accept(ranked.flight());
+        }
+        return selected.size();
+    }
+
+    /**
+     * Resume los vuelos de un archivo que cumplen una consulta, leyéndolo en streaming sin cargarlo en memoria.
+     * El orden y el límite de la consulta no se tienen en cuenta.
+     *
+     * @param path  Ruta del archivo de vuelos.
+     * @param query Consulta que deben cumplir los vuelos.
+     * @return El resumen de los vuelos seleccionados.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static FlightSummary summarize(Path path, FlightQuery query) throws IOException {
+        SummaryAccumulator accumulator = new SummaryAccumulator();
+        query(path, query.unbounded(), accumulator);
+        return accumulator.toSummary();
+    }
+
+    /**
+     * Resume los vuelos de un almacén que cumplen una consulta, recibiéndolos uno a uno sin guardarlos en memoria.
+     * El orden y el límite de la consulta no se tienen en cuenta.
+     *
+     * @param repository Almacén de vuelos.
+     * @param query      Consulta que deben cumplir los vuelos.
+     * @return El resumen de los vuelos seleccionados.
+     * @throws IOException Si ocurre un error al leer el almacén.
+     */
+    public static FlightSummary summarize(FlightRepository repository, FlightQuery query) throws IOException {
+        SummaryAccumulator accumulator = new SummaryAccumulator();
+        repository.query(query.unbounded(), accumulator);
+        return accumulator.toSummary();
+    }
+
+    /**
+     * Abre el almacén de vuelos adecuado para un archivo: una base de datos con índices si tiene la extensión
+     * {@link FlightDatabase#EXTENSION}, o un archivo de texto en otro caso. Hay que cerrarlo al terminar.
+     *
+     * @param path Ruta del archivo; si no existe, se crea con el primer alta.
+     * @return El almacén abierto.
+     * @throws IOException Si ocurre un error al abrir la base de datos.
+     */
+    public static FlightRepository openRepository(Path path) throws IOException {
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(FlightDatabase.EXTENSION)) {
+            return FlightDatabase.open(path);
+        }
+        return new TextFlightRepository(path);
+    }
+
+    /**
+     * Acumula el número de vuelos, las duraciones y el número de vuelos por destino de los vuelos que recibe.
+     */
+    private static final class SummaryAccumulator implements Consumer<Flight> {
+
+        /** Número de vuelos por destino. */
+        private final Map<String, Integer> destinationCounts = new HashMap<>();
+
+        /** Número de vuelos recibidos. */
+        private long count;
+
+        /** Número de vuelos recibidos con duración. */
+        private long withDuration;
+
+        /** Suma de las duraciones en minutos. */
+        private long totalMinutes;
+
+        /** Duración mínima en minutos, o {@code -1} si no hay ninguna. */
+        private int minMinutes = -1;
+
+        /** Duración máxima en minutos, o {@code -1} si no hay ninguna. */
+        private int maxMinutes = -1;
+
+        @Override
+        public void accept(Flight flight) {
+            count++;
+            destinationCounts.merge(flight.getDestination(), 1, Integer::sum);
+            int minutes = FlightStore.toMinutes(flight.getDuration());
+            if (minutes >= 0) {
+                withDuration++;
+                totalMinutes += minutes;
+                minMinutes = minMinutes < 0 ? minutes : Math.min(minMinutes, minutes);
+                maxMinutes = Math.max(maxMinutes, minutes);
+            }
+        }
+
+        FlightSummary toSummary() {
+            double average = withDuration == 0 ? 0 : (double) totalMinutes / withDuration;
+            return new FlightSummary(count, average, minMinutes, maxMinutes, destinationCounts);
+        }
+    }
+
+    /**
+     * Vuelo seleccionado junto con su posición entre los seleccionados, para ordenar de forma estable.
+     *
+     * @param flight   Vuelo.
+     * @param position Posición del vuelo entre los seleccionados, en el orden del archivo.
+     */
+    private record Ranked(Flight flight, long position) {
+    }
+}
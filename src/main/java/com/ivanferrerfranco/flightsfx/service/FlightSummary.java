@@ -0,0 +1,43 @@
+package com.ivanferrerfranco.flightsfx.service;
+
+import com.ivanferrerfranco.flightsfx.model.FlightStatistics;
+
+import java.util.Map;
+
+/**
+ * Resumen de un conjunto de vuelos: número de vuelos, duraciones y vuelos por destino.
+ * A diferencia de {@link FlightStatistics}, es una copia inmutable que no sigue los cambios de la lista.
+ *
+ * @param flightCount       Número total de vuelos.
+ * @param averageDuration   Duración media en minutos, o 0 si no hay vuelos con duración.
+ * @param minDuration       Duración mínima en minutos, o {@code -1} si no hay vuelos con duración.
+ * @param maxDuration       Duración máxima en minutos, o {@code -1} si no hay vuelos con duración.
+ * @param destinationCounts Número de vuelos de cada destino.
+ */
+public record FlightSummary(long flightCount, double averageDuration, int minDuration, int maxDuration,
+                            Map<String, Integer> destinationCounts) {
+
+    /**
+     * Crea un resumen con una copia inmutable del número de vuelos por destino.
+     *
+     * @param flightCount       Número total de vuelos.
+     * @param averageDuration   Duración media en minutos.
+     * @param minDuration       Duración mínima en minutos.
+     * @param maxDuration       Duración máxima en minutos.
+     * @param destinationCounts Número de vuelos de cada destino.
+     */
+    public FlightSummary {
+        destinationCounts = Map.copyOf(destinationCounts);
+    }
+
+    /**
+     * Crea un resumen con el estado actual de unas estadísticas.
+     *
+     * @param statistics Estadísticas de una lista de vuelos.
+     * @return El resumen.
+     */
+    public static FlightSummary of(FlightStatistics statistics) {
+        return new FlightSummary(statistics.getFlightCount(), statistics.getAverageDuration(),
+                statistics.getMinDuration(), statistics.getMaxDuration(), statistics.getDestinationCounts());
+    }
+}
@@ -0,0 +1,93 @@
+package com.ivanferrerfranco.flightsfx.service;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightRepository;
+import com.ivanferrerfranco.flightsfx.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Almacén de vuelos sobre un archivo de texto, que se recorre en streaming en cada operación.
+ * <p>
+ * No tiene índices: contar, buscar y consultar leen el archivo (buscar se detiene en el vuelo encontrado),
+ * las altas se añaden al final del archivo y las bajas lo reescriben sin el vuelo. Sirve para trabajar con
+ * archivos de texto de cualquier tamaño con la misma interfaz que {@link com.ivanferrerfranco.flightsfx.utils.FlightDatabase},
+ * que es la opción adecuada cuando las consultas deben ser rápidas.
+ * <p>
+ * Las altas y bajas se sincronizan entre sí, pero el archivo no debe modificarse desde otro proceso mientras tanto.
+ */
+public class TextFlightRepository implements FlightRepository {
+
+    /** Ruta del archivo de vuelos. */
+    private final Path path;
+
+    /**
+     * Crea el almacén sobre un archivo de texto, que se crea con la primera alta si no existe.
+     *
+     * @param path Ruta del archivo de vuelos.
+     */
+    public TextFlightRepository(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public long count() throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        return FileUtils.scanFlights(path, flight -> true, line -> { });
+    }
+
+    @Override
+    public Flight find(String flightNumber) throws IOException {
+        if (Files.notExists(path)) {
+            return null;
+        }
+        Flight[] found = new Flight[1];
+        FileUtils.scanFlights(path, flight -> {
+            if (flightNumber.equals(flight.getFlightNumber())) {
+                found[0] = flight;
+                return false;
+            }
+            return true;
+        }, line -> { });
+        return found[0];
+    }
+
+    @Override
+    public long query(FlightQuery query, Consumer<? super Flight> consumer) throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        return FlightService.query(path, query, consumer);
+    }
+
+    @Override
+    public synchronized boolean insert(Flight flight) throws IOException {
+        if (find(flight.getFlightNumber()) != null) {
+            return false;
+        }
+        FileUtils.appendFlight(path, flight);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String flightNumber) throws IOException {
+        if (Files.notExists(path)) {
+            return false;
+        }
+        return FileUtils.removeFlights(path, flight -> flightNumber.equals(flight.getFlightNumber())) > 0;
+    }
+
+    /**
+     * No hace nada: el archivo solo está abierto durante cada operación.
+     */
+    @Override
+    public void close() {
+        // No hay recursos abiertos entre operaciones
+    }
+}
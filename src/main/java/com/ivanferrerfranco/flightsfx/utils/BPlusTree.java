@@ -0,0 +1,438 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Árbol B+ de claves y valores binarios guardado en las páginas de un {@link PageFile}.
+ * <p>
+ * Las claves se ordenan comparando sus bytes sin signo, de modo que un prefijo común agrupa sus claves
+ * y los números codificados en big-endian se ordenan como números. Los valores solo se guardan en las hojas,
+ * que están enlazadas en orden para recorrer intervalos sin volver a bajar por el árbol.
+ * Cada nodo ocupa una página y se divide cuando sus entradas codificadas ya no caben en ella.
+ * Las bajas quitan la entrada de su hoja sin fusionar nodos: el archivo no encoge, pero las altas
+ * posteriores reutilizan el hueco.
+ * <p>
+ * La página de la raíz se guarda en un valor de la cabecera del archivo. La clase no es segura entre hilos.
+ */
+final class BPlusTree {
+
+    /** Tamaño máximo de una clave más su valor, para que al dividir un nodo cada mitad quepa en una página. */
+    static final int MAX_ENTRY_SIZE = 1000;
+
+    /** Tipo de las páginas de hoja. */
+    private static final byte LEAF = 1;
+
+    /** Tipo de las páginas de nodo interno. */
+    private static final byte INTERNAL = 2;
+
+    /** Tamaño de la cabecera de un nodo: tipo, número de entradas y siguiente hoja o primer hijo. */
+    private static final int NODE_HEADER_SIZE = 1 + 2 + 4;
+
+    /** Archivo en el que se guardan los nodos. */
+    private final PageFile pages;
+
+    /** Posición de la cabecera del archivo en la que se guarda la página de la raíz. */
+    private final int rootSlot;
+
+    /**
+     * Recorrido de las entradas de un árbol.
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        /**
+         * Recibe una entrada del árbol.
+         *
+         * @param key   Clave de la entrada.
+         * @param value Valor de la entrada.
+         * @return {@code true} para seguir con la entrada siguiente; {@code false} para terminar el recorrido.
+         * @throws IOException Si ocurre un error al procesar la entrada.
+         */
+        boolean visit(byte[] key, byte[] value) throws IOException;
+    }
+
+    /**
+     * Abre el árbol cuya raíz se guarda en una posición de la cabecera, creándolo vacío si no existe.
+     *
+     * @param pages    Archivo de páginas.
+     * @param rootSlot Posición de la cabecera con la página de la raíz.
+     */
+    BPlusTree(PageFile pages, int rootSlot) {
+        this.pages = pages;
+        this.rootSlot = rootSlot;
+        if (pages.meta(rootSlot) == 0) {
+            int root = pages.allocate();
+            write(root, Node.leaf());
+            pages.setMeta(rootSlot, root);
+        }
+    }
+
+    /**
+     * Busca el valor de una clave.
+     *
+     * @param key Clave buscada.
+     * @return El valor, o {@code null} si la clave no está en el árbol.
+     * @throws IOException Si ocurre un error al leer las páginas.
+     */
+    byte[] get(byte[] key) throws IOException {
+        Node node = read(root());
+        while (!node.leaf) {
+            node = read(node.children.get(upperBound(node.keys, key)));
+        }
+        int index = search(node.keys, key);
+        return index >= 0 ? node.values.get(index) : null;
+    }
+
+    /**
+     * Guarda una clave con su valor, sustituyendo el valor anterior si la clave ya estaba.
+     *
+     * @param key   Clave.
+     * @param value Valor.
+     * @return {@code true} si la clave es nueva.
+     * @throws IOException Si ocurre un error al leer o escribir las páginas.
+     */
+    boolean put(byte[] key, byte[] value) throws IOException {
+        if (2 + key.length + 2 + value.length > MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException("Entrada demasiado grande: " + (key.length + value.length) + " bytes");
+        }
+        boolean[] added = new boolean[1];
+        int root = root();
+        Split split = insert(root, key, value, added);
+        if (split != null) {
+            // La raíz se ha dividido: la nueva raíz apunta a las dos mitades.
+            Node newRoot = Node.internal(root);
+            newRoot.keys.add(split.key);
+            newRoot.children.add(split.page);
+            int page = pages.allocate();
+            write(page, newRoot);
+            pages.setMeta(rootSlot, page);
+        }
+        return added[0];
+    }
+
+    /**
+     * Elimina una clave.
+     *
+     * @param key Clave a eliminar.
+     * @return {@code true} si la clave estaba en el árbol.
+     * @throws IOException Si ocurre un error al leer o escribir las páginas.
+     */
+    boolean remove(byte[] key) throws IOException {
+        int page = root();
+        Node node = read(page);
+        while (!node.leaf) {
+            page = node.children.get(upperBound(node.keys, key));
+            node = read(page);
+        }
+        int index = search(node.keys, key);
+        if (index < 0) {
+            return false;
+        }
+        node.keys.remove(index);
+        node.values.remove(index);
+        write(page, node);
+        return true;
+    }
+
+    /**
+     * Recorre en orden las entradas cuya clave está en el intervalo {@code [from, to)}.
+     *
+     * @param from    Primera clave (incluida), o {@code null} para empezar por la primera entrada.
+     * @param to      Última clave (excluida), o {@code null} para llegar hasta la última entrada.
+     * @param visitor Recorrido que recibe las entradas y puede terminarlo antes.
+     * @throws IOException Si ocurre un error al leer las páginas o al procesar una entrada.
+     */
+    void scan(byte[] from, byte[] to, EntryVisitor visitor) throws IOException {
+        Node node = read(root());
+        while (!node.leaf) {
+            node = read(node.children.get(from == null ? 0 : upperBound(node.keys, from)));
+        }
+        int index = from == null ? 0 : lowerBound(node.keys, from);
+        while (true) {
+            for (; index < node.keys.size(); index++) {
+                byte[] key = node.keys.get(index);
+                if (to != null && Arrays.compareUnsigned(key, to) >= 0) {
+                    return;
+                }
+                if (!visitor.visit(key, node.values.get(index))) {
+                    return;
+                }
+            }
+            if (node.next == 0) {
+                return;
+            }
+            node = read(node.next);
+            index = 0;
+        }
+    }
+
+    /**
+     * Inserta una entrada en el subárbol de una página y divide los nodos que dejan de caber.
+     *
+     * @param page  Página del subárbol.
+     * @param key   Clave.
+     * @param value Valor.
+     * @param added Recibe si la clave es nueva.
+     * @return La división del nodo de la página, o {@code null} si no se ha dividido.
+     * @throws IOException Si ocurre un error al leer o escribir las páginas.
+     */
+    private Split insert(int page, byte[] key, byte[] value, boolean[] added) throws IOException {
+        Node node = read(page);
+        if (node.leaf) {
+            int index = search(node.keys, key);
+            if (index >= 0) {
+                node.values.set(index, value);
+            } else {
+                index = -index - 1;
+                node.keys.add(index, key);
+                node.values.add(index, value);
+                added[0] = true;
+            }
+        } else {
+            int child = upperBound(node.keys, key);
+            Split split = insert(node.children.get(child), key, value, added);
+            if (split == null) {
+                return null;
+            }
+            node.keys.add(child, split.key);
+            node.children.add(child + 1, split.page);
+        }
+
+        if (node.encodedSize() <= PageFile.PAGE_SIZE) {
+            write(page, node);
+            return null;
+        }
+        return split(page, node);
+    }
+
+    /**
+     * Divide un nodo por la mitad de su tamaño codificado. Como cada entrada ocupa como mucho {@link #MAX_ENTRY_SIZE},
+     * las dos mitades caben en una página.
+     *
+     * @param page Página del nodo, que se queda con la primera mitad.
+     * @param node Nodo a dividir.
+     * @return La clave que separa las dos mitades y la página nueva con la segunda mitad.
+     */
+    private Split split(int page, Node node) {
+        int middle = node.splitPoint();
+        int rightPage = pages.allocate();
+        Node right;
+        byte[] separator;
+        if (node.leaf) {
+            right = Node.leaf();
+            right.keys.addAll(node.keys.subList(middle, node.keys.size()));
+            right.values.addAll(node.values.subList(middle, node.values.size()));
+            right.next = node.next;
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.values.subList(middle, node.values.size()).clear();
+            node.next = rightPage;
+            separator = right.keys.get(0);
+        } else {
+            // La clave central sube al padre y no se queda en ninguna de las dos mitades.
+            separator = node.keys.get(middle);
+            right = Node.internal(node.children.get(middle + 1));
+            right.keys.addAll(node.keys.subList(middle + 1, node.keys.size()));
+            right.children.addAll(node.children.subList(middle + 2, node.children.size()));
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.children.subList(middle + 1, node.children.size()).clear();
+        }
+        write(page, node);
+        write(rightPage, right);
+        return new Split(separator, rightPage);
+    }
+
+    /**
+     * Devuelve la página de la raíz.
+     *
+     * @return El número de la página.
+     */
+    private int root() {
+        return (int) pages.meta(rootSlot);
+    }
+
+    /**
+     * Lee y decodifica el nodo de una página.
+     *
+     * @param page Número de la página.
+     * @return El nodo.
+     * @throws IOException Si ocurre un error al leer la página o no contiene un nodo.
+     */
+    private Node read(int page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(pages.read(page));
+        byte type = buffer.get();
+        int count = Short.toUnsignedInt(buffer.getShort());
+        int link = buffer.getInt();
+        Node node;
+        if (type == LEAF) {
+            node = Node.leaf();
+            node.next = link;
+        } else if (type == INTERNAL) {
+            node = Node.internal(link);
+        } else {
+            throw new IOException("Página " + page + " dañada: tipo de nodo " + type);
+        }
+
+        for (int i = 0; i < count; i++) {
+            node.keys.add(readBytes(buffer));
+            if (node.leaf) {
+                node.values.add(readBytes(buffer));
+            } else {
+                node.children.add(buffer.getInt());
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Codifica un nodo y lo escribe en una página.
+     *
+     * @param page Número de la página.
+     * @param node Nodo.
+     */
+    private void write(int page, Node node) {
+        ByteBuffer buffer = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        buffer.put(node.leaf ? LEAF : INTERNAL)
+                .putShort((short) node.keys.size())
+                .putInt(node.leaf ? node.next : node.children.get(0));
+        for (int i = 0; i < node.keys.size(); i++) {
+            writeBytes(buffer, node.keys.get(i));
+            if (node.leaf) {
+                writeBytes(buffer, node.values.get(i));
+            } else {
+                buffer.putInt(node.children.get(i + 1));
+            }
+        }
+        pages.write(page, buffer.array());
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Busca una clave en una lista ordenada.
+     *
+     * @return La posición de la clave, o {@code -(posición de inserción) - 1} si no está.
+     */
+    private static int search(List<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Arrays.compareUnsigned(keys.get(middle), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Devuelve la posición de la primera clave mayor o igual que la indicada.
+     */
+    private static int lowerBound(List<byte[]> keys, byte[] key) {
+        int index = search(keys, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Devuelve la posición de la primera clave mayor que la indicada, que en un nodo interno
+     * es la del hijo que contiene la clave.
+     */
+    private static int upperBound(List<byte[]> keys, byte[] key) {
+        int index = search(keys, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Resultado de dividir un nodo.
+     *
+     * @param key  Primera clave de la segunda mitad, que se añade al padre.
+     * @param page Página de la segunda mitad.
+     */
+    private record Split(byte[] key, int page) {
+    }
+
+    /**
+     * Nodo decodificado. Las hojas tienen una lista de valores y la siguiente hoja;
+     * los nodos internos tienen un hijo más que claves.
+     */
+    private static final class Node {
+
+        /** Indica si el nodo es una hoja. */
+        private final boolean leaf;
+
+        /** Claves del nodo, en orden. */
+        private final List<byte[]> keys = new ArrayList<>();
+
+        /** Valores de una hoja, en el orden de sus claves. */
+        private final List<byte[]> values = new ArrayList<>();
+
+        /** Páginas de los hijos de un nodo interno. */
+        private final List<Integer> children = new ArrayList<>();
+
+        /** Página de la hoja siguiente, o 0 si es la última. */
+        private int next;
+
+        private Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        static Node leaf() {
+            return new Node(true);
+        }
+
+        static Node internal(int firstChild) {
+            Node node = new Node(false);
+            node.children.add(firstChild);
+            return node;
+        }
+
+        /**
+         * Devuelve el tamaño del nodo codificado.
+         *
+         * @return El tamaño, en bytes.
+         */
+        int encodedSize() {
+            int size = NODE_HEADER_SIZE;
+            for (int i = 0; i < keys.size(); i++) {
+                size += entrySize(i);
+            }
+            return size;
+        }
+
+        /**
+         * Devuelve la posición de la primera entrada de la segunda mitad al dividir el nodo: la primera
+         * en la que las anteriores ocupan al menos la mitad del nodo, sin dejar vacía ninguna de las dos mitades.
+         *
+         * @return La posición, entre 1 y el número de entradas menos 1.
+         */
+        int splitPoint() {
+            int half = encodedSize() / 2;
+            int size = NODE_HEADER_SIZE;
+            int index = 0;
+            while (index < keys.size() - 2 && size < half) {
+                size += entrySize(index++);
+            }
+            return Math.max(index, 1);
+        }
+
+        private int entrySize(int index) {
+            return 2 + keys.get(index).length + (leaf ? 2 + values.get(index).length : 4);
+        }
+    }
+}
@@ -1,17 +1,39 @@
 package com.ivanferrerfranco.flightsfx.utils;
 
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
 import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightDateCodec;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
 
+import java.io.BufferedReader;
 import java.io.FileWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 
 /**
  * Clase de utilidad para manejar la lectura y escritura de datos de vuelos en un archivo.
@@ -19,9 +41,57 @@ import java.util.List;
  */
 public class FileUtils {
 
+    /** Registro de los errores al cargar y guardar los archivos de vuelos. */
+    private static final System.Logger LOGGER = System.getLogger(FileUtils.class.getName());
+
     /** Ruta del archivo donde se almacenan los datos de los vuelos. */
     private static final String FILE_PATH = "flights.txt";
 
+    /** Ruta de la instantánea binaria que se carga al arrancar si está al día con el archivo de texto. */
+    private static final String SNAPSHOT_PATH = "flights.bin";
+
+    /** Ruta del diario con las altas y bajas posteriores a la última compactación. */
+    private static final String JOURNAL_PATH = "flights.journal";
+
+    /** Tamaño del búfer de lectura, en caracteres. */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Separador de campos del archivo de vuelos. */
+    static final char SEPARATOR = ';';
+
+    /** Separador de campos de los archivos CSV que se importan y exportan. */
+    static final char CSV_SEPARATOR = ',';
+
+    /** Número de vuelos de cada lote que se entrega mientras se carga el archivo de texto. */
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    /** Tamaño a partir del cual el archivo de texto de la aplicación se carga en paralelo, en bytes. */
+    private static final long PARALLEL_LOAD_THRESHOLD = 64L * 1024 * 1024;
+
+    /** Tiempo de lectura de los archivos de texto. */
+    private static final LatencyHistogram TEXT_LOAD_TIME = FlightMetrics.histogram("file.load.text");
+
+    /** Tiempo de lectura de las instantáneas binarias. */
+    private static final LatencyHistogram SNAPSHOT_LOAD_TIME = FlightMetrics.histogram("file.load.snapshot");
+
+    /** Tiempo de escritura de los archivos de texto. */
+    private static final LatencyHistogram TEXT_SAVE_TIME = FlightMetrics.histogram("file.save.text");
+
+    /** Tiempo de escritura de las instantáneas binarias. */
+    private static final LatencyHistogram SNAPSHOT_SAVE_TIME = FlightMetrics.histogram("file.save.snapshot");
+
+    /** Bytes leídos de los archivos de vuelos, de texto o binarios. */
+    static final LongAdder BYTES_READ = FlightMetrics.counter("file.read.bytes");
+
+    /** Bytes escritos en los archivos de vuelos, de texto o binarios. */
+    static final LongAdder BYTES_WRITTEN = FlightMetrics.counter("file.write.bytes");
+
+    /** Líneas de texto convertidas en vuelos. */
+    static final LongAdder ROWS_PARSED = FlightMetrics.counter("rows.parsed");
+
+    /** Líneas de texto saltadas por tener un formato incorrecto. */
+    static final LongAdder ROWS_REJECTED = FlightMetrics.counter("rows.rejected");
+
     /**
      * Constructor de la clase FileUtils.
      * Este constructor es utilizado para manejar la lectura y escritura de archivos relacionados con los vuelos.
@@ -32,52 +102,486 @@ public class FileUtils {
     }
 
     /**
-     * Método para cargar una lista de vuelos desde un archivo de texto.
-     * Cada línea del archivo debe estar en el formato: `FlightNumber;Destination;DepartureDateTime;Duration`.
+     * Método para cargar la lista de vuelos de la aplicación.
+     * Si existe una instantánea binaria que no es más antigua que el archivo de texto, se carga
+     * directamente de ella; en caso contrario se interpreta el archivo de texto, cuyas líneas tienen
+     * el formato: `FlightNumber;Destination;DepartureDateTime;Duration`. Después se aplican las
+     * operaciones del diario que todavía no se han compactado.
      *
      * @return Una lista de objetos {@link Flight} cargados desde el archivo. Si el archivo no existe
      *         o no se puede leer, se devuelve una lista vacía.
      */
     public static List<Flight> loadFlights() {
-        // Lista para almacenar los vuelos cargados desde el archivo.
+        return loadFlights(batch -> { }, fraction -> { });
+    }
+
+    /**
+     * Carga la lista de vuelos de la aplicación igual que {@link #loadFlights()}, entregando los vuelos
+     * por lotes según se leen para poder mostrarlos antes de que termine la carga.
+     * <p>
+     * Los lotes contienen los vuelos de la instantánea o del archivo de texto en su orden; las operaciones
+     * del diario se aplican al final, solo sobre la lista devuelta. Cada lote es una lista nueva que
+     * no se vuelve a modificar, por lo que se puede pasar a otro hilo.
+     *
+     * @param batches  Consumidor que recibe cada lote de vuelos leídos, en el hilo que carga.
+     * @param progress Consumidor que recibe la fracción leída, entre 0 y 1.
+     * @return Una lista modificable con todos los vuelos, diario incluido.
+     */
+    public static List<Flight> loadFlights(Consumer<List<Flight>> batches, DoubleConsumer progress) {
+        BaseFlights base = loadBaseFlights(baseFile(), batches, progress);
+        List<Flight> flights = base.flights();
+
+        try {
+            // Restaurar los cambios registrados en el diario desde la última compactación, comprobando
+            // que parte del archivo que se ha cargado de verdad y no del que se eligió antes de leerlo.
+            FlightJournal.replay(flights, Paths.get(JOURNAL_PATH), base.file());
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al leer el diario de vuelos", e);
+        }
+
+        return flights;
+    }
+
+    /**
+     * Devuelve la ruta del archivo de texto con los vuelos de la aplicación.
+     *
+     * @return La ruta del archivo de vuelos.
+     */
+    public static Path getFlightsPath() {
+        return Paths.get(FILE_PATH);
+    }
+
+    /**
+     * Devuelve la ruta de la instantánea binaria con los vuelos de la aplicación.
+     *
+     * @return La ruta de la instantánea.
+     */
+    public static Path getSnapshotPath() {
+        return Paths.get(SNAPSHOT_PATH);
+    }
+
+    /**
+     * Abre el diario en el que se registran las altas y bajas de vuelos de la aplicación.
+     *
+     * @return El diario, listo para registrar operaciones.
+     * @throws IOException Si el diario no se puede abrir.
+     */
+    public static FlightJournal openJournal() throws IOException {
+        return new FlightJournal(Paths.get(JOURNAL_PATH), Paths.get(SNAPSHOT_PATH), Paths.get(FILE_PATH), baseFile());
+    }
+
+    /**
+     * Vuelos cargados sin aplicar el diario, junto con el archivo del que se han leído.
+     *
+     * @param flights Lista modificable con los vuelos cargados.
+     * @param file    Archivo del que se han leído, o {@code null} si no existía ninguno.
+     */
+    private record BaseFlights(List<Flight> flights, Path file) {
+    }
+
+    /**
+     * Carga los vuelos del archivo indicado, recurriendo al archivo de texto si la instantánea no se puede leer.
+     * La instantánea se entrega en un único lote; el archivo de texto, en lotes según se lee.
+     * <p>
+     * Una instantánea que no se puede leer, por ejemplo de una versión anterior del formato, se aparta
+     * con la extensión {@code .unreadable}: así {@link #baseFile()} elige a partir de entonces el archivo de texto
+     * y el diario que se abra después parte del mismo archivo que se ha cargado.
+     *
+     * @param base     Archivo devuelto por {@link #baseFile()}.
+     * @param batches  Consumidor que recibe cada lote de vuelos leídos.
+     * @param progress Consumidor que recibe la fracción leída, entre 0 y 1.
+     * @return Los vuelos cargados y el archivo del que se han leído realmente.
+     */
+    private static BaseFlights loadBaseFlights(Path base, Consumer<List<Flight>> batches, DoubleConsumer progress) {
+        Path textPath = Paths.get(FILE_PATH);
+        if (base == null) {
+            progress.accept(1);
+            return new BaseFlights(new ArrayList<>(), null);
+        }
+
+        if (!base.equals(textPath)) {
+            try {
+                List<Flight> flights = loadSnapshot(base);
+                batches.accept(new ArrayList<>(flights));
+                progress.accept(1);
+                return new BaseFlights(flights, base);
+            } catch (IOException | IllegalArgumentException e) {
+                // Si la instantánea no se puede leer, se recurre al archivo de texto.
+                LOGGER.log(System.Logger.Level.ERROR, "Error al cargar la instantánea", e);
+                setAsideUnreadable(base);
+            }
+        }
+
+        if (Files.notExists(textPath)) {
+            progress.accept(1);
+            return new BaseFlights(new ArrayList<>(), null);
+        }
+        return new BaseFlights(loadFlights(textPath, batches, progress), textPath);
+    }
+
+    /**
+     * Renombra una instantánea que no se puede leer para que deje de elegirse como archivo base, sin borrarla.
+     *
+     * @param snapshot Ruta de la instantánea.
+     */
+    private static void setAsideUnreadable(Path snapshot) {
+        try {
+            Files.move(snapshot, snapshot.resolveSibling(snapshot.getFileName() + ".unreadable"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al apartar la instantánea que no se puede leer", e);
+        }
+    }
+
+    /**
+     * Carga los vuelos de un archivo de texto entregándolos por lotes según se leen.
+     * A partir de {@link #PARALLEL_LOAD_THRESHOLD} bytes, el archivo se interpreta en paralelo con
+     * {@link #loadFlightsParallel(Path)} y los lotes se entregan al terminar la lectura.
+     *
+     * @param path     Ruta del archivo de texto con los vuelos.
+     * @param batches  Consumidor que recibe cada lote de vuelos leídos.
+     * @param progress Consumidor que recibe la fracción leída, entre 0 y 1.
+     * @return Una lista modificable con todos los vuelos. Si el archivo no se puede leer,
+     *         se devuelven los vuelos leídos hasta el error.
+     */
+    private static List<Flight> loadFlights(Path path, Consumer<List<Flight>> batches, DoubleConsumer progress) {
         List<Flight> flights = new ArrayList<>();
+        List<Flight> batch = new ArrayList<>(LOAD_BATCH_SIZE);
 
         try {
-            // Leer todas las líneas del archivo y omitir las líneas vacías o incorrectas.
-            List<String> lines = Files.readAllLines(Paths.get(FILE_PATH))
-                    .stream()
-                    .skip(1) // Omitir la cabecera del archivo (la primera línea).
-                    .filter(line -> !line.isBlank()) // Ignorar líneas vacías.
-                    .toList();
-
-            // Procesar cada línea para crear objetos Flight.
-            for (String line : lines) {
-                String[] parts = line.split(";"); // Dividir la línea en partes usando el separador ";".
-
-                // Validar que la línea tenga el número correcto de campos.
-                if (parts.length != 4) {
-                    System.out.println("Línea con formato incorrecto: " + line);
-                    continue; // Saltar esta línea y continuar con las demás.
+            long size = Files.size(path);
+            if (size >= PARALLEL_LOAD_THRESHOLD) {
+                return loadFlightsInParallel(path, batches, progress);
+            }
+            scanFlights(path, flight -> {
+                flights.add(flight);
+                batch.add(flight);
+                if (batch.size() == LOAD_BATCH_SIZE) {
+                    batches.accept(new ArrayList<>(batch));
+                    batch.clear();
                 }
+                return true;
+            }, line -> LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", line),
+                    bytes -> progress.accept(size == 0 ? 1 : Math.min(1, (double) bytes / size)));
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al cargar los vuelos", e);
+        }
 
-                // Extraer los datos del vuelo.
-                String flightNumber = parts[0]; // Número del vuelo.
-                String destination = parts[1]; // Destino del vuelo.
-                LocalDateTime departureDateTime = LocalDateTime.parse(parts[2], DateTimeFormatter.ofPattern("dd/MM/yy HH:mm")); // Fecha y hora de salida.
-                LocalTime duration = LocalTime.parse(parts[3]); // Duración del vuelo.
+        if (!batch.isEmpty()) {
+            batches.accept(batch);
+        }
+        progress.accept(1);
+        return flights;
+    }
+
+    /**
+     * Carga los vuelos de un archivo de texto grande en paralelo y los entrega por lotes, en el orden del archivo.
+     *
+     * @param path     Ruta del archivo de texto con los vuelos.
+     * @param batches  Consumidor que recibe cada lote de vuelos leídos.
+     * @param progress Consumidor que recibe la fracción leída, entre 0 y 1.
+     * @return Una lista modificable con todos los vuelos.
+     * @throws IOException Si ocurre un error al abrir o proyectar el archivo.
+     */
+    private static List<Flight> loadFlightsInParallel(Path path, Consumer<List<Flight>> batches,
+                                                      DoubleConsumer progress) throws IOException {
+        LoadResult result = loadFlightsParallel(path);
+        for (LoadResult.LoadError error : result.errors()) {
+            LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", error.line());
+        }
+        // La lista del cargador es modificable y no se comparte, así que se devuelve sin copiarla.
+        List<Flight> flights = result.flights();
+        for (int from = 0; from < flights.size(); from += LOAD_BATCH_SIZE) {
+            batches.accept(new ArrayList<>(flights.subList(from, Math.min(flights.size(), from + LOAD_BATCH_SIZE))));
+        }
+        progress.accept(1);
+        return flights;
+    }
 
-                // Crear un objeto Flight y agregarlo a la lista.
-                flights.add(new Flight(flightNumber, destination, departureDateTime, duration));
+    /**
+     * Decide de qué archivo se cargan los vuelos: la instantánea, si no es más antigua que
+     * el archivo de texto, o el archivo de texto en caso contrario.
+     *
+     * @return La ruta del archivo elegido, o {@code null} si no existe ninguno de los dos.
+     */
+    static Path baseFile() {
+        Path textPath = Paths.get(FILE_PATH);
+        Path snapshotPath = Paths.get(SNAPSHOT_PATH);
+
+        try {
+            // Usar la instantánea solo si refleja los últimos cambios del archivo de texto.
+            if (Files.exists(snapshotPath) && (Files.notExists(textPath)
+                    || Files.getLastModifiedTime(snapshotPath).compareTo(Files.getLastModifiedTime(textPath)) >= 0)) {
+                return snapshotPath;
             }
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al comprobar la instantánea", e);
+        }
+
+        return Files.exists(textPath) ? textPath : null;
+    }
+
+    /**
+     * Método para cargar una lista de vuelos desde un archivo de texto concreto.
+     * El archivo se lee en streaming, de modo que la memoria utilizada es proporcional
+     * al número de vuelos cargados y no al tamaño del archivo.
+     *
+     * @param path Ruta del archivo de texto con los vuelos.
+     * @return Una lista de objetos {@link Flight} cargados desde el archivo. Si el archivo no existe
+     *         o no se puede leer, se devuelve una lista vacía.
+     */
+    public static List<Flight> loadFlights(Path path) {
+        // Lista para almacenar los vuelos cargados desde el archivo.
+        List<Flight> flights = new ArrayList<>();
+
+        try {
+            forEachFlight(path, flights::add);
         } catch (IOException e) {
             // Capturar y mostrar cualquier error ocurrido al leer el archivo.
-            System.out.println("Error al cargar los vuelos: " + e.getMessage());
+            LOGGER.log(System.Logger.Level.ERROR, "Error al cargar los vuelos", e);
         }
 
         // Devolver la lista de vuelos cargados.
         return flights;
     }
 
+    /**
+     * Recorre un archivo de vuelos línea a línea y entrega cada vuelo al consumidor según se va leyendo.
+     * La lectura se hace con un búfer de tamaño fijo y sin cargar el archivo completo en memoria.
+     * Las líneas vacías se ignoran y las líneas con formato incorrecto se notifican y se saltan.
+     *
+     * @param path     Ruta del archivo de texto con los vuelos.
+     * @param consumer Consumidor que recibe cada vuelo en el orden del archivo.
+     * @return El número de vuelos entregados al consumidor.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long forEachFlight(Path path, Consumer<Flight> consumer) throws IOException {
+        return scanFlights(path, flight -> {
+            consumer.accept(flight);
+            return true;
+        }, line -> LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", line));
+    }
+
+    /**
+     * Recorre un archivo de vuelos línea a línea mientras la acción lo indique.
+     * El separador de campos se deduce de la cabecera, por lo que también admite archivos CSV.
+     * Permite detener la lectura en cuanto se tienen los vuelos necesarios, sin leer el resto del archivo.
+     *
+     * @param path         Ruta del archivo de texto con los vuelos.
+     * @param action       Acción que recibe cada vuelo en el orden del archivo; devuelve {@code false} para detener la lectura.
+     * @param invalidLines Consumidor que recibe las líneas con formato incorrecto, que se saltan.
+     * @return El número de vuelos entregados a la acción.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long scanFlights(Path path, Predicate<? super Flight> action, Consumer<String> invalidLines) throws IOException {
+        return scanFlights(path, action, invalidLines, bytes -> { });
+    }
+
+    /**
+     * Recorre un archivo de vuelos línea a línea mientras la acción lo indique, informando de los bytes leídos.
+     *
+     * @param path         Ruta del archivo de texto con los vuelos.
+     * @param action       Acción que recibe cada vuelo en el orden del archivo; devuelve {@code false} para detener la lectura.
+     * @param invalidLines Consumidor que recibe las líneas con formato incorrecto, que se saltan.
+     * @param bytesRead    Consumidor que recibe el número total de bytes leídos del archivo cada vez que se lee un bloque.
+     * @return El número de vuelos entregados a la acción.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     * @see #scanFlights(Path, Predicate, Consumer)
+     */
+    static long scanFlights(Path path, Predicate<? super Flight> action, Consumer<String> invalidLines,
+                            LongConsumer bytesRead) throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        long rejected = 0;
+        long[] totalBytes = new long[1];
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(path), bytes -> {
+                    totalBytes[0] = bytes;
+                    bytesRead.accept(bytes);
+                }), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            // Leer la cabecera del archivo (la primera línea) para conocer el separador.
+            String line = reader.readLine();
+            if (line == null) {
+                return 0;
+            }
+            char separator = separatorOf(line);
+
+            while ((line = reader.readLine()) != null) {
+                // Ignorar líneas vacías.
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                Flight flight;
+                try {
+                    flight = parseFlight(line, separator);
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    // Saltar esta línea y continuar con las demás.
+                    rejected++;
+                    invalidLines.accept(line);
+                    continue;
+                }
+                count++;
+                if (!action.test(flight)) {
+                    break;
+                }
+            }
+        } finally {
+            // Las métricas se actualizan una sola vez por archivo para no añadir coste a cada línea.
+            TEXT_LOAD_TIME.recordSince(start);
+            BYTES_READ.add(totalBytes[0]);
+            ROWS_PARSED.add(count);
+            ROWS_REJECTED.add(rejected);
+        }
+
+        return count;
+    }
+
+    /**
+     * Carga los vuelos de un archivo proyectándolo en memoria e interpretándolo en paralelo
+     * en el pool común de fork-join.
+     *
+     * @param path Ruta del archivo de texto con los vuelos.
+     * @return Los vuelos en el orden del archivo y las líneas con formato incorrecto.
+     * @throws IOException Si ocurre un error al abrir o proyectar el archivo.
+     * @see #loadFlightsParallel(Path, ForkJoinPool)
+     */
+    public static LoadResult loadFlightsParallel(Path path) throws IOException {
+        return loadFlightsParallel(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Carga los vuelos de un archivo proyectándolo en memoria con {@link java.nio.channels.FileChannel#map}
+     * y dividiéndolo en bloques alineados a fin de línea que se interpretan en paralelo.
+     * <p>
+     * A diferencia de {@link #loadFlights(Path)}, las líneas con formato incorrecto no se escriben
+     * en la consola, sino que se devuelven en {@link LoadResult#errors()}.
+     *
+     * @param path Ruta del archivo de texto con los vuelos.
+     * @param pool Pool de fork-join en el que se procesan los bloques.
+     * @return Los vuelos en el orden del archivo y las líneas con formato incorrecto.
+     * @throws IOException Si ocurre un error al abrir o proyectar el archivo.
+     */
+    public static LoadResult loadFlightsParallel(Path path, ForkJoinPool pool) throws IOException {
+        return MappedFlightLoader.load(path, pool);
+    }
+
+    /**
+     * Convierte una línea del archivo en un objeto {@link Flight}.
+     * Los campos se localizan en una sola pasada buscando el separador ";", sin expresiones regulares.
+     * Una fecha de salida o una duración vacías se interpretan como {@code null}.
+     *
+     * @param line Línea con el formato `FlightNumber;Destination;DepartureDateTime;Duration`.
+     * @return El vuelo representado por la línea.
+     * @throws IllegalArgumentException Si la línea no tiene exactamente cuatro campos.
+     * @throws DateTimeException        Si la fecha de salida o la duración no son válidas.
+     */
+    static Flight parseFlight(String line) {
+        return parseFlight(line, SEPARATOR);
+    }
+
+    /**
+     * Convierte una línea con los campos separados por un carácter concreto en un objeto {@link Flight}.
+     *
+     * @param line      Línea con los campos del vuelo.
+     * @param separator Separador de los campos, {@code ;} en el archivo de vuelos o {@code ,} en CSV.
+     * @return El vuelo representado por la línea.
+     * @throws IllegalArgumentException Si la línea no tiene exactamente cuatro campos.
+     * @throws DateTimeException        Si la fecha de salida o la duración no son válidas.
+     * @see #parseFlight(String)
+     */
+    static Flight parseFlight(String line, char separator) {
+        // Localizar los tres separadores de la línea.
+        int first = line.indexOf(separator);
+        int second = first < 0 ? -1 : line.indexOf(separator, first + 1);
+        int third = second < 0 ? -1 : line.indexOf(separator, second + 1);
+
+        // Validar que la línea tenga el número correcto de campos.
+        if (third < 0 || line.indexOf(separator, third + 1) >= 0) {
+            throw new IllegalArgumentException("Número de campos incorrecto");
+        }
+
+        // Extraer los datos del vuelo.
+        String flightNumber = line.substring(0, first); // Número del vuelo.
+        String destination = line.substring(first + 1, second); // Destino del vuelo.
+        // La fecha y la duración se leen directamente de la línea, sin extraer subcadenas; un campo vacío es un valor nulo.
+        LocalDateTime departureDateTime = third == second + 1 ? null
+                : FlightStore.fromEpochMinutes(FlightDateCodec.parseDateTime(line, second + 1, third)); // Fecha y hora de salida.
+        LocalTime duration = third == line.length() - 1 ? null
+                : FlightStore.fromMinutes((short) FlightDateCodec.parseDuration(line, third + 1, line.length())); // Duración del vuelo.
+
+        return new Flight(flightNumber, destination, departureDateTime, duration);
+    }
+
+    /**
+     * Convierte un vuelo en una línea con el formato del archivo de texto.
+     *
+     * @param flight Vuelo a convertir.
+     * @return La línea `FlightNumber;Destination;DepartureDateTime;Duration`, sin salto de línea.
+     */
+    static String formatFlight(Flight flight) {
+        return formatFlight(flight, SEPARATOR);
+    }
+
+    /**
+     * Convierte un vuelo en una línea con los campos separados por un carácter concreto.
+     *
+     * @param flight    Vuelo a convertir.
+     * @param separator Separador de los campos.
+     * @return La línea con los cuatro campos del vuelo, sin salto de línea. Los campos nulos se dejan vacíos,
+     *         igual que los interpreta {@link #parseFlight(String, char)}.
+     */
+    public static String formatFlight(Flight flight, char separator) {
+        StringBuilder line = new StringBuilder(48);
+        if (flight.getFlightNumber() != null) {
+            line.append(flight.getFlightNumber());
+        }
+        line.append(separator);
+        if (flight.getDestination() != null) {
+            line.append(flight.getDestination());
+        }
+        line.append(separator);
+        if (flight.getDepartureDateTime() != null) {
+            FlightDateCodec.appendDateTime(line, FlightStore.toEpochMinutes(flight.getDepartureDateTime()));
+        }
+        line.append(separator);
+        if (flight.getDuration() != null) {
+            FlightDateCodec.appendDuration(line, FlightStore.toMinutes(flight.getDuration()));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Devuelve la cabecera del archivo de vuelos con los campos separados por un carácter concreto.
+     *
+     * @param separator Separador de los campos.
+     * @return La cabecera, sin salto de línea.
+     */
+    public static String formatHeader(char separator) {
+        return "FlightNumber" + separator + "Destination" + separator + "DepartureDateTime" + separator + "Duration";
+    }
+
+    /**
+     * Deduce el separador de campos de un archivo a partir de su cabecera.
+     *
+     * @param header Primera línea del archivo.
+     * @return {@code ;} si la cabecera lo contiene, o {@code ,} en otro caso.
+     */
+    static char separatorOf(String header) {
+        return header.indexOf(SEPARATOR) >= 0 ? SEPARATOR : CSV_SEPARATOR;
+    }
+
+    /**
+     * Elige el separador de campos de un archivo exportado según su extensión.
+     *
+     * @param path Ruta del archivo.
+     * @return {@code ,} si el archivo tiene extensión {@code .csv}, o {@code ;} en otro caso.
+     */
+    public static char separatorFor(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV_SEPARATOR : SEPARATOR;
+    }
+
     /**
      * Método para guardar una lista de vuelos en un archivo de texto.
      * Cada vuelo se guarda como una línea en el archivo en el formato: `FlightNumber;Destination;DepartureDateTime;Duration`.
@@ -85,20 +589,301 @@ public class FileUtils {
      * @param flights Lista de objetos {@link Flight} que se guardarán en el archivo.
      */
     public static void saveFlights(List<Flight> flights) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(FILE_PATH))) {
-            // Escribir la cabecera del archivo para describir los campos.
-            writer.println("FlightNumber;Destination;DepartureDateTime;Duration");
+        saveFlights(flights, Paths.get(FILE_PATH));
+    }
+
+    /**
+     * Método para exportar una lista de vuelos a un archivo de texto concreto.
+     * Cada vuelo se guarda como una línea en el archivo en el formato: `FlightNumber;Destination;DepartureDateTime;Duration`.
+     *
+     * @param flights Lista de objetos {@link Flight} que se guardarán en el archivo.
+     * @param path    Ruta del archivo de texto de destino.
+     */
+    public static void saveFlights(List<Flight> flights, Path path) {
+        long start = System.nanoTime();
+        Path temporary = temporaryPathOf(path);
+        try {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(temporary.toFile()))) {
+                // Escribir la cabecera del archivo para describir los campos.
+                writer.println(formatHeader(SEPARATOR));
+
+                // Escribir cada vuelo como una línea en el archivo.
+                for (Flight flight : flights) {
+                    writer.println(formatFlight(flight));
+                }
+            }
+            BYTES_WRITTEN.add(Files.size(temporary));
+            // Sustituir el archivo anterior solo cuando el nuevo está completo.
+            replaceAtomically(temporary, path);
+            TEXT_SAVE_TIME.recordSince(start);
+        } catch (IOException e) {
+            // Capturar y mostrar cualquier error ocurrido al guardar el archivo.
+            LOGGER.log(System.Logger.Level.ERROR, "Error al guardar los vuelos", e);
+        }
+    }
+
+    /**
+     * Añade un vuelo al final de un archivo de texto sin reescribirlo, y espera a que esté en disco.
+     * Si el archivo no existe o está vacío, se escribe antes la cabecera. El separador es el de la cabecera
+     * del archivo, o el de su extensión si es nuevo.
+     *
+     * @param path   Ruta del archivo de texto con los vuelos.
+     * @param flight Vuelo a añadir.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    public static void appendFlight(Path path, Flight flight) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            StringBuilder text = new StringBuilder(64);
+            long size = channel.size();
+            char separator;
+            if (size == 0) {
+                separator = separatorFor(path);
+                text.append(formatHeader(separator)).append(System.lineSeparator());
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    separator = separatorOf(reader.readLine());
+                }
+                // Empezar en una línea nueva si la última del archivo no termina en salto de línea.
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n') {
+                    text.append(System.lineSeparator());
+                }
+            }
+            text.append(formatFlight(flight, separator)).append(System.lineSeparator());
+
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            BYTES_WRITTEN.add(bytes.remaining());
+            while (bytes.hasRemaining()) {
+                size += channel.write(bytes, size);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Elimina de un archivo de texto los vuelos que cumplen una condición, copiando el resto de líneas
+     * tal cual a un archivo temporal que sustituye al original. El archivo se recorre sin cargarlo en memoria
+     * y las líneas con formato incorrecto se conservan.
+     *
+     * @param path    Ruta del archivo de texto con los vuelos.
+     * @param removed Condición de los vuelos a eliminar.
+     * @return El número de vuelos eliminados; si es 0, el archivo no se modifica.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    public static long removeFlights(Path path, Predicate<? super Flight> removed) throws IOException {
+        long start = System.nanoTime();
+        Path temporary = temporaryPathOf(path);
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null) {
+                return 0;
+            }
+            char separator = separatorOf(line);
+            writer.println(line);
 
-            // Escribir cada vuelo como una línea en el archivo.
-            for (Flight flight : flights) {
-                writer.println(flight.getFlightNumber() + ";" +
-                        flight.getDestination() + ";" +
-                        flight.getDepartureDateTime().format(DateTimeFormatter.ofPattern("dd/MM/yy HH:mm")) + ";" +
-                        flight.getDuration());
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    try {
+                        if (removed.test(parseFlight(line, separator))) {
+                            count++;
+                            continue;
+                        }
+                    } catch (IllegalArgumentException | DateTimeException e) {
+                        // Conservar la línea: no es un vuelo que se pueda eliminar.
+                    }
+                }
+                writer.println(line);
+            }
+        } finally {
+            if (count == 0) {
+                Files.deleteIfExists(temporary);
             }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        BYTES_WRITTEN.add(Files.size(temporary));
+        replaceAtomically(temporary, path);
+        TEXT_SAVE_TIME.recordSince(start);
+        return count;
+    }
+
+    /**
+     * Carga los vuelos de una instantánea binaria generada con {@link #saveSnapshot(List, Path)}.
+     * El archivo se lee de una vez en un búfer directo y las columnas se recorren sin copias intermedias.
+     *
+     * @param path Ruta de la instantánea.
+     * @return Los vuelos de la instantánea, en el orden en el que se guardaron.
+     * @throws IOException              Si ocurre un error al leer el archivo.
+     * @throws IllegalArgumentException Si el archivo no es una instantánea válida o su versión no es compatible.
+     */
+    public static List<Flight> loadSnapshot(Path path) throws IOException {
+        return loadSnapshotStore(path).toList();
+    }
+
+    /**
+     * Carga una instantánea binaria en un almacén por columnas, sin construir un {@link Flight} por vuelo.
+     * Es la forma de cargar conjuntos de datos muy grandes con un consumo de memoria reducido.
+     *
+     * @param path Ruta de la instantánea.
+     * @return El almacén con los vuelos de la instantánea, en el orden en el que se guardaron.
+     * @throws IOException              Si ocurre un error al leer el archivo.
+     * @throws IllegalArgumentException Si el archivo no es una instantánea válida, está truncado o corrupto,
+     *                                  o su versión no es compatible.
+     */
+    public static FlightStore loadSnapshotStore(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("La instantánea es demasiado grande: " + channel.size() + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Leer hasta completar el búfer o llegar al final del archivo.
+            }
+            BYTES_READ.add(buffer.position());
+            FlightStore store = FlightSnapshotCodec.decodeStore(buffer.flip());
+            SNAPSHOT_LOAD_TIME.recordSince(start);
+            return store;
+        }
+    }
+
+    /**
+     * Guarda la lista de vuelos en la instantánea binaria por defecto.
+     * Es el formato que se usa al cerrar la aplicación, ya que es mucho más rápido de leer que el texto.
+     *
+     * @param flights Lista de objetos {@link Flight} que se guardarán.
+     */
+    public static void saveSnapshot(List<Flight> flights) {
+        try {
+            saveSnapshot(flights, Paths.get(SNAPSHOT_PATH));
         } catch (IOException e) {
             // Capturar y mostrar cualquier error ocurrido al guardar el archivo.
-            System.out.println("Error al guardar los vuelos: " + e.getMessage());
+            LOGGER.log(System.Logger.Level.ERROR, "Error al guardar la instantánea", e);
+        }
+    }
+
+    /**
+     * Guarda la lista de vuelos en una instantánea binaria con cabecera versionada.
+     * Los números de vuelo y los destinos se codifican con diccionario, la salida en minutos
+     * desde la época y la duración en minutos. La instantánea se escribe en un archivo temporal
+     * que sustituye al anterior de forma atómica, por lo que nunca queda a medio escribir.
+     *
+     * @param flights Lista de objetos {@link Flight} que se guardarán.
+     * @param path    Ruta de la instantánea.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    public static void saveSnapshot(List<Flight> flights, Path path) throws IOException {
+        writeSnapshot(FlightSnapshotCodec.encode(flights), path);
+    }
+
+    /**
+     * Guarda un almacén de vuelos por columnas en una instantánea binaria.
+     *
+     * @param store Almacén con los vuelos que se guardarán.
+     * @param path  Ruta de la instantánea.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     * @see #saveSnapshot(List, Path)
+     */
+    public static void saveSnapshot(FlightStore store, Path path) throws IOException {
+        writeSnapshot(FlightSnapshotCodec.encode(store), path);
+    }
+
+    /**
+     * Escribe una instantánea ya codificada, sustituyendo la anterior de forma atómica.
+     * Permite conocer el contenido exacto de la instantánea antes de escribirla, por ejemplo para identificarla.
+     *
+     * @param buffer Instantánea codificada con {@link FlightSnapshotCodec#encode(FlightStore)}; se consume.
+     * @param path   Ruta de la instantánea.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    static void writeSnapshot(ByteBuffer buffer, Path path) throws IOException {
+        long start = System.nanoTime();
+        int bytes = buffer.remaining();
+        Path temporary = temporaryPathOf(path);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        replaceAtomically(temporary, path);
+        BYTES_WRITTEN.add(bytes);
+        SNAPSHOT_SAVE_TIME.recordSince(start);
+    }
+
+    /**
+     * Devuelve la ruta del archivo temporal que se usa al sustituir un archivo.
+     *
+     * @param path Ruta del archivo que se va a sustituir.
+     * @return La ruta del archivo temporal, en el mismo directorio.
+     */
+    static Path temporaryPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Mueve un archivo temporal sobre su destino con {@link StandardCopyOption#ATOMIC_MOVE},
+     * o con un reemplazo normal si el sistema de archivos no admite movimientos atómicos.
+     *
+     * @param temporary Archivo temporal ya escrito por completo.
+     * @param target    Archivo que se sustituye.
+     * @throws IOException Si el archivo no se puede mover.
+     */
+    static void replaceAtomically(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Flujo de entrada que informa del número total de bytes leídos cada vez que se lee un bloque,
+     * para calcular el progreso de la lectura de un archivo.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /** Consumidor que recibe el total de bytes leídos. */
+        private final LongConsumer bytesRead;
+
+        /** Total de bytes leídos. */
+        private long count;
+
+        /**
+         * Crea el flujo.
+         *
+         * @param in        Flujo del que se lee.
+         * @param bytesRead Consumidor que recibe el total de bytes leídos tras cada lectura.
+         */
+        private CountingInputStream(InputStream in, LongConsumer bytesRead) {
+            super(in);
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead.accept(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+                bytesRead.accept(count);
+            }
+            return read;
         }
     }
 }
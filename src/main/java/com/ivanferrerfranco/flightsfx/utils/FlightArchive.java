@@ -0,0 +1,365 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Archivo de vuelos de solo lectura que se lee por páginas, para consultar archivos más grandes que la memoria.
+ * <p>
+ * Al abrirlo se usa un índice disperso guardado junto al archivo con la extensión {@code .idx}: contiene
+ * el número de vuelos y la posición en bytes del primer vuelo de cada página de {@link #PAGE_SIZE} vuelos.
+ * Con él se conoce el total de vuelos sin leer el archivo y cada página se lee con una única lectura posicional.
+ * Si el índice no existe o no corresponde al archivo (por tamaño o fecha de modificación), se reconstruye
+ * recorriendo el archivo una vez sin interpretar los vuelos.
+ * <p>
+ * Las líneas vacías no cuentan como vuelos. Una línea con formato incorrecto se muestra como un vuelo
+ * cuyo número es el texto de la línea y sin el resto de campos, para no desplazar las posiciones del resto.
+ * Las lecturas de páginas son seguras entre hilos.
+ */
+public class FlightArchive implements Closeable {
+
+    /** Registro en el que se avisa de los fallos al guardar el índice. */
+    private static final System.Logger LOGGER = System.getLogger(FlightArchive.class.getName());
+
+    /** Número de vuelos de cada página. */
+    public static final int PAGE_SIZE = 1024;
+
+    /** Identificador del formato del índice ("FIDX"). */
+    private static final int INDEX_MAGIC = 0x46494458;
+
+    /** Versión del formato del índice. */
+    private static final int INDEX_VERSION = 1;
+
+    /** Tamaño de la cabecera del índice: identificador, versión, tamaño y fecha del archivo, vuelos y páginas. */
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4;
+
+    /** Tamaño del búfer con el que se recorre el archivo al construir el índice. */
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+
+    /** Ruta del archivo de vuelos. */
+    private final Path path;
+
+    /** Canal del archivo de vuelos, compartido por todas las lecturas. */
+    private final FileChannel channel;
+
+    /** Tamaño del archivo de vuelos, en bytes. */
+    private final long fileSize;
+
+    /** Número de vuelos del archivo. */
+    private final int size;
+
+    /** Posición en bytes del primer vuelo de cada página. */
+    private final long[] pageOffsets;
+
+    /** Separador de campos del archivo. */
+    private final char separator;
+
+    private FlightArchive(Path path, FileChannel channel, long fileSize, int size, long[] pageOffsets, char separator) {
+        this.path = path;
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.size = size;
+        this.pageOffsets = pageOffsets;
+        this.separator = separator;
+    }
+
+    /**
+     * Abre un archivo de vuelos, usando su índice o construyéndolo si no es válido.
+     *
+     * @param path     Ruta del archivo de vuelos.
+     * @param progress Recibe la fracción del archivo recorrida, de 0 a 1, si hay que construir el índice.
+     * @return El archivo abierto; hay que cerrarlo al terminar.
+     * @throws IOException Si ocurre un error al leer el archivo o el índice.
+     */
+    public static FlightArchive open(Path path, DoubleConsumer progress) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            char separator = readSeparator(channel);
+            Path indexPath = indexPathOf(path);
+
+            FlightArchive archive = readIndex(indexPath, path, channel, fileSize, modified, separator);
+            if (archive == null) {
+                archive = buildIndex(path, channel, fileSize, separator, progress);
+                writeIndex(indexPath, archive, modified);
+            }
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve la ruta del archivo.
+     *
+     * @return La ruta del archivo de vuelos.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Devuelve el número de vuelos del archivo.
+     *
+     * @return El número de vuelos.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Devuelve el número de páginas del archivo.
+     *
+     * @return El número de páginas.
+     */
+    public int pageCount() {
+        return pageOffsets.length;
+    }
+
+    /**
+     * Lee los vuelos de una página.
+     *
+     * @param page Número de página, empezando en 0.
+     * @return Los vuelos de la página, {@link #PAGE_SIZE} salvo en la última.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public List<Flight> readPage(int page) throws IOException {
+        long start = pageOffsets[page];
+        long end = page + 1 < pageOffsets.length ? pageOffsets[page + 1] : fileSize;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+            // Leer hasta completar la página o llegar al final del archivo.
+        }
+
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        int expected = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+        List<Flight> flights = new ArrayList<>(expected);
+        int lineStart = 0;
+        while (lineStart < text.length() && flights.size() < expected) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            // Saltar las mismas líneas vacías que al construir el índice, para que las posiciones coincidan.
+            if (!isBlank(text, lineStart, lineEnd)) {
+                flights.add(parseLine(text.substring(lineStart, lineEnd).strip()));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return flights;
+    }
+
+    /**
+     * Cierra el archivo de vuelos.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Convierte una línea en un vuelo, o en un vuelo que muestra la línea si tiene formato incorrecto.
+     *
+     * @param line Línea sin espacios al principio ni al final.
+     * @return El vuelo.
+     */
+    private Flight parseLine(String line) {
+        try {
+            return FileUtils.parseFlight(line, separator);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return new Flight(line, "", null, null);
+        }
+    }
+
+    /**
+     * Indica si una línea está vacía, es decir, si solo tiene espacios, tabuladores o retornos de carro.
+     *
+     * @param text  Texto que contiene la línea.
+     * @param start Posición del primer carácter (incluida).
+     * @param end   Posición del último carácter (excluida).
+     * @return {@code true} si la línea está vacía.
+     */
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve la ruta del índice de un archivo de vuelos.
+     *
+     * @param path Ruta del archivo de vuelos.
+     * @return La ruta del índice, en el mismo directorio.
+     */
+    static Path indexPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+
+    /**
+     * Lee la cabecera del archivo para conocer el separador de campos.
+     *
+     * @param channel Canal del archivo.
+     * @return El separador de campos.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private static char readSeparator(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        channel.read(buffer, 0);
+        String start = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        int end = start.indexOf('\n');
+        return FileUtils.separatorOf(end < 0 ? start : start.substring(0, end));
+    }
+
+    /**
+     * Lee el índice de un archivo si existe y corresponde al archivo actual.
+     *
+     * @param indexPath Ruta del índice.
+     * @param path      Ruta del archivo de vuelos.
+     * @param channel   Canal del archivo de vuelos.
+     * @param fileSize  Tamaño actual del archivo de vuelos.
+     * @param modified  Fecha de modificación actual del archivo de vuelos, en milisegundos.
+     * @param separator Separador de campos del archivo.
+     * @return El archivo abierto con el índice leído, o {@code null} si el índice no existe o no es válido.
+     * @throws IOException Si ocurre un error al leer el índice.
+     */
+    private static FlightArchive readIndex(Path indexPath, Path path, FileChannel channel, long fileSize, long modified,
+                                           char separator) throws IOException {
+        if (!Files.isRegularFile(indexPath) || Files.size(indexPath) < INDEX_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION
+                || buffer.getLong() != fileSize || buffer.getLong() != modified) {
+            return null;
+        }
+        long size = buffer.getLong();
+        int pages = buffer.getInt();
+        if (size > Integer.MAX_VALUE || pages != (size + PAGE_SIZE - 1) / PAGE_SIZE || buffer.remaining() != pages * 8L) {
+            return null;
+        }
+
+        long[] pageOffsets = new long[pages];
+        buffer.asLongBuffer().get(pageOffsets);
+        return new FlightArchive(path, channel, fileSize, (int) size, pageOffsets, separator);
+    }
+
+    /**
+     * Construye el índice recorriendo el archivo y contando las líneas que no están vacías.
+     *
+     * @param path      Ruta del archivo de vuelos.
+     * @param channel   Canal del archivo de vuelos.
+     * @param fileSize  Tamaño del archivo de vuelos.
+     * @param separator Separador de campos del archivo.
+     * @param progress  Recibe la fracción del archivo recorrida.
+     * @return El archivo abierto con el índice construido.
+     * @throws IOException Si ocurre un error al leer el archivo o tiene más vuelos de los que admite una lista.
+     */
+    private static FlightArchive buildIndex(Path path, FileChannel channel, long fileSize, char separator,
+                                            DoubleConsumer progress) throws IOException {
+        long[] offsets = new long[1024];
+        long size = 0;
+        boolean header = true;      // La primera línea es la cabecera.
+        boolean blank = true;       // La línea actual solo tiene espacios hasta ahora.
+        long lineStart = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+        long position = 0;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    if (!header && !blank) {
+                        offsets = recordRow(offsets, size++, lineStart);
+                    }
+                    header = false;
+                    blank = true;
+                    lineStart = position + i + 1;
+                } else if (blank && b != ' ' && b != '\t' && b != '\r') {
+                    blank = false;
+                }
+            }
+            position += read;
+            progress.accept((double) position / fileSize);
+        }
+        // Última línea sin salto de línea final.
+        if (!header && !blank) {
+            offsets = recordRow(offsets, size++, lineStart);
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("El archivo tiene demasiados vuelos: " + size);
+        }
+        int pages = (int) ((size + PAGE_SIZE - 1) / PAGE_SIZE);
+        long[] pageOffsets = new long[pages];
+        System.arraycopy(offsets, 0, pageOffsets, 0, pages);
+        return new FlightArchive(path, channel, fileSize, (int) size, pageOffsets, separator);
+    }
+
+    /**
+     * Anota la posición de un vuelo si es el primero de una página.
+     *
+     * @param offsets Posiciones de las páginas anotadas hasta ahora.
+     * @param row     Número del vuelo, empezando en 0.
+     * @param offset  Posición en bytes del vuelo.
+     * @return El array de posiciones, ampliado si ha hecho falta.
+     */
+    private static long[] recordRow(long[] offsets, long row, long offset) {
+        if (row % PAGE_SIZE != 0) {
+            return offsets;
+        }
+        int page = (int) (row / PAGE_SIZE);
+        long[] result = page < offsets.length ? offsets : Arrays.copyOf(offsets, offsets.length * 2);
+        result[page] = offset;
+        return result;
+    }
+
+    /**
+     * Guarda el índice junto al archivo de vuelos. Si no se puede guardar, el archivo se usa igualmente
+     * y el índice se volverá a construir la próxima vez.
+     *
+     * @param indexPath Ruta del índice.
+     * @param archive   Archivo abierto con el índice construido.
+     * @param modified  Fecha de modificación del archivo de vuelos, en milisegundos.
+     */
+    private static void writeIndex(Path indexPath, FlightArchive archive, long modified) {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + archive.pageOffsets.length * 8);
+        buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(archive.fileSize).putLong(modified)
+                .putLong(archive.size).putInt(archive.pageOffsets.length);
+        buffer.asLongBuffer().put(archive.pageOffsets);
+
+        try {
+            Path temporary = FileUtils.temporaryPathOf(indexPath);
+            Files.write(temporary, buffer.array());
+            FileUtils.replaceAtomically(temporary, indexPath);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al guardar el índice del archivo", e);
+        }
+    }
+}
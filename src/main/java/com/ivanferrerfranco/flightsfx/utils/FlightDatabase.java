@@ -0,0 +1,530 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import com.ivanferrerfranco.flightsfx.model.FlightRepository;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Base de datos de vuelos en un único archivo, con índices persistentes para consultar archivos que no caben
+ * en memoria sin recorrerlos enteros.
+ * <p>
+ * Los vuelos se guardan en tres árboles B+ ({@link BPlusTree}) del mismo archivo de páginas ({@link PageFile}):
+ * por número de vuelo, por destino y por fecha de salida. Cada árbol guarda el vuelo completo junto a su clave,
+ * de modo que una consulta se resuelve recorriendo un solo árbol:
+ * <ul>
+ *     <li>Ordenada por salida, o con criterio de salida y sin destino: el árbol de salidas, desde el inicio del
+ *     intervalo y hasta su fin, y se detiene al alcanzar el límite sin tener que ordenar nada.</li>
+ *     <li>Con destino: los vuelos de ese destino en el árbol de destinos.</li>
+ *     <li>En otro caso: el árbol de números de vuelo.</li>
+ * </ul>
+ * El resto de criterios se comprueban con el predicado de la consulta sobre los vuelos recorridos.
+ * <p>
+ * Cada alta y cada baja se añade al registro de escritura anticipada y se espera a que esté en disco antes de
+ * modificar los árboles, por lo que sobrevive a un corte aunque las páginas modificadas sigan en memoria. Las páginas
+ * se escriben en puntos de control, cuando se acumulan suficientes o al cerrar la base de datos, y al abrirla se
+ * vuelven a aplicar las operaciones registradas después del último. La memoria usada es la de la caché de páginas,
+ * que se fija al abrir la base de datos, y no depende del número de vuelos.
+ * <p>
+ * Los métodos están sincronizados, por lo que la base de datos se puede usar desde varios hilos.
+ */
+public class FlightDatabase implements FlightRepository {
+
+    /** Registro de los vuelos y líneas que no se pueden importar. */
+    private static final System.Logger LOGGER = System.getLogger(FlightDatabase.class.getName());
+
+    /** Extensión de los archivos de base de datos. */
+    public static final String EXTENSION = ".fdb";
+
+    /** Número de páginas en memoria por defecto (1 MB con páginas de 4 KB). */
+    public static final int DEFAULT_CACHE_PAGES = 256;
+
+    /** Tamaño máximo en bytes del número de vuelo y del destino, para que cada entrada quepa en los árboles. */
+    public static final int MAX_TEXT_BYTES = 200;
+
+    /** Posición de la cabecera con la raíz del árbol por número de vuelo. */
+    private static final int META_PRIMARY = 0;
+
+    /** Posición de la cabecera con la raíz del árbol por destino. */
+    private static final int META_DESTINATION = 1;
+
+    /** Posición de la cabecera con la raíz del árbol por salida. */
+    private static final int META_DEPARTURE = 2;
+
+    /** Posición de la cabecera con el número de vuelos. */
+    private static final int META_COUNT = 3;
+
+    /** Tipo de las operaciones de alta en el registro. */
+    private static final byte OP_INSERT = 1;
+
+    /** Tipo de las operaciones de baja en el registro. */
+    private static final byte OP_DELETE = 2;
+
+    /** Número de vuelos importados entre dos esperas a que el registro esté en disco. */
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+
+    /** Tiempo de cada alta. */
+    private static final LatencyHistogram INSERT_TIME = FlightMetrics.histogram("db.insert");
+
+    /** Tiempo de cada baja. */
+    private static final LatencyHistogram DELETE_TIME = FlightMetrics.histogram("db.delete");
+
+    /** Tiempo de cada consulta, hasta entregar el último vuelo. */
+    private static final LatencyHistogram QUERY_TIME = FlightMetrics.histogram("db.query");
+
+    /** Archivo de páginas de la base de datos. */
+    private final PageFile pages;
+
+    /** Vuelos por número de vuelo. */
+    private final BPlusTree primary;
+
+    /** Vuelos por destino y número de vuelo. */
+    private final BPlusTree byDestination;
+
+    /** Vuelos por salida y número de vuelo. */
+    private final BPlusTree byDeparture;
+
+    /** Indica si una operación ha fallado a medias y los árboles en memoria ya no son fiables. */
+    private boolean failed;
+
+    /** Indica si la base de datos está cerrada. */
+    private boolean closed;
+
+    /**
+     * Indica si se están volviendo a aplicar las operaciones del registro. Mientras tanto no se hacen puntos
+     * de control, que vaciarían el registro con operaciones todavía sin aplicar.
+     */
+    private boolean recovering;
+
+    private FlightDatabase(PageFile pages) {
+        this.pages = pages;
+        primary = new BPlusTree(pages, META_PRIMARY);
+        byDestination = new BPlusTree(pages, META_DESTINATION);
+        byDeparture = new BPlusTree(pages, META_DEPARTURE);
+    }
+
+    /**
+     * Abre una base de datos con la caché por defecto, creándola si no existe.
+     *
+     * @param path Ruta del archivo de la base de datos.
+     * @return La base de datos abierta, que hay que cerrar al terminar.
+     * @throws IOException Si ocurre un error al abrir o recuperar el archivo.
+     */
+    public static FlightDatabase open(Path path) throws IOException {
+        return open(path, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Abre una base de datos, creándola si no existe, y vuelve a aplicar las operaciones que quedaron en el registro.
+     *
+     * @param path       Ruta del archivo de la base de datos.
+     * @param cachePages Número de páginas en memoria; también es el número de páginas modificadas que provoca un punto de control.
+     * @return La base de datos abierta, que hay que cerrar al terminar.
+     * @throws IOException Si ocurre un error al abrir o recuperar el archivo.
+     */
+    public static FlightDatabase open(Path path, int cachePages) throws IOException {
+        if (cachePages < 1) {
+            throw new IllegalArgumentException("La caché debe tener al menos una página: " + cachePages);
+        }
+        PageFile pages = PageFile.open(path, cachePages, cachePages);
+        try {
+            FlightDatabase database = new FlightDatabase(pages);
+            database.recovering = true;
+            for (byte[] operation : pages.recoveredRecords()) {
+                database.replay(operation);
+            }
+            database.recovering = false;
+            pages.checkpoint();
+            return database;
+        } catch (IOException | RuntimeException e) {
+            pages.abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized long count() throws IOException {
+        ensureUsable();
+        return pages.meta(META_COUNT);
+    }
+
+    @Override
+    public synchronized Flight find(String flightNumber) throws IOException {
+        ensureUsable();
+        byte[] record = primary.get(text(flightNumber));
+        return record == null ? null : decodeFlight(record);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * El consumidor se llama con la base de datos bloqueada, por lo que no debe esperar a otros hilos que la usen.
+     */
+    @Override
+    public synchronized long query(FlightQuery query, Consumer<? super Flight> consumer) throws IOException {
+        ensureUsable();
+        long start = System.nanoTime();
+        long limit = query.isLimited() ? query.getLimit() : Long.MAX_VALUE;
+        if (limit == 0) {
+            return 0;
+        }
+
+        Predicate<Flight> predicate = query.toPredicate();
+        long[] delivered = {0};
+        BPlusTree.EntryVisitor visitor = (key, record) -> {
+            Flight flight = decodeFlight(record);
+            if (!predicate.test(flight)) {
+                return true;
+            }
+            consumer.accept(flight);
+            return ++delivered[0] < limit;
+        };
+
+        LocalDateTime from = later(query.getDepartingAfter(), query.getDepartingFrom());
+        LocalDateTime to = query.getDepartingTo();
+        String destination = query.getDestination();
+        if (query.isOrderedByDeparture() || (destination == null && (from != null || to != null))) {
+            // El árbol de salidas ya está en orden: no hace falta ordenar y el límite detiene el recorrido.
+            byte[] fromKey = from == null ? null : departureBound(FlightStore.toEpochMinutes(from));
+            byte[] toKey = to == null ? null : departureBound(ceilEpochMinutes(to));
+            byDeparture.scan(fromKey, toKey, visitor);
+        } else if (destination != null) {
+            byte[] prefix = text(destination);
+            byDestination.scan(prefix, null, (key, record) -> startsWith(key, prefix) && visitor.visit(key, record));
+        } else {
+            primary.scan(null, null, visitor);
+        }
+        QUERY_TIME.recordSince(start);
+        return delivered[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException Si el número de vuelo está vacío o el número o el destino
+     *                                  ocupan más de {@link #MAX_TEXT_BYTES} bytes.
+     */
+    @Override
+    public synchronized boolean insert(Flight flight) throws IOException {
+        ensureUsable();
+        long start = System.nanoTime();
+        byte[] record = encodeFlight(flight);
+        byte[] key = text(flight.getFlightNumber());
+        if (primary.get(key) != null) {
+            return false;
+        }
+        pages.log(operation(OP_INSERT, record), true);
+        applyInsert(flight, key, record);
+        INSERT_TIME.recordSince(start);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String flightNumber) throws IOException {
+        ensureUsable();
+        long start = System.nanoTime();
+        byte[] key = text(flightNumber);
+        byte[] record = primary.get(key);
+        if (record == null) {
+            return false;
+        }
+        pages.log(operation(OP_DELETE, key), true);
+        applyDelete(key, record);
+        DELETE_TIME.recordSince(start);
+        return true;
+    }
+
+    /**
+     * Importa los vuelos de un archivo de texto, leyéndolo en streaming. Los vuelos cuyo número ya existe se saltan.
+     * <p>
+     * En lugar de esperar a que cada alta esté en disco, se espera una vez cada {@link #IMPORT_BATCH_SIZE} vuelos
+     * y al terminar: si la importación se corta, al abrir la base de datos se conservan los vuelos ya guardados
+     * en el registro y se puede repetir la importación para añadir el resto.
+     *
+     * @param path Ruta del archivo de texto con los vuelos.
+     * @return El número de vuelos añadidos.
+     * @throws IOException Si ocurre un error al leer el archivo o al escribir la base de datos.
+     */
+    public synchronized long importFlights(Path path) throws IOException {
+        ensureUsable();
+        long[] added = {0};
+        try {
+            FileUtils.scanFlights(path, flight -> {
+                try {
+                    byte[] record = encodeFlight(flight);
+                    byte[] key = text(flight.getFlightNumber());
+                    if (primary.get(key) == null) {
+                        pages.log(operation(OP_INSERT, record), false);
+                        applyInsert(flight, key, record);
+                        if (++added[0] % IMPORT_BATCH_SIZE == 0) {
+                            pages.flushLog();
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Vuelo no importado: {0}", e.getMessage());
+                } catch (IOException e) {
+                    throw new ImportException(e);
+                }
+                return true;
+            }, line -> LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", line));
+        } catch (ImportException e) {
+            throw e.getCause();
+        } finally {
+            if (!failed) {
+                pages.flushLog();
+            }
+        }
+        return added[0];
+    }
+
+    /**
+     * Escribe en el archivo las páginas modificadas y cierra la base de datos. Si una operación falló a medias,
+     * se cierra sin escribirlas, y se recuperan del registro al volver a abrirla.
+     *
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (failed) {
+            pages.abort();
+        } else {
+            pages.close();
+        }
+    }
+
+    /**
+     * Aplica un alta ya registrada a los tres árboles y hace un punto de control si hace falta.
+     *
+     * @param flight Vuelo.
+     * @param key    Número del vuelo codificado.
+     * @param record Vuelo codificado.
+     * @throws IOException Si ocurre un error al modificar los árboles.
+     */
+    private void applyInsert(Flight flight, byte[] key, byte[] record) throws IOException {
+        try {
+            primary.put(key, record);
+            byDestination.put(destinationKey(flight.getDestination(), key), record);
+            byDeparture.put(departureKey(FlightStore.toEpochMinutes(flight.getDepartureDateTime()), key), record);
+            pages.setMeta(META_COUNT, pages.meta(META_COUNT) + 1);
+            if (!recovering && pages.needsCheckpoint()) {
+                pages.checkpoint();
+            }
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Aplica una baja ya registrada a los tres árboles y hace un punto de control si hace falta.
+     *
+     * @param key    Número del vuelo codificado.
+     * @param record Vuelo codificado, tal como está guardado.
+     * @throws IOException Si ocurre un error al modificar los árboles.
+     */
+    private void applyDelete(byte[] key, byte[] record) throws IOException {
+        try {
+            Flight flight = decodeFlight(record);
+            primary.remove(key);
+            byDestination.remove(destinationKey(flight.getDestination(), key));
+            byDeparture.remove(departureKey(FlightStore.toEpochMinutes(flight.getDepartureDateTime()), key));
+            pages.setMeta(META_COUNT, pages.meta(META_COUNT) - 1);
+            if (!recovering && pages.needsCheckpoint()) {
+                pages.checkpoint();
+            }
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Vuelve a aplicar una operación del registro al abrir la base de datos. Como las operaciones pueden estar ya
+     * aplicadas en parte, un alta de un número que existe o una baja de uno que no existe no hacen nada.
+     *
+     * @param operation Operación registrada.
+     * @throws IOException Si ocurre un error al modificar los árboles o la operación no es válida.
+     */
+    private void replay(byte[] operation) throws IOException {
+        byte[] payload = Arrays.copyOfRange(operation, 1, operation.length);
+        switch (operation[0]) {
+            case OP_INSERT -> {
+                Flight flight = decodeFlight(payload);
+                byte[] key = text(flight.getFlightNumber());
+                if (primary.get(key) == null) {
+                    applyInsert(flight, key, payload);
+                }
+            }
+            case OP_DELETE -> {
+                byte[] record = primary.get(payload);
+                if (record != null) {
+                    applyDelete(payload, record);
+                }
+            }
+            default -> throw new IOException("Operación del registro desconocida: " + operation[0]);
+        }
+    }
+
+    /**
+     * Comprueba que la base de datos se puede usar.
+     *
+     * @throws IOException Si está cerrada o una operación anterior falló a medias.
+     */
+    private void ensureUsable() throws IOException {
+        if (closed) {
+            throw new IOException("La base de datos está cerrada");
+        }
+        if (failed) {
+            throw new IOException("La base de datos debe volver a abrirse tras un error de escritura");
+        }
+    }
+
+    /**
+     * Codifica un vuelo: número, destino ({@code -1} si no tiene), salida en minutos y duración en minutos.
+     *
+     * @param flight Vuelo.
+     * @return El vuelo codificado.
+     * @throws IllegalArgumentException Si el número está vacío o algún texto es demasiado largo.
+     */
+    private static byte[] encodeFlight(Flight flight) {
+        String flightNumber = flight.getFlightNumber();
+        if (flightNumber == null || flightNumber.isEmpty()) {
+            throw new IllegalArgumentException("El vuelo no tiene número");
+        }
+        byte[] number = text(flightNumber);
+        byte[] destination = flight.getDestination() == null ? null : text(flight.getDestination());
+        ByteBuffer buffer = ByteBuffer.allocate(2 + number.length + 2 + (destination == null ? 0 : destination.length) + 8 + 2);
+        buffer.putShort((short) number.length).put(number);
+        if (destination == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) destination.length).put(destination);
+        }
+        buffer.putLong(FlightStore.toEpochMinutes(flight.getDepartureDateTime()))
+                .putShort(FlightStore.toMinutes(flight.getDuration()));
+        return buffer.array();
+    }
+
+    /**
+     * Decodifica un vuelo guardado con {@link #encodeFlight(Flight)}.
+     *
+     * @param record Vuelo codificado.
+     * @return El vuelo.
+     */
+    private static Flight decodeFlight(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        byte[] number = new byte[buffer.getShort()];
+        buffer.get(number);
+        short destinationLength = buffer.getShort();
+        String destination = null;
+        if (destinationLength >= 0) {
+            byte[] bytes = new byte[destinationLength];
+            buffer.get(bytes);
+            destination = new String(bytes, StandardCharsets.UTF_8);
+        }
+        LocalDateTime departure = FlightStore.fromEpochMinutes(buffer.getLong());
+        return new Flight(new String(number, StandardCharsets.UTF_8), destination, departure,
+                FlightStore.fromMinutes(buffer.getShort()));
+    }
+
+    /**
+     * Codifica un texto en UTF-8 comprobando su tamaño.
+     *
+     * @param text Texto.
+     * @return Los bytes del texto.
+     * @throws IllegalArgumentException Si ocupa más de {@link #MAX_TEXT_BYTES} bytes.
+     */
+    private static byte[] text(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Texto demasiado largo para la base de datos: " + text);
+        }
+        return bytes;
+    }
+
+    /**
+     * Devuelve la clave del árbol de destinos: el destino, un byte 0 que lo separa y el número de vuelo.
+     * Los vuelos sin destino van al principio, con solo el byte 0 delante del número.
+     */
+    private static byte[] destinationKey(String destination, byte[] number) {
+        byte[] prefix = destination == null ? new byte[0] : text(destination);
+        return ByteBuffer.allocate(prefix.length + 1 + number.length).put(prefix).put((byte) 0).put(number).array();
+    }
+
+    /**
+     * Devuelve la clave del árbol de salidas: la salida como número sin signo de 8 bytes, que se ordena como
+     * la fecha, y el número de vuelo. Los vuelos sin salida van al final.
+     */
+    private static byte[] departureKey(long epochMinutes, byte[] number) {
+        return ByteBuffer.allocate(8 + number.length).put(departureBound(epochMinutes)).put(number).array();
+    }
+
+    /**
+     * Devuelve la clave más pequeña del árbol de salidas con una salida concreta.
+     */
+    private static byte[] departureBound(long epochMinutes) {
+        long sortable = epochMinutes == FlightStore.NO_DEPARTURE ? -1L : epochMinutes ^ Long.MIN_VALUE;
+        return ByteBuffer.allocate(8).putLong(sortable).array();
+    }
+
+    /**
+     * Devuelve los minutos desde la época redondeados hacia arriba, para usar un instante como fin excluido
+     * de un intervalo de salidas que se guardan con precisión de minutos.
+     */
+    private static long ceilEpochMinutes(LocalDateTime dateTime) {
+        long minutes = FlightStore.toEpochMinutes(dateTime);
+        return FlightStore.fromEpochMinutes(minutes).isBefore(dateTime) ? minutes + 1 : minutes;
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Indica si una clave del árbol de destinos pertenece a un destino: empieza por él seguido del byte 0.
+     */
+    private static boolean startsWith(byte[] key, byte[] destination) {
+        return key.length > destination.length && key[destination.length] == 0
+                && Arrays.equals(key, 0, destination.length, destination, 0, destination.length);
+    }
+
+    private static byte[] operation(byte type, byte[] payload) {
+        return ByteBuffer.allocate(1 + payload.length).put(type).put(payload).array();
+    }
+
+    /**
+     * Excepción para sacar un error de escritura de la acción de {@link FileUtils#scanFlights}, que no puede lanzarlo.
+     */
+    private static final class ImportException extends RuntimeException {
+
+        /** Versión de la serialización; la excepción nunca sale de la importación, pero hereda {@code Serializable}. */
+        private static final long serialVersionUID = 1L;
+
+        ImportException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import javafx.concurrent.Task;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tarea que exporta vuelos a un archivo en segundo plano, informando del progreso.
+ * <p>
+ * Los vuelos se escriben línea a línea en un archivo temporal que sustituye al destino al terminar,
+ * de modo que una exportación cancelada o fallida no deja un archivo a medias. Si el destino tiene
+ * extensión {@code .csv} los campos se separan con {@code ,}; si no, con {@code ;} como en el archivo de vuelos.
+ */
+public class FlightExportTask extends Task<Integer> {
+
+    /** Número de vuelos entre dos actualizaciones del progreso. */
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    /** Vuelos a exportar. */
+    private final List<Flight> flights;
+
+    /** Archivo de destino. */
+    private final Path path;
+
+    /**
+     * Crea la tarea de exportación.
+     *
+     * @param flights Copia de los vuelos a exportar; se recorre en segundo plano, por lo que no debe cambiar.
+     * @param path    Archivo de destino.
+     */
+    public FlightExportTask(List<Flight> flights, Path path) {
+        this.flights = flights;
+        this.path = path;
+    }
+
+    /**
+     * Escribe los vuelos en el archivo.
+     *
+     * @return El número de vuelos exportados.
+     * @throws IOException Si ocurre un error al escribir el archivo.
+     */
+    @Override
+    protected Integer call() throws IOException {
+        char separator = FileUtils.separatorFor(path);
+        Path temporary = FileUtils.temporaryPathOf(path);
+
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(temporary), StandardCharsets.UTF_8), FileUtils.BUFFER_SIZE)) {
+            writer.write(FileUtils.formatHeader(separator));
+            writer.newLine();
+
+            for (int i = 0; i < flights.size(); i++) {
+                if (i % PROGRESS_INTERVAL == 0) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    updateProgress(i, flights.size());
+                }
+                writer.write(FileUtils.formatFlight(flights.get(i), separator));
+                writer.newLine();
+            }
+        }
+
+        if (isCancelled()) {
+            Files.deleteIfExists(temporary);
+            return 0;
+        }
+        FileUtils.replaceAtomically(temporary, path);
+        updateProgress(flights.size(), flights.size());
+        return flights.size();
+    }
+}
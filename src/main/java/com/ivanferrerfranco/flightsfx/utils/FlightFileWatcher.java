@@ -0,0 +1,441 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.DateTimeException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Vigila un archivo de vuelos con un {@link WatchService} y avisa de los vuelos que cambian cuando otro
+ * programa lo modifica o lo sustituye.
+ * <p>
+ * Para no volver a interpretar el archivo completo con cada cambio, el archivo se divide en bloques de líneas
+ * cuyos límites dependen del contenido (un bloque termina tras una línea cuyo hash cumple una condición), de modo
+ * que insertar o eliminar líneas solo cambia los bloques afectados y no desplaza los demás. De cada bloque se guarda
+ * su longitud y su CRC32, y del archivo su último contenido. Al cambiar el archivo solo se comparan las líneas de los
+ * bloques cuya suma de control no estaba antes con las de los bloques desaparecidos: las líneas nuevas se notifican
+ * como vuelos añadidos y las desaparecidas como vuelos eliminados, con los datos que tenían, para que se puedan
+ * distinguir los vuelos que comparten número.
+ * <p>
+ * Los cambios se notifican cuando el archivo deja de modificarse durante un breve intervalo, a través del
+ * ejecutor indicado (por ejemplo, el hilo de JavaFX). El archivo se lee en un hilo propio.
+ */
+public class FlightFileWatcher implements Closeable {
+
+    /** Registro de los errores al releer el archivo vigilado. */
+    private static final System.Logger LOGGER = System.getLogger(FlightFileWatcher.class.getName());
+
+    /** Tiempo sin cambios que se espera antes de leer el archivo, en milisegundos. */
+    private static final long QUIET_PERIOD_MILLIS = 200;
+
+    /** Máscara del hash de línea que marca el final de un bloque; da bloques de 128 líneas de media. */
+    private static final int BOUNDARY_MASK = 0x7F;
+
+    /** Número máximo de líneas de un bloque, para acotar lo que se interpreta por cada línea cambiada. */
+    private static final int MAX_CHUNK_LINES = 4096;
+
+    /**
+     * Vuelos que han cambiado en el archivo. Una línea modificada aparece como la eliminación del vuelo anterior
+     * y el alta del nuevo.
+     *
+     * @param added   Vuelos de las líneas que no estaban en la versión anterior, en el orden del archivo.
+     * @param removed Vuelos de las líneas que estaban en la versión anterior y ya no están, con sus datos anteriores.
+     */
+    public record Changes(List<Flight> added, List<Flight> removed) {
+    }
+
+    /**
+     * Bloque de líneas del archivo.
+     *
+     * @param key   Longitud del bloque en los 32 bits altos y CRC32 de su contenido en los bajos.
+     * @param start Posición del inicio del bloque en el contenido del archivo.
+     * @param end   Posición siguiente al final del bloque.
+     */
+    private record Chunk(long key, int start, int end) {
+    }
+
+    /** Ruta absoluta del archivo vigilado. */
+    private final Path path;
+
+    /** Servicio que recibe los eventos del directorio del archivo. */
+    private final WatchService watchService;
+
+    /** Ejecutor en el que se entregan los cambios. */
+    private final Executor executor;
+
+    /** Consumidor que recibe los cambios. */
+    private final Consumer<Changes> consumer;
+
+    /** Bloques de la última versión leída del archivo. Solo se usan desde el hilo del vigilante. */
+    private final Chunks chunks = new Chunks();
+
+    /** Tamaño y fecha de modificación de la última versión leída, para no repetir la lectura si no han cambiado. */
+    private long lastSize = -1;
+    private long lastModified = -1;
+
+    /** Indica si el vigilante se ha cerrado. */
+    private volatile boolean closed;
+
+    /**
+     * Empieza a vigilar un archivo de vuelos. El estado inicial del archivo se lee en segundo plano y no se notifica.
+     *
+     * @param path     Ruta del archivo de vuelos; puede no existir todavía.
+     * @param executor Ejecutor en el que se entregan los cambios.
+     * @param consumer Consumidor que recibe los cambios de cada nueva versión del archivo.
+     * @throws IOException Si no se puede vigilar el directorio del archivo.
+     */
+    public FlightFileWatcher(Path path, Executor executor, Consumer<Changes> consumer) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.executor = executor;
+        this.consumer = consumer;
+
+        // Se vigila el directorio para detectar también los archivos que sustituyen al vigilado.
+        Path directory = this.path.getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        try {
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        Thread thread = new Thread(this::run, "flight-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Deja de vigilar el archivo.
+     *
+     * @throws IOException Si ocurre un error al cerrar el servicio de vigilancia.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+    }
+
+    /**
+     * Lee el estado inicial del archivo y, después, cada versión nueva cuando deja de cambiar.
+     */
+    private void run() {
+        try {
+            rescan(false);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al leer el archivo de vuelos", e);
+        }
+
+        try {
+            while (!closed) {
+                boolean changed = isRelevant(watchService.take());
+                // Esperar a que el archivo deje de cambiar, para no leerlo a medio escribir.
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isRelevant(key);
+                }
+                if (!changed) {
+                    continue;
+                }
+                try {
+                    Changes changes = rescan(true);
+                    if (changes != null && !closed) {
+                        executor.execute(() -> consumer.accept(changes));
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(System.Logger.Level.ERROR, "Error al leer el archivo de vuelos", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // El vigilante se ha cerrado.
+        }
+    }
+
+    /**
+     * Comprueba si alguno de los eventos de una clave afecta al archivo vigilado y prepara la clave para los siguientes.
+     *
+     * @param key Clave con los eventos del directorio.
+     * @return {@code true} si algún evento afecta al archivo o se han perdido eventos.
+     */
+    private boolean isRelevant(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            relevant |= event.kind() == OVERFLOW || path.getFileName().equals(event.context());
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Lee el archivo y calcula los cambios respecto a la versión anterior, interpretando solo los bloques que cambian.
+     *
+     * @param parse {@code true} para calcular los cambios, o {@code false} para leer solo los bloques.
+     * @return Los cambios, o {@code null} si el archivo no existe, no tiene cabecera o no ha cambiado.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private Changes rescan(boolean parse) throws IOException {
+        byte[] content;
+        try {
+            long size = Files.size(path);
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (size == lastSize && modified == lastModified) {
+                return null;
+            }
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("El archivo de vuelos supera los 2 GB: " + path);
+            }
+            content = Files.readAllBytes(path);
+            lastSize = size;
+            lastModified = modified;
+        } catch (NoSuchFileException e) {
+            // El archivo se está sustituyendo; se leerá cuando se cree el nuevo.
+            return null;
+        }
+        return chunks.update(content, parse);
+    }
+
+    /**
+     * Busca el final del bloque que empieza en una posición: la línea cuyo hash tiene a cero los bits
+     * de {@link #BOUNDARY_MASK}, la línea número {@link #MAX_CHUNK_LINES} o el final del archivo.
+     *
+     * @param content Contenido del archivo.
+     * @param start   Posición del inicio del bloque.
+     * @return La posición siguiente al salto de línea que cierra el bloque.
+     */
+    private static int chunkEnd(byte[] content, int start) {
+        int hash = 0;
+        int lines = 0;
+        for (int i = start; i < content.length; i++) {
+            byte b = content[i];
+            if (b != '\n') {
+                hash = 31 * hash + b;
+                continue;
+            }
+            // Mezclar los bits del hash para que los bits bajos dependan de toda la línea.
+            hash ^= hash >>> 16;
+            hash *= 0x45d9f3b;
+            hash ^= hash >>> 16;
+            if ((hash & BOUNDARY_MASK) == 0 || ++lines >= MAX_CHUNK_LINES) {
+                return i + 1;
+            }
+            hash = 0;
+        }
+        return content.length;
+    }
+
+    /**
+     * Busca el final de la línea que empieza en una posición.
+     *
+     * @param content Contenido del archivo.
+     * @param start   Posición del inicio de la línea.
+     * @return La posición siguiente al salto de línea, o el final del archivo si la línea no termina.
+     */
+    private static int lineEnd(byte[] content, int start) {
+        for (int i = start; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return content.length;
+    }
+
+    /**
+     * Bloques de la última versión leída del archivo, que se comparan con los de cada versión nueva.
+     * Está separado del vigilante para poder comparar versiones sin vigilar un archivo, y solo se usa desde un hilo.
+     */
+    static final class Chunks {
+
+        /** Contenido de la última versión leída, del que se leen las líneas de sus bloques desaparecidos. */
+        private byte[] content = new byte[0];
+
+        /** Bloques de la última versión leída, en orden. */
+        private List<Chunk> chunks = List.of();
+
+        /** Separador de campos de la última versión leída. */
+        private char separator;
+
+        /**
+         * Compara una versión nueva del archivo con la última leída y la guarda en su lugar.
+         * <p>
+         * Los bloques nuevos se emparejan por longitud y suma de control con los anteriores. Las líneas de los bloques
+         * sin pareja se comparan como multiconjuntos de texto: las que están en los dos lados solo han cambiado de bloque,
+         * y el resto se interpretan como vuelos añadidos o eliminados. Así una línea repetida se cuenta tantas veces
+         * como aparece, y una línea modificada aparece como la eliminación de la anterior y el alta de la nueva.
+         *
+         * @param newContent Contenido de la versión nueva.
+         * @param parse      {@code true} para calcular los cambios, o {@code false} para guardar solo la versión.
+         * @return Los cambios, o {@code null} si la versión nueva no tiene cabecera completa o no se piden los cambios.
+         */
+        Changes update(byte[] newContent, boolean parse) {
+            // Un archivo sin cabecera completa se está escribiendo todavía.
+            int start = lineEnd(newContent, 0);
+            if (start == newContent.length) {
+                return null;
+            }
+            char newSeparator = FileUtils.separatorOf(new String(newContent, 0, start, StandardCharsets.UTF_8));
+
+            // Bloques anteriores por longitud y suma de control; si cambia el separador no se reutiliza ninguno.
+            Map<Long, ArrayDeque<Chunk>> previous = new HashMap<>();
+            if (newSeparator == separator) {
+                for (Chunk chunk : chunks) {
+                    previous.computeIfAbsent(chunk.key(), key -> new ArrayDeque<>()).add(chunk);
+                }
+            }
+
+            List<Chunk> nextChunks = new ArrayList<>(Math.max(16, chunks.size()));
+            List<Chunk> newChunks = new ArrayList<>();
+            CRC32 crc = new CRC32();
+            int position = start;
+            while (position < newContent.length) {
+                int end = chunkEnd(newContent, position);
+                crc.reset();
+                crc.update(newContent, position, end - position);
+                Chunk chunk = new Chunk(((long) (end - position) << 32) | crc.getValue(), position, end);
+                ArrayDeque<Chunk> same = previous.get(chunk.key());
+                if (same == null || same.poll() == null) {
+                    newChunks.add(chunk);
+                }
+                nextChunks.add(chunk);
+                position = end;
+            }
+
+            Changes changes = parse ? diff(previous, newContent, newChunks, newSeparator) : null;
+            content = newContent;
+            chunks = nextChunks;
+            separator = newSeparator;
+            return changes;
+        }
+
+        /**
+         * Compara las líneas de los bloques anteriores sin pareja con las de los bloques nuevos.
+         *
+         * @param unmatched    Bloques anteriores que no se han emparejado, por longitud y suma de control.
+         * @param newContent   Contenido de la versión nueva.
+         * @param newChunks    Bloques de la versión nueva sin pareja, en orden.
+         * @param newSeparator Separador de campos de la versión nueva.
+         * @return Los vuelos añadidos y eliminados.
+         */
+        private Changes diff(Map<Long, ArrayDeque<Chunk>> unmatched, byte[] newContent, List<Chunk> newChunks,
+                             char newSeparator) {
+            List<String> newLines = new ArrayList<>();
+            for (Chunk chunk : newChunks) {
+                readLines(newContent, chunk, newLines);
+            }
+            Map<String, Integer> appeared = new HashMap<>();
+            for (String line : newLines) {
+                appeared.merge(line, 1, Integer::sum);
+            }
+
+            // Las líneas de los bloques desaparecidos que siguen en un bloque nuevo solo han cambiado de bloque.
+            Map<String, Integer> moved = new HashMap<>();
+            List<Flight> removed = new ArrayList<>();
+            List<String> oldLines = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                ArrayDeque<Chunk> same = unmatched.get(chunk.key());
+                if (same != null && !same.contains(chunk)) {
+                    continue;
+                }
+                oldLines.clear();
+                readLines(content, chunk, oldLines);
+                for (String line : oldLines) {
+                    if (take(appeared, line)) {
+                        moved.merge(line, 1, Integer::sum);
+                    } else {
+                        parseLine(line, separator, removed);
+                    }
+                }
+            }
+
+            List<Flight> added = new ArrayList<>();
+            for (String line : newLines) {
+                if (!take(moved, line)) {
+                    parseLine(line, newSeparator, added);
+                }
+            }
+            return new Changes(added, removed);
+        }
+
+        /**
+         * Descuenta una aparición de una línea.
+         *
+         * @param counts Número de apariciones de cada línea.
+         * @param line   Línea.
+         * @return {@code true} si la línea tenía alguna aparición.
+         */
+        private static boolean take(Map<String, Integer> counts, String line) {
+            Integer count = counts.get(line);
+            if (count == null) {
+                return false;
+            }
+            if (count == 1) {
+                counts.remove(line);
+            } else {
+                counts.put(line, count - 1);
+            }
+            return true;
+        }
+
+        /**
+         * Añade a una lista las líneas no vacías de un bloque, sin el salto de línea.
+         *
+         * @param content Contenido del archivo.
+         * @param chunk   Bloque.
+         * @param lines   Lista a la que se añaden las líneas.
+         */
+        private static void readLines(byte[] content, Chunk chunk, List<String> lines) {
+            String text = new String(content, chunk.start(), chunk.end() - chunk.start(), StandardCharsets.UTF_8);
+            int lineStart = 0;
+            while (lineStart < text.length()) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                int next = lineEnd < 0 ? text.length() : lineEnd + 1;
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+                if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                String line = text.substring(lineStart, lineEnd);
+                lineStart = next;
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        /**
+         * Interpreta una línea y añade su vuelo a una lista. Las líneas con formato incorrecto se anotan y se ignoran.
+         *
+         * @param line      Línea.
+         * @param separator Separador de campos.
+         * @param flights   Lista a la que se añade el vuelo.
+         */
+        private static void parseLine(String line, char separator, List<Flight> flights) {
+            try {
+                flights.add(FileUtils.parseFlight(line, separator));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", line);
+            }
+        }
+    }
+}
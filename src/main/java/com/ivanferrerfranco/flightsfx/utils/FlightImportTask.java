@@ -0,0 +1,112 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import javafx.concurrent.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tarea que importa vuelos de un archivo en segundo plano, informando del progreso.
+ * <p>
+ * El archivo puede usar el formato del archivo de vuelos, con campos separados por {@code ;},
+ * o CSV con campos separados por {@code ,}; el separador se deduce de la cabecera. Cada línea se valida
+ * y se descartan los vuelos cuyo número ya existe o se repite dentro del archivo. Las líneas rechazadas
+ * se devuelven en {@link LoadResult#errors()} con el motivo del rechazo.
+ * <p>
+ * La tarea no modifica la lista de vuelos: quien la lanza añade el resultado de una vez en el hilo de JavaFX.
+ */
+public class FlightImportTask extends Task<LoadResult> {
+
+    /** Número de líneas entre dos actualizaciones del progreso. */
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    /** Archivo a importar. */
+    private final Path path;
+
+    /** Vuelos existentes, para descartar los números de vuelo repetidos. */
+    private final List<Flight> existing;
+
+    /**
+     * Crea la tarea de importación.
+     *
+     * @param path     Archivo a importar.
+     * @param existing Copia de los vuelos existentes; se recorre en segundo plano, por lo que no debe cambiar.
+     */
+    public FlightImportTask(Path path, List<Flight> existing) {
+        this.path = path;
+        this.existing = existing;
+    }
+
+    /**
+     * Lee y valida el archivo.
+     *
+     * @return Los vuelos nuevos, en el orden del archivo, y las líneas rechazadas.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    @Override
+    protected LoadResult call() throws IOException {
+        Set<String> flightNumbers = new HashSet<>(existing.size() * 2);
+        for (Flight flight : existing) {
+            flightNumbers.add(flight.getFlightNumber());
+        }
+
+        List<Flight> flights = new ArrayList<>();
+        List<LoadResult.LoadError> errors = new ArrayList<>();
+
+        // El progreso se mide en bytes con la posición del canal, que va por delante de lo leído como mucho un búfer.
+        try (FileChannel channel = FileChannel.open(path);
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), FileUtils.BUFFER_SIZE)) {
+            long total = Math.max(1, channel.size());
+            // La cabecera indica el separador de los campos.
+            String line = reader.readLine();
+            if (line == null) {
+                return new LoadResult(flights, errors);
+            }
+            char separator = FileUtils.separatorOf(line);
+            long lineNumber = 1;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber % PROGRESS_INTERVAL == 0) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    updateProgress(Math.min(channel.position(), total), total);
+                }
+
+                // Ignorar líneas vacías.
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    Flight flight = FileUtils.parseFlight(line, separator);
+                    if (flight.getFlightNumber().isBlank() || flight.getDestination().isBlank()) {
+                        errors.add(new LoadResult.LoadError(lineNumber, line, "Número de vuelo o destino vacío"));
+                    } else if (!flightNumbers.add(flight.getFlightNumber())) {
+                        errors.add(new LoadResult.LoadError(lineNumber, line, "Número de vuelo duplicado"));
+                    } else {
+                        flights.add(flight);
+                    }
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    errors.add(new LoadResult.LoadError(lineNumber, line, e.getMessage()));
+                }
+            }
+        }
+
+        updateProgress(1, 1);
+        return new LoadResult(flights, errors);
+    }
+}
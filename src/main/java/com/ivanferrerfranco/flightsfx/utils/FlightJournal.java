@@ -0,0 +1,722 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de escritura anticipada con las altas y bajas de vuelos.
+ * <p>
+ * Cada modificación se añade al final del diario como una línea {@code @posición+vuelo} o {@code @posición-vuelo},
+ * con la posición de la lista en la que se añadió o de la que se quitó el vuelo y el mismo formato de vuelo que
+ * el archivo de texto, de modo que el coste de guardar un cambio no depende del número de vuelos. Al cargar,
+ * las operaciones se aplican en orden en sus posiciones, así que una sustitución o un vuelo restaurado al deshacer
+ * conservan su sitio. Los diarios de versiones anteriores, con líneas {@code +vuelo} y {@code -vuelo} sin posición,
+ * se siguen pudiendo aplicar. Las escrituras se acumulan en memoria y se vuelcan a disco
+ * con {@link FileChannel#force} por lotes, bien periódicamente o bien al alcanzar un número de operaciones.
+ * <p>
+ * Cuando el diario crece lo suficiente, un hilo en segundo plano lo compacta: el diario se rota,
+ * sus operaciones se aplican sobre la instantánea y la instantánea resultante sustituye a la anterior.
+ * También se puede fijar un punto de control con {@link #checkpoint(List)}, que guarda como instantánea
+ * una lista completa y vacía el diario.
+ * <p>
+ * La primera línea del diario, {@code #base <identidad>...}, identifica por tamaño y CRC-32 los archivos base
+ * (instantánea o archivo de texto) sobre los que se registraron sus operaciones. Al cargar, un diario cuya cabecera
+ * no incluye la base cargada se descarta, por ejemplo si el archivo de texto se ha editado fuera de la aplicación,
+ * en lugar de aplicar sus operaciones sobre otros vuelos.
+ */
+public final class FlightJournal implements AutoCloseable {
+
+    /** Registro de los fallos del diario y de las líneas que no se pueden reproducir. */
+    private static final System.Logger LOGGER = System.getLogger(FlightJournal.class.getName());
+
+    /** Intervalo entre volcados a disco de las operaciones pendientes, en milisegundos. */
+    private static final long FSYNC_INTERVAL_MILLIS = 200;
+
+    /** Número de operaciones pendientes a partir del cual se vuelcan sin esperar al intervalo. */
+    private static final int MAX_PENDING_OPERATIONS = 512;
+
+    /** Intervalo entre comprobaciones de compactación, en segundos. */
+    private static final long COMPACTION_INTERVAL_SECONDS = 60;
+
+    /** Tamaño del diario a partir del cual se compacta, en bytes. */
+    private static final long COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+
+    /** Prefijo de las líneas que registran el alta de un vuelo. */
+    private static final char ADD = '+';
+
+    /** Prefijo de las líneas que registran la baja de un vuelo. */
+    private static final char REMOVE = '-';
+
+    /** Prefijo de las líneas con la posición del vuelo, que precede a {@link #ADD} o {@link #REMOVE}. */
+    private static final char POSITION = '@';
+
+    /** Prefijo de la cabecera con las identidades de los archivos base del diario. */
+    private static final String HEADER_PREFIX = "#base";
+
+    /** Identidad de un archivo base que no existe. */
+    private static final String NO_BASE = "-";
+
+    /** Tamaño del búfer con el que se calcula la identidad de un archivo, en bytes. */
+    private static final int IDENTITY_BUFFER_SIZE = 64 * 1024;
+
+    /** Ruta del diario activo. */
+    private final Path path;
+
+    /** Ruta del diario rotado mientras se compacta. */
+    private final Path compactingPath;
+
+    /** Ruta de la instantánea en la que se compacta el diario. */
+    private final Path snapshotPath;
+
+    /** Ruta del archivo de texto, la otra base posible del diario. */
+    private final Path textPath;
+
+    /** Hilo que vuelca las operaciones pendientes y lanza las compactaciones. */
+    private final ScheduledExecutorService scheduler;
+
+    /** Operaciones registradas que todavía no se han escrito en el diario. */
+    private final StringBuilder pending = new StringBuilder();
+
+    /** Número de operaciones en {@link #pending}. */
+    private int pendingOperations;
+
+    /** Canal abierto en modo de adición sobre el diario activo. */
+    private FileChannel channel;
+
+    /** Monitor que impide que una compactación y un punto de control reescriban la instantánea a la vez. */
+    private final Object snapshotLock = new Object();
+
+    /** Indica si el diario parte de la instantánea; deja de ser falso tras la primera compactación o punto de control. */
+    private volatile boolean snapshotBased;
+
+    /**
+     * Abre (o crea) un diario y arranca el volcado periódico y la compactación en segundo plano.
+     * Si el diario existente no se escribió sobre el archivo base indicado, se vacía.
+     *
+     * @param path         Ruta del diario.
+     * @param snapshotPath Ruta de la instantánea en la que se compacta el diario.
+     * @param textPath     Ruta del archivo de texto con los vuelos.
+     * @param baseFile     Archivo del que se han cargado los vuelos, o {@code null} si no existía ninguno.
+     * @throws IOException Si el diario no se puede abrir.
+     */
+    public FlightJournal(Path path, Path snapshotPath, Path textPath, Path baseFile) throws IOException {
+        this.path = path;
+        this.compactingPath = compactingPathOf(path);
+        this.snapshotPath = snapshotPath;
+        this.textPath = textPath;
+        this.snapshotBased = snapshotPath.equals(baseFile);
+
+        String base = identityOf(baseFile);
+        if (Files.exists(path) && !readBases(path).contains(base)) {
+            Files.delete(path);
+        }
+        boolean empty = Files.notExists(path) || Files.size(path) == 0;
+        this.channel = openChannel(path);
+        if (empty) {
+            writeHeader(channel, List.of(base));
+            channel.force(false);
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flight-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                FSYNC_INTERVAL_MILLIS, FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::compactIfNeeded,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registra el alta de un vuelo.
+     *
+     * @param position Posición de la lista en la que se ha añadido.
+     * @param flight   Vuelo añadido.
+     */
+    public void recordAdd(int position, Flight flight) {
+        recordAddLine(position, FileUtils.formatFlight(flight));
+    }
+
+    /**
+     * Registra la baja de un vuelo.
+     *
+     * @param position Posición de la lista que ocupaba.
+     * @param flight   Vuelo eliminado.
+     */
+    public void recordRemove(int position, Flight flight) {
+        recordRemoveLine(position, FileUtils.formatFlight(flight));
+    }
+
+    /**
+     * Registra el alta de un vuelo ya convertido en su línea de texto.
+     *
+     * @param position Posición de la lista en la que se ha añadido.
+     * @param line     Línea del vuelo añadido, con el formato de {@link FileUtils#formatFlight(Flight)}.
+     */
+    void recordAddLine(int position, String line) {
+        record(ADD, position, line);
+    }
+
+    /**
+     * Registra la baja de un vuelo ya convertido en su línea de texto.
+     *
+     * @param position Posición de la lista que ocupaba.
+     * @param line     Línea del vuelo eliminado, con el formato de {@link FileUtils#formatFlight(Flight)}.
+     */
+    void recordRemoveLine(int position, String line) {
+        record(REMOVE, position, line);
+    }
+
+    /**
+     * Añade una operación al lote pendiente y lo vuelca si ha alcanzado el tamaño máximo.
+     *
+     * @param operation Tipo de operación ({@link #ADD} o {@link #REMOVE}).
+     * @param position  Posición del vuelo afectado en la lista.
+     * @param line      Línea del vuelo afectado.
+     */
+    private synchronized void record(char operation, int position, String line) {
+        pending.append(POSITION).append(position).append(operation).append(line).append('\n');
+        if (++pendingOperations >= MAX_PENDING_OPERATIONS) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Escribe en el diario las operaciones pendientes y fuerza su volcado a disco.
+     *
+     * @throws IOException Si ocurre un error al escribir el diario.
+     */
+    public synchronized void flush() throws IOException {
+        if (pendingOperations == 0) {
+            return;
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(pending.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        pending.setLength(0);
+        pendingOperations = 0;
+    }
+
+    /**
+     * Versión de {@link #flush()} para el hilo en segundo plano, que informa de los errores sin propagarlos.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al escribir el diario de vuelos", e);
+        }
+    }
+
+    /**
+     * Compacta el diario si ha superado el tamaño límite.
+     */
+    private void compactIfNeeded() {
+        try {
+            if (Files.size(path) >= COMPACTION_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al compactar el diario de vuelos", e);
+        }
+    }
+
+    /**
+     * Aplica las operaciones del diario sobre la instantánea y vacía el diario.
+     * <p>
+     * El diario activo se rota bajo bloqueo, por lo que las nuevas operaciones se siguen registrando
+     * mientras la instantánea se reconstruye fuera del bloqueo. La nueva instantánea sustituye
+     * a la anterior de forma atómica.
+     * <p>
+     * Las operaciones rotadas se aplican sobre el archivo base que nombra la cabecera del diario rotado, no sobre
+     * el que se elegiría al cargar en ese momento. Si ni la instantánea ni el archivo de texto coinciden con él,
+     * la compactación se interrumpe y el diario rotado se conserva.
+     *
+     * @throws IOException Si ocurre un error al leer o escribir los archivos, o si no se encuentra el archivo base.
+     */
+    public void compact() throws IOException {
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                flush();
+                // Una compactación anterior interrumpida deja el diario rotado; se completa antes de rotar otro.
+                if (Files.notExists(compactingPath)) {
+                    channel.close();
+                    Files.move(path, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+                    channel = openChannel(path);
+                    // El diario nuevo continúa al rotado, así que parte de las mismas bases.
+                    writeHeader(channel, readBases(compactingPath));
+                    channel.force(false);
+                }
+            }
+
+            // Reconstruir el estado sin el diario activo y guardarlo como nueva instantánea. Se trabaja sobre
+            // las columnas del almacén, sin un objeto por vuelo, y se codifican tal cual.
+            FlightStore flights = loadBase(readBases(compactingPath));
+            replay(flights.asList(), compactingPath);
+            ByteBuffer snapshot = FlightSnapshotCodec.encode(flights);
+            // El diario activo acepta la nueva instantánea como base antes de que esta sustituya a la anterior.
+            addBase(identityOf(snapshot.duplicate()));
+            FileUtils.writeSnapshot(snapshot, snapshotPath);
+            Files.delete(compactingPath);
+            snapshotBased = true;
+        }
+    }
+
+    /**
+     * Carga los vuelos del archivo base cuya identidad figura en la cabecera de un diario, comprobando
+     * que no cambia mientras se lee.
+     *
+     * @param bases Identidades de la cabecera del diario.
+     * @return Un almacén con los vuelos del archivo base.
+     * @throws IOException Si ocurre un error al leer el archivo o si ningún archivo coincide con la cabecera.
+     */
+    private FlightStore loadBase(List<String> bases) throws IOException {
+        String snapshotIdentity = identityOf(snapshotPath);
+        if (!NO_BASE.equals(snapshotIdentity) && bases.contains(snapshotIdentity)) {
+            FlightStore flights = FileUtils.loadSnapshotStore(snapshotPath);
+            requireIdentity(snapshotPath, snapshotIdentity);
+            return flights;
+        }
+        String textIdentity = identityOf(textPath);
+        if (!NO_BASE.equals(textIdentity) && bases.contains(textIdentity)) {
+            FlightStore flights = new FlightStore();
+            FileUtils.scanFlights(textPath, flight -> {
+                flights.add(flight);
+                return true;
+            }, line -> LOGGER.log(System.Logger.Level.WARNING, "Línea con formato incorrecto: {0}", line));
+            requireIdentity(textPath, textIdentity);
+            return flights;
+        }
+        if (bases.contains(NO_BASE)) {
+            return new FlightStore();
+        }
+        throw new IOException("Ningún archivo de vuelos coincide con la base del diario rotado");
+    }
+
+    /**
+     * Comprueba que un archivo base no ha cambiado desde que se calculó su identidad.
+     *
+     * @param file     Archivo base.
+     * @param identity Identidad calculada antes de leerlo.
+     * @throws IOException Si el archivo ha cambiado o no se puede leer.
+     */
+    private static void requireIdentity(Path file, String identity) throws IOException {
+        if (!identity.equals(identityOf(file))) {
+            throw new IOException("El archivo base del diario ha cambiado durante la compactación: " + file);
+        }
+    }
+
+    /**
+     * Añade una identidad a la cabecera del diario activo, reescribiéndolo de forma atómica.
+     *
+     * @param identity Identidad del nuevo archivo base.
+     * @throws IOException Si ocurre un error al reescribir el diario.
+     */
+    private synchronized void addBase(String identity) throws IOException {
+        flush();
+        List<String> bases = new ArrayList<>(readBases(path));
+        bases.add(identity);
+        byte[] content = Files.readAllBytes(path);
+        int bodyStart = 0;
+        if (content.length > 0 && content[0] == HEADER_PREFIX.charAt(0)) {
+            while (bodyStart < content.length && content[bodyStart++] != '\n') {
+                // Saltar la cabecera anterior.
+            }
+        }
+
+        Path temporary = FileUtils.temporaryPathOf(path);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out, bases);
+            ByteBuffer body = ByteBuffer.wrap(content, bodyStart, content.length - bodyStart);
+            while (body.hasRemaining()) {
+                out.write(body);
+            }
+            out.force(false);
+        }
+        channel.close();
+        FileUtils.replaceAtomically(temporary, path);
+        channel = openChannel(path);
+    }
+
+    /**
+     * Guarda como instantánea una lista que ya incluye todas las operaciones registradas y vacía el diario.
+     * <p>
+     * Sirve cuando la lista se ha rehecho a partir de un archivo de texto más reciente que la instantánea:
+     * al cargar, ese archivo pasaría a ser la base y el diario, escrito sobre la base anterior, se descartaría.
+     * Las operaciones pendientes se descartan, ya que la lista las incluye, y el diario pasa a partir de la nueva instantánea.
+     *
+     * La lista se codifica directamente, sin copiarla antes, así que no debe cambiar mientras tanto.
+     *
+     * @param flights Vuelos con el estado completo, que incluye todas las operaciones registradas hasta ahora.
+     * @throws IOException Si ocurre un error al guardar la instantánea o al vaciar el diario.
+     */
+    public void checkpoint(List<Flight> flights) throws IOException {
+        ByteBuffer snapshot = FlightSnapshotCodec.encode(flights);
+        String identity = identityOf(snapshot.duplicate());
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                FileUtils.writeSnapshot(snapshot, snapshotPath);
+                pending.setLength(0);
+                pendingOperations = 0;
+                channel.truncate(0);
+                writeHeader(channel, List.of(identity));
+                channel.force(false);
+                Files.deleteIfExists(compactingPath);
+                snapshotBased = true;
+            }
+        }
+    }
+
+    /**
+     * Indica si el diario parte de la instantánea, de modo que {@link #keepSnapshotAsBase()} basta para
+     * conservarlo cuando el archivo de texto cambia.
+     *
+     * @return {@code true} si las operaciones del diario se aplican sobre la instantánea.
+     */
+    public boolean isSnapshotBased() {
+        return snapshotBased;
+    }
+
+    /**
+     * Mantiene la instantánea como archivo base tras modificarse el archivo de texto, actualizando su fecha
+     * de modificación. Sin esto, al cargar se elegiría el archivo de texto, más reciente, y el diario se descartaría.
+     * Solo es válido si el diario parte de la instantánea y los cambios del archivo de texto que se aplicaron
+     * a la lista se han registrado en el diario; si no, hay que fijar un punto de control.
+     *
+     * @return {@code true} si se ha actualizado la instantánea, o {@code false} si el diario no parte de ella.
+     * @throws IOException Si ocurre un error al actualizar la fecha de la instantánea.
+     */
+    public boolean keepSnapshotAsBase() throws IOException {
+        synchronized (snapshotLock) {
+            if (!snapshotBased || Files.notExists(snapshotPath)) {
+                return false;
+            }
+            Files.setLastModifiedTime(snapshotPath, FileTime.from(Instant.now()));
+            return true;
+        }
+    }
+
+    /**
+     * Detiene las tareas en segundo plano, vuelca las operaciones pendientes y cierra el diario.
+     *
+     * @throws IOException Si ocurre un error al escribir o cerrar el diario.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        scheduler.shutdownNow();
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Aplica sobre una lista cargada de la instantánea o del archivo de texto las operaciones
+     * de los diarios que todavía no se han compactado en ella.
+     * <p>
+     * Solo se aplican los diarios cuya cabecera incluye la identidad del archivo base; los demás se eliminan.
+     * Un diario rotado que no parte de la base indica que su compactación llegó a terminar, y un diario activo
+     * que no parte de ella se escribió sobre otra versión de los vuelos, por ejemplo antes de editar el archivo de texto.
+     *
+     * @param flights   Vuelos cargados de la instantánea o del archivo de texto.
+     * @param path      Ruta del diario activo.
+     * @param baseFile  Archivo del que se han cargado los vuelos, o {@code null} si no existía ninguno.
+     * @throws IOException Si ocurre un error al leer los diarios.
+     */
+    static void replay(List<Flight> flights, Path path, Path baseFile) throws IOException {
+        String base = identityOf(baseFile);
+        Path compacting = compactingPathOf(path);
+        if (Files.exists(compacting)) {
+            if (readBases(compacting).contains(base)) {
+                replay(flights, compacting);
+            } else {
+                Files.delete(compacting);
+            }
+        }
+        if (Files.exists(path)) {
+            if (readBases(path).contains(base)) {
+                replay(flights, path);
+            } else {
+                LOGGER.log(System.Logger.Level.WARNING, "Se descarta el diario de vuelos: no corresponde al archivo de vuelos cargado");
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Aplica las operaciones de un diario sobre una lista de vuelos, en el orden en el que se registraron.
+     * <p>
+     * Las altas consecutivas en posiciones seguidas y las bajas consecutivas en la misma posición, como las de
+     * un cambio de rango, se aplican de una vez. Si el vuelo de una baja no está en su posición, se quita
+     * el último igual; las líneas sin posición de los diarios anteriores añaden al final y quitan por contenido.
+     *
+     * @param flights Lista de vuelos que se modifica.
+     * @param journal Ruta del diario.
+     * @throws IOException Si ocurre un error al leer el diario.
+     */
+    private static void replay(List<Flight> flights, Path journal) throws IOException {
+        Replay replay = new Replay(flights);
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2) {
+                    continue;
+                }
+                if (line.charAt(0) == POSITION) {
+                    int end = 1;
+                    while (end < line.length() && Character.isDigit(line.charAt(end))) {
+                        end++;
+                    }
+                    if (end == 1 || end >= line.length() - 1) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Línea del diario con formato incorrecto: {0}", line);
+                        continue;
+                    }
+                    int position = Integer.parseInt(line, 1, end, 10);
+                    if (line.charAt(end) == ADD) {
+                        replay.add(position, line.substring(end + 1));
+                    } else if (line.charAt(end) == REMOVE) {
+                        replay.remove(position, line.substring(end + 1));
+                    }
+                } else if (line.charAt(0) == ADD) {
+                    replay.add(-1, line.substring(1));
+                } else if (line.charAt(0) == REMOVE) {
+                    replay.remove(-1, line.substring(1));
+                }
+            }
+        }
+        replay.finish();
+    }
+
+    /**
+     * Aplicación en orden de las operaciones de un diario, que agrupa en un solo cambio de la lista
+     * las altas y bajas consecutivas de un mismo rango.
+     */
+    private static final class Replay {
+
+        /** Lista de vuelos que se modifica. */
+        private final List<Flight> flights;
+
+        /** Vuelos del alta en curso, que se insertan juntos a partir de {@link #start}. */
+        private final List<Flight> added = new ArrayList<>();
+
+        /** Líneas de los vuelos de la baja en curso, que ocupan las posiciones seguidas a partir de {@link #start}. */
+        private final List<String> removed = new ArrayList<>();
+
+        /** Posición del alta o la baja en curso. */
+        private int start;
+
+        /**
+         * Crea la aplicación sobre una lista.
+         *
+         * @param flights Lista de vuelos que se modifica.
+         */
+        Replay(List<Flight> flights) {
+            this.flights = flights;
+        }
+
+        /**
+         * Aplica un alta, o la acumula si continúa el alta en curso.
+         *
+         * @param position Posición del vuelo, o -1 si la línea no la indica y el vuelo se añade al final.
+         * @param line     Línea del vuelo.
+         */
+        void add(int position, String line) {
+            Flight flight;
+            try {
+                flight = FileUtils.parseFlight(line);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Línea del diario con formato incorrecto: {0}", line);
+                return;
+            }
+            if (!added.isEmpty() && position == start + added.size()) {
+                added.add(flight);
+                return;
+            }
+            finish();
+            start = position < 0 ? flights.size() : Math.min(position, flights.size());
+            added.add(flight);
+        }
+
+        /**
+         * Aplica una baja, o la acumula si continúa la baja en curso.
+         *
+         * @param position Posición del vuelo, o -1 si la línea no la indica y el vuelo se busca por contenido.
+         * @param line     Línea del vuelo.
+         */
+        void remove(int position, String line) {
+            if (position >= 0 && !removed.isEmpty() && position == start) {
+                removed.add(line);
+                return;
+            }
+            finish();
+            if (position < 0) {
+                removeByContent(line);
+                return;
+            }
+            start = position;
+            removed.add(line);
+        }
+
+        /**
+         * Aplica a la lista el alta o la baja en curso.
+         */
+        void finish() {
+            if (!added.isEmpty()) {
+                flights.addAll(start, added);
+                added.clear();
+            }
+            if (!removed.isEmpty()) {
+                if (matchesAt(start, removed)) {
+                    flights.subList(start, start + removed.size()).clear();
+                } else {
+                    removed.forEach(this::removeByContent);
+                }
+                removed.clear();
+            }
+        }
+
+        /**
+         * Comprueba que unos vuelos ocupan las posiciones seguidas de la lista a partir de una dada.
+         *
+         * @param from  Primera posición.
+         * @param lines Líneas de los vuelos esperados.
+         * @return {@code true} si todos los vuelos coinciden.
+         */
+        private boolean matchesAt(int from, List<String> lines) {
+            if (from + lines.size() > flights.size()) {
+                return false;
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                if (!lines.get(i).equals(FileUtils.formatFlight(flights.get(from + i)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Quita el último vuelo de la lista igual a una línea: el añadido más reciente o, si no lo hay, uno de la base.
+         *
+         * @param line Línea del vuelo.
+         */
+        private void removeByContent(String line) {
+            for (int i = flights.size() - 1; i >= 0; i--) {
+                if (line.equals(FileUtils.formatFlight(flights.get(i)))) {
+                    flights.remove(i);
+                    return;
+                }
+            }
+            LOGGER.log(System.Logger.Level.WARNING, "Baja del diario de un vuelo que no existe: {0}", line);
+        }
+    }
+
+    /**
+     * Calcula la identidad de un archivo base: su tamaño y el CRC-32 de su contenido.
+     *
+     * @param file Archivo base, o {@code null}.
+     * @return La identidad, o {@link #NO_BASE} si el archivo es {@code null} o no existe.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    static String identityOf(Path file) throws IOException {
+        if (file == null || Files.notExists(file)) {
+            return NO_BASE;
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IDENTITY_BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            int read;
+            while ((read = in.read(buffer.clear())) >= 0) {
+                crc.update(buffer.flip());
+                size += read;
+            }
+        }
+        return size + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Calcula la identidad de un archivo base a partir de su contenido, antes de escribirlo.
+     *
+     * @param content Contenido completo del archivo; se consume.
+     * @return La misma identidad que {@link #identityOf(Path)} devolverá para el archivo escrito.
+     */
+    private static String identityOf(ByteBuffer content) {
+        int size = content.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return size + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Lee las identidades de los archivos base de la cabecera de un diario.
+     *
+     * @param journal Ruta del diario.
+     * @return Las identidades, o una lista vacía si el diario no tiene cabecera.
+     * @throws IOException Si ocurre un error al leer el diario.
+     */
+    private static List<String> readBases(Path journal) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER_PREFIX + " ")) {
+                return List.of();
+            }
+            return List.of(header.substring(HEADER_PREFIX.length() + 1).split(" "));
+        }
+    }
+
+    /**
+     * Escribe la cabecera de un diario en la posición actual de un canal.
+     *
+     * @param channel Canal del diario.
+     * @param bases   Identidades de los archivos base.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void writeHeader(FileChannel channel, List<String> bases) throws IOException {
+        ByteBuffer header = StandardCharsets.UTF_8.encode(HEADER_PREFIX + " " + String.join(" ", bases) + "\n");
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Devuelve la ruta del diario rotado que corresponde a un diario.
+     *
+     * @param path Ruta del diario activo.
+     * @return La ruta del diario rotado.
+     */
+    private static Path compactingPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compacting");
+    }
+
+    /**
+     * Abre un diario en modo de adición, creándolo si no existe.
+     *
+     * @param path Ruta del diario.
+     * @return El canal abierto.
+     * @throws IOException Si el diario no se puede abrir.
+     */
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
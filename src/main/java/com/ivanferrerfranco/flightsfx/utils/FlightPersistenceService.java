@@ -0,0 +1,378 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightDelta;
+import javafx.collections.ListChangeListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Servicio que guarda los cambios de vuelos en un hilo propio, fuera del hilo de JavaFX.
+ * <p>
+ * Las altas y bajas se encolan sin bloquear a quien las registra. Un único hilo en segundo plano
+ * espera un breve intervalo para agrupar las ráfagas de cambios y las escribe en el diario con
+ * una sola escritura y un solo volcado a disco.
+ * <p>
+ * El servicio se puede registrar como oyente de la lista de vuelos: cada cambio de la lista, incluidos
+ * los que aplica el historial al deshacer o rehacer, se convierte en las altas y bajas equivalentes.
+ * Cada vuelo se convierte en su línea del diario al encolarlo, en el hilo que registra el cambio, de modo que
+ * las modificaciones posteriores del objeto no alteran lo que se escribe.
+ * <p>
+ * Si no hay diario, el servicio guarda en su lugar la instantánea completa: cada cambio solo la marca como
+ * pendiente, y una única escritura tras {@link #SNAPSHOT_DELAY_MILLIS} recoge todos los cambios de ese intervalo.
+ * <p>
+ * Si una escritura falla, los cambios siguen pendientes: se reintenta con esperas crecientes, y los futuros de
+ * {@link #flush()} y {@link #shutdown()} que la incluyen terminan con el error, de modo que no se pierden en silencio.
+ */
+public final class FlightPersistenceService implements ListChangeListener<Flight> {
+
+    /** Registro de los errores al guardar los cambios en segundo plano. */
+    private static final System.Logger LOGGER = System.getLogger(FlightPersistenceService.class.getName());
+
+    /** Tiempo que se espera tras el primer cambio para agrupar los siguientes, en milisegundos. */
+    private static final long COALESCE_DELAY_MILLIS = 50;
+
+    /** Tiempo que se espera tras el primer cambio para guardar la instantánea cuando no hay diario, en milisegundos. */
+    private static final long SNAPSHOT_DELAY_MILLIS = 1000;
+
+    /** Espera antes del primer reintento de una escritura fallida, en milisegundos. */
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 500;
+
+    /** Espera máxima entre reintentos de una escritura fallida, en milisegundos. */
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    /** Diario en el que se escriben los cambios, o {@code null} si se guarda la instantánea completa. */
+    private final FlightJournal journal;
+
+    /** Estado completo de los vuelos para la instantánea, o {@code null} si hay diario. */
+    private final Supplier<List<Flight>> state;
+
+    /** Ruta de la instantánea, o {@code null} si hay diario. */
+    private final Path snapshotPath;
+
+    /** Hilo en el que se realizan todas las escrituras, en el orden en el que se piden. */
+    private final ScheduledExecutorService executor;
+
+    /** Cambios registrados que todavía no se han escrito. */
+    private final Queue<PendingOperation> pending = new ConcurrentLinkedQueue<>();
+
+    /** Indica si ya hay una escritura programada que recogerá los nuevos cambios. */
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /** Espera antes del próximo reintento; se duplica con cada fallo seguido. Solo se usa en el hilo del servicio. */
+    private long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+
+    /** Futuro del apagado, creado en la primera llamada a {@link #shutdown()} y devuelto en las siguientes. */
+    private final AtomicReference<CompletableFuture<Void>> shutdown = new AtomicReference<>();
+
+    /**
+     * Crea el servicio sobre un diario ya abierto.
+     *
+     * @param journal Diario en el que se escriben los cambios; el servicio lo cierra al apagarse.
+     */
+    public FlightPersistenceService(FlightJournal journal) {
+        this(journal, null, null);
+    }
+
+    /**
+     * Crea el servicio sin diario: los cambios se agrupan y se guardan como instantánea completa.
+     *
+     * @param state        Proveedor del estado completo de los vuelos; se llama en el hilo del servicio,
+     *                     por lo que debe copiar la lista con su cerrojo de lectura.
+     * @param snapshotPath Ruta de la instantánea.
+     */
+    public FlightPersistenceService(Supplier<List<Flight>> state, Path snapshotPath) {
+        this(null, state, snapshotPath);
+    }
+
+    /**
+     * Crea el servicio con diario o con instantánea.
+     *
+     * @param journal      Diario, o {@code null} si se guarda la instantánea.
+     * @param state        Proveedor del estado de los vuelos si no hay diario.
+     * @param snapshotPath Ruta de la instantánea si no hay diario.
+     */
+    private FlightPersistenceService(FlightJournal journal, Supplier<List<Flight>> state, Path snapshotPath) {
+        this.journal = journal;
+        this.state = state;
+        this.snapshotPath = snapshotPath;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flight-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra las altas y bajas de un cambio de la lista de vuelos.
+     *
+     * @param change Cambio producido en la lista de vuelos.
+     */
+    @Override
+    public void onChanged(Change<? extends Flight> change) {
+        if (journal == null) {
+            requestSnapshot();
+            return;
+        }
+        for (FlightDelta delta : FlightDelta.fromChange(change)) {
+            record(delta);
+        }
+    }
+
+    /**
+     * Registra un cambio de rango como las bajas de los vuelos eliminados seguidas de las altas de los añadidos,
+     * cada una con su posición: todas las bajas en la posición inicial del cambio y las altas en las siguientes.
+     *
+     * @param delta Cambio a registrar.
+     */
+    public void record(FlightDelta delta) {
+        for (Flight flight : delta.removed()) {
+            recordRemove(delta.from(), flight);
+        }
+        for (int i = 0; i < delta.added().size(); i++) {
+            recordAdd(delta.from() + i, delta.added().get(i));
+        }
+    }
+
+    /**
+     * Registra el alta de un vuelo. No bloquea: la escritura se realiza en segundo plano.
+     *
+     * @param position Posición de la lista en la que se ha añadido.
+     * @param flight   Vuelo añadido.
+     */
+    public void recordAdd(int position, Flight flight) {
+        enqueue(new PendingOperation(Kind.ADD, position, FileUtils.formatFlight(flight), null));
+    }
+
+    /**
+     * Registra la baja de un vuelo. No bloquea: la escritura se realiza en segundo plano.
+     *
+     * @param position Posición de la lista que ocupaba.
+     * @param flight   Vuelo eliminado.
+     */
+    public void recordRemove(int position, Flight flight) {
+        enqueue(new PendingOperation(Kind.REMOVE, position, FileUtils.formatFlight(flight), null));
+    }
+
+    /**
+     * Registra un punto de control: en su turno, después de los cambios registrados antes, guarda la lista
+     * como instantánea y vacía el diario. En el hilo que llama solo se copian las referencias a los vuelos, que la lista
+     * sustituye en lugar de modificarlos; la codificación y la escritura se realizan en segundo plano, directamente
+     * sobre esa copia. Sin diario, solo programa la instantánea.
+     *
+     * @param flights Vuelos con el estado completo en este momento.
+     * @see FlightJournal#checkpoint(List)
+     */
+    public void checkpoint(List<Flight> flights) {
+        if (journal == null) {
+            requestSnapshot();
+            return;
+        }
+        enqueue(new PendingOperation(Kind.CHECKPOINT, 0, null, new ArrayList<>(flights)));
+    }
+
+    /**
+     * Conserva los cambios guardados cuando el archivo de texto se modifica fuera de la aplicación, después de
+     * registrar los cambios que se aplicaron a la lista a partir de él.
+     * <p>
+     * Si el diario parte de la instantánea, basta con que esta siga siendo el archivo base, lo que no depende del
+     * número de vuelos. Si no, porque los vuelos se cargaron del archivo de texto y aún no se ha guardado ninguna
+     * instantánea, se fija un punto de control con {@link #checkpoint(List)}. Sin diario, se programa la instantánea.
+     *
+     * @param flights Vuelos con el estado completo en este momento.
+     */
+    public void keepBase(List<Flight> flights) {
+        if (journal == null) {
+            requestSnapshot();
+        } else if (journal.isSnapshotBased()) {
+            enqueue(new PendingOperation(Kind.KEEP_BASE, 0, null, null));
+        } else {
+            checkpoint(flights);
+        }
+    }
+
+    /**
+     * Devuelve un futuro que se completa cuando todos los cambios registrados hasta ahora están en disco.
+     *
+     * @return Futuro que se completa tras el volcado, o de forma excepcional si la escritura falla.
+     *         Tras el apagado, el futuro del apagado.
+     */
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> closing = shutdown.get();
+        if (closing != null) {
+            return closing;
+        }
+        return CompletableFuture.runAsync(journal == null ? this::writeSnapshot : this::writePending, executor);
+    }
+
+    /**
+     * Escribe los cambios pendientes, cierra el diario y detiene el hilo del servicio.
+     * Se puede llamar varias veces: las llamadas posteriores devuelven el mismo futuro.
+     * Los cambios registrados después del apagado se descartan.
+     *
+     * @return Futuro que se completa cuando el último cambio está en disco y el diario cerrado.
+     */
+    public CompletableFuture<Void> shutdown() {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> existing = shutdown.compareAndExchange(null, created);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture.runAsync(() -> {
+            if (journal == null) {
+                writeSnapshot();
+                return;
+            }
+            writePending();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor).whenComplete((result, error) -> {
+            executor.shutdown();
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(null);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Encola un cambio y programa una escritura si no hay ya una pendiente.
+     *
+     * @param operation Cambio a guardar.
+     */
+    private void enqueue(PendingOperation operation) {
+        if (shutdown.get() != null) {
+            return;
+        }
+        pending.add(operation);
+        if (writeScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::writePendingQuietly, COALESCE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Marca la instantánea como pendiente y programa su escritura si no hay ya una programada.
+     */
+    private void requestSnapshot() {
+        if (shutdown.get() == null && writeScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::writePendingQuietly, SNAPSHOT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Guarda la instantánea completa si hay cambios desde la última. Los cambios posteriores a la lectura
+     * del estado programan otra escritura.
+     */
+    private void writeSnapshot() {
+        if (!writeScheduled.getAndSet(false)) {
+            return;
+        }
+        try {
+            FileUtils.saveSnapshot(state.get(), snapshotPath);
+        } catch (IOException e) {
+            // La instantánea sigue pendiente para el siguiente intento.
+            writeScheduled.set(true);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escribe en el diario todos los cambios encolados y los vuelca a disco de una vez.
+     * Cada cambio se quita de la cola cuando el diario lo ha aceptado, así que si uno falla, él y los
+     * siguientes siguen en la cola para el próximo intento. Los que el diario ya ha aceptado quedan en
+     * su lote pendiente hasta que el volcado a disco tenga éxito.
+     */
+    private void writePending() {
+        writeScheduled.set(false);
+        PendingOperation operation;
+        try {
+            while ((operation = pending.peek()) != null) {
+                switch (operation.kind()) {
+                    case ADD -> journal.recordAddLine(operation.position(), operation.line());
+                    case REMOVE -> journal.recordRemoveLine(operation.position(), operation.line());
+                    case CHECKPOINT -> journal.checkpoint(operation.checkpoint());
+                    case KEEP_BASE -> {
+                        if (!journal.keepSnapshotAsBase()) {
+                            throw new IOException("La instantánea ya no es la base del diario");
+                        }
+                    }
+                }
+                pending.poll();
+            }
+            journal.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escritura programada: escribe los cambios encolados, o la instantánea si no hay diario.
+     * Si falla, informa del error y programa un reintento con una espera que se duplica en cada fallo seguido.
+     * Tras el apagado no hace nada, ya que el apagado escribe por sí mismo los cambios pendientes.
+     */
+    private void writePendingQuietly() {
+        if (shutdown.get() != null) {
+            return;
+        }
+        try {
+            if (journal == null) {
+                writeSnapshot();
+            } else {
+                writePending();
+            }
+            retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+        } catch (UncheckedIOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al guardar los cambios de vuelos", e.getCause());
+            writeScheduled.set(true);
+            executor.schedule(this::writePendingQuietly, retryDelayMillis, TimeUnit.MILLISECONDS);
+            retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Tipo de un cambio pendiente.
+     */
+    private enum Kind {
+
+        /** Alta de un vuelo. */
+        ADD,
+
+        /** Baja de un vuelo. */
+        REMOVE,
+
+        /** Punto de control con el estado completo. */
+        CHECKPOINT,
+
+        /** Mantener la instantánea como archivo base. */
+        KEEP_BASE
+    }
+
+    /**
+     * Cambio pendiente de escribir.
+     *
+     * @param kind       Tipo de cambio.
+     * @param position   Posición del vuelo afectado en las altas y bajas, o 0 en otro caso.
+     * @param line       Línea del vuelo afectado en las altas y bajas, o {@code null} en otro caso.
+     * @param checkpoint Vuelos a guardar como instantánea en los puntos de control, o {@code null} en otro caso.
+     */
+    private record PendingOperation(Kind kind, int position, String line, List<Flight> checkpoint) {
+    }
+}
@@ -0,0 +1,386 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador del formato binario de instantáneas de vuelos.
+ * <p>
+ * Estructura del archivo (big-endian):
+ * <pre>
+ * int    MAGIC ("FLSN")
+ * short  versión del formato
+ * short  reservado
+ * int    número de vuelos
+ * int    tamaño del diccionario de destinos
+ * [números de vuelo]          short longitud + bytes UTF-8 por vuelo
+ * [diccionario de destinos]   short longitud + bytes UTF-8 por entrada
+ * [relleno hasta múltiplo de 8]
+ * long[] salida en minutos desde la época (UTC)
+ * int[]  identificador del destino en su diccionario
+ * short[] duración en minutos
+ * </pre>
+ * Las columnas coinciden con las de {@link FlightStore} y se copian en bloque entre sus arrays
+ * y vistas tipadas del {@link ByteBuffer}, sin interpretar cada vuelo. Los valores nulos se codifican
+ * como {@code -1} (identificador y duración), {@link FlightStore#NO_DEPARTURE} (salida) o con la longitud
+ * {@code 0xFFFF} (números de vuelo y huecos del diccionario).
+ */
+final class FlightSnapshotCodec {
+
+    /** Marca de inicio del archivo: los bytes ASCII "FLSN". */
+    static final int MAGIC = 0x464C534E;
+
+    /** Versión actual del formato. */
+    static final short VERSION = 2;
+
+    /** Tamaño de la cabecera fija, en bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Bytes que ocupa cada vuelo en las columnas de tamaño fijo. */
+    private static final int ROW_SIZE = Long.BYTES + Integer.BYTES + Short.BYTES;
+
+    /** Longitud que marca una cadena nula; las cadenas codificadas nunca la alcanzan. */
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    /** Minutos de un día, límite exclusivo de la columna de duración. */
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Menor salida representable por {@link LocalDateTime}, en minutos desde la época. */
+    private static final long MIN_DEPARTURE = Math.floorDiv(LocalDateTime.MIN.toEpochSecond(ZoneOffset.UTC), 60) + 1;
+
+    /** Mayor salida representable por {@link LocalDateTime}, en minutos desde la época. */
+    private static final long MAX_DEPARTURE = Math.floorDiv(LocalDateTime.MAX.toEpochSecond(ZoneOffset.UTC), 60);
+
+    private FlightSnapshotCodec() {
+        // Clase de utilidad, no se instancia
+    }
+
+    /**
+     * Codifica un almacén de vuelos en un búfer con el formato de instantánea.
+     * El diccionario y las columnas del almacén se escriben tal cual, sin recodificar los identificadores.
+     *
+     * @param store Almacén con los vuelos a codificar.
+     * @return Un búfer directo listo para escribirse, con la posición en 0 y el límite al final de los datos.
+     */
+    static ByteBuffer encode(FlightStore store) {
+        return encode(store.size(), store.destinationDictionary(), new Columns() {
+            @Override
+            public String flightNumber(int index) {
+                return store.flightNumber(index);
+            }
+
+            @Override
+            public int destinationId(int index) {
+                return store.destinationId(index);
+            }
+
+            @Override
+            public long departureMinutes(int index) {
+                return store.departureMinutes(index);
+            }
+
+            @Override
+            public short durationMinutes(int index) {
+                return store.durationMinutes(index);
+            }
+        });
+    }
+
+    /**
+     * Codifica una lista de vuelos en un búfer con el formato de instantánea, sin copiarla antes en un
+     * {@link FlightStore}: el diccionario de destinos se construye con los destinos distintos y cada columna
+     * se escribe leyendo directamente los vuelos de la lista.
+     *
+     * @param flights Vuelos a codificar; la lista no debe cambiar mientras se codifica.
+     * @return Un búfer directo listo para escribirse, con la posición en 0 y el límite al final de los datos.
+     */
+    static ByteBuffer encode(List<Flight> flights) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Flight flight : flights) {
+            String destination = flight.getDestination();
+            if (destination != null && ids.putIfAbsent(destination, dictionary.size()) == null) {
+                dictionary.add(destination);
+            }
+        }
+        return encode(flights.size(), dictionary, new Columns() {
+            @Override
+            public String flightNumber(int index) {
+                return flights.get(index).getFlightNumber();
+            }
+
+            @Override
+            public int destinationId(int index) {
+                String destination = flights.get(index).getDestination();
+                return destination == null ? -1 : ids.get(destination);
+            }
+
+            @Override
+            public long departureMinutes(int index) {
+                return FlightStore.toEpochMinutes(flights.get(index).getDepartureDateTime());
+            }
+
+            @Override
+            public short durationMinutes(int index) {
+                return FlightStore.toMinutes(flights.get(index).getDuration());
+            }
+        });
+    }
+
+    /**
+     * Codifica unas columnas de vuelos. Las cadenas se miden en una primera pasada y se escriben directamente
+     * en el búfer en la segunda, de modo que la única copia completa de los vuelos es el propio búfer.
+     *
+     * @param count      Número de vuelos.
+     * @param dictionary Diccionario de destinos, indexado por identificador; puede tener huecos {@code null}.
+     * @param columns    Valores de cada vuelo.
+     * @return Un búfer directo listo para escribirse, con la posición en 0 y el límite al final de los datos.
+     */
+    private static ByteBuffer encode(int count, List<String> dictionary, Columns columns) {
+        // Calcular el tamaño total del archivo.
+        long stringsSize = 0;
+        for (int i = 0; i < count; i++) {
+            stringsSize += Short.BYTES + encodedLength(columns.flightNumber(i));
+        }
+        for (String destination : dictionary) {
+            stringsSize += Short.BYTES + encodedLength(destination);
+        }
+        if (HEADER_SIZE + stringsSize + Long.BYTES + (long) count * ROW_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Demasiados vuelos para una instantánea: " + count);
+        }
+        int columnsStart = align(HEADER_SIZE + (int) stringsSize);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(columnsStart + count * ROW_SIZE);
+        buffer.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(count)
+                .putInt(dictionary.size());
+        for (int i = 0; i < count; i++) {
+            putString(buffer, columns.flightNumber(i));
+        }
+        for (String destination : dictionary) {
+            putString(buffer, destination);
+        }
+
+        // Escribir las columnas a través de vistas tipadas del búfer.
+        LongBuffer departures = buffer.position(columnsStart).slice().asLongBuffer();
+        IntBuffer destinationColumn = buffer.position(columnsStart + count * Long.BYTES).slice().asIntBuffer();
+        ShortBuffer durations = buffer.position(columnsStart + count * (Long.BYTES + Integer.BYTES)).slice().asShortBuffer();
+        for (int i = 0; i < count; i++) {
+            departures.put(i, columns.departureMinutes(i));
+            destinationColumn.put(i, columns.destinationId(i));
+            durations.put(i, columns.durationMinutes(i));
+        }
+
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Valores de los vuelos que se codifican, leídos por posición.
+     */
+    private interface Columns {
+
+        /**
+         * Devuelve el número de vuelo de una posición.
+         *
+         * @param index Posición del vuelo.
+         * @return El número de vuelo, o {@code null}.
+         */
+        String flightNumber(int index);
+
+        /**
+         * Devuelve el identificador del destino de una posición en el diccionario que se codifica.
+         *
+         * @param index Posición del vuelo.
+         * @return El identificador, o {@code -1} si el destino es nulo.
+         */
+        int destinationId(int index);
+
+        /**
+         * Devuelve la salida de una posición en minutos desde la época.
+         *
+         * @param index Posición del vuelo.
+         * @return Los minutos, o {@link FlightStore#NO_DEPARTURE}.
+         */
+        long departureMinutes(int index);
+
+        /**
+         * Devuelve la duración de una posición en minutos.
+         *
+         * @param index Posición del vuelo.
+         * @return Los minutos, o {@link FlightStore#NO_DURATION}.
+         */
+        short durationMinutes(int index);
+    }
+
+    /**
+     * Decodifica un búfer con el formato de instantánea en un almacén por columnas,
+     * sin construir un objeto {@link Flight} por vuelo.
+     * <p>
+     * Todos los contadores, longitudes e identificadores se comprueban contra el contenido del búfer antes
+     * de leerlos o reservar memoria, de modo que un archivo truncado o corrupto se rechaza siempre con
+     * {@link IllegalArgumentException} y nunca con un desbordamiento del búfer o una reserva desmesurada.
+     *
+     * @param buffer Búfer con el contenido completo del archivo, con la posición al inicio de los datos.
+     * @return El almacén con los vuelos en el mismo orden en el que se codificaron.
+     * @throws IllegalArgumentException Si el búfer no contiene una instantánea válida, está truncado o corrupto,
+     *                                  o su versión no es compatible.
+     */
+    static FlightStore decodeStore(ByteBuffer buffer) {
+        int base = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("El archivo no es una instantánea de vuelos");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de instantánea no soportada: " + version);
+        }
+        buffer.getShort();
+        int count = buffer.getInt();
+        int destinationCount = buffer.getInt();
+        // Cada vuelo ocupa al menos ROW_SIZE más la longitud de su número, y cada entrada del diccionario su longitud,
+        // así que ningún contador válido supera lo que queda.
+        check(count >= 0 && (long) count * (ROW_SIZE + Short.BYTES) <= buffer.remaining(), "número de vuelos incorrecto: " + count);
+        check(destinationCount >= 0 && destinationCount <= buffer.remaining() / Short.BYTES,
+                "tamaño de diccionario incorrecto: " + destinationCount);
+        byte[] scratch = new byte[NULL_LENGTH];
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = getString(buffer, scratch);
+        }
+        List<String> destinations = new ArrayList<>(destinationCount);
+        for (int i = 0; i < destinationCount; i++) {
+            destinations.add(getString(buffer, scratch));
+        }
+
+        // Localizar las columnas a continuación de las cadenas.
+        int columnsStart = base + align(buffer.position() - base);
+        check(columnsStart <= buffer.limit() && (long) count * ROW_SIZE <= buffer.limit() - columnsStart,
+                "la instantánea está truncada");
+        long[] departures = new long[count];
+        int[] destinationIds = new int[count];
+        short[] durations = new short[count];
+        buffer.position(columnsStart).slice().asLongBuffer().get(departures);
+        buffer.position(columnsStart + count * Long.BYTES).slice().asIntBuffer().get(destinationIds);
+        buffer.position(columnsStart + count * (Long.BYTES + Integer.BYTES)).slice().asShortBuffer().get(durations);
+
+        // Comprobar que cada valor se puede convertir de vuelta en un vuelo.
+        for (int i = 0; i < count; i++) {
+            int destination = destinationIds[i];
+            check(destination == -1 || (destination >= 0 && destination < destinationCount && destinations.get(destination) != null),
+                    "destino fuera de rango en la posición " + i);
+            check(durations[i] >= FlightStore.NO_DURATION && durations[i] < MINUTES_PER_DAY, "duración incorrecta en la posición " + i);
+            check(departures[i] == FlightStore.NO_DEPARTURE
+                    || (departures[i] >= MIN_DEPARTURE && departures[i] <= MAX_DEPARTURE), "salida incorrecta en la posición " + i);
+        }
+
+        return FlightStore.fromColumns(numbers, destinations, destinationIds, departures, durations, count);
+    }
+
+    /**
+     * Calcula cuántos bytes ocupa una cadena codificada en UTF-8, sin codificarla.
+     *
+     * @param value Cadena; puede ser {@code null}.
+     * @return Los bytes de la cadena, o 0 si es {@code null}.
+     * @throws IllegalArgumentException Si la cadena supera la longitud máxima del formato.
+     */
+    private static int encodedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    // La codificación sustituye un sustituto suelto por '?'.
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        if (length >= NULL_LENGTH) {
+            throw new IllegalArgumentException("Valor demasiado largo para la instantánea: " + value);
+        }
+        return length;
+    }
+
+    /**
+     * Escribe una cadena: su longitud en UTF-8 en dos bytes seguida de sus bytes, o {@link #NULL_LENGTH} si es nula.
+     *
+     * @param buffer Búfer de destino.
+     * @param value  Cadena; puede ser {@code null}. Su longitud ya se ha comprobado con {@link #encodedLength(String)}.
+     */
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_LENGTH);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    /**
+     * Lee una cadena escrita con {@link #putString(ByteBuffer, String)}.
+     *
+     * @param buffer  Búfer posicionado al inicio de la cadena.
+     * @param scratch Array auxiliar de al menos {@link #NULL_LENGTH} bytes, reutilizado entre cadenas.
+     * @return La cadena, o {@code null} si se codificó como nula.
+     * @throws IllegalArgumentException Si la cadena está truncada.
+     */
+    private static String getString(ByteBuffer buffer, byte[] scratch) {
+        check(buffer.remaining() >= Short.BYTES, "cadena truncada");
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        check(buffer.remaining() >= length, "cadena truncada");
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rechaza la instantánea si no se cumple una condición de validez.
+     *
+     * @param condition Condición que debe cumplir el contenido leído.
+     * @param message   Descripción del problema si no se cumple.
+     * @throws IllegalArgumentException Si la condición es falsa.
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException("Instantánea corrupta: " + message);
+        }
+    }
+
+    /**
+     * Redondea un desplazamiento al siguiente múltiplo de 8 para alinear las columnas.
+     *
+     * @param offset Desplazamiento en bytes.
+     * @return El desplazamiento alineado.
+     */
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
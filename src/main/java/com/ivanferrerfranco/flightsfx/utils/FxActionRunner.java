@@ -0,0 +1,193 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
+import javafx.concurrent.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Ejecuta la parte costosa de las acciones de la interfaz en hilos en segundo plano y entrega su resultado
+ * en el hilo de JavaFX, para que la interfaz no se bloquee mientras tanto.
+ * <p>
+ * Cada acción tiene un nombre. Lanzar una acción cancela la ejecución anterior con el mismo nombre si sigue
+ * en curso, y solo se entrega el resultado de la última, de modo que pulsar varias veces o escribir deprisa
+ * no acumula trabajo ni aplica resultados antiguos. Cancelar interrumpe el hilo de la ejecución, que debe comprobar
+ * {@link Thread#isInterrupted()} en sus bucles largos para dejar libre el hilo cuanto antes. Las acciones que usan
+ * canales de archivo compartidos (por ejemplo, los de una base de datos abierta) se lanzan con
+ * {@link #submitUninterruptible}, ya que una interrupción cerraría esos canales: al cancelarlas, terminan por su
+ * cuenta y su resultado se descarta. El resultado y los errores se entregan mediante un {@link Task}, que los pasa
+ * al hilo de JavaFX con {@code Platform.runLater}.
+ * <p>
+ * El tiempo de la parte costosa de cada acción se registra en el histograma {@code action.<nombre>}.
+ * Los métodos deben llamarse desde el hilo de JavaFX.
+ */
+public class FxActionRunner implements AutoCloseable {
+
+    /** Hilos en los que se ejecutan las acciones. */
+    private final ExecutorService executor;
+
+    /** Última ejecución lanzada de cada acción que todavía no ha terminado. */
+    private final Map<String, Action<?>> running = new HashMap<>();
+
+    /**
+     * Crea el ejecutor de acciones con sus propios hilos, que no impiden cerrar la aplicación.
+     *
+     * @param threadName Prefijo del nombre de los hilos.
+     * @param threads    Número de hilos, es decir, de acciones distintas que se pueden ejecutar a la vez.
+     */
+    public FxActionRunner(String threadName, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Lanza una acción que se interrumpe al cancelarla, cancelando la ejecución anterior con el mismo nombre si sigue
+     * en curso.
+     *
+     * @param action    Nombre de la acción, por ejemplo {@code search}.
+     * @param work      Parte costosa, que se ejecuta en segundo plano; no debe modificar nada que use la interfaz.
+     * @param onSuccess Recibe el resultado en el hilo de JavaFX, si la ejecución no se ha cancelado ni sustituido.
+     * @param onFailure Recibe el error en el hilo de JavaFX, si la ejecución no se ha cancelado ni sustituido.
+     * @param <T>       Tipo del resultado.
+     * @return La tarea lanzada.
+     */
+    public <T> Task<T> submit(String action, Callable<T> work, Consumer<? super T> onSuccess,
+                              Consumer<? super Throwable> onFailure) {
+        return submit(action, work, onSuccess, onFailure, true);
+    }
+
+    /**
+     * Lanza una acción cuyo hilo no se interrumpe al cancelarla, cancelando la ejecución anterior con el mismo nombre
+     * si sigue en curso. Es para las acciones que leen o escriben canales de archivo que siguen abiertos después.
+     *
+     * @param action    Nombre de la acción, por ejemplo {@code database-insert}.
+     * @param work      Parte costosa, que se ejecuta en segundo plano; no debe modificar nada que use la interfaz.
+     * @param onSuccess Recibe el resultado en el hilo de JavaFX, si la ejecución no se ha cancelado ni sustituido.
+     * @param onFailure Recibe el error en el hilo de JavaFX, si la ejecución no se ha cancelado ni sustituido.
+     * @param <T>       Tipo del resultado.
+     * @return La tarea lanzada.
+     */
+    public <T> Task<T> submitUninterruptible(String action, Callable<T> work, Consumer<? super T> onSuccess,
+                                             Consumer<? super Throwable> onFailure) {
+        return submit(action, work, onSuccess, onFailure, false);
+    }
+
+    /**
+     * Lanza una acción, cancelando la ejecución anterior con el mismo nombre si sigue en curso.
+     *
+     * @param action        Nombre de la acción.
+     * @param work          Parte costosa, que se ejecuta en segundo plano.
+     * @param onSuccess     Recibe el resultado en el hilo de JavaFX.
+     * @param onFailure     Recibe el error en el hilo de JavaFX.
+     * @param interruptible Indica si cancelar la acción interrumpe su hilo.
+     * @param <T>           Tipo del resultado.
+     * @return La tarea lanzada.
+     */
+    private <T> Task<T> submit(String action, Callable<T> work, Consumer<? super T> onSuccess,
+                               Consumer<? super Throwable> onFailure, boolean interruptible) {
+        cancel(action);
+
+        LatencyHistogram latency = FlightMetrics.histogram("action." + action);
+        Action<T> task = new Action<>(interruptible) {
+            @Override
+            protected T call() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    latency.recordSince(start);
+                }
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (finish(action, task)) {
+                onSuccess.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (finish(action, task)) {
+                onFailure.accept(task.getException());
+            }
+        });
+        task.setOnCancelled(event -> finish(action, task));
+
+        running.put(action, task);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancela la ejecución en curso de una acción, interrumpiendo su hilo salvo que se lanzara con
+     * {@link #submitUninterruptible}; su resultado ya no se entregará.
+     *
+     * @param action Nombre de la acción.
+     * @return {@code true} si había una ejecución en curso.
+     */
+    public boolean cancel(String action) {
+        Action<?> task = running.remove(action);
+        if (task == null) {
+            return false;
+        }
+        task.abandon();
+        return true;
+    }
+
+    /**
+     * Cancela todas las acciones en curso y detiene los hilos cuando terminen las que ya se están ejecutando.
+     */
+    @Override
+    public void close() {
+        running.values().forEach(Action::abandon);
+        running.clear();
+        executor.shutdown();
+    }
+
+    /**
+     * Da por terminada una ejecución si sigue siendo la última lanzada de su acción.
+     *
+     * @param action Nombre de la acción.
+     * @param task   Ejecución que ha terminado.
+     * @return {@code true} si era la última ejecución de la acción y su resultado debe entregarse.
+     */
+    private boolean finish(String action, Task<?> task) {
+        return running.remove(action, task);
+    }
+
+    /**
+     * Ejecución de una acción, que recuerda si se puede interrumpir al cancelarla.
+     *
+     * @param <T> Tipo del resultado.
+     */
+    private abstract static class Action<T> extends Task<T> {
+
+        /** Indica si cancelar la ejecución interrumpe su hilo. */
+        private final boolean interruptible;
+
+        /**
+         * Crea la ejecución.
+         *
+         * @param interruptible Indica si cancelar la ejecución interrumpe su hilo.
+         */
+        Action(boolean interruptible) {
+            this.interruptible = interruptible;
+        }
+
+        /**
+         * Cancela la ejecución, interrumpiendo su hilo solo si se puede.
+         */
+        void abandon() {
+            cancel(interruptible);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+
+import java.util.List;
+
+/**
+ * Resultado de una carga de vuelos que, además de los vuelos leídos,
+ * recoge las líneas que no se han podido interpretar.
+ *
+ * @param flights Vuelos cargados, en el mismo orden en el que aparecen en el archivo.
+ * @param errors  Líneas con formato incorrecto, ordenadas por número de línea.
+ */
+public record LoadResult(List<Flight> flights, List<LoadError> errors) {
+
+    /**
+     * Describe una línea del archivo que no se ha podido convertir en un vuelo.
+     *
+     * @param lineNumber Número de línea dentro del archivo, empezando en 1 (la cabecera es la línea 1).
+     * @param line       Contenido de la línea.
+     * @param reason     Motivo por el que se ha rechazado la línea.
+     */
+    public record LoadError(long lineNumber, String line, String reason) {
+    }
+
+    /**
+     * Indica si la carga se ha completado sin líneas incorrectas.
+     *
+     * @return {@code true} si no hay errores.
+     */
+    public boolean isClean() {
+        return errors.isEmpty();
+    }
+}
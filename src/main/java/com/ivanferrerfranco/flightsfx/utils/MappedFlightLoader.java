@@ -0,0 +1,227 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
+import com.ivanferrerfranco.flightsfx.model.Flight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cargador de vuelos que proyecta el archivo en memoria con {@link FileChannel#map}
+ * y lo interpreta en paralelo por bloques.
+ * <p>
+ * El archivo se divide en bloques que siempre terminan en un salto de línea, cada bloque
+ * se procesa en una tarea de un {@link ForkJoinPool} y los resultados se unen respetando
+ * el orden original del archivo. El separador de campos se deduce de la cabecera, igual que
+ * en la carga en streaming, por lo que también admite los archivos CSV exportados por la aplicación.
+ */
+final class MappedFlightLoader {
+
+    /** Tamaño mínimo de cada bloque, para no repartir archivos pequeños en demasiadas tareas. */
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+
+    /** Tamaño máximo de cada bloque; un {@link MappedByteBuffer} no puede superar los 2 GB. */
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    /** Tamaño del búfer usado para buscar el final de línea en los límites de cada bloque. */
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    /** Tiempo de carga en paralelo de los archivos de texto. */
+    private static final LatencyHistogram PARALLEL_LOAD_TIME = FlightMetrics.histogram("file.load.parallel");
+
+    private MappedFlightLoader() {
+        // Clase de utilidad, no se instancia
+    }
+
+    /**
+     * Carga todos los vuelos del archivo usando el pool indicado.
+     *
+     * @param path Ruta del archivo de texto con los vuelos.
+     * @param pool Pool en el que se ejecutan las tareas de cada bloque.
+     * @return Los vuelos en el orden del archivo y la lista de líneas incorrectas.
+     * @throws IOException Si ocurre un error al abrir o proyectar el archivo.
+     */
+    static LoadResult load(Path path, ForkJoinPool pool) throws IOException {
+        return load(path, pool, 0);
+    }
+
+    /**
+     * Carga todos los vuelos del archivo usando el pool indicado y bloques de un tamaño dado.
+     *
+     * @param path      Ruta del archivo de texto con los vuelos.
+     * @param pool      Pool en el que se ejecutan las tareas de cada bloque.
+     * @param chunkSize Tamaño de cada bloque en bytes, o 0 para calcularlo según el archivo y el pool.
+     * @return Los vuelos en el orden del archivo y la lista de líneas incorrectas.
+     * @throws IOException Si ocurre un error al abrir o proyectar el archivo.
+     */
+    static LoadResult load(Path path, ForkJoinPool pool, long chunkSize) throws IOException {
+        long loadStart = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // Leer la cabecera del archivo (la primera línea) para conocer el separador.
+            long start = nextLineStart(channel, 0, size);
+            char separator = FileUtils.separatorOf(readHeader(channel, start));
+            if (chunkSize <= 0) {
+                chunkSize = Math.min(MAX_CHUNK_SIZE,
+                        Math.max(MIN_CHUNK_SIZE, (size - start) / (pool.getParallelism() * 4L) + 1));
+            }
+
+            // Crear una tarea por bloque, con los límites alineados al siguiente salto de línea.
+            List<ChunkParser> tasks = new ArrayList<>();
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                tasks.add(new ChunkParser(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), separator));
+                start = end;
+            }
+            tasks.forEach(pool::execute);
+
+            // Unir los resultados en orden, trasladando los números de línea locales a números globales.
+            List<Flight> flights = new ArrayList<>();
+            List<LoadResult.LoadError> errors = new ArrayList<>();
+            long firstLine = 2;
+            for (ChunkParser task : tasks) {
+                ChunkResult result = task.join();
+                flights.addAll(result.flights());
+                for (LoadResult.LoadError error : result.errors()) {
+                    errors.add(new LoadResult.LoadError(firstLine + error.lineNumber(), error.line(), error.reason()));
+                }
+                firstLine += result.lines();
+            }
+
+            FileUtils.BYTES_READ.add(size);
+            FileUtils.ROWS_PARSED.add(flights.size());
+            FileUtils.ROWS_REJECTED.add(errors.size());
+            PARALLEL_LOAD_TIME.recordSince(loadStart);
+            return new LoadResult(flights, errors);
+        }
+    }
+
+    /**
+     * Devuelve la posición del primer byte tras el siguiente salto de línea a partir de {@code position}.
+     *
+     * @param channel  Canal del archivo.
+     * @param position Posición desde la que se busca.
+     * @param size     Tamaño total del archivo.
+     * @return La posición de inicio de la siguiente línea, o {@code size} si no hay más saltos de línea.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Lee la cabecera del archivo, sin el salto de línea final.
+     *
+     * @param channel Canal del archivo.
+     * @param end     Posición de inicio de la segunda línea.
+     * @return La cabecera.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private static String readHeader(FileChannel channel, long end) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Math.toIntExact(Math.min(end, SCAN_BUFFER_SIZE)));
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) <= 0) {
+                break;
+            }
+        }
+        return new String(header.array(), 0, header.position(), StandardCharsets.UTF_8).strip();
+    }
+
+    /**
+     * Resultado de interpretar un bloque.
+     *
+     * @param flights Vuelos del bloque, en orden.
+     * @param errors  Líneas incorrectas, con el número de línea relativo al inicio del bloque.
+     * @param lines   Número de líneas que contiene el bloque.
+     */
+    private record ChunkResult(List<Flight> flights, List<LoadResult.LoadError> errors, long lines) {
+    }
+
+    /**
+     * Tarea que interpreta las líneas de un bloque proyectado en memoria.
+     */
+    private static final class ChunkParser extends RecursiveTask<ChunkResult> {
+
+        /** Versión de la serialización; las tareas nunca se serializan, pero heredan {@code Serializable}. */
+        private static final long serialVersionUID = 1L;
+
+        /** Bloque del archivo que procesa esta tarea; no se serializa. */
+        private final transient MappedByteBuffer buffer;
+
+        /** Separador de campos del archivo. */
+        private final char separator;
+
+        ChunkParser(MappedByteBuffer buffer, char separator) {
+            this.buffer = buffer;
+            this.separator = separator;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            List<Flight> flights = new ArrayList<>();
+            List<LoadResult.LoadError> errors = new ArrayList<>();
+            byte[] bytes = new byte[256];
+            long lineNumber = 0;
+            int limit = buffer.limit();
+            int lineStart = 0;
+
+            while (lineStart < limit) {
+                // Buscar el final de la línea actual.
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int length = lineEnd - lineStart;
+                if (length > 0 && buffer.get(lineStart + length - 1) == '\r') {
+                    length--;
+                }
+
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(lineStart, bytes, 0, length);
+                String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+
+                // Ignorar líneas vacías y registrar las líneas incorrectas.
+                if (!line.isBlank()) {
+                    try {
+                        flights.add(FileUtils.parseFlight(line, separator));
+                    } catch (IllegalArgumentException | DateTimeException e) {
+                        errors.add(new LoadResult.LoadError(lineNumber, line, e.getMessage()));
+                    }
+                }
+
+                lineNumber++;
+                lineStart = lineEnd + 1;
+            }
+
+            return new ChunkResult(flights, errors, lineNumber);
+        }
+    }
+}
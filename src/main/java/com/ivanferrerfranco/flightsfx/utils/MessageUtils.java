@@ -1,12 +1,16 @@
 package com.ivanferrerfranco.flightsfx.utils;
 
-import javafx.scene.control.Alert;
-import javafx.scene.control.Alert.AlertType;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import org.controlsfx.control.Notifications;
 
 /**
- * Clase de utilidad para mostrar mensajes emergentes (alertas) al usuario.
- * Proporciona métodos estáticos para mostrar diferentes tipos de alertas,
+ * Clase de utilidad para mostrar mensajes emergentes (notificaciones) al usuario.
+ * Proporciona métodos estáticos para mostrar diferentes tipos de notificaciones,
  * como mensajes de error o mensajes informativos.
+ * <p>
+ * Las notificaciones no son modales: aparecen en una esquina, desaparecen solas y no detienen
+ * el hilo de JavaFX esperando a que el usuario las cierre. Se pueden mostrar desde cualquier hilo.
  */
 public class MessageUtils {
 
@@ -22,35 +26,52 @@ public class MessageUtils {
         // Constructor vacío. No se necesita ninguna implementación aquí.
     }
 
+    /** Tiempo que permanece visible un mensaje de error. */
+    private static final Duration ERROR_DURATION = Duration.seconds(8);
+
+    /** Tiempo que permanece visible un mensaje informativo. */
+    private static final Duration MESSAGE_DURATION = Duration.seconds(4);
+
     /**
      * Muestra un mensaje de error al usuario.
-     * Crea una alerta con tipo {@link Alert.AlertType#ERROR} y el texto proporcionado.
+     * Crea una notificación de error con el texto proporcionado, que se mantiene más tiempo que un mensaje informativo.
      *
      * @param message El texto del mensaje de error que se mostrará.
-     *                Este texto se muestra como contenido principal de la alerta.
+     *                Este texto se muestra como contenido principal de la notificación.
      */
     public static void showError(String message) {
-        // Crear una alerta de tipo ERROR
-        Alert alert = new Alert(AlertType.ERROR);
-        alert.setTitle("Error"); // Título de la ventana de la alerta
-        alert.setHeaderText(null); // Sin texto en el encabezado
-        alert.setContentText(message); // Contenido del mensaje
-        alert.showAndWait(); // Mostrar la alerta y esperar la interacción del usuario
+        runOnFxThread(() -> Notifications.create()
+                .title("Error") // Título de la notificación
+                .text(message) // Contenido del mensaje
+                .hideAfter(ERROR_DURATION)
+                .showError()); // Mostrar la notificación sin esperar a que se cierre
     }
 
     /**
      * Muestra un mensaje informativo al usuario.
-     * Crea una alerta con tipo {@link Alert.AlertType#INFORMATION} y el texto proporcionado.
+     * Crea una notificación informativa con el texto proporcionado.
      *
      * @param message El texto del mensaje informativo que se mostrará.
-     *                Este texto se muestra como contenido principal de la alerta.
+     *                Este texto se muestra como contenido principal de la notificación.
      */
     public static void showMessage(String message) {
-        // Crear una alerta de tipo INFORMATION
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Información"); // Título de la ventana de la alerta
-        alert.setHeaderText(null); // Sin texto en el encabezado
-        alert.setContentText(message); // Contenido del mensaje
-        alert.showAndWait(); // Mostrar la alerta y esperar la interacción del usuario
+        runOnFxThread(() -> Notifications.create()
+                .title("Información") // Título de la notificación
+                .text(message) // Contenido del mensaje
+                .hideAfter(MESSAGE_DURATION)
+                .showInformation()); // Mostrar la notificación sin esperar a que se cierre
+    }
+
+    /**
+     * Ejecuta una acción en el hilo de JavaFX: al momento si ya se está en él, o en cuanto quede libre si no.
+     *
+     * @param action Acción a ejecutar.
+     */
+    private static void runOnFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
     }
 }
@@ -0,0 +1,506 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.metrics.FlightMetrics;
+import com.ivanferrerfranco.flightsfx.metrics.LatencyHistogram;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de páginas de tamaño fijo con una caché de tamaño limitado y un registro de escritura anticipada,
+ * sobre el que se construyen los árboles de {@link FlightDatabase}.
+ * <p>
+ * La página 0 es la cabecera, con el número de páginas y unos pocos valores de los árboles (sus raíces,
+ * por ejemplo). Las páginas modificadas se guardan en memoria hasta el siguiente punto de control, en el que
+ * se escriben todas de golpe. Para que un corte en mitad de esa escritura no deje el archivo inconsistente,
+ * las páginas se añaden antes al registro ({@code .wal}) seguidas de una marca de confirmación; solo después
+ * se sobrescriben en el archivo y se vacía el registro. Al abrir el archivo, si el registro contiene páginas
+ * confirmadas se vuelven a escribir; si no, se descartan, y el archivo conserva el último punto de control.
+ * <p>
+ * Entre dos puntos de control, quien use el archivo añade al registro las operaciones que hace, con
+ * {@link #log(byte[], boolean)}, antes de modificar las páginas. Las operaciones registradas después del
+ * último punto de control completo se devuelven con {@link #recoveredRecords()} al abrir el archivo para
+ * que se vuelvan a aplicar. Cada entrada del registro lleva un CRC32, de modo que una entrada a medio
+ * escribir al final del registro se detecta y se descarta.
+ * <p>
+ * La memoria usada está acotada: como mucho hay {@code maxCachedPages} páginas sin modificar en la caché y,
+ * cuando hay {@code maxDirtyPages} páginas modificadas, {@link #needsCheckpoint()} pide un punto de control.
+ * La clase no es segura entre hilos.
+ */
+final class PageFile implements Closeable {
+
+    /** Tamaño de cada página, en bytes. */
+    static final int PAGE_SIZE = 4096;
+
+    /** Número de valores que se guardan en la cabecera para quien use el archivo. */
+    static final int META_SLOTS = 8;
+
+    /** Identificador del formato del archivo ("FLDB"). */
+    private static final int MAGIC = 0x464C4442;
+
+    /** Versión del formato del archivo. */
+    private static final int VERSION = 1;
+
+    /** Tipo de las entradas del registro con una operación. */
+    private static final byte RECORD_LOG = 1;
+
+    /** Tipo de las entradas del registro con la imagen de una página. */
+    private static final byte RECORD_PAGE = 2;
+
+    /** Tipo de la entrada del registro que confirma las páginas anteriores. */
+    private static final byte RECORD_COMMIT = 3;
+
+    /** Tamaño de la cabecera de cada entrada del registro: tipo y longitud. */
+    private static final int RECORD_HEADER_SIZE = 1 + 4;
+
+    /** Tiempo de cada punto de control. */
+    private static final LatencyHistogram CHECKPOINT_TIME = FlightMetrics.histogram("db.checkpoint");
+
+    /** Canal del archivo de páginas. */
+    private final FileChannel channel;
+
+    /** Canal del registro de escritura anticipada. */
+    private final FileChannel wal;
+
+    /** Número máximo de páginas modificadas antes de pedir un punto de control. */
+    private final int maxDirtyPages;
+
+    /** Páginas sin modificar en memoria, de la usada hace más tiempo a la más reciente. */
+    private final Map<Integer, byte[]> cache;
+
+    /** Páginas modificadas desde el último punto de control, en orden de página. */
+    private final Map<Integer, byte[]> dirty = new TreeMap<>();
+
+    /** Valores de la cabecera para quien use el archivo. */
+    private final long[] meta = new long[META_SLOTS];
+
+    /** Operaciones registradas después del último punto de control completo, pendientes de aplicar. */
+    private final List<byte[]> recovered;
+
+    /** Número de páginas del archivo, incluida la cabecera. */
+    private int pageCount;
+
+    /** Indica si la cabecera ha cambiado desde el último punto de control. */
+    private boolean headerDirty;
+
+    /** Tamaño del registro, en bytes. */
+    private long walSize;
+
+    private PageFile(FileChannel channel, FileChannel wal, int maxCachedPages, int maxDirtyPages, List<byte[]> recovered) {
+        this.channel = channel;
+        this.wal = wal;
+        this.maxDirtyPages = maxDirtyPages;
+        this.recovered = recovered;
+        this.cache = new LinkedHashMap<>(maxCachedPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+    }
+
+    /**
+     * Abre un archivo de páginas, creándolo si no existe, y lo recupera con su registro si hace falta.
+     *
+     * @param path           Ruta del archivo; el registro se guarda junto a él con la extensión {@code .wal}.
+     * @param maxCachedPages Número máximo de páginas sin modificar en memoria.
+     * @param maxDirtyPages  Número de páginas modificadas a partir del cual se pide un punto de control.
+     * @return El archivo abierto.
+     * @throws IOException Si ocurre un error al leer los archivos o no tienen el formato esperado.
+     */
+    static PageFile open(Path path, int maxCachedPages, int maxDirtyPages) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel wal = null;
+        try {
+            wal = FileChannel.open(path.resolveSibling(path.getFileName() + ".wal"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            List<byte[]> logged = new ArrayList<>();
+            long walSize = recover(channel, wal, logged);
+
+            PageFile file = new PageFile(channel, wal, maxCachedPages, maxDirtyPages, logged);
+            file.walSize = walSize;
+            file.readHeader();
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (wal != null) {
+                wal.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve las operaciones registradas después del último punto de control completo, en el orden en el que
+     * se registraron, para que se vuelvan a aplicar. Siguen en el registro hasta el siguiente punto de control.
+     *
+     * @return Las operaciones pendientes de aplicar.
+     */
+    List<byte[]> recoveredRecords() {
+        return Collections.unmodifiableList(recovered);
+    }
+
+    /**
+     * Devuelve un valor de la cabecera.
+     *
+     * @param slot Posición del valor, de 0 a {@link #META_SLOTS} - 1.
+     * @return El valor, que es 0 en un archivo nuevo.
+     */
+    long meta(int slot) {
+        return meta[slot];
+    }
+
+    /**
+     * Cambia un valor de la cabecera; se guarda en el siguiente punto de control.
+     *
+     * @param slot  Posición del valor, de 0 a {@link #META_SLOTS} - 1.
+     * @param value Valor nuevo.
+     */
+    void setMeta(int slot, long value) {
+        if (meta[slot] != value) {
+            meta[slot] = value;
+            headerDirty = true;
+        }
+    }
+
+    /**
+     * Reserva una página nueva al final del archivo. Hay que escribirla con {@link #write(int, byte[])}.
+     *
+     * @return El número de la página.
+     */
+    int allocate() {
+        headerDirty = true;
+        return pageCount++;
+    }
+
+    /**
+     * Devuelve el contenido de una página. El array devuelto no debe modificarse: para cambiar la página
+     * hay que escribir uno nuevo con {@link #write(int, byte[])}.
+     *
+     * @param page Número de la página.
+     * @return El contenido de la página, de {@link #PAGE_SIZE} bytes.
+     * @throws IOException Si ocurre un error al leer la página o no existe.
+     */
+    byte[] read(int page) throws IOException {
+        byte[] data = dirty.get(page);
+        if (data == null) {
+            data = cache.get(page);
+        }
+        if (data != null) {
+            return data;
+        }
+        if (page <= 0 || page >= pageCount) {
+            throw new IOException("Página fuera del archivo: " + page);
+        }
+
+        data = new byte[PAGE_SIZE];
+        readFully(channel, ByteBuffer.wrap(data), (long) page * PAGE_SIZE);
+        cache.put(page, data);
+        return data;
+    }
+
+    /**
+     * Cambia el contenido de una página; se guarda en disco en el siguiente punto de control.
+     *
+     * @param page Número de la página.
+     * @param data Contenido nuevo, de {@link #PAGE_SIZE} bytes.
+     */
+    void write(int page, byte[] data) {
+        if (data.length != PAGE_SIZE) {
+            throw new IllegalArgumentException("Tamaño de página incorrecto: " + data.length);
+        }
+        cache.remove(page);
+        dirty.put(page, data);
+    }
+
+    /**
+     * Añade una operación al registro.
+     *
+     * @param record Operación, en el formato de quien use el archivo.
+     * @param force  Si es {@code true}, espera a que el registro esté en disco antes de volver.
+     * @throws IOException Si ocurre un error al escribir el registro.
+     */
+    void log(byte[] record, boolean force) throws IOException {
+        appendRecord(RECORD_LOG, record);
+        if (force) {
+            wal.force(false);
+        }
+    }
+
+    /**
+     * Espera a que las operaciones añadidas al registro estén en disco.
+     *
+     * @throws IOException Si ocurre un error al escribir el registro.
+     */
+    void flushLog() throws IOException {
+        wal.force(false);
+    }
+
+    /**
+     * Indica si hay suficientes páginas modificadas en memoria como para hacer un punto de control.
+     *
+     * @return {@code true} si conviene llamar a {@link #checkpoint()}.
+     */
+    boolean needsCheckpoint() {
+        return dirty.size() >= maxDirtyPages;
+    }
+
+    /**
+     * Escribe en el archivo las páginas modificadas y la cabecera, pasando antes por el registro, y vacía el registro.
+     *
+     * @throws IOException Si ocurre un error al escribir. El archivo sigue siendo recuperable al volver a abrirlo.
+     */
+    void checkpoint() throws IOException {
+        if (dirty.isEmpty() && !headerDirty) {
+            if (walSize > 0) {
+                truncateLog();
+            }
+            recovered.clear();
+            return;
+        }
+        long start = System.nanoTime();
+
+        // Añadir al registro las páginas y la marca de confirmación, y esperar a que estén en disco.
+        byte[] header = encodeHeader();
+        appendPage(0, header);
+        for (Map.Entry<Integer, byte[]> entry : dirty.entrySet()) {
+            appendPage(entry.getKey(), entry.getValue());
+        }
+        appendRecord(RECORD_COMMIT, new byte[0]);
+        wal.force(false);
+
+        // Sobrescribir las páginas en el archivo; si se corta aquí, se repite al abrir con las páginas del registro.
+        writeFully(channel, ByteBuffer.wrap(header), 0);
+        for (Map.Entry<Integer, byte[]> entry : dirty.entrySet()) {
+            writeFully(channel, ByteBuffer.wrap(entry.getValue()), (long) entry.getKey() * PAGE_SIZE);
+        }
+        channel.force(false);
+        truncateLog();
+
+        dirty.forEach(cache::put);
+        dirty.clear();
+        headerDirty = false;
+        recovered.clear();
+        CHECKPOINT_TIME.recordSince(start);
+    }
+
+    /**
+     * Hace un punto de control y cierra el archivo y el registro.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * Cierra el archivo y el registro sin guardar las páginas modificadas. Las operaciones registradas
+     * se volverán a aplicar al abrirlo de nuevo.
+     *
+     * @throws IOException Si ocurre un error al cerrar los canales.
+     */
+    void abort() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            wal.close();
+        }
+    }
+
+    /**
+     * Lee la cabecera del archivo, o prepara la de un archivo nuevo.
+     *
+     * @throws IOException Si ocurre un error al leer o el archivo no tiene el formato esperado.
+     */
+    private void readHeader() throws IOException {
+        if (channel.size() < PAGE_SIZE) {
+            pageCount = 1;
+            headerDirty = true;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("El archivo no es una base de datos de vuelos");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de la base de datos no compatible: " + version);
+        }
+        if (header.getInt() != PAGE_SIZE) {
+            throw new IOException("Tamaño de página no compatible");
+        }
+        pageCount = header.getInt();
+        for (int i = 0; i < META_SLOTS; i++) {
+            meta[i] = header.getLong();
+        }
+    }
+
+    /**
+     * Codifica la cabecera del archivo en una página.
+     *
+     * @return La página de cabecera.
+     */
+    private byte[] encodeHeader() {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(pageCount);
+        for (long value : meta) {
+            header.putLong(value);
+        }
+        return header.array();
+    }
+
+    /**
+     * Añade la imagen de una página al registro.
+     *
+     * @param page Número de la página.
+     * @param data Contenido de la página.
+     * @throws IOException Si ocurre un error al escribir el registro.
+     */
+    private void appendPage(int page, byte[] data) throws IOException {
+        appendRecord(RECORD_PAGE, ByteBuffer.allocate(4 + PAGE_SIZE).putInt(page).put(data).array());
+    }
+
+    /**
+     * Añade una entrada al final del registro: tipo, longitud, contenido y CRC32 de todo lo anterior.
+     *
+     * @param type    Tipo de la entrada.
+     * @param payload Contenido de la entrada.
+     * @throws IOException Si ocurre un error al escribir el registro.
+     */
+    private void appendRecord(byte type, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length + 4);
+        record.put(type).putInt(payload.length).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue()).flip();
+        writeFully(wal, record, walSize);
+        walSize += record.limit();
+    }
+
+    /**
+     * Vacía el registro después de un punto de control.
+     *
+     * @throws IOException Si ocurre un error al truncar el registro.
+     */
+    private void truncateLog() throws IOException {
+        wal.truncate(0);
+        wal.force(false);
+        walSize = 0;
+    }
+
+    /**
+     * Lee el registro, vuelve a escribir en el archivo las páginas del último punto de control confirmado
+     * y reúne las operaciones registradas después. Descarta lo que haya a partir de la primera entrada incompleta.
+     *
+     * @param channel Canal del archivo de páginas.
+     * @param wal     Canal del registro.
+     * @param logged  Recibe las operaciones pendientes de aplicar.
+     * @return El tamaño válido del registro, en bytes.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    private static long recover(FileChannel channel, FileChannel wal, List<byte[]> logged) throws IOException {
+        long size = wal.size();
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        readFully(wal, buffer, 0);
+        buffer.flip();
+
+        List<byte[]> pages = new ArrayList<>();
+        long valid = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE + 4) {
+            int start = buffer.position();
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() - 4) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_HEADER_SIZE + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            valid = buffer.position();
+
+            switch (type) {
+                case RECORD_LOG -> logged.add(payload);
+                case RECORD_PAGE -> pages.add(payload);
+                case RECORD_COMMIT -> {
+                    // Las páginas confirmadas ya incluyen las operaciones anteriores: se escriben y esas operaciones se descartan.
+                    for (byte[] page : pages) {
+                        ByteBuffer image = ByteBuffer.wrap(page);
+                        int number = image.getInt();
+                        writeFully(channel, image, (long) number * PAGE_SIZE);
+                    }
+                    channel.force(false);
+                    pages.clear();
+                    logged.clear();
+                }
+                default -> throw new IOException("Entrada del registro desconocida: " + type);
+            }
+        }
+
+        // Quitar la parte incompleta para que las entradas nuevas no queden detrás de ella.
+        if (valid < size) {
+            wal.truncate(valid);
+            wal.force(false);
+        }
+        return valid;
+    }
+
+    /**
+     * Lee de un canal hasta llenar el búfer.
+     *
+     * @param channel  Canal.
+     * @param buffer   Búfer a llenar.
+     * @param position Posición del canal en la que empieza la lectura.
+     * @throws IOException Si ocurre un error al leer o el canal termina antes.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Fin del archivo inesperado en la posición " + position);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Escribe en un canal todo el contenido del búfer.
+     *
+     * @param channel  Canal.
+     * @param buffer   Búfer a escribir.
+     * @param position Posición del canal en la que empieza la escritura.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import javafx.collections.ObservableListBase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lista observable de solo lectura con los vuelos de un {@link FlightArchive}, que se cargan por páginas
+ * a medida que se piden. Está pensada para mostrar en una {@code TableView} archivos más grandes que la memoria.
+ * <p>
+ * El tamaño de la lista es el número de vuelos del índice del archivo, por lo que la barra de desplazamiento
+ * representa el archivo completo desde el principio. La tabla solo pide los vuelos visibles: la página que los
+ * contiene se lee al momento y las páginas vecinas se leen en segundo plano, para que al seguir desplazándose
+ * ya estén en memoria. Las páginas se guardan en una caché LRU con un número máximo de páginas, de modo que
+ * la memoria usada no depende del tamaño del archivo.
+ * <p>
+ * Los vuelos de una página que sale de la caché se vuelven a leer si se piden otra vez, y pasan a ser objetos nuevos.
+ * La lista debe usarse desde el hilo de JavaFX; solo la lectura anticipada se hace en otro hilo.
+ */
+public class PagedFlightList extends ObservableListBase<Flight> implements Closeable {
+
+    /** Registro de las páginas que no se pueden leer. */
+    private static final System.Logger LOGGER = System.getLogger(PagedFlightList.class.getName());
+
+    /** Número máximo de páginas en memoria por defecto. */
+    public static final int DEFAULT_MAX_PAGES = 64;
+
+    /** Número de páginas que se leen por anticipado a cada lado de la página pedida. */
+    private static final int PREFETCH_PAGES = 2;
+
+    /** Archivo del que se leen los vuelos. */
+    private final FlightArchive archive;
+
+    /** Páginas en memoria, de la usada hace más tiempo a la más reciente. Se protege con su propio monitor. */
+    private final Map<Integer, List<Flight>> pages;
+
+    /** Hilo que lee las páginas por anticipado. */
+    private final ExecutorService prefetchExecutor;
+
+    /** Última página pedida, para descartar las lecturas anticipadas que ya no están cerca de lo que se muestra. */
+    private volatile int lastPage = -1;
+
+    /**
+     * Crea la lista con el número máximo de páginas en memoria por defecto.
+     *
+     * @param archive Archivo del que se leen los vuelos; la lista lo cierra al cerrarse.
+     */
+    public PagedFlightList(FlightArchive archive) {
+        this(archive, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Crea la lista.
+     *
+     * @param archive  Archivo del que se leen los vuelos; la lista lo cierra al cerrarse.
+     * @param maxPages Número máximo de páginas en memoria, de {@link FlightArchive#PAGE_SIZE} vuelos cada una.
+     */
+    public PagedFlightList(FlightArchive archive, int maxPages) {
+        this.archive = archive;
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Flight>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        this.prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archive-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Devuelve el archivo del que se leen los vuelos.
+     *
+     * @return El archivo.
+     */
+    public FlightArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Devuelve un vuelo, leyendo su página si no está en memoria.
+     *
+     * @param index Posición del vuelo.
+     * @return El vuelo, o {@code null} si no se ha podido leer su página.
+     */
+    @Override
+    public Flight get(int index) {
+        if (index < 0 || index >= archive.size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int page = index / FlightArchive.PAGE_SIZE;
+        List<Flight> flights = cachedPage(page);
+        if (flights == null) {
+            flights = loadPage(page);
+            if (flights == null) {
+                return null;
+            }
+        }
+        if (page != lastPage) {
+            lastPage = page;
+            prefetchAround(page);
+        }
+        int offset = index % FlightArchive.PAGE_SIZE;
+        return offset < flights.size() ? flights.get(offset) : null;
+    }
+
+    /**
+     * Devuelve el número de vuelos del archivo.
+     *
+     * @return El número de vuelos.
+     */
+    @Override
+    public int size() {
+        return archive.size();
+    }
+
+    /**
+     * Devuelve el número de páginas que hay en memoria.
+     *
+     * @return El número de páginas en la caché.
+     */
+    public int cachedPageCount() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    /**
+     * Detiene la lectura anticipada y cierra el archivo.
+     *
+     * @throws IOException Si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        prefetchExecutor.shutdownNow();
+        synchronized (pages) {
+            pages.clear();
+        }
+        archive.close();
+    }
+
+    /**
+     * Busca una página en la caché, marcándola como la usada más recientemente.
+     *
+     * @param page Número de página.
+     * @return Los vuelos de la página, o {@code null} si no está en memoria.
+     */
+    private List<Flight> cachedPage(int page) {
+        synchronized (pages) {
+            return pages.get(page);
+        }
+    }
+
+    /**
+     * Indica si una página está en memoria, sin cambiar su orden en la caché.
+     *
+     * @param page Número de página.
+     * @return {@code true} si la página está en la caché.
+     */
+    private boolean isCached(int page) {
+        synchronized (pages) {
+            return pages.containsKey(page);
+        }
+    }
+
+    /**
+     * Lee una página y la guarda en la caché. Si otro hilo la ha guardado mientras tanto, se usa la suya.
+     *
+     * @param page Número de página.
+     * @return Los vuelos de la página, o {@code null} si no se ha podido leer.
+     */
+    private List<Flight> loadPage(int page) {
+        List<Flight> flights;
+        try {
+            flights = archive.readPage(page);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Error al leer la página " + page + " del archivo", e);
+            return null;
+        }
+        synchronized (pages) {
+            List<Flight> existing = pages.putIfAbsent(page, flights);
+            return existing != null ? existing : flights;
+        }
+    }
+
+    /**
+     * Lee en segundo plano las páginas vecinas de una página que no estén ya en memoria.
+     *
+     * @param page Número de la página pedida.
+     */
+    private void prefetchAround(int page) {
+        for (int distance = 1; distance <= PREFETCH_PAGES; distance++) {
+            for (int neighbour : new int[]{page + distance, page - distance}) {
+                if (neighbour < 0 || neighbour >= archive.pageCount() || isCached(neighbour) || prefetchExecutor.isShutdown()) {
+                    continue;
+                }
+                prefetchExecutor.execute(() -> {
+                    // Descartar la lectura si la tabla ya se ha desplazado lejos de esta página.
+                    if (Math.abs(neighbour - lastPage) <= PREFETCH_PAGES && !isCached(neighbour)) {
+                        loadPage(neighbour);
+                    }
+                });
+            }
+        }
+    }
+}
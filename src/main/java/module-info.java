@@ -3,7 +3,8 @@
  * Este módulo gestiona las dependencias necesarias para la ejecución de la aplicación.
  *
  * Requiere las bibliotecas de JavaFX y ControlsFX para la interfaz gráfica.
- * Exporta el paquete principal y abre los paquetes específicos para su uso en JavaFX.
+ * Exporta el paquete principal, el modelo, el servicio sin interfaz gráfica y las métricas,
+ * que se publican por JMX, y abre los paquetes específicos para su uso en JavaFX.
  */
 module com.ivanferrerfranco.flightsfx {
     // Requiere las bibliotecas JavaFX necesarias para la interfaz de usuario
@@ -13,6 +14,9 @@ module com.ivanferrerfranco.flightsfx {
     // Requiere ControlsFX para componentes avanzados de la UI
     requires org.controlsfx.controls;
 
+    // Requiere JMX para publicar las métricas de la aplicación
+    requires java.management;
+
     // Abre el paquete com.ivanferrerfranco.flightsfx para que sea accesible desde javafx.fxml
     opens com.ivanferrerfranco.flightsfx to javafx.fxml;
 
@@ -21,4 +25,11 @@ module com.ivanferrerfranco.flightsfx {
 
     // Exporta el paquete principal para que otros módulos puedan acceder a él
     exports com.ivanferrerfranco.flightsfx;
+
+    // Exporta el modelo y el servicio para usar el motor de vuelos sin interfaz gráfica, por ejemplo en procesos por lotes
+    exports com.ivanferrerfranco.flightsfx.model;
+    exports com.ivanferrerfranco.flightsfx.service;
+
+    // Exporta las métricas, cuyas interfaces MXBean deben ser accesibles para JMX
+    exports com.ivanferrerfranco.flightsfx.metrics;
 }
@@ -0,0 +1,213 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del índice de vuelos por fecha de salida: inserciones sueltas y por lotes, bajas sueltas
+ * y de varios rangos en un mismo cambio, y límites de las consultas.
+ */
+class DepartureIndexTest {
+
+    /** Salida más temprana de los vuelos de prueba. */
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    void randomChangesMatchSortedList() {
+        Random random = new Random(3);
+        List<Flight> initial = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            initial.add(randomFlight(random, i));
+        }
+        FlightList flights = new FlightList(initial);
+        DepartureIndex index = new DepartureIndex(flights);
+        assertMatches(index, flights);
+
+        for (int step = 0; step < 300; step++) {
+            int next = 1000 + step * 50;
+            switch (random.nextInt(5)) {
+                // Un alta suelta se inserta con búsqueda binaria.
+                case 0 -> flights.add(random.nextInt(flights.size() + 1), randomFlight(random, next));
+                // Un lote se ordena y se mezcla con el índice.
+                case 1 -> {
+                    List<Flight> batch = new ArrayList<>();
+                    for (int i = 0; i < 1 + random.nextInt(40); i++) {
+                        batch.add(randomFlight(random, next + i));
+                    }
+                    flights.addAll(random.nextInt(flights.size() + 1), batch);
+                }
+                case 2 -> {
+                    if (!flights.isEmpty()) {
+                        flights.remove(random.nextInt(flights.size()));
+                    }
+                }
+                // Bajas de varios rangos separados en un único cambio, que se compactan con un BitSet.
+                case 3 -> flights.batch(() -> {
+                    for (int i = 0; i < 4 && flights.size() > 10; i++) {
+                        int from = random.nextInt(flights.size() - 5);
+                        flights.subList(from, from + 1 + random.nextInt(5)).clear();
+                    }
+                });
+                // Una sustitución es una baja y un alta en el mismo cambio.
+                default -> {
+                    if (!flights.isEmpty()) {
+                        flights.set(random.nextInt(flights.size()), randomFlight(random, next));
+                    }
+                }
+            }
+            assertMatches(index, flights);
+        }
+    }
+
+    @Test
+    void intervalsIncludeStartAndExcludeEnd() {
+        Flight first = flight("A1", BASE);
+        Flight twin = flight("A2", BASE);
+        Flight minuteLater = flight("A3", BASE.plusMinutes(1));
+        Flight halfHour = flight("A4", BASE.plusMinutes(30));
+        FlightList flights = new FlightList(List.of(halfHour, flight("N1", null), twin, minuteLater, first));
+        DepartureIndex index = new DepartureIndex(flights);
+
+        assertEquals(4, index.size());
+        assertEquals(Set.of("A1", "A2", "A3"), numbers(index.between(BASE, BASE.plusMinutes(30))));
+        // Un inicio con segundos se redondea al minuto siguiente; un fin con segundos incluye su minuto.
+        assertEquals(Set.of("A3"), numbers(index.between(BASE.plusSeconds(30), BASE.plusMinutes(30))));
+        assertEquals(Set.of("A3", "A4"), numbers(index.between(BASE.plusMinutes(1), BASE.plusMinutes(30).plusSeconds(1))));
+        assertTrue(index.between(BASE.plusMinutes(30), BASE.plusMinutes(30)).isEmpty());
+        assertEquals(Set.of("A1", "A2"), numbers(index.within(BASE, Duration.ofMinutes(1))));
+
+        // "Después de" excluye el minuto indicado, aunque se pida con segundos.
+        assertEquals(List.of("A3", "A4"), orderedNumbers(index.next(5, BASE)));
+        assertEquals(List.of("A3"), orderedNumbers(index.next(5, BASE.plusSeconds(59), flight -> !flight.getFlightNumber().equals("A4"))));
+        assertEquals(Set.of("A1", "A2"), numbers(index.next(2, BASE.minusSeconds(1))));
+        assertTrue(index.next(0, BASE.minusDays(1)).isEmpty());
+        assertTrue(index.next(5, BASE.plusMinutes(30)).isEmpty());
+    }
+
+    @Test
+    void equalDeparturesAreRemovedByIdentity() {
+        Flight first = flight("A1", BASE);
+        Flight twin = flight("A1", BASE);
+        Flight other = flight("A1", BASE);
+        FlightList flights = new FlightList(List.of(first, twin, other, flight("B1", BASE.plusMinutes(5))));
+        DepartureIndex index = new DepartureIndex(flights);
+
+        flights.remove(1);
+        List<Flight> remaining = index.between(BASE, BASE.plusMinutes(1));
+        assertEquals(2, remaining.size());
+        assertTrue(remaining.stream().noneMatch(flight -> flight == twin));
+
+        flights.batch(() -> {
+            flights.remove(other);
+            flights.remove(first);
+        });
+        assertTrue(index.between(BASE, BASE.plusMinutes(1)).isEmpty());
+        assertSame(flights.get(0), index.next(1, BASE).get(0));
+    }
+
+    /**
+     * Comprueba que el índice contiene exactamente los vuelos con salida de la lista, en orden de salida,
+     * y que las consultas por intervalo coinciden con un filtrado de la lista.
+     *
+     * @param index   Índice.
+     * @param flights Lista indexada.
+     */
+    private static void assertMatches(DepartureIndex index, List<Flight> flights) {
+        List<Flight> dated = new ArrayList<>(flights.stream().filter(flight -> flight.getDepartureDateTime() != null).toList());
+        dated.sort(Comparator.comparing(Flight::getDepartureDateTime));
+        assertEquals(dated.size(), index.size());
+
+        List<Flight> all = index.between(BASE.minusYears(1), BASE.plusYears(1));
+        assertEquals(departures(dated), departures(all));
+        assertEquals(identities(dated), identities(all));
+
+        LocalDateTime from = BASE.plusMinutes(20);
+        LocalDateTime to = BASE.plusMinutes(200);
+        List<Flight> expected = dated.stream()
+                .filter(flight -> !flight.getDepartureDateTime().isBefore(from) && flight.getDepartureDateTime().isBefore(to))
+                .toList();
+        assertEquals(identities(expected), identities(index.between(from, to)));
+        List<Flight> next = index.next(7, from);
+        assertEquals(departures(dated.stream().filter(flight -> flight.getDepartureDateTime().isAfter(from)).limit(7).toList()),
+                departures(next));
+    }
+
+    /**
+     * Devuelve las salidas de unos vuelos, en su orden.
+     *
+     * @param flights Vuelos.
+     * @return Las salidas.
+     */
+    private static List<LocalDateTime> departures(List<Flight> flights) {
+        return flights.stream().map(Flight::getDepartureDateTime).toList();
+    }
+
+    /**
+     * Devuelve el conjunto de unos vuelos por identidad, ya que varios pueden tener los mismos datos.
+     *
+     * @param flights Vuelos.
+     * @return Los vuelos, comparados por identidad.
+     */
+    private static Set<Flight> identities(List<Flight> flights) {
+        Set<Flight> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(flights);
+        return set;
+    }
+
+    /**
+     * Devuelve los números de unos vuelos sin tener en cuenta su orden.
+     *
+     * @param flights Vuelos.
+     * @return Los números de vuelo.
+     */
+    private static Set<String> numbers(List<Flight> flights) {
+        return Set.copyOf(orderedNumbers(flights));
+    }
+
+    /**
+     * Devuelve los números de unos vuelos en su orden.
+     *
+     * @param flights Vuelos.
+     * @return Los números de vuelo.
+     */
+    private static List<String> orderedNumbers(List<Flight> flights) {
+        return flights.stream().map(Flight::getFlightNumber).toList();
+    }
+
+    /**
+     * Crea un vuelo con una salida aleatoria entre pocos valores, para que se repitan, o sin salida.
+     *
+     * @param random Generador de números aleatorios.
+     * @param number Número del vuelo.
+     * @return El vuelo.
+     */
+    private static Flight randomFlight(Random random, int number) {
+        LocalDateTime departure = random.nextInt(10) == 0 ? null : BASE.plusMinutes(random.nextInt(240));
+        return flight("F" + number, departure);
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number    Número de vuelo.
+     * @param departure Salida; puede ser {@code null}.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, LocalDateTime departure) {
+        return new Flight(number, "Roma", departure, LocalTime.of(1, 0));
+    }
+}
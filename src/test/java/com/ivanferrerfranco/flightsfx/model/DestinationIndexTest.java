@@ -0,0 +1,82 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del índice de vuelos por destino.
+ */
+class DestinationIndexTest {
+
+    @Test
+    void bulkRemovalKeepsRemainingFlightsInOrder() {
+        ObservableList<Flight> flights = FXCollections.observableArrayList();
+        for (int i = 0; i < 40_000; i++) {
+            flights.add(flight("F" + i, i % 4 == 0 ? "Paris" : "Roma"));
+        }
+        DestinationIndex index = new DestinationIndex(flights);
+
+        // Una sola eliminación con muchas bajas dispersas por la lista.
+        flights.removeIf(flight -> Integer.parseInt(flight.getFlightNumber().substring(1)) % 2 == 0);
+
+        List<Flight> expected = flights.stream().filter(flight -> flight.getDestination().equals("Roma")).toList();
+        List<Flight> actual = index.flightsTo("Roma");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+        assertEquals(0, index.count("Paris"));
+        assertTrue(index.destinationsStartingWith("p", 10).isEmpty());
+    }
+
+    @Test
+    void removalMatchesByIdentity() {
+        Flight first = flight("A1", "Roma");
+        Flight twin = flight("A1", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, twin, flight("A2", "Roma"));
+        DestinationIndex index = new DestinationIndex(flights);
+
+        flights.remove(twin);
+
+        assertEquals(2, index.count("Roma"));
+        assertSame(first, index.flightsTo("Roma").get(0));
+    }
+
+    @Test
+    void replacingWithSameFlightsKeepsThem() {
+        List<Flight> initial = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            initial.add(flight("F" + i, i % 2 == 0 ? "Roma" : "Oslo"));
+        }
+        ObservableList<Flight> flights = FXCollections.observableArrayList(initial);
+        DestinationIndex index = new DestinationIndex(flights);
+
+        flights.setAll(initial.subList(0, 6));
+
+        assertEquals(3, index.count("Roma"));
+        assertEquals(3, index.count("Oslo"));
+        assertEquals(List.of("Oslo"), index.destinationsStartingWith("OS", 5));
+        assertEquals(3, index.flightsToIgnoreCase("roma").size());
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number      Número de vuelo.
+     * @param destination Destino.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, String destination) {
+        return new Flight(number, destination, LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
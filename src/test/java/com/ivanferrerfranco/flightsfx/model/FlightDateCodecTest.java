@@ -0,0 +1,66 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de la lectura y escritura de fechas de salida y duraciones.
+ */
+class FlightDateCodecTest {
+
+    @Test
+    void canonicalDateTimeRoundTrip() {
+        long minutes = FlightDateCodec.parseDateTime("29/02/24 23:59");
+
+        assertEquals(LocalDateTime.of(2024, 2, 29, 23, 59), FlightStore.fromEpochMinutes(minutes));
+        assertEquals("29/02/24 23:59", FlightDateCodec.formatDateTime(minutes));
+        assertEquals("01/01/00 00:00", FlightDateCodec.formatDateTime(FlightDateCodec.parseDateTime("01/01/00 00:00")));
+    }
+
+    @Test
+    void dateTimeInsideLine() {
+        String line = "IB101;Madrid;05/03/26 07:45;1:15";
+
+        assertEquals(LocalDateTime.of(2026, 3, 5, 7, 45),
+                FlightStore.fromEpochMinutes(FlightDateCodec.parseDateTime(line, 13, 27)));
+    }
+
+    @Test
+    void flexibleDateTimes() {
+        assertEquals(LocalDateTime.of(2026, 2, 1, 9, 5), FlightDateCodec.parseLocalDateTime("1/2/26 9:05"));
+        assertEquals(LocalDateTime.of(1999, 12, 31, 10, 0), FlightDateCodec.parseLocalDateTime("31/12/1999 10:00"));
+    }
+
+    @Test
+    void invalidDatesAreRejected() {
+        for (String text : new String[]{"31/04/26 10:00", "29/02/25 10:00", "00/01/26 10:00", "01/13/26 10:00",
+                "01/01/26 24:00", "01/01/26 10:60", "1x/01/26 10:00", "", "01/01/26"}) {
+            assertThrows(DateTimeException.class, () -> FlightDateCodec.parseDateTime(text), text);
+        }
+    }
+
+    @Test
+    void invalidFlexibleDatesAreRejected() {
+        for (String text : new String[]{"31/4/26 10:00", "29/2/2025 10:00", "30/2/26 9:00", "31/11/2026 9:00"}) {
+            assertThrows(DateTimeException.class, () -> FlightDateCodec.parseDateTime(text), text);
+        }
+    }
+
+    @Test
+    void durations() {
+        assertEquals(75, FlightDateCodec.parseDuration("1:15"));
+        assertEquals(23 * 60 + 59, FlightDateCodec.parseDuration("23:59"));
+        assertEquals(LocalTime.of(2, 5), FlightDateCodec.parseLocalTime("2:05:00"));
+        assertEquals("09:05", FlightDateCodec.appendDuration(new StringBuilder(), 545).toString());
+
+        for (String text : new String[]{"24:00", "1:60", "a:10", "", "1:5"}) {
+            assertThrows(DateTimeException.class, () -> FlightDateCodec.parseDuration(text), text);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del historial para deshacer y rehacer los cambios de la lista de vuelos.
+ */
+class FlightHistoryTest {
+
+    @Test
+    void undoAndRedoOfBatchFireOneChangeEach() {
+        List<Flight> initial = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            initial.add(flight("F" + i));
+        }
+        FlightList flights = new FlightList(initial);
+        FlightHistory history = new FlightHistory(flights);
+        flights.batch(() -> {
+            flights.remove(4);
+            flights.add(flight("N1"));
+            flights.remove(0);
+            flights.set(1, flight("N2"));
+        });
+        List<Flight> changed = List.copyOf(flights);
+        int[] events = new int[1];
+        flights.addListener((ListChangeListener<Flight>) change -> events[0]++);
+
+        assertTrue(history.undo());
+        assertEquals(1, events[0]);
+        assertEquals(initial, flights);
+
+        assertTrue(history.redo());
+        assertEquals(2, events[0]);
+        assertEquals(changed, flights);
+    }
+
+    @Test
+    void rangeReplacementOfAnotherSizeFiresOneChange() {
+        List<Flight> initial = List.of(flight("A1"), flight("A2"), flight("A3"));
+        FlightList flights = new FlightList(initial);
+        FlightDelta delta = new FlightDelta(1, initial.subList(1, 3), List.of(flight("B1")));
+        int[] events = new int[1];
+        flights.addListener((ListChangeListener<Flight>) change -> events[0]++);
+
+        delta.applyTo(flights);
+        assertEquals(1, events[0]);
+        assertEquals(List.of(initial.get(0), delta.added().get(0)), flights);
+
+        delta.inverse().applyTo(flights);
+        assertEquals(2, events[0]);
+        assertEquals(initial, flights);
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number Número de vuelo.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number) {
+        return new Flight(number, "Roma", LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
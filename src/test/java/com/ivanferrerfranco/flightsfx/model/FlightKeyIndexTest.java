@@ -0,0 +1,113 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del índice de clave primaria de los vuelos.
+ */
+class FlightKeyIndexTest {
+
+    @Test
+    void positionsFollowRemovalsInTheMiddle() {
+        ObservableList<Flight> flights = FXCollections.observableArrayList();
+        for (int i = 0; i < 1000; i++) {
+            flights.add(flight("F" + i));
+        }
+        FlightKeyIndex index = new FlightKeyIndex(flights, FlightKeyIndex.KeyMode.FLIGHT_NUMBER);
+
+        assertEquals("F500", index.remove("F500", null).getFlightNumber());
+        flights.subList(10, 20).clear();
+        flights.add(flight("N1"));
+
+        assertNull(index.find("F500", null));
+        assertEquals(flights.size() - 1, index.indexOf(flight("N1")));
+        for (int i = 0; i < flights.size(); i++) {
+            assertEquals(i, index.indexOf(flights.get(i)));
+        }
+    }
+
+    @Test
+    void randomChangesKeepPositions() {
+        Random random = new Random(42);
+        ObservableList<Flight> flights = FXCollections.observableArrayList();
+        FlightKeyIndex index = new FlightKeyIndex(flights, FlightKeyIndex.KeyMode.FLIGHT_NUMBER);
+        int next = 0;
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 4 || flights.isEmpty()) {
+                flights.add(flight("F" + next++));
+            } else if (operation < 7) {
+                Flight removed = flights.get(random.nextInt(flights.size()));
+                assertSame(removed, index.remove(removed.getFlightNumber(), null));
+            } else if (operation < 8) {
+                flights.set(random.nextInt(flights.size()), flight("F" + next++));
+            } else if (operation < 9) {
+                flights.add(random.nextInt(flights.size()), flight("F" + next++));
+            } else {
+                int from = random.nextInt(flights.size());
+                flights.subList(from, Math.min(flights.size(), from + 1 + random.nextInt(5))).clear();
+            }
+
+            Flight probe = flights.isEmpty() ? null : flights.get(random.nextInt(flights.size()));
+            if (probe != null) {
+                assertSame(probe, flights.get(index.indexOf(probe)));
+            }
+        }
+        for (int i = 0; i < flights.size(); i++) {
+            assertEquals(i, index.indexOf(flights.get(i)));
+        }
+    }
+
+    @Test
+    void duplicateTakesOverRemovedKey() {
+        Flight first = flight("A1");
+        Flight other = flight("B1");
+        Flight twin = flight("A1");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, other, twin);
+        FlightKeyIndex index = new FlightKeyIndex(flights, FlightKeyIndex.KeyMode.FLIGHT_NUMBER);
+
+        assertTrue(index.removeFlight(first));
+
+        assertSame(twin, index.find("A1", null));
+        assertEquals(1, index.indexOf(twin));
+        assertSame(twin, index.remove("A1", null));
+        assertFalse(index.contains(twin));
+        assertEquals(0, index.indexOf(other));
+    }
+
+    @Test
+    void replaceKeepsPosition() {
+        ObservableList<Flight> flights = FXCollections.observableArrayList(flight("A1"), flight("A2"), flight("A3"));
+        FlightKeyIndex index = new FlightKeyIndex(flights, FlightKeyIndex.KeyMode.FLIGHT_NUMBER);
+        flights.remove(0);
+
+        Flight updated = new Flight("A3", "Oslo", LocalDateTime.of(2024, 6, 2, 9, 0), LocalTime.of(2, 0));
+        index.replace(updated);
+
+        assertSame(updated, flights.get(1));
+        assertEquals(1, index.indexOf(updated));
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number Número de vuelo.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number) {
+        return new Flight(number, "Roma", LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la lista de vuelos: cambios agrupados y cerrojo de lectura.
+ */
+class FlightListTest {
+
+    @Test
+    void indexesRunUnderWriteLockAndListenersWithoutIt() throws Exception {
+        FlightList flights = new FlightList(List.of());
+        List<Boolean> readableInIndex = new ArrayList<>();
+        List<Boolean> readableInListener = new ArrayList<>();
+        FlightList.addIndex(flights, change -> readableInIndex.add(readLockFree(flights.readLock())));
+        flights.addListener((ListChangeListener<Flight>) change -> readableInListener.add(readLockFree(flights.readLock())));
+
+        flights.add(flight("A1"));
+        flights.batch(() -> {
+            flights.add(flight("A2"));
+            flights.remove(0);
+        });
+
+        assertEquals(List.of(false, false), readableInIndex);
+        assertEquals(List.of(true, true), readableInListener);
+        assertTrue(readLockFree(flights.readLock()));
+    }
+
+    @Test
+    void indexSeesEveryChangeOfBatchOnce() {
+        FlightList flights = new FlightList(List.of(flight("A1"), flight("A2")));
+        DestinationIndex index = new DestinationIndex(flights);
+        int[] events = new int[1];
+        flights.addListener((ListChangeListener<Flight>) change -> events[0]++);
+
+        flights.batch(() -> {
+            flights.add(flight("A3"));
+            flights.remove(0);
+            flights.set(0, flight("A4"));
+        });
+
+        assertEquals(1, events[0]);
+        assertEquals(2, index.count("Roma"));
+    }
+
+    @Test
+    void emptyChangeReleasesLock() {
+        FlightList flights = new FlightList(List.of());
+        flights.batch(() -> { });
+
+        assertFalse(flights.removeAll(List.of(flight("A1"))));
+        assertTrue(readLockFree(flights.readLock()));
+    }
+
+    /**
+     * Comprueba desde otro hilo si el cerrojo de lectura está libre.
+     *
+     * @param readLock Cerrojo de lectura de la lista.
+     * @return {@code true} si otro hilo puede tomarlo sin esperar.
+     */
+    private static boolean readLockFree(Lock readLock) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!readLock.tryLock()) {
+                return false;
+            }
+            readLock.unlock();
+            return true;
+        }).orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number Número de vuelo.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number) {
+        return new Flight(number, "Roma", LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
@@ -0,0 +1,119 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la vista con el resultado de una consulta sobre la lista de vuelos.
+ */
+class FlightQueryViewTest {
+
+    /** Condición de las pruebas: vuelos a Roma. */
+    private static final Predicate<Flight> TO_ROME = flight -> flight.getDestination().equals("Roma");
+
+    @Test
+    void showsResultAndFollowsLaterChanges() {
+        Flight first = flight("A1", "Roma");
+        Flight other = flight("A2", "Oslo");
+        Flight second = flight("A3", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, other, second);
+        FlightQueryView view = new FlightQueryView(flights);
+
+        view.begin();
+        view.show(List.of(first, second), TO_ROME);
+        Flight added = flight("A4", "Roma");
+        flights.addAll(flight("A5", "Oslo"), added);
+        flights.remove(first);
+
+        assertTrue(view.isActive());
+        assertEquals(List.of(second, added), view.getFlights());
+    }
+
+    @Test
+    void changesDuringQueryAreAppliedOnce() {
+        Flight first = flight("A1", "Roma");
+        Flight second = flight("A2", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, second);
+        FlightQueryView view = new FlightQueryView(flights);
+
+        view.begin();
+        // La consulta ya vio el alta y no la baja: el resultado no debe repetir ni conservar ninguno.
+        Flight added = flight("A3", "Roma");
+        flights.add(added);
+        List<Flight> result = List.of(first, second, added);
+        flights.remove(second);
+        view.show(result, TO_ROME);
+
+        assertEquals(List.of(first, added), view.getFlights());
+    }
+
+    @Test
+    void limitedQueryDoesNotGrow() {
+        Flight first = flight("A1", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first);
+        FlightQueryView view = new FlightQueryView(flights);
+
+        view.begin();
+        view.show(List.of(first), null);
+        flights.add(flight("A2", "Roma"));
+
+        assertEquals(List.of(first), view.getFlights());
+    }
+
+    @Test
+    void replacedFlightKeepsItsPlace() {
+        Flight first = flight("A1", "Roma");
+        Flight second = flight("A2", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, second);
+        FlightQueryView view = new FlightQueryView(flights);
+        view.begin();
+        view.show(List.of(first, second), TO_ROME);
+
+        // Mover el primer vuelo al final de la lista en un solo cambio.
+        flights.setAll(second, first);
+
+        assertEquals(2, view.getFlights().size());
+        assertSame(first, view.getFlights().get(0));
+    }
+
+    @Test
+    void discardAndClear() {
+        Flight first = flight("A1", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first);
+        FlightQueryView view = new FlightQueryView(flights);
+
+        view.begin();
+        view.discard();
+        assertFalse(view.isActive());
+
+        view.begin();
+        view.show(List.of(first), TO_ROME);
+        view.clear();
+        flights.add(flight("A2", "Roma"));
+
+        assertFalse(view.isActive());
+        assertTrue(view.getFlights().isEmpty());
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number      Número de vuelo.
+     * @param destination Destino.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, String destination) {
+        return new Flight(number, destination, LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
@@ -0,0 +1,169 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las estadísticas de vuelos: recuperación del mínimo y el máximo tras las bajas
+ * y coincidencia con un recálculo completo después de cambios aleatorios.
+ */
+class FlightStatisticsTest {
+
+    @Test
+    void minAndMaxAreRecoveredAfterRemovals() {
+        Flight shortest = flight("A1", "Roma", LocalTime.of(0, 30));
+        Flight shortestTwin = flight("A2", "Roma", LocalTime.of(0, 30));
+        Flight middle = flight("A3", "Paris", LocalTime.of(0, 45));
+        Flight longest = flight("A4", "Paris", LocalTime.of(2, 0));
+        Flight unknown = flight("A5", "Oslo", null);
+        FlightList flights = new FlightList(List.of(shortest, middle, unknown, longest, shortestTwin));
+        FlightStatistics statistics = new FlightStatistics(flights);
+
+        assertEquals(5, statistics.getFlightCount());
+        assertEquals(30, statistics.getMinDuration());
+        assertEquals(120, statistics.getMaxDuration());
+        assertEquals(225 / 4.0, statistics.getAverageDuration());
+
+        // Queda otro vuelo con la misma duración mínima.
+        flights.remove(shortest);
+        assertEquals(30, statistics.getMinDuration());
+        flights.remove(shortestTwin);
+        assertEquals(45, statistics.getMinDuration());
+        flights.remove(longest);
+        assertEquals(45, statistics.getMaxDuration());
+
+        // Un vuelo sin duración cuenta como vuelo pero no como duración.
+        flights.remove(middle);
+        assertEquals(1, statistics.getFlightCount());
+        assertEquals(-1, statistics.getMinDuration());
+        assertEquals(-1, statistics.getMaxDuration());
+        assertEquals(0, statistics.getAverageDuration());
+        assertEquals(Map.of("Oslo", 1), statistics.getDestinationCounts());
+
+        flights.add(flight("A6", "Roma", LocalTime.of(23, 59)));
+        assertEquals(1439, statistics.getMinDuration());
+        assertEquals(1439, statistics.getMaxDuration());
+    }
+
+    @Test
+    void emptyListHasNoDurations() {
+        FlightStatistics statistics = new FlightStatistics(new FlightList(List.of()));
+
+        assertEquals(0, statistics.getFlightCount());
+        assertEquals(-1, statistics.getMinDuration());
+        assertEquals(-1, statistics.getMaxDuration());
+        assertEquals(0, statistics.getAverageDuration());
+        assertTrue(statistics.getDestinationCounts().isEmpty());
+    }
+
+    @Test
+    void randomChangesMatchRecomputedStatistics() {
+        Random random = new Random(5);
+        List<Flight> initial = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            initial.add(randomFlight(random, i));
+        }
+        FlightList flights = new FlightList(initial);
+        FlightStatistics statistics = new FlightStatistics(flights);
+        assertMatches(statistics, flights);
+
+        for (int step = 0; step < 300; step++) {
+            int next = 1000 + step * 50;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    List<Flight> batch = new ArrayList<>();
+                    for (int i = 0; i < 1 + random.nextInt(10); i++) {
+                        batch.add(randomFlight(random, next + i));
+                    }
+                    flights.addAll(random.nextInt(flights.size() + 1), batch);
+                }
+                case 1 -> {
+                    if (!flights.isEmpty()) {
+                        flights.remove(random.nextInt(flights.size()));
+                    }
+                }
+                case 2 -> flights.batch(() -> {
+                    for (int i = 0; i < 3 && flights.size() > 10; i++) {
+                        int from = random.nextInt(flights.size() - 5);
+                        flights.subList(from, from + 1 + random.nextInt(5)).clear();
+                    }
+                });
+                default -> {
+                    if (!flights.isEmpty()) {
+                        flights.set(random.nextInt(flights.size()), randomFlight(random, next));
+                    }
+                }
+            }
+            assertMatches(statistics, flights);
+        }
+    }
+
+    /**
+     * Comprueba que las estadísticas coinciden con las calculadas de nuevo a partir de la lista.
+     *
+     * @param statistics Estadísticas.
+     * @param flights    Lista de vuelos.
+     */
+    private static void assertMatches(FlightStatistics statistics, List<Flight> flights) {
+        int min = -1;
+        int max = -1;
+        long sum = 0;
+        int count = 0;
+        int[] histogram = new int[24];
+        Map<String, Integer> destinations = new HashMap<>();
+        for (Flight flight : flights) {
+            destinations.merge(flight.getDestination(), 1, Integer::sum);
+            if (flight.getDuration() == null) {
+                continue;
+            }
+            int minutes = flight.getDuration().getHour() * 60 + flight.getDuration().getMinute();
+            min = min < 0 ? minutes : Math.min(min, minutes);
+            max = Math.max(max, minutes);
+            sum += minutes;
+            count++;
+            histogram[minutes / 60]++;
+        }
+
+        assertEquals(flights.size(), statistics.getFlightCount());
+        assertEquals(min, statistics.getMinDuration());
+        assertEquals(max, statistics.getMaxDuration());
+        assertEquals(count == 0 ? 0 : (double) sum / count, statistics.getAverageDuration(), 1e-9);
+        assertArrayEquals(histogram, statistics.getDurationHistogram());
+        assertEquals(destinations, statistics.getDestinationCounts());
+    }
+
+    /**
+     * Crea un vuelo con un destino y una duración aleatorios entre pocos valores, o sin duración.
+     *
+     * @param random Generador de números aleatorios.
+     * @param number Número del vuelo.
+     * @return El vuelo.
+     */
+    private static Flight randomFlight(Random random, int number) {
+        LocalTime duration = random.nextInt(8) == 0 ? null : LocalTime.of(random.nextInt(24), random.nextInt(4) * 15);
+        return flight("F" + number, "Destino " + random.nextInt(6), duration);
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number      Número de vuelo.
+     * @param destination Destino.
+     * @param duration    Duración; puede ser {@code null}.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, String destination, LocalTime duration) {
+        return new Flight(number, destination, LocalDateTime.of(2024, 1, 1, 10, 0), duration);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ivanferrerfranco.flightsfx.model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del índice de texto de los vuelos.
+ */
+class FlightTextIndexTest {
+
+    @Test
+    void findsByFlightNumberOrDestinationIgnoringCase() {
+        Flight rome = flight("IB101", "Roma");
+        Flight oslo = flight("VY202", "Oslo");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(rome, oslo);
+        FlightTextIndex index = new FlightTextIndex(flights);
+
+        assertEquals(List.of(rome), index.search("ROM"));
+        assertEquals(List.of(oslo), index.search("y2"));
+        assertEquals(List.of(oslo), index.search("vy202"));
+        assertTrue(index.search("xyz").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+
+    @Test
+    void bulkRemovalKeepsRemainingFlights() {
+        ObservableList<Flight> flights = FXCollections.observableArrayList();
+        for (int i = 0; i < 40_000; i++) {
+            flights.add(flight("F" + i, i % 4 == 0 ? "Paris" : "Roma"));
+        }
+        FlightTextIndex index = new FlightTextIndex(flights);
+
+        // Una sola eliminación con muchas bajas dispersas por la lista.
+        flights.removeIf(flight -> Integer.parseInt(flight.getFlightNumber().substring(1)) % 2 == 0);
+
+        List<Flight> expected = flights.stream().filter(flight -> flight.getDestination().equals("Roma")).toList();
+        List<Flight> actual = index.search("roma");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+        assertTrue(index.search("paris").isEmpty());
+        assertTrue(index.search("f10").stream().allMatch(flights::contains));
+    }
+
+    @Test
+    void removalMatchesByIdentity() {
+        Flight first = flight("A1", "Roma");
+        Flight twin = flight("A1", "Roma");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(first, twin, flight("A2", "Roma"));
+        FlightTextIndex index = new FlightTextIndex(flights);
+
+        flights.remove(twin);
+
+        assertEquals(2, index.search("roma").size());
+        assertSame(first, index.search("roma").get(0));
+        assertEquals(List.of(first), index.search("a1"));
+    }
+
+    @Test
+    void removedTermReappears() {
+        Flight flight = flight("A1", "Lisboa");
+        ObservableList<Flight> flights = FXCollections.observableArrayList(flight);
+        FlightTextIndex index = new FlightTextIndex(flights);
+
+        flights.clear();
+        assertTrue(index.search("lis").isEmpty());
+
+        Flight again = flight("A2", "Lisboa");
+        flights.add(again);
+        assertEquals(List.of(again), index.search("lis"));
+    }
+
+    @Test
+    void interruptedSearchAndQueryStop() {
+        ObservableList<Flight> flights = FXCollections.observableArrayList();
+        for (int i = 0; i < 5000; i++) {
+            flights.add(flight("F" + i, "Roma"));
+        }
+        FlightTextIndex index = new FlightTextIndex(flights);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> index.search("f"));
+            assertThrows(CancellationException.class, () -> FlightQuery.all().longerThan(LocalTime.of(1, 0)).execute(flights));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(5000, index.search("f").size());
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number      Número de vuelo.
+     * @param destination Destino.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, String destination) {
+        return new Flight(number, destination, LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
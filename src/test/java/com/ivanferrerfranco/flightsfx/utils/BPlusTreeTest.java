@@ -0,0 +1,224 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del árbol B+: divisiones de hojas y nodos internos, bajas que vacían hojas y recorridos por intervalos.
+ */
+class BPlusTreeTest {
+
+    /** Número de claves de las pruebas, suficiente para dividir también los nodos internos. */
+    private static final int KEYS = 20_000;
+
+    /** Posición de la cabecera con la raíz del árbol de las pruebas. */
+    private static final int ROOT_SLOT = 0;
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void splitsKeepEveryKeyInOrderAcrossReopen() throws IOException {
+        Path path = directory.resolve("tree.db");
+        long firstRoot;
+        try (PageFile pages = PageFile.open(path, 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+            firstRoot = pages.meta(ROOT_SLOT);
+            List<Integer> order = shuffledKeys(KEYS);
+            for (int key : order) {
+                assertTrue(tree.put(key(key), value(key)));
+                if (pages.needsCheckpoint()) {
+                    pages.checkpoint();
+                }
+            }
+            assertNotEquals(firstRoot, pages.meta(ROOT_SLOT));
+            assertKeys(tree, range(0, KEYS));
+        }
+
+        try (PageFile pages = PageFile.open(path, 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+            assertKeys(tree, range(0, KEYS));
+            // Hay más hojas de las que caben en un nodo interno (10 bytes por hijo), así que también se han dividido.
+            assertTrue(pages.allocate() > PageFile.PAGE_SIZE / 10);
+        }
+    }
+
+    @Test
+    void removalsThatEmptyLeavesKeepTreeUsable() throws IOException {
+        try (PageFile pages = PageFile.open(directory.resolve("tree.db"), 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+            for (int key = 0; key < KEYS; key++) {
+                tree.put(key(key), value(key));
+            }
+
+            // Vaciar por completo las hojas de un tramo central y quitar una de cada dos claves del resto.
+            List<Integer> remaining = new ArrayList<>();
+            for (int key = 0; key < KEYS; key++) {
+                boolean removed = key >= 5_000 && key < 15_000 || key % 2 == 0;
+                if (removed) {
+                    assertTrue(tree.remove(key(key)));
+                } else {
+                    remaining.add(key);
+                }
+                if (pages.needsCheckpoint()) {
+                    pages.checkpoint();
+                }
+            }
+            assertFalse(tree.remove(key(6_000)));
+            assertNull(tree.get(key(10_000)));
+            assertKeys(tree, remaining);
+
+            List<Integer> acrossEmpty = new ArrayList<>();
+            tree.scan(key(4_990), key(15_010), (key, value) -> acrossEmpty.add(ByteBuffer.wrap(key).getInt()));
+            assertEquals(List.of(4_991, 4_993, 4_995, 4_997, 4_999, 15_001, 15_003, 15_005, 15_007, 15_009), acrossEmpty);
+
+            // Las altas posteriores vuelven a llenar las hojas vacías.
+            for (int key = 5_000; key < 15_000; key++) {
+                assertTrue(tree.put(key(key), value(key)));
+            }
+            assertEquals(KEYS / 2 + 5_000, countKeys(tree));
+        }
+    }
+
+    @Test
+    void putReplacesValue() throws IOException {
+        try (PageFile pages = PageFile.open(directory.resolve("tree.db"), 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+
+            assertTrue(tree.put(key(1), value(1)));
+            assertFalse(tree.put(key(1), value(2)));
+            assertArrayEquals(value(2), tree.get(key(1)));
+            assertNull(tree.get(key(2)));
+        }
+    }
+
+    @Test
+    void scanStopsAtBoundOrWhenVisitorAsks() throws IOException {
+        try (PageFile pages = PageFile.open(directory.resolve("tree.db"), 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+            for (int key = 0; key < 1000; key++) {
+                tree.put(key(key), value(key));
+            }
+
+            List<Integer> bounded = new ArrayList<>();
+            tree.scan(key(100), key(110), (key, value) -> bounded.add(ByteBuffer.wrap(key).getInt()));
+            assertEquals(range(100, 110), bounded);
+
+            List<Integer> stopped = new ArrayList<>();
+            tree.scan(null, null, (key, value) -> {
+                stopped.add(ByteBuffer.wrap(key).getInt());
+                return stopped.size() < 3;
+            });
+            assertEquals(List.of(0, 1, 2), stopped);
+        }
+    }
+
+    @Test
+    void oversizedEntryIsRejected() throws IOException {
+        try (PageFile pages = PageFile.open(directory.resolve("tree.db"), 8, 64)) {
+            BPlusTree tree = new BPlusTree(pages, ROOT_SLOT);
+
+            assertThrows(IllegalArgumentException.class, () -> tree.put(key(1), new byte[BPlusTree.MAX_ENTRY_SIZE]));
+        }
+    }
+
+    /**
+     * Comprueba que el árbol contiene exactamente unas claves, en orden y con sus valores.
+     *
+     * @param tree     Árbol.
+     * @param expected Claves esperadas, en orden.
+     * @throws IOException Si ocurre un error al leer el árbol.
+     */
+    private static void assertKeys(BPlusTree tree, List<Integer> expected) throws IOException {
+        List<Integer> scanned = new ArrayList<>();
+        tree.scan(null, null, (key, value) -> {
+            int number = ByteBuffer.wrap(key).getInt();
+            assertArrayEquals(value(number), value);
+            return scanned.add(number);
+        });
+        assertEquals(expected, scanned);
+        for (int key : expected) {
+            assertArrayEquals(value(key), tree.get(key(key)));
+        }
+    }
+
+    /**
+     * Cuenta las entradas del árbol.
+     *
+     * @param tree Árbol.
+     * @return El número de entradas.
+     * @throws IOException Si ocurre un error al leer el árbol.
+     */
+    private static int countKeys(BPlusTree tree) throws IOException {
+        int[] count = new int[1];
+        tree.scan(null, null, (key, value) -> ++count[0] > 0);
+        return count[0];
+    }
+
+    /**
+     * Devuelve las claves de un intervalo en orden aleatorio, siempre el mismo.
+     *
+     * @param count Número de claves, desde 0.
+     * @return Las claves desordenadas.
+     */
+    private static List<Integer> shuffledKeys(int count) {
+        List<Integer> keys = range(0, count);
+        Collections.shuffle(keys, new Random(42));
+        return keys;
+    }
+
+    /**
+     * Devuelve los números de un intervalo.
+     *
+     * @param from Primer número (incluido).
+     * @param to   Último número (excluido).
+     * @return Los números, en orden.
+     */
+    private static List<Integer> range(int from, int to) {
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Codifica una clave en big-endian, que se ordena como número al comparar sus bytes sin signo.
+     *
+     * @param number Número de la clave.
+     * @return La clave.
+     */
+    private static byte[] key(int number) {
+        return ByteBuffer.allocate(4).putInt(number).array();
+    }
+
+    /**
+     * Crea el valor de una clave, de 100 bytes para que cada hoja tenga pocas entradas.
+     *
+     * @param number Número de la clave.
+     * @return El valor.
+     */
+    private static byte[] value(int number) {
+        byte[] value = new byte[100];
+        Arrays.fill(value, (byte) number);
+        return value;
+    }
+}
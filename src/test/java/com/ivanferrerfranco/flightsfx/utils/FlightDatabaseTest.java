@@ -0,0 +1,214 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.ivanferrerfranco.flightsfx.utils.FlightSnapshotCodecTest.describe;
+import static com.ivanferrerfranco.flightsfx.utils.PageFileTest.corrupt;
+import static com.ivanferrerfranco.flightsfx.utils.PageFileTest.wal;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la base de datos de vuelos: altas, bajas, consultas por los índices y recuperación tras un corte.
+ */
+class FlightDatabaseTest {
+
+    /** Destinos de los vuelos de prueba; uno es prefijo de otro para comprobar que no se mezclan. */
+    private static final String[] DESTINATIONS = {"Roma", "Paris", "Londres", "Berlin", "Roma Ciampino"};
+
+    /** Fecha de salida más temprana de los vuelos de prueba. */
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    /** Páginas en memoria de las bases de datos de prueba, pocas para que haya puntos de control. */
+    private static final int CACHE_PAGES = 32;
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void insertDeleteAndReopen() throws IOException {
+        Path path = directory.resolve("flights.fdb");
+        List<Flight> flights = sampleFlights(5000);
+        try (FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES)) {
+            for (Flight flight : flights) {
+                assertTrue(database.insert(flight));
+            }
+            assertFalse(database.insert(flights.get(5)));
+            for (int i = 0; i < flights.size(); i += 3) {
+                assertTrue(database.delete(flights.get(i).getFlightNumber()));
+            }
+            assertFalse(database.delete(flights.get(0).getFlightNumber()));
+        }
+
+        List<Flight> live = new ArrayList<>();
+        for (int i = 0; i < flights.size(); i++) {
+            if (i % 3 != 0) {
+                live.add(flights.get(i));
+            }
+        }
+        try (FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES)) {
+            assertMatches(database, live);
+            assertNull(database.find("F0"));
+            assertNotNull(database.find("F1"));
+        }
+        assertEquals(0, Files.size(wal(path)));
+    }
+
+    @Test
+    void operationsAfterLastCheckpointAreReplayed() throws Exception {
+        Path path = directory.resolve("flights.fdb");
+        List<Flight> live = new ArrayList<>(sampleFlights(500));
+        try (FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES)) {
+            for (Flight flight : live) {
+                database.insert(flight);
+            }
+        }
+
+        FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES);
+        Flight extra = new Flight("X1", "Roma", BASE, LocalTime.of(1, 0));
+        database.insert(extra);
+        database.delete("F1");
+        crash(database);
+        live.add(extra);
+        live.removeIf(flight -> flight.getFlightNumber().equals("F1"));
+        assertTrue(Files.size(wal(path)) > 0);
+
+        try (FlightDatabase reopened = FlightDatabase.open(path, CACHE_PAGES)) {
+            assertMatches(reopened, live);
+        }
+    }
+
+    @Test
+    void tornWalTailIsIgnored() throws Exception {
+        Path path = directory.resolve("flights.fdb");
+        List<Flight> live = new ArrayList<>(sampleFlights(200));
+        FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES);
+        for (Flight flight : live) {
+            database.insert(flight);
+        }
+        crash(database);
+
+        // Un alta cortada a mitad de escribirla en el registro.
+        Files.write(wal(path), new byte[]{1, 0, 0, 0, 50, 9, 9}, StandardOpenOption.APPEND);
+
+        try (FlightDatabase reopened = FlightDatabase.open(path, CACHE_PAGES)) {
+            assertMatches(reopened, live);
+        }
+    }
+
+    @Test
+    void crcMismatchDropsLastOperation() throws Exception {
+        Path path = directory.resolve("flights.fdb");
+        List<Flight> live = new ArrayList<>(sampleFlights(200));
+        try (FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES)) {
+            for (Flight flight : live) {
+                database.insert(flight);
+            }
+        }
+
+        FlightDatabase database = FlightDatabase.open(path, CACHE_PAGES);
+        Flight kept = new Flight("X1", "Oslo", BASE, LocalTime.of(2, 0));
+        database.insert(kept);
+        database.insert(new Flight("X2", "Oslo", BASE, LocalTime.of(3, 0)));
+        crash(database);
+        live.add(kept);
+
+        // El último byte del registro es el CRC de la segunda alta.
+        corrupt(wal(path), Math.toIntExact(Files.size(wal(path)) - 1));
+
+        try (FlightDatabase reopened = FlightDatabase.open(path, CACHE_PAGES)) {
+            assertMatches(reopened, live);
+            assertNull(reopened.find("X2"));
+        }
+    }
+
+    /**
+     * Simula un corte: cierra los archivos de la base de datos sin escribir las páginas modificadas.
+     *
+     * @param database Base de datos abierta, que queda inservible.
+     * @throws Exception Si ocurre un error al cerrar los archivos o al acceder a los campos.
+     */
+    private static void crash(FlightDatabase database) throws Exception {
+        Field pages = FlightDatabase.class.getDeclaredField("pages");
+        pages.setAccessible(true);
+        ((PageFile) pages.get(database)).abort();
+        Field closed = FlightDatabase.class.getDeclaredField("closed");
+        closed.setAccessible(true);
+        closed.setBoolean(database, true);
+    }
+
+    /**
+     * Comprueba que la base de datos contiene exactamente unos vuelos, consultándola por cada uno de sus índices.
+     *
+     * @param database Base de datos.
+     * @param live     Vuelos esperados.
+     * @throws IOException Si ocurre un error al leer la base de datos.
+     */
+    private static void assertMatches(FlightDatabase database, List<Flight> live) throws IOException {
+        assertEquals(live.size(), database.count());
+        List<FlightQuery> queries = List.of(
+                FlightQuery.all(),
+                FlightQuery.all().to("Roma"),
+                FlightQuery.all().to("Roma").longerThan(LocalTime.of(5, 0)),
+                FlightQuery.all().departingBetween(BASE.plusMinutes(100), BASE.plusMinutes(9000).plusSeconds(30)),
+                FlightQuery.all().orderByDeparture().limit(50),
+                FlightQuery.all().to("Paris").departingAfter(BASE.plusMinutes(5000)).orderByDeparture().limit(7));
+        for (FlightQuery query : queries) {
+            List<Flight> expected = query.execute(live);
+            List<Flight> actual = database.query(query);
+            if (query.isOrderedByDeparture()) {
+                // Entre vuelos con la misma salida el orden no está fijado, así que solo se comparan las salidas.
+                assertEquals(departures(expected), departures(actual));
+            } else {
+                assertEquals(describe(expected).stream().sorted().toList(), describe(actual).stream().sorted().toList());
+            }
+        }
+        for (Flight flight : live) {
+            assertEquals(describe(List.of(flight)), describe(List.of(database.find(flight.getFlightNumber()))));
+        }
+    }
+
+    /**
+     * Devuelve las fechas de salida de unos vuelos, en su orden.
+     *
+     * @param flights Vuelos.
+     * @return Las fechas de salida.
+     */
+    private static List<LocalDateTime> departures(List<Flight> flights) {
+        return flights.stream().map(Flight::getDepartureDateTime).toList();
+    }
+
+    /**
+     * Crea vuelos de prueba con destinos, salidas y duraciones aleatorios, siempre los mismos.
+     *
+     * @param count Número de vuelos.
+     * @return Los vuelos, numerados desde {@code F0}.
+     */
+    private static List<Flight> sampleFlights(int count) {
+        Random random = new Random(1);
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            flights.add(new Flight("F" + i, DESTINATIONS[random.nextInt(DESTINATIONS.length)],
+                    BASE.plusMinutes(random.nextInt(100_000)), LocalTime.of(random.nextInt(10), random.nextInt(60))));
+        }
+        return flights;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.service.FlightService;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.ivanferrerfranco.flightsfx.utils.FlightSnapshotCodecTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Pruebas de la comparación por bloques del vigilante del archivo de vuelos y de su aplicación a la lista,
+ * también con números de vuelo repetidos.
+ */
+class FlightFileWatcherTest {
+
+    /** Fecha de salida más temprana de los vuelos de prueba. */
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void editInsertAndDeleteReportOnlyChangedLines() {
+        List<Flight> flights = sampleFlights(2000);
+        FlightFileWatcher.Chunks chunks = new FlightFileWatcher.Chunks();
+        assertNull(chunks.update(text(flights), false));
+
+        Flight edited = new Flight("F500", "Oslo", BASE, LocalTime.of(1, 0));
+        Flight previous = flights.set(500, edited);
+        FlightFileWatcher.Changes changes = chunks.update(text(flights), true);
+        assertEquals(describe(List.of(edited)), describe(changes.added()));
+        assertEquals(describe(List.of(previous)), describe(changes.removed()));
+
+        Flight inserted = new Flight("X1", "Roma", BASE, LocalTime.of(2, 0));
+        flights.add(200, inserted);
+        changes = chunks.update(text(flights), true);
+        assertEquals(describe(List.of(inserted)), describe(changes.added()));
+        assertEquals(List.of(), changes.removed());
+
+        Flight deleted = flights.remove(1500);
+        changes = chunks.update(text(flights), true);
+        assertEquals(List.of(), changes.added());
+        assertEquals(describe(List.of(deleted)), describe(changes.removed()));
+
+        // Sin cambios en el contenido no se notifica ningún vuelo.
+        changes = chunks.update(text(flights), true);
+        assertEquals(List.of(), changes.added());
+        assertEquals(List.of(), changes.removed());
+    }
+
+    @Test
+    void linesThatOnlyChangeChunkAreNotReported() {
+        List<Flight> flights = sampleFlights(3000);
+        FlightFileWatcher.Chunks chunks = new FlightFileWatcher.Chunks();
+        chunks.update(text(flights), false);
+
+        // Muchas líneas seguidas cambian los límites de los bloques de alrededor, pero no sus líneas.
+        List<Flight> inserted = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            inserted.add(new Flight("N" + i, "Lisboa", BASE.plusMinutes(i), LocalTime.of(3, 0)));
+        }
+        flights.addAll(1000, inserted);
+        List<Flight> deleted = new ArrayList<>(flights.subList(2000, 2300));
+        flights.subList(2000, 2300).clear();
+
+        FlightFileWatcher.Changes changes = chunks.update(text(flights), true);
+        assertEquals(describe(inserted), describe(changes.added()));
+        assertEquals(describe(deleted), describe(changes.removed()));
+    }
+
+    @Test
+    void repeatedNumbersAreMatchedByContent() {
+        Flight first = new Flight("A1", "Roma", BASE, LocalTime.of(1, 0));
+        Flight second = new Flight("A1", "Paris", BASE, LocalTime.of(2, 0));
+        Flight other = new Flight("B1", "Oslo", BASE, LocalTime.of(3, 0));
+        List<Flight> file = new ArrayList<>(List.of(first, second, other));
+        FlightFileWatcher.Chunks chunks = new FlightFileWatcher.Chunks();
+        chunks.update(text(file), false);
+        FlightService service = new FlightService(file);
+
+        // Al editar la segunda línea con el número repetido, se sustituye esa fila y no la primera.
+        file.set(1, new Flight("A1", "Paris", BASE, LocalTime.of(2, 30)));
+        assertEquals(1, apply(service, chunks.update(text(file), true)));
+        assertSame(first, service.getFlights().get(0));
+        assertEquals(describe(file), describe(service.getFlights()));
+
+        // Todas las líneas nuevas con un mismo número se añaden, aunque el número ya exista.
+        file.add(new Flight("A1", "Berlin", BASE, LocalTime.of(4, 0)));
+        file.add(new Flight("A1", "Berlin", BASE, LocalTime.of(4, 0)));
+        assertEquals(2, apply(service, chunks.update(text(file), true)));
+        assertEquals(describe(file), describe(service.getFlights()));
+
+        // Al eliminar una de las líneas iguales solo se elimina una fila.
+        file.remove(4);
+        file.remove(0);
+        assertEquals(2, apply(service, chunks.update(text(file), true)));
+        assertEquals(describe(file), describe(service.getFlights()));
+    }
+
+    @Test
+    void appliedChangesKeepListLikeFile() {
+        Random random = new Random(9);
+        List<Flight> file = new ArrayList<>(sampleFlights(1500));
+        FlightFileWatcher.Chunks chunks = new FlightFileWatcher.Chunks();
+        chunks.update(text(file), false);
+        FlightService service = new FlightService(file);
+
+        for (int step = 0; step < 40; step++) {
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                int index = random.nextInt(file.size());
+                // Números repetidos a propósito: solo hay 300 distintos.
+                Flight flight = new Flight("F" + random.nextInt(300), "Destino " + random.nextInt(4),
+                        BASE.plusMinutes(random.nextInt(1000)), LocalTime.of(random.nextInt(10), 0));
+                switch (random.nextInt(3)) {
+                    case 0 -> file.set(index, flight);
+                    case 1 -> file.add(index, flight);
+                    default -> file.remove(index);
+                }
+            }
+            apply(service, chunks.update(text(file), true));
+
+            // Las altas van al final de la lista, así que solo se comparan los vuelos, no su orden.
+            assertEquals(describe(file).stream().sorted().toList(),
+                    describe(service.getFlights()).stream().sorted().toList());
+        }
+    }
+
+    /**
+     * Aplica unos cambios del archivo a la lista de un servicio.
+     *
+     * @param service Servicio con la lista de vuelos.
+     * @param changes Cambios del archivo.
+     * @return El número de vuelos añadidos, sustituidos o eliminados.
+     */
+    private static int apply(FlightService service, FlightFileWatcher.Changes changes) {
+        return service.applyFileChanges(changes.added(), changes.removed());
+    }
+
+    /**
+     * Devuelve el contenido de un archivo de vuelos con unos vuelos.
+     *
+     * @param flights Vuelos.
+     * @return El contenido en UTF-8.
+     */
+    private static byte[] text(List<Flight> flights) {
+        StringBuilder text = new StringBuilder(FileUtils.formatHeader(';')).append('\n');
+        for (Flight flight : flights) {
+            text.append(FileUtils.formatFlight(flight, ';')).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Crea vuelos de prueba con números distintos.
+     *
+     * @param count Número de vuelos.
+     * @return Los vuelos, en una lista modificable.
+     */
+    private static List<Flight> sampleFlights(int count) {
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            flights.add(new Flight("F" + i, "Destino " + (i % 5), BASE.plusMinutes(i * 7L), LocalTime.of(i % 10, i % 60)));
+        }
+        return flights;
+    }
+}
@@ -0,0 +1,240 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightHistory;
+import com.ivanferrerfranco.flightsfx.model.FlightList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ivanferrerfranco.flightsfx.utils.FlightSnapshotCodecTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la reproducción del diario de vuelos sobre su archivo base.
+ */
+class FlightJournalTest {
+
+    /** Salida de referencia de los vuelos de prueba. */
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2024, 5, 10, 7, 45);
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    /** Ruta del diario. */
+    private Path journalPath;
+
+    /** Ruta de la instantánea que sirve de base. */
+    private Path snapshotPath;
+
+    /** Ruta del archivo de texto, que no existe hasta que una prueba lo crea. */
+    private Path textPath;
+
+    @BeforeEach
+    void createBase() throws IOException {
+        journalPath = directory.resolve("flights.journal");
+        snapshotPath = directory.resolve("flights.bin");
+        textPath = directory.resolve("flights.txt");
+        FileUtils.saveSnapshot(List.of(flight("A1", "Roma"), flight("A2", "Paris"), flight("A3", "Roma")), snapshotPath);
+    }
+
+    @Test
+    void replayAppliesAddsAndRemovesOnMatchingBase() throws IOException {
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordAdd(3, flight("B1", "Lisboa"));
+            journal.recordRemove(1, flight("A2", "Paris"));
+            journal.recordAdd(3, flight("B2", "Oslo"));
+            journal.recordRemove(3, flight("B2", "Oslo"));
+        }
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(flight("A1", "Roma"), flight("A3", "Roma"), flight("B1", "Lisboa"))),
+                describe(flights));
+    }
+
+    @Test
+    void replayKeepsNullFields() throws IOException {
+        Flight incomplete = new Flight("C1", "Berlin", null, null);
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordAdd(3, incomplete);
+        }
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(incomplete)), describe(flights.subList(3, 4)));
+    }
+
+    @Test
+    void journalOfAnotherBaseIsDiscarded() throws IOException {
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordRemove(0, flight("A1", "Roma"));
+        }
+        // Sustituir la base, como al editar el archivo de vuelos fuera de la aplicación.
+        List<Flight> edited = List.of(flight("A1", "Roma"), flight("Z9", "Tokio"));
+        FileUtils.saveSnapshot(edited, snapshotPath);
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(edited), describe(flights));
+        assertFalse(Files.exists(journalPath));
+    }
+
+    @Test
+    void journalWithoutBaseAppliesOnlyWithoutBaseFile() throws IOException {
+        Path missing = directory.resolve("missing.txt");
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, missing)) {
+            journal.recordAdd(0, flight("N1", "Roma"));
+        }
+
+        List<Flight> flights = new ArrayList<>();
+        FlightJournal.replay(flights, journalPath, missing);
+
+        assertEquals(describe(List.of(flight("N1", "Roma"))), describe(flights));
+    }
+
+    @Test
+    void reopeningOnAnotherBaseResetsJournal() throws IOException {
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordAdd(3, flight("B1", "Lisboa"));
+        }
+        FileUtils.saveFlights(List.of(flight("T1", "Roma")), textPath);
+
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, textPath)) {
+            journal.recordAdd(1, flight("B2", "Oslo"));
+        }
+
+        List<Flight> flights = FileUtils.loadFlights(textPath);
+        FlightJournal.replay(flights, journalPath, textPath);
+        assertEquals(describe(List.of(flight("T1", "Roma"), flight("B2", "Oslo"))), describe(flights));
+    }
+
+    @Test
+    void checkpointReplacesBaseWithoutReplayingTwice() throws IOException {
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordAdd(3, flight("B1", "Lisboa"));
+            List<Flight> state = new ArrayList<>(FileUtils.loadSnapshot(snapshotPath));
+            state.add(flight("B1", "Lisboa"));
+            journal.checkpoint(state);
+            journal.recordRemove(0, flight("A1", "Roma"));
+        }
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(flight("A2", "Paris"), flight("A3", "Roma"), flight("B1", "Lisboa"))),
+                describe(flights));
+        assertTrue(Files.exists(journalPath));
+    }
+
+    @Test
+    void snapshotStaysBaseAfterTextFileChanges() throws IOException {
+        FileUtils.saveFlights(List.of(flight("T1", "Roma")), textPath);
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, textPath)) {
+            assertFalse(journal.isSnapshotBased());
+            assertFalse(journal.keepSnapshotAsBase());
+
+            journal.checkpoint(List.of(flight("T1", "Roma")));
+            assertTrue(journal.isSnapshotBased());
+            Files.setLastModifiedTime(snapshotPath, FileTime.fromMillis(0));
+            assertTrue(journal.keepSnapshotAsBase());
+        }
+
+        assertTrue(Files.getLastModifiedTime(snapshotPath).compareTo(Files.getLastModifiedTime(textPath)) >= 0);
+    }
+
+    @Test
+    void replayKeepsPositionsOfReplacementsAndUndo() throws Exception {
+        FlightList flights = new FlightList(FileUtils.loadSnapshot(snapshotPath));
+        FlightHistory history = new FlightHistory(flights);
+        FlightPersistenceService service =
+                new FlightPersistenceService(new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath));
+        flights.addListener(service);
+
+        flights.set(1, flight("A2", "Viena"));
+        flights.remove(0);
+        history.undo();
+        flights.add(1, flight("B1", "Lisboa"));
+        flights.subList(2, 3).clear();
+        flights.addAll(2, List.of(flight("C1", "Oslo"), flight("C2", "Oslo")));
+        service.shutdown().get();
+
+        List<Flight> replayed = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(replayed, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(flight("A1", "Roma"), flight("B1", "Lisboa"), flight("C1", "Oslo"),
+                flight("C2", "Oslo"), flight("A3", "Roma"))), describe(replayed));
+        assertEquals(describe(flights), describe(replayed));
+    }
+
+    @Test
+    void journalWithoutPositionsIsStillReplayed() throws IOException {
+        Files.writeString(journalPath, "#base " + FlightJournal.identityOf(snapshotPath) + "\n"
+                + "+" + FileUtils.formatFlight(flight("B1", "Lisboa")) + "\n"
+                + "-" + FileUtils.formatFlight(flight("A2", "Paris")) + "\n");
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(flight("A1", "Roma"), flight("A3", "Roma"), flight("B1", "Lisboa"))),
+                describe(flights));
+    }
+
+    @Test
+    void compactionUsesBaseNamedInJournal() throws IOException {
+        Files.delete(snapshotPath);
+        FileUtils.saveFlights(List.of(flight("T1", "Roma"), flight("T2", "Oslo")), textPath);
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, textPath)) {
+            journal.recordAdd(2, flight("B1", "Lisboa"));
+            journal.recordRemove(0, flight("T1", "Roma"));
+            journal.compact();
+            assertTrue(journal.isSnapshotBased());
+        }
+
+        List<Flight> flights = FileUtils.loadSnapshot(snapshotPath);
+        FlightJournal.replay(flights, journalPath, snapshotPath);
+
+        assertEquals(describe(List.of(flight("T2", "Oslo"), flight("B1", "Lisboa"))), describe(flights));
+    }
+
+    @Test
+    void compactionAbortsWhenBaseChanged() throws IOException {
+        try (FlightJournal journal = new FlightJournal(journalPath, snapshotPath, textPath, snapshotPath)) {
+            journal.recordAdd(3, flight("B1", "Lisboa"));
+            // Otra instantánea que no es la base del diario; compactar sobre ella aplicaría las operaciones a otros vuelos.
+            FileUtils.saveSnapshot(List.of(flight("Z9", "Tokio")), snapshotPath);
+
+            assertThrows(IOException.class, journal::compact);
+        }
+
+        assertEquals(describe(List.of(flight("Z9", "Tokio"))), describe(FileUtils.loadSnapshot(snapshotPath)));
+        assertTrue(Files.exists(directory.resolve("flights.journal.compacting")));
+    }
+
+    /**
+     * Crea un vuelo de prueba con la salida y la duración de referencia.
+     *
+     * @param number      Número de vuelo.
+     * @param destination Destino.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number, String destination) {
+        return new Flight(number, destination, DEPARTURE, LocalTime.of(2, 30));
+    }
+}
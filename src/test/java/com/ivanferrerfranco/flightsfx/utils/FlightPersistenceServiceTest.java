@@ -0,0 +1,113 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ivanferrerfranco.flightsfx.utils.FlightSnapshotCodecTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del servicio de persistencia: agrupación de cambios en la instantánea completa cuando no hay diario
+ * y conservación de los cambios cuando falla una escritura del diario.
+ */
+class FlightPersistenceServiceTest {
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void burstOfChangesSavesOneSnapshot() throws Exception {
+        Path path = directory.resolve("flights.bin");
+        FlightList flights = new FlightList(List.of());
+        AtomicInteger reads = new AtomicInteger();
+        FlightPersistenceService service = new FlightPersistenceService(() -> {
+            reads.incrementAndGet();
+            return List.copyOf(flights);
+        }, path);
+        flights.addListener(service);
+
+        for (int i = 0; i < 100; i++) {
+            flights.add(flight("F" + i));
+        }
+        service.shutdown().get();
+
+        assertEquals(1, reads.get());
+        assertEquals(describe(flights), describe(FileUtils.loadSnapshot(path)));
+    }
+
+    @Test
+    void shutdownWithoutChangesWritesNothing() throws Exception {
+        Path path = directory.resolve("flights.bin");
+        FlightList flights = new FlightList(List.of(flight("A1")));
+        FlightPersistenceService service = new FlightPersistenceService(() -> List.copyOf(flights), path);
+        flights.addListener(service);
+
+        service.shutdown().get();
+        flights.add(flight("A2"));
+        service.shutdown().get();
+
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void failedWriteKeepsQueuedChangesAndFailsFlush() throws Exception {
+        Path snapshotPath = directory.resolve("flights.bin");
+        Path journalPath = directory.resolve("flights.journal");
+        FileUtils.saveSnapshot(List.of(flight("A1")), snapshotPath);
+        FlightPersistenceService service = new FlightPersistenceService(
+                new FlightJournal(journalPath, snapshotPath, directory.resolve("flights.txt"), snapshotPath));
+
+        // Sin instantánea no se puede mantener como base, así que la escritura falla en ese cambio.
+        Files.delete(snapshotPath);
+        service.keepBase(List.of(flight("A1")));
+        service.recordAdd(1, flight("B1"));
+        assertThrows(ExecutionException.class, () -> service.flush().get());
+        assertFalse(Files.readString(journalPath).contains(FileUtils.formatFlight(flight("B1"))));
+
+        // Cuando la causa desaparece, el reintento aplica el cambio que falló y los encolados detrás de él.
+        FileUtils.saveSnapshot(List.of(flight("A1")), snapshotPath);
+        Files.setLastModifiedTime(snapshotPath, FileTime.fromMillis(0));
+        service.flush().get();
+        assertTrue(Files.getLastModifiedTime(snapshotPath).toMillis() > 0);
+        assertTrue(Files.readString(journalPath).contains("@1+" + FileUtils.formatFlight(flight("B1"))));
+        service.shutdown().get();
+    }
+
+    @Test
+    void shutdownReportsChangesThatCouldNotBeWritten() throws Exception {
+        Path snapshotPath = directory.resolve("flights.bin");
+        FileUtils.saveSnapshot(List.of(flight("A1")), snapshotPath);
+        FlightPersistenceService service = new FlightPersistenceService(new FlightJournal(
+                directory.resolve("flights.journal"), snapshotPath, directory.resolve("flights.txt"), snapshotPath));
+
+        Files.delete(snapshotPath);
+        service.keepBase(List.of(flight("A1")));
+
+        assertThrows(ExecutionException.class, () -> service.shutdown().get());
+    }
+
+    /**
+     * Crea un vuelo de prueba.
+     *
+     * @param number Número de vuelo.
+     * @return El vuelo.
+     */
+    private static Flight flight(String number) {
+        return new Flight(number, "Roma", LocalDateTime.of(2024, 6, 1, 12, 0), LocalTime.of(1, 30));
+    }
+}
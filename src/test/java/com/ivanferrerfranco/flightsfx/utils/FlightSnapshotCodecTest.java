@@ -0,0 +1,251 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import com.ivanferrerfranco.flightsfx.model.FlightStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas del formato binario de instantáneas: ida y vuelta y rechazo de archivos truncados o corruptos.
+ */
+class FlightSnapshotCodecTest {
+
+    /** Desplazamiento del número de vuelos en la cabecera. */
+    private static final int COUNT_OFFSET = 8;
+
+    /** Desplazamiento del tamaño del diccionario de destinos en la cabecera. */
+    private static final int DESTINATION_COUNT_OFFSET = 12;
+
+    /** Tamaño de la cabecera, tras la que empieza el primer número de vuelo. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsEveryFieldAndOrder() {
+        List<Flight> flights = sampleFlights();
+
+        FlightStore decoded = FlightSnapshotCodec.decodeStore(FlightSnapshotCodec.encode(FlightStore.of(flights)));
+
+        assertEquals(describe(flights), describe(decoded.toList()));
+    }
+
+    @Test
+    void roundTripOfEmptyStore() {
+        FlightStore decoded = FlightSnapshotCodec.decodeStore(FlightSnapshotCodec.encode(new FlightStore()));
+
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    void roundTripThroughFile() throws IOException {
+        Path path = directory.resolve("flights.bin");
+        List<Flight> flights = sampleFlights();
+
+        FileUtils.saveSnapshot(flights, path);
+
+        assertEquals(describe(flights), describe(FileUtils.loadSnapshot(path)));
+    }
+
+    @Test
+    void everyTruncationIsRejected() {
+        byte[] bytes = encoded(sampleFlights());
+
+        for (int length = 0; length < bytes.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, length).slice();
+            assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(truncated),
+                    "longitud " + length);
+        }
+    }
+
+    @Test
+    void wrongMagicIsRejected() {
+        byte[] bytes = encoded(sampleFlights());
+        bytes[0] = 'X';
+
+        assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void hugeOrNegativeCountsAreRejected() {
+        for (int offset : new int[]{COUNT_OFFSET, DESTINATION_COUNT_OFFSET}) {
+            for (int value : new int[]{-1, Integer.MAX_VALUE, 1 << 20}) {
+                ByteBuffer buffer = ByteBuffer.wrap(encoded(sampleFlights()));
+                buffer.putInt(offset, value);
+                assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(buffer),
+                        "valor " + value + " en " + offset);
+            }
+        }
+    }
+
+    @Test
+    void oversizedStringLengthIsRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded(sampleFlights()));
+        // Longitud del primer número de vuelo, justo tras la cabecera.
+        buffer.putShort(HEADER_SIZE, (short) 0xFFFE);
+
+        assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(buffer));
+    }
+
+    @Test
+    void corruptColumnsAreRejected() {
+        byte[] bytes = encoded(sampleFlights());
+        int count = sampleFlights().size();
+        int durationsStart = bytes.length - count * Short.BYTES;
+        int destinationsStart = durationsStart - count * Integer.BYTES;
+
+        ByteBuffer badDestination = ByteBuffer.wrap(bytes.clone());
+        badDestination.putInt(destinationsStart, 1000);
+        assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(badDestination));
+
+        ByteBuffer badDuration = ByteBuffer.wrap(bytes.clone());
+        badDuration.putShort(durationsStart, (short) 5000);
+        assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(badDuration));
+    }
+
+    @Test
+    void removedDestinationsLeaveTheDictionary() {
+        FlightStore store = FlightStore.of(sampleFlights());
+        // Quitar el único vuelo a Roma y sustituir el de Düsseldorf por uno a Oslo.
+        store.remove(1);
+        store.set(2, new Flight("FR404", "Oslo", null, null));
+
+        assertEquals(-1, store.findDestinationId("Roma"));
+        assertEquals(-1, store.findDestinationId("Düsseldorf"));
+        assertEquals(2, store.destinationDictionary().stream().filter(d -> d != null).count());
+
+        FlightStore decoded = FlightSnapshotCodec.decodeStore(FlightSnapshotCodec.encode(store));
+        assertEquals(describe(store.toList()), describe(decoded.toList()));
+        assertEquals(-1, decoded.findDestinationId("Roma"));
+    }
+
+    @Test
+    void idOfFreedDestinationIsRejected() {
+        FlightStore store = FlightStore.of(sampleFlights());
+        store.remove(1);
+        byte[] bytes = encoded(store);
+        int count = store.size();
+        int destinationsStart = bytes.length - count * Short.BYTES - count * Integer.BYTES;
+        int freed = store.destinationDictionary().indexOf(null);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(destinationsStart, freed);
+        assertThrows(IllegalArgumentException.class, () -> FlightSnapshotCodec.decodeStore(buffer));
+    }
+
+    @Test
+    void listIsEncodedLikeItsStore() {
+        List<Flight> flights = sampleFlights();
+        // Caracteres de dos, tres y cuatro bytes y un sustituto suelto, que la codificación cambia por '?'.
+        flights.add(new Flight("Ω\u4E2D\uD83D\uDE80", "Bad\uD800Surrogate", null, LocalTime.of(3, 0)));
+
+        assertArrayEquals(encoded(FlightStore.of(flights)), encoded(FlightSnapshotCodec.encode(flights)));
+    }
+
+    @Test
+    void listViewEditsColumnsInPlace() {
+        FlightStore store = FlightStore.of(sampleFlights());
+        List<Flight> expected = sampleFlights();
+        List<Flight> view = store.asList();
+        Flight inserted = new Flight("LH900", "Roma", null, LocalTime.of(4, 0));
+        Flight replaced = new Flight("IB103", "Lisboa", null, null);
+
+        for (List<Flight> flights : List.of(expected, view)) {
+            flights.add(1, inserted);
+            flights.addAll(0, List.of(inserted, inserted));
+            flights.set(4, replaced);
+            flights.subList(2, 4).clear();
+            flights.remove(flights.size() - 2);
+        }
+
+        assertEquals(describe(expected), describe(view));
+        assertEquals(describe(expected), describe(store.toList()));
+        assertEquals(-1, store.findDestinationId("Düsseldorf"));
+        assertEquals(describe(expected), describe(FlightSnapshotCodec.decodeStore(FlightSnapshotCodec.encode(store)).toList()));
+    }
+
+    @Test
+    void corruptFileIsRejectedByLoader() throws IOException {
+        Path path = directory.resolve("flights.bin");
+        byte[] bytes = encoded(sampleFlights());
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IllegalArgumentException.class, () -> FileUtils.loadSnapshotStore(path));
+    }
+
+    /**
+     * Vuelos de ejemplo, con destinos repetidos y campos nulos.
+     *
+     * @return Una lista nueva de vuelos.
+     */
+    private static List<Flight> sampleFlights() {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 8, 30);
+        List<Flight> flights = new ArrayList<>();
+        flights.add(new Flight("IB101", "Madrid", base, LocalTime.of(1, 15)));
+        flights.add(new Flight("VY202", "Roma", base.plusDays(1), LocalTime.of(2, 5)));
+        flights.add(new Flight("IB103", "Madrid", base.minusYears(30), LocalTime.of(0, 45)));
+        flights.add(new Flight("FR404", "Düsseldorf", null, null));
+        flights.add(new Flight(null, null, base.plusMinutes(1), LocalTime.of(23, 59)));
+        return flights;
+    }
+
+    /**
+     * Codifica vuelos en un array de bytes.
+     *
+     * @param flights Vuelos a codificar.
+     * @return El contenido de la instantánea.
+     */
+    private static byte[] encoded(List<Flight> flights) {
+        return encoded(FlightStore.of(flights));
+    }
+
+    /**
+     * Codifica un almacén en un array de bytes.
+     *
+     * @param store Almacén a codificar.
+     * @return El contenido de la instantánea.
+     */
+    private static byte[] encoded(FlightStore store) {
+        return encoded(FlightSnapshotCodec.encode(store));
+    }
+
+    /**
+     * Copia el contenido de una instantánea codificada en un array de bytes.
+     *
+     * @param buffer Instantánea codificada; se consume.
+     * @return El contenido de la instantánea.
+     */
+    private static byte[] encoded(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Describe los campos de cada vuelo para comparar listas, ya que {@link Flight} no define {@code equals}.
+     *
+     * @param flights Vuelos a describir.
+     * @return Una descripción por vuelo.
+     */
+    static List<String> describe(List<Flight> flights) {
+        return flights.stream()
+                .map(f -> f.getFlightNumber() + "|" + f.getDestination() + "|" + f.getDepartureDateTime() + "|" + f.getDuration())
+                .toList();
+    }
+}
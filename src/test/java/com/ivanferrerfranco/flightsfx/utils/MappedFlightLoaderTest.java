@@ -0,0 +1,88 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import com.ivanferrerfranco.flightsfx.model.Flight;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.ivanferrerfranco.flightsfx.utils.FlightSnapshotCodecTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la carga en paralelo por bloques proyectados en memoria.
+ */
+class MappedFlightLoaderTest {
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void chunkBoundariesKeepFileOrderAndLineNumbers() throws IOException {
+        List<Flight> flights = sampleFlights(300);
+        StringBuilder text = new StringBuilder(FileUtils.formatHeader(';')).append('\n');
+        for (int i = 0; i < flights.size(); i++) {
+            text.append(FileUtils.formatFlight(flights.get(i), ';')).append(i % 7 == 0 ? "\r\n" : "\n");
+            if (i == 100) {
+                text.append('\n');
+            }
+            if (i == 200) {
+                text.append("roto;sin;campos\n");
+            }
+        }
+        Path path = directory.resolve("flights.txt");
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+
+        // Bloques más cortos que una línea: cada límite cae a mitad de línea y se lleva al siguiente salto.
+        for (long chunkSize : new long[]{1, 50, 333, 4096, 0}) {
+            LoadResult result = MappedFlightLoader.load(path, ForkJoinPool.commonPool(), chunkSize);
+
+            assertEquals(describe(flights), describe(result.flights()), "bloques de " + chunkSize);
+            assertEquals(1, result.errors().size());
+            // Cabecera, 201 vuelos y una línea vacía antes de la línea incorrecta.
+            assertEquals(204, result.errors().get(0).lineNumber());
+            assertEquals("roto;sin;campos", result.errors().get(0).line());
+        }
+    }
+
+    @Test
+    void separatorComesFromHeader() throws IOException {
+        List<Flight> flights = sampleFlights(50);
+        StringBuilder text = new StringBuilder(FileUtils.formatHeader(',')).append('\n');
+        for (Flight flight : flights) {
+            text.append(FileUtils.formatFlight(flight, ',')).append('\n');
+        }
+        Path path = directory.resolve("flights.csv");
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+
+        LoadResult result = MappedFlightLoader.load(path, ForkJoinPool.commonPool(), 64);
+
+        assertEquals(List.of(), result.errors());
+        assertEquals(describe(flights), describe(result.flights()));
+        assertEquals(describe(FileUtils.loadFlights(path)), describe(result.flights()));
+    }
+
+    /**
+     * Crea vuelos de prueba con salidas y duraciones distintas, algunos sin fecha de salida.
+     *
+     * @param count Número de vuelos.
+     * @return Los vuelos.
+     */
+    private static List<Flight> sampleFlights(int count) {
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime departure = i % 11 == 0 ? null : LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i * 37L);
+            flights.add(new Flight("F" + i, "Destino " + (i % 5), departure, LocalTime.of(i % 10, i % 60)));
+        }
+        return flights;
+    }
+}
@@ -0,0 +1,230 @@
+package com.ivanferrerfranco.flightsfx.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del archivo de páginas: puntos de control, recuperación con el registro y entradas dañadas.
+ */
+class PageFileTest {
+
+    /** Directorio temporal de cada prueba. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void pagesAndMetaSurviveReopen() throws IOException {
+        Path path = directory.resolve("pages.db");
+        int first;
+        int second;
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            first = pages.allocate();
+            second = pages.allocate();
+            pages.write(first, page(1));
+            pages.write(second, page(2));
+            pages.setMeta(3, 42);
+        }
+
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            assertArrayEquals(page(1), pages.read(first));
+            assertArrayEquals(page(2), pages.read(second));
+            assertEquals(42, pages.meta(3));
+            assertEquals(second + 1, pages.allocate());
+            assertThrows(IOException.class, () -> pages.read(second + 5));
+        }
+        assertEquals(0, Files.size(wal(path)));
+    }
+
+    @Test
+    void loggedRecordsAreRecoveredUntilCheckpoint() throws IOException {
+        Path path = directory.resolve("pages.db");
+        PageFile pages = PageFile.open(path, 4, 100);
+        pages.checkpoint();
+        pages.log(new byte[]{1, 2, 3}, true);
+        pages.log(new byte[]{4}, true);
+        pages.write(pages.allocate(), page(7));
+        pages.abort();
+
+        try (PageFile reopened = PageFile.open(path, 4, 100)) {
+            assertRecords(List.of(new byte[]{1, 2, 3}, new byte[]{4}), reopened.recoveredRecords());
+            reopened.checkpoint();
+            assertTrue(reopened.recoveredRecords().isEmpty());
+        }
+        try (PageFile reopened = PageFile.open(path, 4, 100)) {
+            assertTrue(reopened.recoveredRecords().isEmpty());
+        }
+    }
+
+    @Test
+    void tornTailIsDiscarded() throws IOException {
+        Path path = directory.resolve("pages.db");
+        PageFile pages = PageFile.open(path, 4, 100);
+        pages.checkpoint();
+        pages.log(new byte[]{1, 2, 3}, true);
+        pages.abort();
+        long valid = Files.size(wal(path));
+
+        // Una entrada cortada a mitad: tipo, longitud y solo parte del contenido.
+        Files.write(wal(path), new byte[]{1, 0, 0, 0, 50, 9, 9}, StandardOpenOption.APPEND);
+
+        try (PageFile reopened = PageFile.open(path, 4, 100)) {
+            assertRecords(List.of(new byte[]{1, 2, 3}), reopened.recoveredRecords());
+            assertEquals(valid, Files.size(wal(path)));
+            reopened.log(new byte[]{5}, true);
+        }
+    }
+
+    @Test
+    void crcMismatchDiscardsRecordAndEverythingAfter() throws IOException {
+        Path path = directory.resolve("pages.db");
+        PageFile pages = PageFile.open(path, 4, 100);
+        pages.checkpoint();
+        pages.log(new byte[]{1, 2, 3}, true);
+        pages.log(new byte[]{4, 5}, true);
+        pages.log(new byte[]{6}, true);
+        pages.abort();
+
+        // Cambiar un byte del contenido de la segunda entrada, que empieza tras la primera (5 + 3 + 4 bytes).
+        corrupt(wal(path), 5 + 3 + 4 + 5);
+
+        try (PageFile reopened = PageFile.open(path, 4, 100)) {
+            assertRecords(List.of(new byte[]{1, 2, 3}), reopened.recoveredRecords());
+        }
+    }
+
+    @Test
+    void committedPagesInLogAreRewritten() throws IOException {
+        Path path = directory.resolve("pages.db");
+        int number;
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            number = pages.allocate();
+            pages.write(number, page(1));
+        }
+
+        // Un punto de control cortado tras confirmarlo en el registro y antes de escribir el archivo.
+        byte[] image = ByteBuffer.allocate(4 + PageFile.PAGE_SIZE).putInt(number).put(page(9)).array();
+        Files.write(wal(path), concat(record((byte) 1, new byte[]{7}), record((byte) 2, image), record((byte) 3, new byte[0])));
+
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            assertArrayEquals(page(9), pages.read(number));
+            assertTrue(pages.recoveredRecords().isEmpty());
+        }
+    }
+
+    @Test
+    void uncommittedPagesInLogAreDiscarded() throws IOException {
+        Path path = directory.resolve("pages.db");
+        int number;
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            number = pages.allocate();
+            pages.write(number, page(1));
+        }
+
+        byte[] image = ByteBuffer.allocate(4 + PageFile.PAGE_SIZE).putInt(number).put(page(9)).array();
+        Files.write(wal(path), concat(record((byte) 1, new byte[]{7}), record((byte) 2, image)));
+
+        try (PageFile pages = PageFile.open(path, 4, 100)) {
+            assertArrayEquals(page(1), pages.read(number));
+            assertRecords(List.of(new byte[]{7}), pages.recoveredRecords());
+        }
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path path = directory.resolve("other.db");
+        Files.write(path, page(3));
+
+        assertThrows(IOException.class, () -> PageFile.open(path, 4, 100));
+    }
+
+    /**
+     * Crea una página rellena con un mismo byte.
+     *
+     * @param fill Byte de relleno.
+     * @return La página.
+     */
+    private static byte[] page(int fill) {
+        byte[] data = new byte[PageFile.PAGE_SIZE];
+        Arrays.fill(data, (byte) fill);
+        return data;
+    }
+
+    /**
+     * Codifica una entrada del registro como lo hace {@link PageFile}: tipo, longitud, contenido y CRC32.
+     *
+     * @param type    Tipo de la entrada.
+     * @param payload Contenido.
+     * @return La entrada codificada.
+     */
+    private static byte[] record(byte type, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + payload.length + 4);
+        record.put(type).putInt(payload.length).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        return record.putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * Une varios arrays de bytes.
+     *
+     * @param parts Arrays a unir.
+     * @return Los bytes de todos, en orden.
+     */
+    private static byte[] concat(byte[]... parts) {
+        ByteBuffer buffer = ByteBuffer.allocate(Arrays.stream(parts).mapToInt(part -> part.length).sum());
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Invierte los bits de un byte de un archivo.
+     *
+     * @param path     Archivo.
+     * @param position Posición del byte.
+     * @throws IOException Si ocurre un error al leer o escribir el archivo.
+     */
+    static void corrupt(Path path, int position) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[position] ^= (byte) 0xFF;
+        Files.write(path, bytes);
+    }
+
+    /**
+     * Devuelve la ruta del registro de un archivo de páginas.
+     *
+     * @param path Ruta del archivo de páginas.
+     * @return La ruta del registro.
+     */
+    static Path wal(Path path) {
+        return path.resolveSibling(path.getFileName() + ".wal");
+    }
+
+    /**
+     * Comprueba que las operaciones recuperadas son las esperadas.
+     *
+     * @param expected Operaciones esperadas.
+     * @param actual   Operaciones recuperadas.
+     */
+    private static void assertRecords(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}